@@ -15,6 +15,7 @@
  */
 package com.orientechnologies.orient.client.remote;
 
+import com.orientechnologies.common.concur.lock.OLockException;
 import com.orientechnologies.common.concur.resource.OResourcePool;
 import com.orientechnologies.common.concur.resource.OResourcePoolListener;
 import com.orientechnologies.common.io.OIOException;
@@ -28,25 +29,43 @@ import com.orientechnologies.orient.enterprise.channel.binary.OChannelListener;
 import com.orientechnologies.orient.enterprise.channel.binary.ORemoteServerEventListener;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Manages network connections against OrientDB servers. All the connection pools are managed in a Map<url,pool>, but in the future
  * we could have a unique pool per sever and manage database connections over the protocol.
+ * <p>
+ * The load of each URL is tracked by a {@link ORemoteServerLoad}. The pools create the connections on demand. With
+ * client.channel.shrinkPool they close the released ones exceeding the average demand, but never below the minimum pool size. The
+ * server drops the session that sent its last request through a connection when the connection is closed, so the connections are
+ * closed only when no session is bound to them.
  * 
  * @author Luca Garulli (l.garulli--at--orientechnologies.com)
  */
 public class ORemoteConnectionManager implements OChannelListener {
-  public static final String                                                                   PARAM_MAX_POOL = "maxpool";
+  public static final String                                                                        PARAM_MIN_POOL = "minpool";
+  public static final String                                                                        PARAM_MAX_POOL = "maxpool";
 
-  protected final ConcurrentHashMap<String, OResourcePool<String, OChannelBinaryAsynchClient>> connections;
-  protected final long                                                                         timeout;
+  protected final ConcurrentHashMap<String, OResourcePool<String, OChannelBinaryAsynchClient>>      connections;
+  protected final ConcurrentHashMap<String, ORemoteServerLoad>                                      loads;
+  protected final ConcurrentHashMap<OChannelBinaryAsynchClient, Boolean>                            inUse;
+  protected final ConcurrentHashMap<String, ConcurrentHashMap<Integer, OChannelBinaryAsynchClient>> sessions;
+  protected final ConcurrentHashMap<OChannelBinaryAsynchClient, Set<Integer>>                       boundSessions;
+  protected final long                                                                              timeout;
+  protected final long                                                                              failureBackoff;
 
   public ORemoteConnectionManager(final int iMaxConnectionPerURL, final long iTimeout) {
     connections = new ConcurrentHashMap<String, OResourcePool<String, OChannelBinaryAsynchClient>>();
+    loads = new ConcurrentHashMap<String, ORemoteServerLoad>();
+    inUse = new ConcurrentHashMap<OChannelBinaryAsynchClient, Boolean>();
+    sessions = new ConcurrentHashMap<String, ConcurrentHashMap<Integer, OChannelBinaryAsynchClient>>();
+    boundSessions = new ConcurrentHashMap<OChannelBinaryAsynchClient, Set<Integer>>();
     timeout = iTimeout;
+    failureBackoff = OGlobalConfiguration.CLIENT_CHANNEL_FAILURE_BACKOFF.getValueAsLong();
   }
 
   public void close() {
@@ -60,13 +79,18 @@ public class ORemoteConnectionManager implements OChannelListener {
       final Map<String, Object> iConfiguration, final ORemoteServerEventListener iListener) {
     OResourcePool<String, OChannelBinaryAsynchClient> pool = connections.get(iServerURL);
     if (pool == null) {
+      int minPool = OGlobalConfiguration.CLIENT_CHANNEL_MIN_POOL.getValueAsInteger();
       int maxPool = OGlobalConfiguration.CLIENT_CHANNEL_MAX_POOL.getValueAsInteger();
 
       if (iConfiguration != null && iConfiguration.size() > 0) {
+        if (iConfiguration.containsKey(PARAM_MIN_POOL))
+          minPool = Integer.parseInt(iConfiguration.get(PARAM_MIN_POOL).toString());
         if (iConfiguration.containsKey(PARAM_MAX_POOL))
           maxPool = Integer.parseInt(iConfiguration.get(PARAM_MAX_POOL).toString());
       }
 
+      getServerLoad(iServerURL).setMinPool(minPool);
+
       pool = new OResourcePool<String, OChannelBinaryAsynchClient>(maxPool,
           new OResourcePoolListener<String, OChannelBinaryAsynchClient>() {
             @Override
@@ -77,7 +101,8 @@ public class ORemoteConnectionManager implements OChannelListener {
 
             @Override
             public boolean reuseResource(final String iKey, final Object[] iAdditionalArgs, final OChannelBinaryAsynchClient iValue) {
-              return true;
+              // DISCARD THE CONNECTIONS CLOSED WHILE IDLE
+              return iValue.isConnected();
             }
           });
 
@@ -89,34 +114,82 @@ public class ORemoteConnectionManager implements OChannelListener {
       }
     }
 
+    final ORemoteServerLoad load = getServerLoad(iServerURL);
     try {
       // RETURN THE RESOURCE
-      return pool.getResource(iServerURL, timeout, clientConfiguration, iConfiguration, iListener);
-
+      final OChannelBinaryAsynchClient conn = pool.getResource(iServerURL, timeout, clientConfiguration, iConfiguration,
+          iListener);
+      inUse.put(conn, Boolean.TRUE);
+      load.begin();
+      return conn;
+
+    } catch (OLockException e) {
+      // NO CONNECTION AVAILABLE IN TIME OR CANNOT CONNECT
+      if (e.getCause() != null)
+        load.failed(false, failureBackoff);
+      connections.remove(iServerURL);
+      throw e;
     } catch (RuntimeException e) {
       // ERROR ON RETRIEVING THE INSTANCE FROM THE POOL
+      load.failed(false, failureBackoff);
       connections.remove(iServerURL);
       throw e;
     } catch (Exception e) {
       // ERROR ON RETRIEVING THE INSTANCE FROM THE POOL
       OLogManager.instance().error(this, "Error on retrieving the connection from pool: " + iServerURL, e);
+      load.failed(false, failureBackoff);
       connections.remove(iServerURL);
     }
     return null;
   }
 
   public void release(final OChannelBinaryAsynchClient conn) {
+    if (inUse.remove(conn) == null)
+      // ALREADY REMOVED FROM THE POOL
+      return;
+
+    final ORemoteServerLoad load = getServerLoad(conn.getServerURL());
+    load.end();
+
     final OResourcePool<String, OChannelBinaryAsynchClient> pool = connections.get(conn.getServerURL());
     if (pool != null) {
       if (!conn.isConnected()) {
         OLogManager.instance().debug(this, "Network connection pool is receiving a closed connection to reuse: discard it");
         pool.remove(conn);
+      } else if (OGlobalConfiguration.CLIENT_CHANNEL_SHRINK_POOL.getValueAsBoolean()
+          && load.getInFlight() + pool.getAvailableResources() >= load.getPoolTarget() && !conn.hasPendingResponses()
+          && !isSessionBound(conn)) {
+        // MORE CONNECTIONS THAN THE AVERAGE DEMAND: SHRINK THE POOL
+        OLogManager.instance().debug(this, "Closing the network connection %s exceeding the demand (%s)", conn, load);
+        pool.remove(conn);
+        try {
+          conn.close();
+        } catch (Exception e) {
+        }
       } else
         pool.returnResource(conn);
     }
   }
 
+  /**
+   * Removes the connection from the pool and closes it. A connection removed while in use makes the server unavailable for the
+   * load balancing until the failure backoff expires.
+   */
   public void remove(final OChannelBinaryAsynchClient conn) {
+    remove(conn, true);
+  }
+
+  /**
+   * Removes the connection closed on purpose, as on closing the database: the server is not considered failed.
+   */
+  public void discard(final OChannelBinaryAsynchClient conn) {
+    remove(conn, false);
+  }
+
+  protected void remove(final OChannelBinaryAsynchClient conn, final boolean iFailure) {
+    // CLOSING THE CONNECTION CALLS THIS METHOD AGAIN: THE PERMIT IS RELEASED ONLY BY THE FIRST CALL
+    final boolean acquired = inUse.remove(conn) != null;
+
     if (conn.isConnected()) {
       try {
         conn.unlock();
@@ -129,11 +202,96 @@ public class ORemoteConnectionManager implements OChannelListener {
       }
     }
 
+    // THE SERVER HAS DROPPED THE SESSIONS BOUND TO THE CONNECTION
+    final Set<Integer> connSessions = boundSessions.remove(conn);
+    final ConcurrentHashMap<Integer, OChannelBinaryAsynchClient> bound = sessions.get(conn.getServerURL());
+    if (connSessions != null && bound != null)
+      for (Integer sessionId : connSessions)
+        bound.remove(sessionId, conn);
+
     final OResourcePool<String, OChannelBinaryAsynchClient> pool = connections.get(conn.getServerURL());
     if (pool == null)
       throw new IllegalStateException("Connection cannot be released because the pool doesn't exist anymore");
 
-    pool.remove(conn);
+    if (acquired) {
+      final ORemoteServerLoad load = getServerLoad(conn.getServerURL());
+      if (iFailure)
+        load.failed(true, failureBackoff);
+      else
+        load.end();
+      pool.remove(conn);
+    } else
+      // IDLE CONNECTION: ITS PERMIT WAS RELEASED WHEN IT WAS RETURNED TO THE POOL
+      pool.removeIdle(conn);
+  }
+
+  /**
+   * Returns the load of the remote server at the URL, creating it the first time.
+   */
+  public ORemoteServerLoad getServerLoad(final String url) {
+    ORemoteServerLoad load = loads.get(url);
+    if (load == null) {
+      load = new ORemoteServerLoad(OGlobalConfiguration.CLIENT_CHANNEL_MIN_POOL.getValueAsInteger());
+      final ORemoteServerLoad prev = loads.putIfAbsent(url, load);
+      if (prev != null)
+        load = prev;
+    }
+    return load;
+  }
+
+  /**
+   * Binds the session to the connection used by its last request, as the server does.
+   */
+  public void bindSession(final OChannelBinaryAsynchClient conn, final int iSessionId) {
+    if (iSessionId < 0)
+      // NOT YET ASSIGNED BY THE SERVER
+      return;
+
+    ConcurrentHashMap<Integer, OChannelBinaryAsynchClient> bound = sessions.get(conn.getServerURL());
+    if (bound == null) {
+      bound = new ConcurrentHashMap<Integer, OChannelBinaryAsynchClient>();
+      final ConcurrentHashMap<Integer, OChannelBinaryAsynchClient> prev = sessions.putIfAbsent(conn.getServerURL(), bound);
+      if (prev != null)
+        bound = prev;
+    }
+    final OChannelBinaryAsynchClient prev = bound.put(iSessionId, conn);
+    if (prev != conn) {
+      if (prev != null)
+        getBoundSessions(prev).remove(iSessionId);
+      getBoundSessions(conn).add(iSessionId);
+    }
+  }
+
+  /**
+   * Unbinds the session closed on the server.
+   */
+  public void unbindSession(final String url, final int iSessionId) {
+    final ConcurrentHashMap<Integer, OChannelBinaryAsynchClient> bound = sessions.get(url);
+    if (bound == null)
+      return;
+
+    final OChannelBinaryAsynchClient conn = bound.remove(iSessionId);
+    if (conn != null)
+      getBoundSessions(conn).remove(iSessionId);
+  }
+
+  protected boolean isSessionBound(final OChannelBinaryAsynchClient conn) {
+    final Set<Integer> connSessions = boundSessions.get(conn);
+    return connSessions != null && !connSessions.isEmpty();
+  }
+
+  /**
+   * Returns the sessions bound to the connection, the reverse index of the sessions by URL.
+   */
+  protected Set<Integer> getBoundSessions(final OChannelBinaryAsynchClient conn) {
+    Set<Integer> connSessions = boundSessions.get(conn);
+    if (connSessions == null) {
+      connSessions = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+      final Set<Integer> prev = boundSessions.putIfAbsent(conn, connSessions);
+      if (prev != null)
+        connSessions = prev;
+    }
+    return connSessions;
   }
 
   @Override
@@ -158,6 +316,11 @@ public class ORemoteConnectionManager implements OChannelListener {
   }
 
   public void closePool(final String url) {
+    final ConcurrentHashMap<Integer, OChannelBinaryAsynchClient> bound = sessions.remove(url);
+    if (bound != null)
+      for (OChannelBinaryAsynchClient conn : bound.values())
+        boundSessions.remove(conn);
+
     final OResourcePool<String, OChannelBinaryAsynchClient> pool = connections.remove(url);
     if (pool == null)
       return;
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.client.remote;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load of a remote server as seen by the client. It tracks the connections in use and the exponentially weighted moving averages
+ * of the response time and of the connections in use. A server that caused a network error is not available until the
+ * backoff expires: then the next session opened against it probes it again.
+ *
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ */
+public class ORemoteServerLoad {
+  private static final double WEIGHT          = 0.2;
+  private final AtomicInteger inFlight        = new AtomicInteger();
+  private double              averageLatency  = 0;
+  private double              averageInFlight = 0;
+  private volatile long       failedUntil     = 0;
+  private volatile int        minPool;
+
+  public ORemoteServerLoad(final int iMinPool) {
+    minPool = iMinPool;
+  }
+
+  /**
+   * Called when a connection is acquired.
+   */
+  public synchronized void begin() {
+    averageInFlight += WEIGHT * (inFlight.incrementAndGet() - averageInFlight);
+  }
+
+  /**
+   * Called when a connection is released.
+   */
+  public synchronized void end() {
+    inFlight.decrementAndGet();
+    failedUntil = 0;
+  }
+
+  /**
+   * Called when the response of a request has been read. A pipelined request releases its connection before its response, so the
+   * latency is not measured on the connection.
+   *
+   * @param iElapsed
+   *          nanoseconds between the request and the end of its response
+   */
+  public synchronized void onResponse(final long iElapsed) {
+    averageLatency += WEIGHT * (iElapsed / 1000000d - averageLatency);
+  }
+
+  /**
+   * Called on a network error: the server is skipped for the backoff time.
+   *
+   * @param iInUse
+   *          true if the connection was in use
+   */
+  public synchronized void failed(final boolean iInUse, final long iBackoff) {
+    if (iInUse)
+      inFlight.decrementAndGet();
+    failedUntil = System.currentTimeMillis() + iBackoff;
+  }
+
+  public boolean isAvailable() {
+    return System.currentTimeMillis() >= failedUntil;
+  }
+
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  /**
+   * Returns the average time in milliseconds between a request and the end of its response.
+   */
+  public synchronized double getAverageLatency() {
+    return averageLatency;
+  }
+
+  /**
+   * Returns the number of connections worth keeping open to serve the average demand, never less than the minimum pool size.
+   */
+  public synchronized int getPoolTarget() {
+    return Math.max(minPool, (int) Math.ceil(averageInFlight));
+  }
+
+  public void setMinPool(final int iMinPool) {
+    minPool = iMinPool;
+  }
+
+  /**
+   * Returns the estimated time to serve one more request: the lower, the better. A server never used scores 0, so it's tried.
+   */
+  public synchronized double getScore() {
+    return (inFlight.get() + 1) * averageLatency;
+  }
+
+  @Override
+  public String toString() {
+    return "inFlight=" + inFlight.get() + " averageLatency=" + getAverageLatency() + "ms available=" + isAvailable();
+  }
+}
@@ -51,6 +51,7 @@ import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.serialization.OSerializableStream;
 import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerStringAbstract;
 import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerAnyStreamable;
+import com.orientechnologies.orient.core.sql.query.OSQLQuery;
 import com.orientechnologies.orient.core.storage.OCluster;
 import com.orientechnologies.orient.core.storage.OPhysicalPosition;
 import com.orientechnologies.orient.core.storage.ORawBuffer;
@@ -103,6 +104,15 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
   private OContextConfiguration         clientConfiguration;
   private int                           connectionRetry;
   private int                           connectionRetryDelay;
+  private boolean                       pipelining;
+  private boolean                       loadBalancing;
+  private int                           cursorBatchSize;
+  private boolean                       preparedStatements;
+  // IDS OF THE STATEMENTS PREPARED BY EACH SESSION, BY QUERY
+  private final Map<String, Map<String, Integer>> statements = new ConcurrentHashMap<String, Map<String, Integer>>();
+  private volatile OStorageRemoteNearCache nearCache;
+  private volatile OChannelBinaryAsynchClient nearCacheNetwork;
+  private final Object                  nearCacheLock        = new Object();
   @Deprecated
   private int                           networkPoolCursor    = 0;
   private OCluster[]                    clusters             = new OCluster[0];
@@ -133,6 +143,13 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
     clientConfiguration = new OContextConfiguration();
     connectionRetry = clientConfiguration.getValueAsInteger(OGlobalConfiguration.NETWORK_SOCKET_RETRY);
     connectionRetryDelay = clientConfiguration.getValueAsInteger(OGlobalConfiguration.NETWORK_SOCKET_RETRY_DELAY);
+    pipelining = clientConfiguration.getValueAsBoolean(OGlobalConfiguration.CLIENT_CHANNEL_PIPELINING);
+    loadBalancing = clientConfiguration.getValueAsBoolean(OGlobalConfiguration.CLIENT_CHANNEL_LOAD_BALANCING);
+    cursorBatchSize = clientConfiguration.getValueAsInteger(OGlobalConfiguration.CLIENT_QUERY_CURSOR_BATCH_SIZE);
+    preparedStatements = clientConfiguration.getValueAsBoolean(OGlobalConfiguration.CLIENT_PREPARED_STATEMENTS);
+    final int nearCacheSize = clientConfiguration.getValueAsInteger(OGlobalConfiguration.CLIENT_NEAR_CACHE_SIZE);
+    if (nearCacheSize > 0)
+      nearCache = new OStorageRemoteNearCache(nearCacheSize * 1024l);
     asynchEventListener = new OStorageRemoteAsynchEventListener(this);
     parseServerURLs();
 
@@ -155,6 +172,22 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
     tl.sessionId = iSessionId;
   }
 
+  /**
+   * Returns the id of the last request sent by the current thread, or -1 if it was not pipelined.
+   */
+  public int getRequestId() {
+    return OStorageRemoteThreadLocal.INSTANCE.get().requestId;
+  }
+
+  /**
+   * Binds the session and the request to the current thread, used to read the response of an asynchronous request.
+   */
+  protected void setRequestSession(final int iSessionId, final int iRequestId) {
+    final OStorageRemoteSession tl = OStorageRemoteThreadLocal.INSTANCE.get();
+    tl.sessionId = iSessionId;
+    tl.requestId = iRequestId;
+  }
+
   public ORemoteServerEventListener getAsynchEventListener() {
     return asynchEventListener;
   }
@@ -259,14 +292,21 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
       if (status == STATUS.CLOSED)
         return;
 
+      final int sessionId = getSessionId();
+      statements.remove(getServerURL() + "#" + sessionId);
       network = beginRequest(OChannelBinaryProtocol.REQUEST_DB_CLOSE);
       try {
         setSessionId(null, -1);
       } finally {
+        engine.getConnectionManager().unbindSession(network.getServerURL(), sessionId);
         endRequest(network);
       }
 
-      engine.getConnectionManager().remove(network);
+      if (getRequestId() == -1)
+        // THE SERVER CLOSES THE CONNECTION
+        engine.getConnectionManager().discard(network);
+      // ELSE THE CHANNEL IS SHARED WITH OTHER SESSIONS AND HAS BEEN ALREADY RELEASED
+      OStorageRemoteThreadLocal.INSTANCE.get().requestId = -1;
 
       if (!checkForClose(iForce))
         return;
@@ -275,6 +315,10 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
       // CLOSE ALL THE CONNECTIONS
       engine.getConnectionManager().closePool(getCurrentServerURL());
 
+      nearCacheNetwork = null;
+      if (nearCache != null)
+        nearCache.clear();
+
       super.close(iForce, onDelete);
       status = STATUS.CLOSED;
 
@@ -354,6 +398,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
           // ASYNCHRONOUS
           if (iCallback != null) {
             final int sessionId = getSessionId();
+            final int requestId = getRequestId();
             final OSBTreeCollectionManager collectionManager = ODatabaseRecordThreadLocal.INSTANCE.get()
                 .getSbTreeCollectionManager();
             Callable<Object> response = new Callable<Object>() {
@@ -361,7 +406,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
                 final OClusterPosition result;
 
                 try {
-                  OStorageRemoteThreadLocal.INSTANCE.get().sessionId = sessionId;
+                  setRequestSession(sessionId, requestId);
                   beginResponse(network);
                   result = network.readClusterPosition();
                   if (network.getSrvProtocolVersion() >= 11)
@@ -371,7 +416,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
                     readCollectionChanges(network, collectionManager);
                 } finally {
                   endResponse(network);
-                  OStorageRemoteThreadLocal.INSTANCE.get().sessionId = -1;
+                  setRequestSession(-1, -1);
                 }
                 iCallback.call(iRid, result);
                 return null;
@@ -432,6 +477,15 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
       // PENDING NETWORK OPERATION, CAN'T EXECUTE IT NOW
       return new OStorageOperationResult<ORawBuffer>(null);
 
+    // THE NEAR CACHE KEEPS ONLY THE PLAIN CONTENT OF THE RECORDS
+    final OStorageRemoteNearCache cache = !iIgnoreCache && (iFetchPlan == null || iFetchPlan.isEmpty()) && !loadTombstones
+        && iLockingStrategy == LOCKING_STRATEGY.DEFAULT ? getSubscribedNearCache() : null;
+    if (cache != null) {
+      final ORawBuffer cached = cache.get(iRid);
+      if (cached != null)
+        return new OStorageOperationResult<ORawBuffer>(cached);
+    }
+
     OChannelBinaryAsynchClient network = null;
     do {
       try {
@@ -466,6 +520,10 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
               // PUT IN THE CLIENT LOCAL CACHE
               database.getLocalCache().updateRecord(record);
           }
+
+          if (cache != null)
+            cache.put(iRid, buffer);
+
           return new OStorageOperationResult<ORawBuffer>(buffer);
 
         } finally {
@@ -479,6 +537,61 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
     } while (true);
   }
 
+  /**
+   * Reads the records in one round trip. Servers older than protocol 27 are asked one record at a time.
+   */
+  @Override
+  public List<ORawBuffer> readRecords(final Collection<ORecordId> iRids) {
+    if (OStorageRemoteThreadLocal.INSTANCE.get().commandExecuting)
+      // PENDING NETWORK OPERATION, CAN'T EXECUTE IT NOW
+      return new ArrayList<ORawBuffer>(Collections.<ORawBuffer> nCopies(iRids.size(), null));
+
+    OChannelBinaryAsynchClient network = null;
+    do {
+      try {
+
+        try {
+          network = getAvailableNetwork(getCurrentServerURL());
+          if (network.getSrvProtocolVersion() < OChannelBinaryProtocol.PROTOCOL_VERSION_27) {
+            // NOT SUPPORTED BY THE SERVER: LOAD ONE RECORD AT A TIME
+            network.releaseWriteLock();
+            engine.getConnectionManager().release(network);
+            network = null;
+            return super.readRecords(iRids);
+          }
+
+          writeRequestHeader(network, OChannelBinaryProtocol.REQUEST_RECORD_LOAD_MULTI);
+          network.writeInt(iRids.size());
+          for (ORecordId rid : iRids)
+            network.writeRID(rid);
+        } finally {
+          endRequest(network);
+        }
+
+        try {
+          beginResponse(network);
+
+          final int tot = network.readInt();
+          final List<ORawBuffer> result = new ArrayList<ORawBuffer>(tot);
+          for (int i = 0; i < tot; ++i) {
+            if (network.readByte() == 0)
+              result.add(null);
+            else
+              result.add(new ORawBuffer(network.readBytes(), network.readVersion(), network.readByte()));
+          }
+          return result;
+
+        } finally {
+          endResponse(network);
+        }
+
+      } catch (Exception e) {
+        handleException(network, "Error on read records " + iRids, e);
+
+      }
+    } while (true);
+  }
+
   public OStorageOperationResult<ORecordVersion> updateRecord(final ORecordId iRid, boolean updateContent, final byte[] iContent,
       final ORecordVersion iVersion, final byte iRecordType, int iMode, final ORecordCallback<ORecordVersion> iCallback) {
 
@@ -486,6 +599,8 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
       // ASYNCHRONOUS MODE NO ANSWER
       iMode = 2;
 
+    removeFromNearCache(iRid);
+
     OChannelBinaryAsynchClient lastNetworkUsed = null;
     do {
       try {
@@ -512,6 +627,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
           try {
             beginResponse(network);
             OStorageOperationResult<ORecordVersion> r = new OStorageOperationResult<ORecordVersion>(network.readVersion());
+            invalidateNearCache(iRid, r.getResult());
             readCollectionChanges(network, ODatabaseRecordThreadLocal.INSTANCE.get().getSbTreeCollectionManager());
             return r;
           } finally {
@@ -521,13 +637,14 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
         case 1:
           // ASYNCHRONOUS
           final int sessionId = getSessionId();
+          final int requestId = getRequestId();
           final OSBTreeCollectionManager collectionManager = ODatabaseRecordThreadLocal.INSTANCE.get().getSbTreeCollectionManager();
           Callable<Object> response = new Callable<Object>() {
             public Object call() throws Exception {
               ORecordVersion result;
 
               try {
-                OStorageRemoteThreadLocal.INSTANCE.get().sessionId = sessionId;
+                setRequestSession(sessionId, requestId);
                 beginResponse(network);
                 result = network.readVersion();
 
@@ -535,7 +652,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
                   readCollectionChanges(network, collectionManager);
               } finally {
                 endResponse(network);
-                OStorageRemoteThreadLocal.INSTANCE.get().sessionId = -1;
+                setRequestSession(-1, -1);
               }
 
               iCallback.call(iRid, result);
@@ -563,6 +680,8 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
       // ASYNCHRONOUS MODE NO ANSWER
       iMode = 2;
 
+    removeFromNearCache(iRid);
+
     OChannelBinaryAsynchClient network = null;
     do {
       try {
@@ -584,6 +703,8 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
       // ASYNCHRONOUS MODE NO ANSWER
       mode = 2;
 
+    removeFromNearCache(recordId);
+
     OChannelBinaryAsynchClient network = null;
     do {
       try {
@@ -605,6 +726,8 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
       // ASYNCHRONOUS MODE NO ANSWER
       iMode = 2;
 
+    removeFromNearCache(recordId);
+
     OChannelBinaryAsynchClient network = null;
     do {
       try {
@@ -918,6 +1041,8 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
 
     final ODatabaseRecord database = ODatabaseRecordThreadLocal.INSTANCE.get();
 
+    int cursorId = -1;
+    boolean addNextRecord = true;
     try {
       OChannelBinaryAsynchClient network = null;
       do {
@@ -925,12 +1050,29 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
         OStorageRemoteThreadLocal.INSTANCE.get().commandExecuting = true;
         try {
           final boolean asynch = iCommand instanceof OCommandRequestAsynch && ((OCommandRequestAsynch) iCommand).isAsynchronous();
+          boolean cursor = false;
+
+          // THE QUERIES PREPARED BY THE SESSION SEND ONLY THEIR PARAMETERS
+          final Map<String, Integer> sessionStatements = iCommand instanceof OSQLQuery<?> ? statements.get(getServerURL() + "#"
+              + getSessionId()) : null;
+          final Integer statementId = sessionStatements != null ? prepareStatement((OSQLQuery<?>) iCommand, sessionStatements)
+              : null;
 
           try {
-            network = beginRequest(OChannelBinaryProtocol.REQUEST_COMMAND);
+            network = beginRequest(statementId != null ? OChannelBinaryProtocol.REQUEST_STATEMENT_EXECUTE
+                : OChannelBinaryProtocol.REQUEST_COMMAND);
+
+            // ASYNCHRONOUS QUERIES CAN BROWSE THE RESULT KEPT ON SERVER SIDE IN BATCHES
+            cursor = asynch && cursorBatchSize > 0 && network.getSrvProtocolVersion() >= OChannelBinaryProtocol.PROTOCOL_VERSION_28;
 
-            network.writeByte((byte) (asynch ? 'a' : 's')); // ASYNC / SYNC
-            network.writeBytes(OStreamSerializerAnyStreamable.INSTANCE.toStream(iCommand));
+            network.writeByte((byte) (cursor ? 'c' : asynch ? 'a' : 's')); // CURSOR / ASYNC / SYNC
+            if (statementId != null) {
+              network.writeInt(statementId);
+              network.writeBytes(((OSQLQuery<?>) iCommand).parametersToStream());
+            } else
+              network.writeBytes(OStreamSerializerAnyStreamable.INSTANCE.toStream(iCommand));
+            if (cursor)
+              network.writeInt(cursorBatchSize);
 
           } finally {
             endRequest(network);
@@ -939,30 +1081,12 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
           try {
             beginResponse(network);
 
-            boolean addNextRecord = true;
-            if (asynch) {
-              byte status;
-
+            if (cursor) {
+              cursorId = network.readInt();
+              addNextRecord = readAsynchResult(network, iCommand, database, true);
+            } else if (asynch) {
               // ASYNCH: READ ONE RECORD AT TIME
-              while ((status = network.readByte()) > 0) {
-                final ORecordInternal<?> record = (ORecordInternal<?>) OChannelBinaryProtocol.readIdentifiable(network);
-                if (record == null)
-                  continue;
-
-                switch (status) {
-                case 1:
-                  // PUT AS PART OF THE RESULT SET. INVOKE THE LISTENER
-                  if (addNextRecord) {
-                    addNextRecord = iCommand.getResultListener().result(record);
-                    database.getLocalCache().updateRecord(record);
-                  }
-                  break;
-
-                case 2:
-                  // PUT IN THE CLIENT LOCAL CACHE
-                  database.getLocalCache().updateRecord(record);
-                }
-              }
+              readAsynchResult(network, iCommand, database, true);
             } else {
               final byte type = network.readByte();
               switch (type) {
@@ -1022,6 +1146,10 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
           OStorageRemoteThreadLocal.INSTANCE.get().commandExecuting = false;
         }
       } while (true);
+
+      if (cursorId > -1)
+        browseCursor(cursorId, iCommand, database, addNextRecord);
+
     } finally {
       if (iCommand.getResultListener() != null)
         iCommand.getResultListener().end();
@@ -1030,6 +1158,86 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
     return result;
   }
 
+  /**
+   * Fetches the next batches of a server-side cursor until the result is over or the listener stops it. A stopped cursor is
+   * closed on the server. Since the cursor is lost on reconnection, the fetch is not retried.
+   */
+  protected void browseCursor(int iCursorId, final OCommandRequestText iCommand, final ODatabaseRecord iDatabase,
+      boolean iAddNextRecord) {
+    OChannelBinaryAsynchClient network = null;
+
+    OStorageRemoteThreadLocal.INSTANCE.get().commandExecuting = true;
+    try {
+      while (iCursorId > -1) {
+        try {
+          if (!iAddNextRecord) {
+            // THE LISTENER DOESN'T WANT MORE RECORDS
+            try {
+              network = beginRequest(OChannelBinaryProtocol.REQUEST_CURSOR_CLOSE);
+              network.writeInt(iCursorId);
+            } finally {
+              endRequest(network);
+            }
+            getResponse(network);
+            return;
+          }
+
+          try {
+            network = beginRequest(OChannelBinaryProtocol.REQUEST_CURSOR_FETCH);
+            network.writeInt(iCursorId);
+            network.writeInt(cursorBatchSize);
+          } finally {
+            endRequest(network);
+          }
+
+          try {
+            beginResponse(network);
+            iCursorId = network.readInt();
+            iAddNextRecord = readAsynchResult(network, iCommand, iDatabase, iAddNextRecord);
+          } finally {
+            endResponse(network);
+          }
+
+        } catch (Exception e) {
+          handleException(network, "Error on fetching cursor " + iCursorId + " of command: " + iCommand, e);
+          throw new OStorageException("Cursor " + iCursorId + " of command " + iCommand + " has been lost after a network error");
+        }
+      }
+    } finally {
+      OStorageRemoteThreadLocal.INSTANCE.get().commandExecuting = false;
+    }
+  }
+
+  /**
+   * Reads the records sent one at a time, passing the records of the result set to the command listener while it accepts them.
+   * 
+   * @return false if the listener stopped the result
+   */
+  protected boolean readAsynchResult(final OChannelBinaryAsynchClient iNetwork, final OCommandRequestText iCommand,
+      final ODatabaseRecord iDatabase, boolean iAddNextRecord) throws IOException {
+    byte status;
+    while ((status = iNetwork.readByte()) > 0) {
+      final ORecordInternal<?> record = (ORecordInternal<?>) OChannelBinaryProtocol.readIdentifiable(iNetwork);
+      if (record == null)
+        continue;
+
+      switch (status) {
+      case 1:
+        // PUT AS PART OF THE RESULT SET. INVOKE THE LISTENER
+        if (iAddNextRecord) {
+          iAddNextRecord = iCommand.getResultListener().result(record);
+          iDatabase.getLocalCache().updateRecord(record);
+        }
+        break;
+
+      case 2:
+        // PUT IN THE CLIENT LOCAL CACHE
+        iDatabase.getLocalCache().updateRecord(record);
+      }
+    }
+    return iAddNextRecord;
+  }
+
   public void commit(final OTransaction iTx, Runnable callback) {
 
     final List<ORecordOperation> committedEntries = new ArrayList<ORecordOperation>();
@@ -1093,8 +1301,10 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
             rid = network.readRID();
 
             ORecordOperation rop = iTx.getRecordEntry(rid);
-            if (rop != null)
+            if (rop != null) {
               rop.getRecord().getRecordVersion().copyFrom(network.readVersion());
+              invalidateNearCache(rid, rop.getRecord().getRecordVersion());
+            }
           }
 
           committedEntries.clear();
@@ -1107,8 +1317,11 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
         }
 
         // SET ALL THE RECORDS AS UNDIRTY
-        for (ORecordOperation txEntry : iTx.getAllRecordEntries())
+        for (ORecordOperation txEntry : iTx.getAllRecordEntries()) {
           txEntry.getRecord().unsetDirty();
+          if (txEntry.type == ORecordOperation.DELETED)
+            removeFromNearCache(txEntry.getRecord().getIdentity());
+        }
 
         // UPDATE THE CACHE ONLY IF THE ITERATOR ALLOWS IT. USE THE STRATEGY TO ALWAYS REMOVE ALL THE RECORDS SINCE THEY COULD BE
         // CHANGED AS CONTENT IN CASE OF TREE AND GRAPH DUE TO CROSS REFERENCES
@@ -1327,20 +1540,124 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
       engine.getConnectionManager().remove(iNetwork);
       throw e;
     }
+
+    if (getRequestId() > -1)
+      // PIPELINED REQUEST: OTHER REQUESTS CAN BE SENT BEFORE THE RESPONSE IS RECEIVED
+      engine.getConnectionManager().release(iNetwork);
   }
 
   /**
-   * End response reached: release the channel in the pool to being reused
+   * End response reached: release the channel in the pool to being reused, unless it has been already released after the request.
    */
   public void endResponse(final OChannelBinaryAsynchClient iNetwork) {
+    final OStorageRemoteSession tl = OStorageRemoteThreadLocal.INSTANCE.get();
+    final int requestId = tl.requestId;
+    // THE REQUEST IS COMPLETE: A LATER REQUEST OF THE THREAD IS NOT PIPELINED UNLESS ITS HEADER SAYS SO
+    tl.requestId = -1;
+
     iNetwork.endResponse();
-    engine.getConnectionManager().release(iNetwork);
+
+    if (tl.requestStart > 0) {
+      // A RESPONSE READ BY ANOTHER THREAD, AS FOR THE ASYNCHRONOUS OPERATIONS, IS NOT MEASURED
+      engine.getConnectionManager().getServerLoad(iNetwork.getServerURL()).onResponse(System.nanoTime() - tl.requestStart);
+      tl.requestStart = 0;
+    }
+
+    // THE SESSION COULD HAVE BEEN JUST ASSIGNED BY THE RESPONSE
+    engine.getConnectionManager().bindSession(iNetwork, getSessionId());
+
+    if (requestId == -1)
+      engine.getConnectionManager().release(iNetwork);
   }
 
   public boolean isPermanentRequester() {
     return false;
   }
 
+  /**
+   * Returns the near cache, or null if it's disabled.
+   */
+  public OStorageRemoteNearCache getNearCache() {
+    return nearCache;
+  }
+
+  /**
+   * Invalidates the records changed on the server, as pushed by the server to the subscribed channel.
+   */
+  public void invalidateNearCache(final Map<ORID, ORecordVersion> iRecords) {
+    final OStorageRemoteNearCache cache = nearCache;
+    if (cache != null)
+      for (Map.Entry<ORID, ORecordVersion> entry : iRecords.entrySet())
+        cache.invalidate(entry.getKey(), entry.getValue());
+  }
+
+  protected void invalidateNearCache(final ORID iRid, final ORecordVersion iVersion) {
+    final OStorageRemoteNearCache cache = nearCache;
+    if (cache != null)
+      cache.invalidate(iRid, iVersion);
+  }
+
+  protected void removeFromNearCache(final ORID iRid) {
+    final OStorageRemoteNearCache cache = nearCache;
+    if (cache != null)
+      cache.remove(iRid);
+  }
+
+  /**
+   * Returns the near cache if the server is pushing the invalidation of the changed records. The subscription is made by the first
+   * read and is made again on another channel when the subscribed one is closed: the records changed in the meanwhile could be
+   * stale, so the cache is cleared. Servers older than protocol 29 disable the near cache.
+   */
+  protected OStorageRemoteNearCache getSubscribedNearCache() {
+    final OStorageRemoteNearCache cache = nearCache;
+    if (cache == null)
+      return null;
+
+    final OChannelBinaryAsynchClient subscribed = nearCacheNetwork;
+    if (subscribed != null && subscribed.isConnected())
+      return cache;
+
+    // NOT SYNCHRONIZED ON THE CACHE: THE PUSHED INVALIDATIONS MUST BE APPLIED WHILE WAITING FOR THE RESPONSE
+    synchronized (nearCacheLock) {
+      if (nearCacheNetwork != null && nearCacheNetwork.isConnected())
+        return cache;
+
+      nearCacheNetwork = null;
+      cache.clear();
+
+      OChannelBinaryAsynchClient network = null;
+      try {
+        network = getAvailableNetwork(getCurrentServerURL());
+        if (network.getSrvProtocolVersion() < OChannelBinaryProtocol.PROTOCOL_VERSION_29) {
+          network.releaseWriteLock();
+          engine.getConnectionManager().release(network);
+          nearCache = null;
+          return null;
+        }
+
+        try {
+          writeRequestHeader(network, OChannelBinaryProtocol.REQUEST_NEAR_CACHE_SUBSCRIBE);
+        } finally {
+          endRequest(network);
+        }
+
+        try {
+          beginResponse(network);
+        } finally {
+          endResponse(network);
+        }
+
+        nearCacheNetwork = network;
+        return cache;
+
+      } catch (Exception e) {
+        // READ THE RECORDS FROM THE SERVER UNTIL THE NEXT SUBSCRIPTION
+        OLogManager.instance().warn(this, "Cannot subscribe the near cache to the server %s", e, getCurrentServerURL());
+        return null;
+      }
+    }
+  }
+
   @SuppressWarnings("unchecked")
   public void updateClusterConfiguration(final byte[] obj) {
     if (obj == null)
@@ -1512,14 +1829,13 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
     }
 
     OChannelBinaryAsynchClient network = null;
-    String currentURL = getCurrentServerURL();
+    String currentURL = getNextServerURL();
     do {
       do {
         try {
           network = getAvailableNetwork(currentURL);
           try {
-            network.writeByte(OChannelBinaryProtocol.REQUEST_DB_OPEN);
-            network.writeInt(getSessionId());
+            writeRequestHeader(network, OChannelBinaryProtocol.REQUEST_DB_OPEN);
 
             // @SINCE 1.0rc8
             sendClientInfo(network);
@@ -1545,6 +1861,9 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
 
             OLogManager.instance().debug(this, "Client connected to %s with session id=%d", network.getServerURL(), sessionId);
 
+            if (preparedStatements && network.getSrvProtocolVersion() >= OChannelBinaryProtocol.PROTOCOL_VERSION_31)
+              statements.put(network.getServerURL() + "#" + sessionId, new ConcurrentHashMap<String, Integer>());
+
             readDatabaseInformation(network);
 
             // READ CLUSTER CONFIGURATION
@@ -1561,12 +1880,12 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
           } finally {
             endResponse(network);
           }
-        } catch (OException e) {
-          // PROPAGATE THE EXCEPTION
-          throw e;
-
         } catch (Exception e) {
+          if (e instanceof OException && !(e instanceof OIOException))
+            // PROPAGATE THE EXCEPTION
+            throw (OException) e;
 
+          // NETWORK ERROR: TRY THE NEXT SERVER
           if (network != null) {
             // REMOVE THE NETWORK CONNECTION IF ANY
             engine.getConnectionManager().remove(network);
@@ -1703,20 +2022,103 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
   protected OChannelBinaryAsynchClient beginRequest(final byte iCommand) throws IOException {
     final OChannelBinaryAsynchClient network = getAvailableNetwork(getCurrentServerURL());
 
-    network.writeByte(iCommand);
-    network.writeInt(getSessionId());
+    writeRequestHeader(network, iCommand);
 
     return network;
   }
 
+  /**
+   * Writes the request header. With pipelining the request is tagged with a request id, kept in the current thread to match the
+   * response.
+   */
+  protected void writeRequestHeader(final OChannelBinaryAsynchClient iNetwork, final byte iCommand) throws IOException {
+    final int sessionId = getSessionId();
+    final OStorageRemoteSession tl = OStorageRemoteThreadLocal.INSTANCE.get();
+    tl.requestId = iNetwork.writeRequestHeader(iCommand, sessionId, pipelining);
+    tl.requestStart = System.nanoTime();
+
+    // THE SERVER BINDS THE SESSION TO THE CONNECTION OF ITS LAST REQUEST
+    engine.getConnectionManager().bindSession(iNetwork, sessionId);
+  }
+
+  /**
+   * Returns the id of the statement prepared by the current session for the query, preparing it the first time. The server closes
+   * the least recently used statements over its limit and returns their id, so they are prepared again when used.
+   */
+  protected int prepareStatement(final OSQLQuery<?> iQuery, final Map<String, Integer> iStatements) throws IOException {
+    final String key = iQuery.getClass().getName() + "|" + iQuery.getLimit() + "|" + iQuery.getFetchPlan() + "|" + iQuery.getText();
+
+    final Integer statementId = iStatements.get(key);
+    if (statementId != null)
+      return statementId;
+
+    final OChannelBinaryAsynchClient network = beginRequest(OChannelBinaryProtocol.REQUEST_STATEMENT_PREPARE);
+    try {
+      network.writeBytes(OStreamSerializerAnyStreamable.INSTANCE.toStream(iQuery));
+    } finally {
+      endRequest(network);
+    }
+
+    try {
+      beginResponse(network);
+      final int id = network.readInt();
+      final int closed = network.readInt();
+
+      if (closed > -1)
+        iStatements.values().remove(closed);
+      iStatements.put(key, id);
+      return id;
+    } finally {
+      endResponse(network);
+    }
+  }
+
+  /**
+   * Returns the URL of the server that opened the session of the current thread, because the session is valid only there. Without
+   * a session returns the first server of the list.
+   */
   protected String getCurrentServerURL() {
+    final String sessionURL = getServerURL();
+    if (sessionURL != null)
+      return sessionURL;
+
+    checkServerURLs();
+    return serverURLs.get(0) + "/" + getName();
+  }
+
+  /**
+   * Returns the URL of the server where to open a new session. With load balancing it's the available server with the lowest load,
+   * so a slow server receives less sessions. Otherwise it's the first server of the list.
+   */
+  protected String getNextServerURL() {
+    checkServerURLs();
+
+    String selected = serverURLs.get(0);
+    if (loadBalancing && serverURLs.size() > 1) {
+      double lowestScore = Double.MAX_VALUE;
+      for (String server : new ArrayList<String>(serverURLs)) {
+        final ORemoteServerLoad load = engine.getConnectionManager().getServerLoad(server + "/" + getName());
+        if (!load.isAvailable())
+          // FAILED RECENTLY: SKIP IT UNTIL THE BACKOFF EXPIRES
+          continue;
+
+        final double score = load.getScore();
+        if (score < lowestScore) {
+          lowestScore = score;
+          selected = server;
+        }
+      }
+    }
+
+    return selected + "/" + getName();
+  }
+
+  protected void checkServerURLs() {
     if (serverURLs.isEmpty()) {
       parseServerURLs();
       if (serverURLs.isEmpty())
         throw new OStorageException("Cannot create a connection to remote server because url list is empty");
     }
-
-    return serverURLs.get(0) + "/" + getName();
   }
 
   protected OChannelBinaryAsynchClient getAvailableNetwork(final String iCurrentURL) throws IOException {
@@ -1752,7 +2154,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
    * Starts listening the response.
    */
   protected void beginResponse(final OChannelBinaryAsynchClient iNetwork) throws IOException {
-    iNetwork.beginResponse(getSessionId());
+    iNetwork.beginResponse(getSessionId(), getRequestId(), 0);
   }
 
   protected void getResponse(final OChannelBinaryAsynchClient iNetwork) throws IOException {
@@ -1788,17 +2190,18 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
       // ASYNCHRONOUS
       if (callback != null) {
         final int sessionId = getSessionId();
+        final int requestId = getRequestId();
         Callable<Object> response = new Callable<Object>() {
           public Object call() throws Exception {
             Boolean result;
 
             try {
-              OStorageRemoteThreadLocal.INSTANCE.get().sessionId = sessionId;
+              setRequestSession(sessionId, requestId);
               beginResponse(network);
               result = network.readByte() == 1;
             } finally {
               endResponse(network);
-              OStorageRemoteThreadLocal.INSTANCE.get().sessionId = -1;
+              setRequestSession(-1, -1);
             }
 
             callback.call(rid, result);
@@ -1960,17 +2363,18 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
       // ASYNCHRONOUS
       if (iCallback != null) {
         final int sessionId = getSessionId();
+        final int requestId = getRequestId();
         Callable<Object> response = new Callable<Object>() {
           public Object call() throws Exception {
             Boolean result;
 
             try {
-              OStorageRemoteThreadLocal.INSTANCE.get().sessionId = sessionId;
+              setRequestSession(sessionId, requestId);
               beginResponse(network);
               result = network.readByte() == 1;
             } finally {
               endResponse(network);
-              OStorageRemoteThreadLocal.INSTANCE.get().sessionId = -1;
+              setRequestSession(-1, -1);
             }
 
             iCallback.call(iRid, result);
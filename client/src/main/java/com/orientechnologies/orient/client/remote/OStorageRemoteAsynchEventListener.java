@@ -1,7 +1,11 @@
 package com.orientechnologies.orient.client.remote;
 
+import java.util.Map;
+
 import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.version.ORecordVersion;
 import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryProtocol;
 import com.orientechnologies.orient.enterprise.channel.binary.ORemoteServerEventListener;
 
@@ -13,7 +17,13 @@ public class OStorageRemoteAsynchEventListener implements ORemoteServerEventList
     this.storage = storage;
   }
 
+  @SuppressWarnings("unchecked")
   public void onRequest(final byte iRequestCode, final Object obj) {
+    if (iRequestCode == OChannelBinaryProtocol.REQUEST_PUSH_RECORD_INVALIDATE) {
+      storage.invalidateNearCache((Map<ORID, ORecordVersion>) obj);
+      return;
+    }
+
     if (iRequestCode == OChannelBinaryProtocol.REQUEST_PUSH_DISTRIB_CONFIG) {
       storage.updateClusterConfiguration((byte[]) obj);
 
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.client.remote;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.storage.ORawBuffer;
+import com.orientechnologies.orient.core.version.ORecordVersion;
+
+/**
+ * Near cache of the records read by all the databases of a remote storage. It's bounded by the size of the record contents and
+ * evicts the least recently used records first.
+ * <p>
+ * Records are kept by RID together with their version. When the server pushes the invalidation of a changed record, the entry is
+ * replaced by a marker holding the new version: a response with an older content still in flight is then refused instead of
+ * being cached.
+ *
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ */
+public class OStorageRemoteNearCache {
+  private static final int            ENTRY_OVERHEAD = 64;
+
+  private final long                  maxSize;
+  private final Map<ORID, ORawBuffer> entries        = new LinkedHashMap<ORID, ORawBuffer>(1024, 0.75f, true);
+  private long                        size;
+  private long                        hits;
+  private long                        misses;
+
+  public OStorageRemoteNearCache(final long iMaxSize) {
+    maxSize = iMaxSize;
+  }
+
+  /**
+   * Returns a copy of the cached record, or null if it's not cached or it has been invalidated.
+   */
+  public synchronized ORawBuffer get(final ORID iRid) {
+    final ORawBuffer entry = entries.get(iRid);
+    if (entry == null || entry.buffer == null) {
+      misses++;
+      return null;
+    }
+
+    hits++;
+    return new ORawBuffer(entry.buffer.clone(), entry.version, entry.recordType);
+  }
+
+  /**
+   * Caches the record read from the server, unless a newer version has been already notified.
+   */
+  public synchronized void put(final ORID iRid, final ORawBuffer iContent) {
+    if (iContent.buffer == null || iContent.buffer.length + ENTRY_OVERHEAD > maxSize)
+      return;
+
+    final ORawBuffer current = entries.get(iRid);
+    if (current != null && current.version.compareTo(iContent.version) > 0)
+      // CHANGED IN THE MEANWHILE
+      return;
+
+    store(iRid, new ORawBuffer(iContent.buffer.clone(), iContent.version, iContent.recordType));
+  }
+
+  /**
+   * Invalidates the record changed on the server, remembering the new version. The record is kept if it has been already read
+   * with that version.
+   */
+  public synchronized void invalidate(final ORID iRid, final ORecordVersion iVersion) {
+    final ORawBuffer current = entries.get(iRid);
+    if (current != null && current.version.compareTo(iVersion) >= 0)
+      return;
+
+    store(iRid, new ORawBuffer(null, iVersion, (byte) 0));
+  }
+
+  /**
+   * Removes the record changed by this client.
+   */
+  public synchronized void remove(final ORID iRid) {
+    final ORawBuffer removed = entries.remove(iRid);
+    if (removed != null)
+      size -= sizeOf(removed);
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+    size = 0;
+  }
+
+  public synchronized long getSize() {
+    return size;
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  private void store(final ORID iRid, final ORawBuffer iEntry) {
+    remove(iRid);
+
+    entries.put(iRid.copy(), iEntry);
+    size += sizeOf(iEntry);
+
+    // EVICT THE LEAST RECENTLY USED ENTRIES
+    for (Iterator<ORawBuffer> it = entries.values().iterator(); size > maxSize && it.hasNext();) {
+      size -= sizeOf(it.next());
+      it.remove();
+    }
+  }
+
+  private static int sizeOf(final ORawBuffer iEntry) {
+    return ENTRY_OVERHEAD + (iEntry.buffer != null ? iEntry.buffer.length : 0);
+  }
+}
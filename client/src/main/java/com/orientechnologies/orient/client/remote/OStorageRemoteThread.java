@@ -45,6 +45,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -249,6 +250,15 @@ public class OStorageRemoteThread implements OStorageProxy {
     }
   }
 
+  public List<ORawBuffer> readRecords(final Collection<ORecordId> iRids) {
+    pushSession();
+    try {
+      return delegate.readRecords(iRids);
+    } finally {
+      popSession();
+    }
+  }
+
   public OStorageOperationResult<ORecordVersion> updateRecord(final ORecordId iRid, boolean updateContent, final byte[] iContent,
       final ORecordVersion iVersion, final byte iRecordType, final int iMode, ORecordCallback<ORecordVersion> iCallback) {
     pushSession();
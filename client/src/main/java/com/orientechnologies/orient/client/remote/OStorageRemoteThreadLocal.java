@@ -23,6 +23,8 @@ public class OStorageRemoteThreadLocal extends ThreadLocal<OStorageRemoteSession
   public class OStorageRemoteSession {
     public boolean commandExecuting = false;
     public Integer sessionId        = -1;
+    public int     requestId        = -1;
+    public long    requestStart     = 0;
     public String  serverURL        = null;
   }
 
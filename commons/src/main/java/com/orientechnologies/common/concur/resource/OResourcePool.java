@@ -119,4 +119,11 @@ public class OResourcePool<K, V> {
     this.resources.remove(res);
     sem.release();
   }
+
+  /**
+   * Removes a resource not in use: its permit was already released when it was returned to the pool.
+   */
+  public boolean removeIdle(final V res) {
+    return this.resources.remove(res);
+  }
 }
@@ -179,6 +179,14 @@ public abstract class OAbstractProfiler extends OSharedResourceAbstract implemen
       hooks.remove(iName);
   }
 
+  /**
+   * Returns the current value of a registered hook, or null if no hook is registered with that name.
+   */
+  public Object getHookValue(final String iName) {
+    final OProfilerHookValue hook = hooks.get(iName);
+    return hook != null ? hook.getValue() : null;
+  }
+
   @Override
   public String getSystemMetric(final String iMetricName) {
     final StringBuilder buffer = new StringBuilder("system.".length() + iMetricName.length() + 1);
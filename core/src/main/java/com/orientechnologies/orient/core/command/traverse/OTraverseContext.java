@@ -24,13 +24,12 @@ import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
 public class OTraverseContext extends OBasicCommandContext {
-  private Set<ORID> history = new HashSet<ORID>();
+  private Set<ORID> history = new OTraverseHistory();
   private Memory    memory  = new StackMemory();
 
   private OTraverseAbstractProcess<?> currentProcess;
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.command.traverse;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+
+/**
+ * Set of the RIDs already traversed. Cluster positions are kept per cluster in open-addressing tables of primitive longs, so no
+ * ORID instance is retained for every visited record. RIDs of clusters with id lower than -1 are kept in a regular set.
+ *
+ * @author Luca Garulli
+ */
+public class OTraverseHistory extends AbstractSet<ORID> {
+  private PositionSet[] clusters = new PositionSet[8];
+  private Set<ORID>     others;
+  private int           size;
+
+  @Override
+  public boolean add(final ORID iRid) {
+    final int clusterId = iRid.getClusterId();
+    if (clusterId < -1) {
+      if (others == null)
+        others = new HashSet<ORID>();
+      if (!others.add(iRid))
+        return false;
+      size++;
+      return true;
+    }
+
+    final int slot = clusterId + 1;
+    if (slot >= clusters.length) {
+      final PositionSet[] newClusters = new PositionSet[Math.max(slot + 1, clusters.length << 1)];
+      System.arraycopy(clusters, 0, newClusters, 0, clusters.length);
+      clusters = newClusters;
+    }
+
+    PositionSet positions = clusters[slot];
+    if (positions == null) {
+      positions = new PositionSet();
+      clusters[slot] = positions;
+    }
+
+    if (!positions.add(iRid.getClusterPosition().longValue()))
+      return false;
+    size++;
+    return true;
+  }
+
+  @Override
+  public boolean contains(final Object iObject) {
+    if (!(iObject instanceof ORID))
+      return false;
+
+    final ORID rid = (ORID) iObject;
+    final int clusterId = rid.getClusterId();
+    if (clusterId < -1)
+      return others != null && others.contains(rid);
+
+    final int slot = clusterId + 1;
+    return slot < clusters.length && clusters[slot] != null && clusters[slot].contains(rid.getClusterPosition().longValue());
+  }
+
+  @Override
+  public void clear() {
+    clusters = new PositionSet[8];
+    others = null;
+    size = 0;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Browses the RIDs creating them on the fly, cluster by cluster.
+   */
+  @Override
+  public Iterator<ORID> iterator() {
+    return new Iterator<ORID>() {
+      private int            slot = 0;
+      private int            pos  = -1;
+      private Iterator<ORID> othersIterator;
+      private ORID           next = fetch();
+
+      public boolean hasNext() {
+        return next != null;
+      }
+
+      public ORID next() {
+        if (next == null)
+          throw new NoSuchElementException();
+        final ORID current = next;
+        next = fetch();
+        return current;
+      }
+
+      public void remove() {
+        throw new UnsupportedOperationException("remove");
+      }
+
+      private ORID fetch() {
+        while (slot < clusters.length) {
+          final PositionSet positions = clusters[slot];
+          if (positions != null) {
+            while (++pos < positions.table.length)
+              if (positions.table[pos] != PositionSet.EMPTY)
+                return new ORecordId(slot - 1, OClusterPositionFactory.INSTANCE.valueOf(positions.table[pos]));
+
+            if (pos == positions.table.length && positions.containsEmpty) {
+              pos++;
+              return new ORecordId(slot - 1, OClusterPositionFactory.INSTANCE.valueOf(PositionSet.EMPTY));
+            }
+          }
+          slot++;
+          pos = -1;
+        }
+
+        if (others != null) {
+          if (othersIterator == null)
+            othersIterator = others.iterator();
+          if (othersIterator.hasNext())
+            return othersIterator.next();
+        }
+        return null;
+      }
+    };
+  }
+
+  /**
+   * Open-addressing set of cluster positions with linear probing. The empty slot is marked by Long.MIN_VALUE, which is tracked
+   * apart.
+   */
+  private static final class PositionSet {
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[]            table = newTable(16);
+    private int               entries;
+    private boolean           containsEmpty;
+
+    public boolean add(final long iPosition) {
+      if (iPosition == EMPTY) {
+        if (containsEmpty)
+          return false;
+        containsEmpty = true;
+        return true;
+      }
+
+      if (!insert(table, iPosition))
+        return false;
+
+      // KEEP THE LOAD FACTOR UNDER 0.5
+      if (++entries << 1 > table.length)
+        rehash();
+      return true;
+    }
+
+    public boolean contains(final long iPosition) {
+      if (iPosition == EMPTY)
+        return containsEmpty;
+
+      final int mask = table.length - 1;
+      for (int i = hash(iPosition) & mask;; i = (i + 1) & mask) {
+        final long current = table[i];
+        if (current == iPosition)
+          return true;
+        if (current == EMPTY)
+          return false;
+      }
+    }
+
+    private void rehash() {
+      final long[] newTable = newTable(table.length << 1);
+      for (long position : table)
+        if (position != EMPTY)
+          insert(newTable, position);
+      table = newTable;
+    }
+
+    private static boolean insert(final long[] iTable, final long iPosition) {
+      final int mask = iTable.length - 1;
+      for (int i = hash(iPosition) & mask;; i = (i + 1) & mask) {
+        final long current = iTable[i];
+        if (current == iPosition)
+          return false;
+        if (current == EMPTY) {
+          iTable[i] = iPosition;
+          return true;
+        }
+      }
+    }
+
+    private static int hash(final long iPosition) {
+      // POSITIONS ARE MOSTLY SEQUENTIAL: SPREAD THEM ACROSS THE TABLE
+      final long h = iPosition * 0x9E3779B97F4A7C15L;
+      return (int) (h ^ (h >>> 32));
+    }
+
+    private static long[] newTable(final int iSize) {
+      final long[] table = new long[iSize];
+      Arrays.fill(table, EMPTY);
+      return table;
+    }
+  }
+}
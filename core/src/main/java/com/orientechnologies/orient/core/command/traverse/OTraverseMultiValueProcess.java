@@ -37,6 +37,10 @@ public class OTraverseMultiValueProcess extends OTraverseAbstractProcess<Iterato
       index++;
 
       if (value instanceof OIdentifiable) {
+        if (command.getContext().isAlreadyTraversed((OIdentifiable) value))
+          // AVOID TO LOAD RECORDS ALREADY TRAVERSED
+          continue;
+
         final ORecord<?> rec = ((OIdentifiable) value).getRecord();
 
         if (rec instanceof ODocument) {
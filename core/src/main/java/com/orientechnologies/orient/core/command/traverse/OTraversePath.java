@@ -34,7 +34,8 @@ public class OTraversePath {
   }
 
   public OTraversePath append(OIdentifiable record) {
-    return new OTraversePath(new RecordPathItem(record, lastPathItem));
+    // KEEP THE IDENTITY ONLY TO LET THE TRAVERSED RECORDS BE RELEASED
+    return new OTraversePath(new RecordPathItem(record.getIdentity(), lastPathItem));
   }
 
   public OTraversePath appendField(String fieldName) {
@@ -128,7 +128,8 @@ public class OTraverseRecordProcess extends OTraverseAbstractProcess<ODocument>
           final Iterator<Object> coll = OMultiValue.getMultiValueIterator(fieldValue);
 
           subProcess = new OTraverseMultiValueProcess(command, coll, getPath().appendField(field.toString()));
-        } else if (fieldValue instanceof OIdentifiable && ((OIdentifiable) fieldValue).getRecord() instanceof ODocument) {
+        } else if (fieldValue instanceof OIdentifiable && !command.getContext().isAlreadyTraversed((OIdentifiable) fieldValue)
+            && ((OIdentifiable) fieldValue).getRecord() instanceof ODocument) {
           subProcess = new OTraverseRecordProcess(command, (ODocument) ((OIdentifiable) fieldValue).getRecord(), getPath()
               .appendField(field.toString()));
         } else
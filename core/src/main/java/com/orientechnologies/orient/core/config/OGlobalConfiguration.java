@@ -355,6 +355,34 @@ public enum OGlobalConfiguration {
   NETWORK_SOCKET_RETRY_DELAY("network.retryDelay", "Number of ms the client waits before reconnecting to the server on failure",
       Integer.class, 500),
 
+  NETWORK_BINARY_EVENT_LOOP("network.binary.eventLoop",
+      "Serves the idle binary connections by a selector and executes their requests by a pool of workers, "
+          + "instead of keeping a thread per connection", Boolean.class, false),
+
+  NETWORK_BINARY_EVENT_LOOP_WORKERS("network.binary.eventLoop.workers",
+      "Maximum number of threads executing the requests of the binary connections when the event loop is enabled", Integer.class,
+      64),
+
+  NETWORK_BINARY_CURSOR_TIMEOUT("network.binary.cursorTimeout",
+      "Time in ms after which a server-side query cursor not fetched by the client is closed", Integer.class, 60000),
+
+  NETWORK_BINARY_MAX_CURSORS("network.binary.maxCursors",
+      "Maximum number of server-side query cursors open at the same time. Each open cursor holds a thread executing its query: "
+          + "the cursors beyond the limit are refused", Integer.class, 256),
+
+  NETWORK_BINARY_MAX_PREPARED_STATEMENTS("network.binary.maxPreparedStatements",
+      "Maximum number of statements prepared per client session. The least recently used is closed to prepare a new one",
+      Integer.class, 256),
+
+  NETWORK_BINARY_COMPRESSION("network.binary.compression",
+      "Compression asked by the client for the data exchanged on its binary connections, as the name of a registered compression "
+          + "(e.g. 'snappy' or 'gzip'). The server can refuse it. Empty to disable. Requires a server with protocol 30+",
+      String.class, ""),
+
+  NETWORK_BINARY_COMPRESSION_THRESHOLD("network.binary.compression.threshold",
+      "Minimum size in bytes of the frames compressed on the compressed binary connections. Smaller frames are sent raw",
+      Integer.class, 1024),
+
   NETWORK_BINARY_DNS_LOADBALANCING_ENABLED("network.binary.loadBalancing.enabled",
       "Asks for DNS TXT record to determine if load balancing is supported", Boolean.class, Boolean.FALSE),
 
@@ -419,11 +447,53 @@ public enum OGlobalConfiguration {
   // COMMAND
   COMMAND_TIMEOUT("command.timeout", "Default timeout for commands expressed in milliseconds", Long.class, 0),
 
+  // QUERY
+  QUERY_COMPILE_FILTER("query.compileFilter",
+      "Compiles the WHERE conditions against the schema types to speed up the evaluation of the scanned records", Boolean.class,
+      false),
+
+  QUERY_INDEX_MERGE("query.indexMerge",
+      "Resolves AND/OR conditions against different indexes by merging the returned RIDs before loading the records",
+      Boolean.class, false),
+
+  QUERY_INDEX_SELECTIVITY("query.indexSelectivity",
+      "Maximum fraction of the class records an index lookup can return according to the index statistics before preferring a scan",
+      Float.class, 0.3f),
+
   // CLIENT
   CLIENT_CHANNEL_MIN_POOL("client.channel.minPool", "Minimum pool size", Integer.class, 1),
 
   CLIENT_CHANNEL_MAX_POOL("client.channel.maxPool", "Maximum channel pool size", Integer.class, 20),
 
+  CLIENT_CHANNEL_SHRINK_POOL("client.channel.shrinkPool",
+      "Closes the released connections exceeding the average demand of the server, never going below the minimum pool size. "
+          + "False keeps the connections open until the pool is closed", Boolean.class, false),
+
+  CLIENT_CHANNEL_LOAD_BALANCING("client.channel.loadBalancing",
+      "Opens the sessions against the remote server with the lowest load, estimated by the moving averages of the response time "
+          + "and of the requests in flight. False uses the servers in the order of the URL", Boolean.class, false),
+
+  CLIENT_CHANNEL_FAILURE_BACKOFF("client.channel.failureBackoff",
+      "Time in ms a remote server that caused a network error is skipped by the load balancing before probing it again",
+      Integer.class, 5000),
+
+  CLIENT_CHANNEL_PIPELINING("client.channel.pipelining",
+      "Returns the channel to the pool as soon as the request is sent, so more requests can be in flight on the same connection. "
+          + "Responses are matched by request id. Requires a server with protocol 26+", Boolean.class, false),
+
+  CLIENT_QUERY_CURSOR_BATCH_SIZE("client.query.cursorBatchSize",
+      "Number of records fetched per round trip by asynchronous remote queries, browsing a server-side cursor. "
+          + "0 receives the whole result in one response. Requires a server with protocol 28+", Integer.class, 0),
+
+  CLIENT_PREPARED_STATEMENTS("client.preparedStatements",
+      "Prepares the remote queries on the server, so a query executed again sends only its parameters and reuses the parsed "
+          + "query. Requires a server with protocol 31+", Boolean.class, false),
+
+  CLIENT_NEAR_CACHE_SIZE("client.nearCache.size",
+      "Maximum size in KB of the records kept by the near cache shared by the databases of the same remote storage. "
+          + "The server pushes the invalidation of the changed records. 0 disables it. Requires a server with protocol 29+",
+      Integer.class, 0),
+
   CLIENT_CONNECT_POOL_WAIT_TIMEOUT("client.connectionPool.waitTimeout",
       "Maximum time which client should wait connection from the pool", Integer.class, 5000),
 
@@ -475,6 +545,36 @@ public enum OGlobalConfiguration {
   DISTRIBUTED_DEPLOYDB_TASK_COMPRESSION("distributed.deployDbTaskCompression",
       "Compression level between 0 and 9 to use in backup for database deployment", Integer.class, 7),
 
+  DISTRIBUTED_DEPLOYDB_STREAM_CHUNKS("distributed.deployDbStreamChunks",
+      "Number of chunks buffered while streaming a database to the node that deploys it. 0 = write the backup to a temporary file",
+      Integer.class, 0),
+
+  DISTRIBUTED_OPERATION_LOG_SIZE("distributed.operationLogSize",
+      "Number of replicated operations kept per database to resynchronize a restarted node without deploying the whole database. 0 = disabled",
+      Integer.class, 0),
+
+  DISTRIBUTED_BATCH_SIZE("distributed.batchSize",
+      "Maximum number of record operations replicated to the other nodes in a single message. 0 = disabled", Integer.class, 0),
+
+  DISTRIBUTED_BATCH_WINDOW("distributed.batchWindow",
+      "Maximum time in milliseconds a record operation waits to be replicated together with other operations", Integer.class, 2),
+
+  DISTRIBUTED_APPLY_THREADS("distributed.applyThreads",
+      "Number of threads per database applying the record operations received from the other nodes. The operations against the same cluster are applied in order. 0 = one thread per database",
+      Integer.class, 0),
+
+  DISTRIBUTED_READ_YOUR_WRITES_TIMEOUT("distributed.readYourWritesTimeout",
+      "Maximum time in milliseconds a local read waits for the node to apply the last operation written by the same session against the cluster. If the timeout expires the read is sent to the nodes. 0 = disabled",
+      Long.class, 0),
+
+  DISTRIBUTED_QUERY_PUSHDOWN("distributed.queryPushdown",
+      "Sharded queries are executed by every node only against the clusters it has been assigned, with LIMIT and SKIP merged by the coordinator",
+      Boolean.class, false),
+
+  DISTRIBUTED_TX_PREPARE("distributed.txPrepare",
+      "Distributed transactions lock their records in RID order on the node that coordinates them, and every node validates the whole transaction before applying it, so a node applies all its operations or none",
+      Boolean.class, false),
+
   DISTRIBUTED_QUEUE_TIMEOUT("distributed.queueTimeout", "Maximum timeout in milliseconds to wait for the response in replication",
       Integer.class, 5000l),
 
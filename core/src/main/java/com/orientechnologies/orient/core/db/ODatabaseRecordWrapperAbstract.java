@@ -47,6 +47,7 @@ import com.orientechnologies.orient.core.version.ORecordVersion;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
@@ -231,6 +232,10 @@ public abstract class ODatabaseRecordWrapperAbstract<DB extends ODatabaseRecord>
     return (RET) underlying.load(iRecordId, iFetchPlan);
   }
 
+  public <RET extends ORecordInternal<?>> List<RET> load(final Collection<? extends ORID> iRecordIds) {
+    return underlying.load(iRecordIds);
+  }
+
   public <RET extends ORecordInternal<?>> RET load(final ORID iRecordId, final String iFetchPlan, final boolean iIgnoreCache) {
     return (RET) underlying.load(iRecordId, iFetchPlan, iIgnoreCache);
   }
@@ -290,6 +290,15 @@ public class ODatabaseRaw extends OListenerManger<ODatabaseListener> implements
     }
   }
 
+  public List<ORawBuffer> read(final Collection<ORecordId> iRids) {
+    try {
+      return storage.readRecords(iRids);
+
+    } catch (Throwable t) {
+      throw new ODatabaseException("Error on retrieving records " + iRids, t);
+    }
+  }
+
   public OStorageOperationResult<ORecordVersion> save(final ORecordId iRid, boolean updateContent,
 																											final byte[] iContent, final ORecordVersion iVersion, final byte iRecordType, final int iMode, boolean iForceCreate,
 																											final ORecordCallback<? extends Number> iRecordCreatedCallback, final ORecordCallback<ORecordVersion> iRecordUpdatedCallback) {
@@ -19,11 +19,15 @@ import com.orientechnologies.orient.core.conflict.ORecordConflictStrategy;
 import com.orientechnologies.orient.core.db.ODatabaseComplex;
 import com.orientechnologies.orient.core.db.record.ridbag.sbtree.OSBTreeCollectionManager;
 import com.orientechnologies.orient.core.id.OClusterPosition;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.iterator.ORecordIteratorCluster;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.serialization.serializer.binary.OBinarySerializerFactory;
 import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * Generic interface for record based Database implementations.
  * 
@@ -66,6 +70,16 @@ public interface ODatabaseRecord extends ODatabaseComplex<ORecordInternal<?>> {
    */
   public <RET extends ORecordInternal<?>> RET getRecord(OIdentifiable iIdentifiable);
 
+  /**
+   * Loads a group of records by their Record IDs. The records not found in the current transaction and in the local cache are read
+   * from the storage in one call, that against a remote server is one round trip.
+   * 
+   * @param iRecordIds
+   *          The unique record ids of the records to load
+   * @return The loaded records in the same order of the record ids, with null for the records not found
+   */
+  public <RET extends ORecordInternal<?>> List<RET> load(Collection<? extends ORID> iRecordIds);
+
   /**
    * Returns the default record type for this kind of database.
    */
@@ -465,6 +465,38 @@ public abstract class ODatabaseRecordAbstract extends ODatabaseWrapperAbstract<O
     return (RET) executeReadRecord((ORecordId) iRecordId, null, iFetchPlan, iIgnoreCache, loadTombstone, iLockingStrategy);
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  public <RET extends ORecordInternal<?>> List<RET> load(final Collection<? extends ORID> iRecordIds) {
+    checkOpeness();
+
+    final List<RET> result = new ArrayList<RET>(iRecordIds.size());
+    final List<ORecordId> toRead = new ArrayList<ORecordId>();
+    final List<Integer> toReadPositions = new ArrayList<Integer>();
+
+    for (ORID recordId : iRecordIds) {
+      final ORecordId rid = (ORecordId) recordId;
+      if (rid.isPersistent() && getTransaction().getRecord(rid) == null && getLocalCache().findRecord(rid) == null) {
+        // READ IT LATER TOGETHER WITH THE OTHER MISSING RECORDS
+        checkSecurity(ODatabaseSecurityResources.CLUSTER, ORole.PERMISSION_READ, getClusterNameById(rid.getClusterId()));
+        toReadPositions.add(result.size());
+        toRead.add(rid);
+        result.add(null);
+      } else
+        result.add((RET) load(rid));
+    }
+
+    if (toRead.isEmpty())
+      return result;
+
+    final List<ORawBuffer> buffers = underlying.read(toRead);
+    for (int i = 0; i < buffers.size(); ++i)
+      result.set(toReadPositions.get(i), (RET) fillRecord(toRead.get(i), null, buffers.get(i), false));
+
+    return result;
+  }
+
   /**
    * Updates the record without checking the version.
    */
@@ -903,37 +935,45 @@ public abstract class ODatabaseRecordAbstract extends ODatabaseWrapperAbstract<O
       }
 
       final ORawBuffer recordBuffer = underlying.read(rid, iFetchPlan, iIgnoreCache, loadTombstones, iLockingStrategy).getResult();
-      if (recordBuffer == null)
-        return null;
+      return (RET) fillRecord(rid, iRecord, recordBuffer, iIgnoreCache);
+    } catch (OException e) {
+      // RE-THROW THE EXCEPTION
+      throw e;
 
-      if (iRecord == null || iRecord.getRecordType() != recordBuffer.recordType)
-        // NO SAME RECORD TYPE: CAN'T REUSE OLD ONE BUT CREATE A NEW ONE FOR IT
-        iRecord = Orient.instance().getRecordFactoryManager().newInstance(recordBuffer.recordType);
+    } catch (Exception e) {
+      // WRAP IT AS ODATABASE EXCEPTION
+      throw new ODatabaseException("Error on retrieving record " + rid, e);
+    }
+  }
 
-      iRecord.fill(rid, recordBuffer.version, recordBuffer.buffer, false);
+  /**
+   * Fills the record with the buffer read from the storage, calling the read hooks.
+   */
+  private ORecordInternal<?> fillRecord(final ORecordId rid, ORecordInternal<?> iRecord, final ORawBuffer recordBuffer,
+      final boolean iIgnoreCache) {
+    if (recordBuffer == null)
+      return null;
 
-      if (iRecord.getRecordVersion().isTombstone())
-        return (RET) iRecord;
+    if (iRecord == null || iRecord.getRecordType() != recordBuffer.recordType)
+      // NO SAME RECORD TYPE: CAN'T REUSE OLD ONE BUT CREATE A NEW ONE FOR IT
+      iRecord = Orient.instance().getRecordFactoryManager().newInstance(recordBuffer.recordType);
 
-      if (callbackHooks(TYPE.BEFORE_READ, iRecord) == RESULT.SKIP)
-        return null;
+    iRecord.fill(rid, recordBuffer.version, recordBuffer.buffer, false);
 
-      iRecord.fromStream(recordBuffer.buffer);
+    if (iRecord.getRecordVersion().isTombstone())
+      return iRecord;
 
-      callbackHooks(TYPE.AFTER_READ, iRecord);
+    if (callbackHooks(TYPE.BEFORE_READ, iRecord) == RESULT.SKIP)
+      return null;
 
-      if (!iIgnoreCache)
-        getLocalCache().updateRecord(iRecord);
+    iRecord.fromStream(recordBuffer.buffer);
 
-      return (RET) iRecord;
-    } catch (OException e) {
-      // RE-THROW THE EXCEPTION
-      throw e;
+    callbackHooks(TYPE.AFTER_READ, iRecord);
 
-    } catch (Exception e) {
-      // WRAP IT AS ODATABASE EXCEPTION
-      throw new ODatabaseException("Error on retrieving record " + rid, e);
-    }
+    if (!iIgnoreCache)
+      getLocalCache().updateRecord(iRecord);
+
+    return iRecord;
   }
 
   public <RET extends ORecordInternal<?>> RET executeSaveRecord(final ORecordInternal<?> record, String iClusterName,
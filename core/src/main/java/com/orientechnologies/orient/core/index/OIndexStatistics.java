@@ -0,0 +1,243 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import com.orientechnologies.common.comparator.ODefaultComparator;
+import com.orientechnologies.common.concur.resource.OSharedResource;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Statistics of an index used by the query planner to estimate the number of records returned by an index lookup. They are
+ * computed by the ANALYZE command and persisted in the index configuration. Besides the number of entries and distinct keys, for
+ * ordered single-field indexes an equi-depth histogram is kept: every bucket contains the same number of entries and is
+ * represented by its upper key.
+ *
+ * @author Luca Garulli
+ */
+public class OIndexStatistics {
+  public static final String CONFIG_STATISTICS = "statistics";
+  public static final int    DEFAULT_BUCKETS   = 64;
+
+  private final long         size;
+  private final long         keySize;
+  private final long         recordCount;
+  private final List<Object> histogram;
+  private final long         analyzedOn;
+
+  public OIndexStatistics(final long iSize, final long iKeySize, final long iRecordCount, final List<Object> iHistogram,
+      final long iAnalyzedOn) {
+    size = iSize;
+    keySize = iKeySize;
+    recordCount = iRecordCount;
+    histogram = iHistogram;
+    analyzedOn = iAnalyzedOn;
+  }
+
+  /**
+   * Computes the statistics browsing the whole index.
+   *
+   * @param iIndex
+   *          Index to analyze
+   * @param iRecordCount
+   *          Number of records of the indexed class, or -1 if unknown
+   * @param iBuckets
+   *          Maximum number of buckets of the histogram
+   */
+  public static OIndexStatistics compute(final OIndex<?> iIndex, final long iRecordCount, final int iBuckets) {
+    final long keySize = iIndex.getKeySize();
+
+    final OIndexDefinition definition = iIndex.getDefinition();
+    final boolean buildHistogram = iIndex.supportsOrderedIterations() && definition != null && definition.getParamCount() == 1;
+
+    final long size = iIndex.getSize();
+    final List<Object> histogram = new ArrayList<Object>(iBuckets);
+
+    if (buildHistogram) {
+      // BROWSE THE KEYS IN ORDER COLLECTING THE UPPER KEY OF EVERY BUCKET
+      if (size > 0) {
+        final long depth = Math.max(1, (size + iBuckets - 1) / iBuckets);
+        final OIndexCursor cursor = iIndex.cursor();
+
+        long entries = 0;
+        Object lastKey = null;
+        Map.Entry<Object, OIdentifiable> entry = cursor.nextEntry();
+        while (entry != null) {
+          lastKey = entry.getKey();
+          if (++entries % depth == 0 && lastKey != null)
+            histogram.add(lastKey);
+          entry = cursor.nextEntry();
+        }
+
+        if (lastKey != null && (histogram.isEmpty() || histogram.get(histogram.size() - 1) != lastKey))
+          histogram.add(lastKey);
+      }
+    }
+
+    return new OIndexStatistics(size, keySize, iRecordCount, histogram.isEmpty() ? null : histogram, System.currentTimeMillis());
+  }
+
+  /**
+   * Returns the statistics stored in the index configuration, if any.
+   */
+  @SuppressWarnings("unchecked")
+  public static OIndexStatistics get(final OIndex<?> iIndex) {
+    final ODocument configuration = iIndex.getConfiguration();
+    if (configuration == null)
+      return null;
+
+    final ODocument doc = configuration.field(CONFIG_STATISTICS);
+    if (doc == null)
+      return null;
+
+    final Date analyzedOn = doc.field("analyzedOn");
+    return new OIndexStatistics(((Number) doc.field("size")).longValue(), ((Number) doc.field("keySize")).longValue(),
+        ((Number) doc.field("recordCount")).longValue(), (List<Object>) doc.field("histogram"), analyzedOn != null ? analyzedOn
+            .getTime() : 0);
+  }
+
+  /**
+   * Stores the statistics in the index configuration under the exclusive lock of the index, as the index does updating its
+   * configuration. The index manager must be saved to make them persistent.
+   */
+  public void store(final OIndex<?> iIndex) {
+    final OIndexInternal<?> internal = iIndex.getInternal();
+    final OSharedResource lock = internal instanceof OSharedResource ? (OSharedResource) internal : null;
+
+    if (lock != null)
+      lock.acquireExclusiveLock();
+    try {
+      final ODocument configuration = iIndex.getConfiguration();
+      final ODocument doc = toDocument();
+      doc.addOwner(configuration);
+      configuration.field(CONFIG_STATISTICS, doc, OType.EMBEDDED);
+    } finally {
+      if (lock != null)
+        lock.releaseExclusiveLock();
+    }
+  }
+
+  public ODocument toDocument() {
+    final ODocument doc = new ODocument();
+    doc.field("size", size);
+    doc.field("keySize", keySize);
+    doc.field("recordCount", recordCount);
+    doc.field("nullFraction", getNullFraction());
+    doc.field("analyzedOn", new Date(analyzedOn));
+    if (histogram != null)
+      doc.field("histogram", histogram, OType.EMBEDDEDLIST);
+    return doc;
+  }
+
+  /**
+   * Estimates the records returned looking up a single key.
+   */
+  public long estimateEquals() {
+    if (keySize <= 0)
+      return 0;
+    return Math.max(1, Math.round((double) size / keySize));
+  }
+
+  /**
+   * Estimates the records returned by a range lookup. Null boundaries mean open ranges.
+   *
+   * @return The estimated records, or -1 if no histogram is available
+   */
+  public long estimateRange(final Object iFrom, final boolean iFromInclusive, final Object iTo, final boolean iToInclusive) {
+    if (histogram == null || histogram.isEmpty())
+      return -1;
+
+    final int from = iFrom != null ? findBucket(iFrom, !iFromInclusive) : 0;
+    final int to = iTo != null ? Math.min(findBucket(iTo, false), histogram.size() - 1) : histogram.size() - 1;
+
+    if (from == -1 || to == -1)
+      // KEYS NOT COMPARABLE WITH THE HISTOGRAM
+      return -1;
+
+    if (to < from)
+      return 0;
+
+    // THE BOUNDARY BUCKETS ARE COUNTED AS HALF-FULL
+    final double buckets = Math.max(0.5d, to - from + (from == to ? 0.5d : 0d));
+    return Math.round(size * buckets / histogram.size());
+  }
+
+  /**
+   * Fraction of the class records not contained in the index, like the records with the indexed fields set to null.
+   */
+  public float getNullFraction() {
+    if (recordCount <= 0 || size >= recordCount)
+      return 0f;
+    return (float) (recordCount - size) / recordCount;
+  }
+
+  public long getSize() {
+    return size;
+  }
+
+  public long getKeySize() {
+    return keySize;
+  }
+
+  public long getRecordCount() {
+    return recordCount;
+  }
+
+  public long getAnalyzedOn() {
+    return analyzedOn;
+  }
+
+  public List<Object> getHistogram() {
+    return histogram;
+  }
+
+  /**
+   * Returns the first bucket that can contain the key, the number of buckets if the key is beyond the last one, or -1 if the key
+   * cannot be compared with the histogram.
+   */
+  private int findBucket(final Object iKey, final boolean iExclusive) {
+    Object key = iKey;
+    final Object first = histogram.get(0);
+    if (key.getClass() != first.getClass()) {
+      key = OType.convert(key, first.getClass());
+      if (key == null || key.getClass() != first.getClass())
+        return -1;
+    }
+
+    int low = 0;
+    int high = histogram.size() - 1;
+    while (low <= high) {
+      final int mid = (low + high) >>> 1;
+      final int cmp = ODefaultComparator.INSTANCE.compare(histogram.get(mid), key);
+      if (cmp < 0 || (cmp == 0 && iExclusive))
+        low = mid + 1;
+      else
+        high = mid - 1;
+    }
+    return low;
+  }
+
+  @Override
+  public String toString() {
+    return toDocument().toJSON();
+  }
+}
@@ -8,4 +8,9 @@ public interface ODocumentSerializer {
 
   public void deserialize(ODocument document, BytesContainer bytes);
 
+  /**
+   * Deserializes only the requested fields, reading the field header and decoding the values of the matching fields only.
+   */
+  public void deserializePartial(ODocument document, BytesContainer bytes, String[] iFields);
+
 }
@@ -45,6 +45,13 @@ public class ORecordSerializerBinary implements ORecordSerializer {
 
     BytesContainer container = new BytesContainer(iSource);
     container.skip(1);
+
+    if (iFields != null && iFields.length > 0) {
+      // PARTIAL UNMARSHALLING: KEEP THE SOURCE TO UNMARSHALL THE OTHER FIELDS ON DEMAND
+      serializerByVersion[iSource[0]].deserializePartial((ODocument) iRecord, container, iFields);
+      return iRecord;
+    }
+
     serializerByVersion[iSource[0]].deserialize((ODocument) iRecord, container);
     ODocumentInternal.clearSource((ODocument) iRecord);
     return iRecord;
@@ -111,6 +111,78 @@ public class ORecordSerializerBinaryV0 implements ODocumentSerializer {
       bytes.offset = last;
   }
 
+  @Override
+  public void deserializePartial(final ODocument document, final BytesContainer bytes, final String[] iFields) {
+    final String className = readString(bytes);
+    if (className.length() != 0)
+      document.setClassNameIfExists(className);
+
+    // TRANSFORM THE FIELD NAMES IN BYTES ONCE TO AVOID CREATING A STRING PER FIELD IN THE HEADER
+    final byte[][] fields = new byte[iFields.length][];
+    int toFind = 0;
+    for (int i = 0; i < iFields.length; ++i)
+      if (iFields[i] != null && !iFields[i].startsWith("@")) {
+        fields[i] = iFields[i].getBytes(utf8);
+        toFind++;
+      }
+
+    while (toFind > 0) {
+      OGlobalProperty prop = null;
+      String field = null;
+      final int len = OVarIntSerializer.readAsInteger(bytes);
+      if (len == 0)
+        break;
+      else if (len > 0) {
+        for (int i = 0; i < fields.length; ++i)
+          if (fields[i] != null && matchesBytes(fields[i], bytes, len)) {
+            field = iFields[i];
+            break;
+          }
+        bytes.skip(len);
+      } else {
+        final ODatabaseRecord db = document.getDatabase();
+        if (db == null || db.isClosed())
+          throw new ODatabaseException("Impossible deserialize the document no database present");
+        prop = db.getMetadata().getSchema().getGlobalPropertyById((len * -1) - 1);
+        for (int i = 0; i < fields.length; ++i)
+          if (fields[i] != null && iFields[i].equals(prop.getName())) {
+            field = iFields[i];
+            break;
+          }
+      }
+
+      if (field == null || document.containsField(field)) {
+        // NOT REQUESTED OR ALREADY UNMARSHALLED: SKIP IT
+        if (prop != null && prop.getType() != OType.ANY)
+          bytes.skip(OIntegerSerializer.INT_SIZE);
+        else
+          bytes.skip(OIntegerSerializer.INT_SIZE + 1);
+        continue;
+      }
+
+      toFind--;
+
+      final int valuePos = readInteger(bytes);
+      final OType type;
+      if (prop != null && prop.getType() != OType.ANY)
+        type = prop.getType();
+      else
+        type = readOType(bytes);
+
+      if (valuePos != 0) {
+        final int headerCursor = bytes.offset;
+        bytes.offset = valuePos;
+        final Object value = readSingleValue(bytes, type, document);
+        bytes.offset = headerCursor;
+        if (document.fieldType(field) != null || OType.LINK == type)
+          document.field(field, value);
+        else
+          document.field(field, value, type);
+      } else
+        document.field(field, (Object) null);
+    }
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   public void serialize(final ODocument document, final BytesContainer bytes) {
@@ -628,6 +700,15 @@ public class ORecordSerializerBinaryV0 implements ODocumentSerializer {
     return res;
   }
 
+  private boolean matchesBytes(final byte[] iName, final BytesContainer bytes, final int len) {
+    if (iName.length != len)
+      return false;
+    for (int i = 0; i < len; ++i)
+      if (iName[i] != bytes.bytes[bytes.offset + i])
+        return false;
+    return true;
+  }
+
   private int readInteger(final BytesContainer container) {
     final int value = OIntegerSerializer.INSTANCE.deserializeLiteral(container.bytes, container.offset);
     container.offset += OIntegerSerializer.INT_SIZE;
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+import com.orientechnologies.orient.core.command.OCommandDistributedReplicateRequest;
+import com.orientechnologies.orient.core.command.OCommandRequest;
+import com.orientechnologies.orient.core.command.OCommandRequestText;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.index.OIndexDefinition;
+import com.orientechnologies.orient.core.index.OIndexManager;
+import com.orientechnologies.orient.core.index.OIndexStatistics;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+
+/**
+ * SQL ANALYZE command: computes the statistics of indexes used by the query planner to estimate the records returned by index
+ * lookups.
+ *
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ */
+public class OCommandExecutorSQLAnalyze extends OCommandExecutorSQLAbstract implements OCommandDistributedReplicateRequest {
+  public static final String KEYWORD_ANALYZE = "ANALYZE";
+  public static final String KEYWORD_INDEX   = "INDEX";
+  public static final String KEYWORD_CLASS   = "CLASS";
+
+  private String             target;
+  private String             name;
+
+  public OCommandExecutorSQLAnalyze parse(final OCommandRequest iRequest) {
+    init((OCommandRequestText) iRequest);
+
+    final StringBuilder word = new StringBuilder();
+
+    int oldPos = 0;
+    int pos = nextWord(parserText, parserTextUpperCase, oldPos, word, true);
+    if (pos == -1 || !word.toString().equals(KEYWORD_ANALYZE))
+      throw new OCommandSQLParsingException("Keyword " + KEYWORD_ANALYZE + " not found. Use " + getSyntax(), parserText, oldPos);
+
+    oldPos = pos;
+    pos = nextWord(parserText, parserTextUpperCase, pos, word, true);
+    if (pos == -1 || !(word.toString().equals(KEYWORD_INDEX) || word.toString().equals(KEYWORD_CLASS)))
+      throw new OCommandSQLParsingException("Keyword " + KEYWORD_INDEX + " or " + KEYWORD_CLASS + " not found. Use " + getSyntax(),
+          parserText, oldPos);
+
+    target = word.toString();
+
+    oldPos = pos;
+    pos = nextWord(parserText, parserTextUpperCase, oldPos, word, false);
+    if (pos == -1)
+      throw new OCommandSQLParsingException("Expected " + target.toLowerCase() + " name", parserText, oldPos);
+
+    name = word.toString();
+
+    return this;
+  }
+
+  /**
+   * Execute the ANALYZE. Returns the number of analyzed indexes.
+   */
+  public Object execute(final Map<Object, Object> iArgs) {
+    if (name == null)
+      throw new OCommandExecutionException("Cannot execute the command because it has not been parsed yet");
+
+    final ODatabaseRecord database = getDatabase();
+    final OIndexManager indexManager = database.getMetadata().getIndexManager();
+
+    final Collection<? extends OIndex<?>> indexes;
+    if (target.equals(KEYWORD_CLASS)) {
+      final OClass cls = database.getMetadata().getSchema().getClass(name);
+      if (cls == null)
+        throw new OCommandExecutionException("Class '" + name + "' not found");
+      indexes = cls.getIndexes();
+    } else if (name.equals("*"))
+      indexes = indexManager.getIndexes();
+    else {
+      final OIndex<?> idx = indexManager.getIndex(name);
+      if (idx == null)
+        throw new OCommandExecutionException("Index '" + name + "' not found");
+      indexes = Collections.singletonList(idx);
+    }
+
+    int analyzed = 0;
+    for (OIndex<?> idx : indexes) {
+      if (idx.isRebuiding())
+        continue;
+
+      final OIndexStatistics statistics = OIndexStatistics.compute(idx, getRecordCount(database, idx),
+          OIndexStatistics.DEFAULT_BUCKETS);
+      statistics.store(idx);
+      analyzed++;
+    }
+
+    if (analyzed > 0)
+      indexManager.save();
+
+    return analyzed;
+  }
+
+  @Override
+  public String getSyntax() {
+    return "ANALYZE INDEX <index-name>|* | ANALYZE CLASS <class-name>";
+  }
+
+  private static long getRecordCount(final ODatabaseRecord iDatabase, final OIndex<?> iIndex) {
+    final OIndexDefinition definition = iIndex.getDefinition();
+    if (definition == null || definition.getClassName() == null)
+      return -1;
+
+    final OClass cls = iDatabase.getMetadata().getSchema().getClass(definition.getClassName());
+    return cls != null ? cls.count() : -1;
+  }
+}
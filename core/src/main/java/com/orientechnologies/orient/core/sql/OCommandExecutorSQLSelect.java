@@ -24,17 +24,21 @@ import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.command.OBasicCommandContext;
 import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.command.OCommandRequest;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
 import com.orientechnologies.orient.core.exception.OQueryParsingException;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.index.OCompositeIndexDefinition;
 import com.orientechnologies.orient.core.index.OCompositeKey;
 import com.orientechnologies.orient.core.index.OIndex;
 import com.orientechnologies.orient.core.index.OIndexCursor;
 import com.orientechnologies.orient.core.index.OIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndexInternal;
+import com.orientechnologies.orient.core.index.OIndexStatistics;
+import com.orientechnologies.orient.core.iterator.ORecordIteratorClusters;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.metadata.security.ODatabaseSecurityResources;
@@ -77,6 +81,12 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
   public static final String          KEYWORD_FETCHPLAN    = "FETCHPLAN";
   private static final String         KEYWORD_AS           = "AS";
   private static final String         KEYWORD_PARALLEL     = "PARALLEL";
+  // CLUSTER NAMES THE QUERY IS RESTRICTED TO: THE RECORDS OF THE OTHER CLUSTERS ARE IGNORED
+  public static final String          VAR_TARGET_CLUSTERS  = "$targetClusters";
+  // WHEN TRUE THE RESULT IS PARTIAL AND IT'S MERGED BY THE CALLER: SKIP IS LEFT TO THE CALLER AND GROUPS ARE NOT LIMITED
+  public static final String          VAR_PARTIAL_RESULT   = "$partialResult";
+  // FIELD OF THE PARTIAL GROUPS WITH THE VALUES OF THE GROUP BY FIELDS, EVEN IF NOT PROJECTED, TO MERGE THE SAME GROUPS
+  public static final String          FIELD_GROUP_KEY      = "$groupKey";
   private final OOrderByOptimizer     orderByOptimizer     = new OOrderByOptimizer();
   private final OMetricRecorder       metricRecorder       = new OMetricRecorder();
   private final OFilterOptimizer      filterOptimizer      = new OFilterOptimizer();
@@ -94,6 +104,10 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
   private volatile boolean            executing;
 
   private boolean                     fullySortedByIndex   = false;
+  private boolean                     executed             = false;
+  private Set<Integer>                targetClusterIds;
+  private boolean                     parsedGroup;
+  private OSQLFilterCondition         parsedRootCondition;
   private OStorage.LOCKING_STRATEGY   lockingStrategy      = OStorage.LOCKING_STRATEGY.DEFAULT;
   private boolean                     parallel             = false;
   private Lock                        parallelLock         = new ReentrantLock();
@@ -334,6 +348,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
   }
 
   public Object execute(final Map<Object, Object> iArgs) {
+    resetExecution();
     try {
       if (iArgs != null)
         // BIND ARGUMENTS INTO CONTEXT TO ACCESS FROM ANY POINT (EVEN FUNCTIONS)
@@ -343,27 +358,103 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       if (timeoutMs > 0)
         getContext().beginExecution(timeoutMs, timeoutStrategy);
 
-      if (!optimizeExecution()) {
-        fetchLimit = getQueryFetchLimit();
+      assignTargetClusters();
+
+      final boolean partial = Boolean.TRUE.equals(context.getVariable(VAR_PARTIAL_RESULT));
+      final int parsedLimit = limit;
+      final int parsedSkip = skip;
+      if (partial) {
+        // THE CALLER MERGES THE PARTIAL RESULTS: RETURN THE FIRST SKIP + LIMIT RECORDS AND ALL THE GROUPS
+        if (isAnyFunctionAggregates())
+          limit = -1;
+        else if (limit > -1)
+          limit += skip;
+        skip = 0;
+      }
 
-        executeSearch(iArgs);
-        applyExpand();
-        handleNoTarget();
-        handleGroupBy();
-        applyOrderBy();
-        applyLimitAndSkip();
+      try {
+        if (!optimizeExecution()) {
+          fetchLimit = getQueryFetchLimit();
+
+          executeSearch(iArgs);
+          applyExpand();
+          handleNoTarget();
+          handleGroupBy();
+          applyOrderBy();
+          applyLimitAndSkip();
+        }
+        return getResult();
+      } finally {
+        if (partial) {
+          limit = parsedLimit;
+          skip = parsedSkip;
+        }
       }
-      return getResult();
     } finally {
       if (request.getResultListener() != null)
         request.getResultListener().end();
     }
   }
 
+  /**
+   * Returns true if the parsed query can be executed again. Sub-queries are executed once and replaced by their result, so a query
+   * containing them must be parsed again.
+   */
+  public boolean isReusable() {
+    if (parsedTarget != null && parsedTarget.getTargetQuery() != null)
+      // THE TARGET IS A SELECT OR A TRAVERSE
+      return false;
+
+    if (compiledFilter != null && containsSubQuery(compiledFilter.getRootCondition()))
+      return false;
+
+    if (projections != null)
+      for (Object p : projections.values())
+        if (containsSubQuery(p))
+          return false;
+
+    // THE SUB-QUERIES OF THE LET CLAUSES ARE EXECUTED AGAIN FOR EVERY RECORD
+    return true;
+  }
+
+  private static boolean containsSubQuery(final Object iValue) {
+    if (iValue instanceof OSQLQuery<?>)
+      return true;
+
+    if (iValue instanceof OSQLFilterCondition)
+      return containsSubQuery(((OSQLFilterCondition) iValue).getLeft())
+          || containsSubQuery(((OSQLFilterCondition) iValue).getRight());
+
+    if (iValue instanceof OSQLFunctionRuntime) {
+      final Object[] parameters = ((OSQLFunctionRuntime) iValue).configuredParameters;
+      if (parameters != null)
+        for (Object p : parameters)
+          if (containsSubQuery(p))
+            return true;
+    } else if (iValue instanceof Collection<?>)
+      for (Object v : (Collection<?>) iValue)
+        if (containsSubQuery(v))
+          return true;
+
+    return false;
+  }
+
   public Map<String, Object> getProjections() {
     return projections;
   }
 
+  public List<OPair<String, String>> getOrderedFields() {
+    return orderedFields;
+  }
+
+  public List<String> getGroupByFields() {
+    return groupByFields;
+  }
+
+  public int getSkip() {
+    return skip;
+  }
+
   @Override
   public String getSyntax() {
     return "SELECT [<Projections>] FROM <Target> [LET <Assignment>*] [WHERE <Condition>*] [ORDER BY <Fields>* [ASC|DESC]*] [LIMIT <MaxRecords>] [TIMEOUT <TimeoutInMs>] [LOCK none|record]";
@@ -373,6 +464,54 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     return fetchPlan != null ? fetchPlan : request.getFetchPlan();
   }
 
+  /**
+   * Resets the state of the previous execution, so the parsed query can be executed multiple times.
+   */
+  protected void resetExecution() {
+    if (!executed) {
+      // FIRST EXECUTION: KEEP THE STATE LEFT BY THE PARSING
+      executed = true;
+      parsedGroup = groupedResult != null;
+      if (compiledFilter != null)
+        parsedRootCondition = compiledFilter.getRootCondition();
+      return;
+    }
+
+    target = null;
+    tempResult = null;
+    resultCount = 0;
+    lastRecord = null;
+    fullySortedByIndex = false;
+
+    groupedResult = null;
+    if (parsedGroup)
+      // AGGREGATES WITHOUT GROUP BY HAVE ONE GROUP, EVEN WITHOUT RECORDS
+      getProjectionGroup(null);
+
+    if (compiledFilter != null)
+      // THE CONDITIONS SATISFIED BY AN INDEX ARE REMOVED ON EXECUTION: RESTORE THE PARSED ONES
+      compiledFilter.setRootCondition(parsedRootCondition);
+  }
+
+  /**
+   * Restricts the execution to the clusters set in the context variable {@link #VAR_TARGET_CLUSTERS}, if any.
+   */
+  protected void assignTargetClusters() {
+    final Object clusters = context.getVariable(VAR_TARGET_CLUSTERS);
+    if (clusters == null) {
+      targetClusterIds = null;
+      return;
+    }
+
+    final ODatabaseRecord database = getDatabase();
+    targetClusterIds = new HashSet<Integer>();
+    for (Object c : OMultiValue.getMultiValueIterable(clusters)) {
+      final int clusterId = database.getClusterIdByName(c.toString().toLowerCase());
+      if (clusterId > -1)
+        targetClusterIds.add(clusterId);
+    }
+  }
+
   protected boolean checkClusterAccess(final ODatabaseRecord db, final String iClusterName) {
     return db.getUser() != null
         && db.getUser().checkIfAllowed(ODatabaseSecurityResources.CLUSTER + "." + iClusterName, getSecurityOperationType()) != null;
@@ -412,6 +551,10 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     if (!context.checkTimeout())
       return false;
 
+    if (targetClusterIds != null && !targetClusterIds.contains(id.getIdentity().getClusterId()))
+      // BELONGS TO A CLUSTER ASSIGNED TO ANOTHER NODE
+      return true;
+
     final OStorage.LOCKING_STRATEGY contextLockingStrategy = context.getVariable("$locking") != null ? (OStorage.LOCKING_STRATEGY) context
         .getVariable("$locking") : null;
 
@@ -654,10 +797,42 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       // CHECK FOR INVERSE ORDER
       final boolean browsingOrderAsc = !(orderedFields.size() == 1 && orderedFields.get(0).getKey().equalsIgnoreCase("@rid") && orderedFields
           .get(0).getValue().equalsIgnoreCase("DESC"));
-      super.searchInClasses(browsingOrderAsc);
+      if (targetClusterIds != null && browsingOrderAsc)
+        searchInTargetClusters(cls);
+      else
+        super.searchInClasses(browsingOrderAsc);
     }
   }
 
+  /**
+   * Browses only the clusters of the class the execution is restricted to.
+   */
+  protected void searchInTargetClusters(final OClass iClass) {
+    final ODatabaseRecord database = getDatabase();
+    database.checkSecurity(ODatabaseSecurityResources.CLASS, ORole.PERMISSION_READ, iClass.getName().toLowerCase());
+
+    final List<Integer> clusterIds = new ArrayList<Integer>();
+    for (int clusterId : iClass.getPolymorphicClusterIds())
+      if (targetClusterIds.contains(clusterId))
+        clusterIds.add(clusterId);
+
+    if (clusterIds.isEmpty()) {
+      target = new ArrayList<OIdentifiable>().iterator();
+      return;
+    }
+
+    final int[] clIds = new int[clusterIds.size()];
+    for (int i = 0; i < clIds.length; ++i)
+      clIds[i] = clusterIds.get(i);
+
+    final OStorage.LOCKING_STRATEGY locking = context.getVariable("$locking") != null ? (OStorage.LOCKING_STRATEGY) context
+        .getVariable("$locking") : OStorage.LOCKING_STRATEGY.DEFAULT;
+
+    final ORID[] range = getRange();
+    target = new ORecordIteratorClusters<ORecordInternal<?>>(database, database, clIds, request.isUseCache(), false, locking)
+        .setRange(range[0], range[1]);
+  }
+
   protected int parseProjections() {
     if (!parserOptionalKeyword(KEYWORD_SELECT))
       return -1;
@@ -883,10 +1058,17 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
 
             if (parsedTarget.getTargetClasses() != null) {
               final OClass cls = parsedTarget.getTargetClasses().keySet().iterator().next();
-              count = cls.count();
+              if (targetClusterIds != null) {
+                // COUNT ONLY THE TARGET CLUSTERS
+                for (int clusterId : cls.getPolymorphicClusterIds())
+                  if (targetClusterIds.contains(clusterId))
+                    count += getDatabase().countClusterElements(clusterId);
+              } else
+                count = cls.count();
             } else if (parsedTarget.getTargetClusters() != null) {
               for (String cluster : parsedTarget.getTargetClusters().keySet()) {
-                count += getDatabase().countClusterElements(cluster);
+                if (targetClusterIds == null || targetClusterIds.contains(getDatabase().getClusterIdByName(cluster.toLowerCase())))
+                  count += getDatabase().countClusterElements(cluster);
               }
             } else if (parsedTarget.getTargetIndex() != null) {
               count += getDatabase().getMetadata().getIndexManager().getIndex(parsedTarget.getTargetIndex()).getSize();
@@ -1217,6 +1399,14 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     final List<OIndexSearchResult> indexSearchResults = filterAnalyzer.analyzeCondition(compiledFilter.getRootCondition(),
         iSchemaClass, context);
 
+    final Map<OIndexSearchResult, Long> estimatedRows = estimateIndexSearchResults(iSchemaClass, indexSearchResults);
+
+    if (orderedFields.isEmpty() && OGlobalConfiguration.QUERY_INDEX_MERGE.getValueAsBoolean()) {
+      // TRY TO MERGE THE RESULTS OF MORE INDEXES BEFORE LOADING THE RECORDS
+      if (searchForIndexUnion(iSchemaClass) || searchForIndexIntersection(iSchemaClass, indexSearchResults))
+        return true;
+    }
+
     // go through all variants to choose which one can be used for index search.
     for (final OIndexSearchResult searchResult : indexSearchResults) {
       final List<OIndex<?>> involvedIndexes = filterAnalyzer.getInvolvedIndexes(iSchemaClass, searchResult);
@@ -1225,42 +1415,19 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
 
       // go through all possible index for given set of fields.
       for (final OIndex index : involvedIndexes) {
-        if (index.isRebuiding())
+        if (!canUseIndex(index, searchResult))
           continue;
 
         final OIndexDefinition indexDefinition = index.getDefinition();
-
-        if (searchResult.containsNullValues && indexDefinition.isNullValuesIgnored())
-          continue;
-
         final OQueryOperator operator = searchResult.lastOperator;
 
-        // we need to test that last field in query subset and field in index that has the same position
-        // are equals.
-        if (!OIndexSearchResult.isIndexEqualityOperator(operator)) {
-          final String lastFiled = searchResult.lastField.getItemName(searchResult.lastField.getItemCount() - 1);
-          final String relatedIndexField = indexDefinition.getFields().get(searchResult.fieldValuePairs.size());
-          if (!lastFiled.equals(relatedIndexField))
-            continue;
-        }
-
-        final int searchResultFieldsCount = searchResult.fields().size();
-        final List<Object> keyParams = new ArrayList<Object>(searchResultFieldsCount);
-        // We get only subset contained in processed sub query.
-        for (final String fieldName : indexDefinition.getFields().subList(0, searchResultFieldsCount)) {
-          final Object fieldValue = searchResult.fieldValuePairs.get(fieldName);
-          if (fieldValue instanceof OSQLQuery<?>)
-            return false;
-
-          if (fieldValue != null)
-            keyParams.add(fieldValue);
-          else {
-            if (searchResult.lastValue instanceof OSQLQuery<?>)
-              return false;
+        final List<Object> keyParams = getIndexKeyParams(indexDefinition, searchResult);
+        if (keyParams == null)
+          return false;
 
-            keyParams.add(searchResult.lastValue);
-          }
-        }
+        final Long estimate = estimatedRows.get(searchResult);
+        if (estimate != null)
+          context.setVariable("estimatedRows", estimate);
 
         metricRecorder.recordInvolvedIndexesMetric(index);
 
@@ -1302,6 +1469,315 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     return false;
   }
 
+  /**
+   * Estimates the records returned by every search result using the statistics collected by the ANALYZE command. Search results
+   * estimated to return more than {@link OGlobalConfiguration#QUERY_INDEX_SELECTIVITY} of the class records are removed to prefer
+   * a scan, the others are sorted by the estimated records. Without statistics the order of the search results is not changed. A
+   * single search result is not estimated: there is no index to choose.
+   *
+   * @return The estimated records of the search results with statistics
+   */
+  private Map<OIndexSearchResult, Long> estimateIndexSearchResults(final OClass iSchemaClass,
+      final List<OIndexSearchResult> iSearchResults) {
+    if (iSearchResults.size() < 2)
+      return Collections.emptyMap();
+
+    final Map<OIndexSearchResult, Long> estimates = new IdentityHashMap<OIndexSearchResult, Long>();
+    final float selectivity = OGlobalConfiguration.QUERY_INDEX_SELECTIVITY.getValueAsFloat();
+
+    for (Iterator<OIndexSearchResult> it = iSearchResults.iterator(); it.hasNext();) {
+      final OIndexSearchResult searchResult = it.next();
+
+      final List<OIndex<?>> involvedIndexes = filterAnalyzer.getInvolvedIndexes(iSchemaClass, searchResult);
+      Collections.sort(involvedIndexes, new IndexComparator());
+
+      // ESTIMATE AGAINST THE SAME INDEX THAT WILL BE USED
+      for (OIndex<?> index : involvedIndexes) {
+        if (!canUseIndex(index, searchResult))
+          continue;
+
+        final OIndexStatistics statistics = OIndexStatistics.get(index);
+        if (statistics != null) {
+          final long estimate = estimateIndexLookup(statistics, index.getDefinition(), searchResult);
+          if (estimate > -1) {
+            final long records = Math.max(statistics.getRecordCount(), statistics.getSize());
+            if (records > 0 && estimate > records * selectivity)
+              it.remove();
+            else
+              estimates.put(searchResult, estimate);
+          }
+        }
+        break;
+      }
+    }
+
+    if (!estimates.isEmpty())
+      Collections.sort(iSearchResults, new Comparator<OIndexSearchResult>() {
+        public int compare(final OIndexSearchResult searchResultOne, final OIndexSearchResult searchResultTwo) {
+          final int result = searchResultTwo.getFieldCount() - searchResultOne.getFieldCount();
+          if (result != 0)
+            return result;
+
+          final Long estimateOne = estimates.get(searchResultOne);
+          final Long estimateTwo = estimates.get(searchResultTwo);
+          if (estimateOne == null)
+            return estimateTwo == null ? 0 : 1;
+          if (estimateTwo == null)
+            return -1;
+          return estimateOne.compareTo(estimateTwo);
+        }
+      });
+
+    return estimates;
+  }
+
+  /**
+   * Estimates the records returned by the index lookup of the search result.
+   *
+   * @return The estimated records, or -1 if they cannot be estimated
+   */
+  private long estimateIndexLookup(final OIndexStatistics iStatistics, final OIndexDefinition iDefinition,
+      final OIndexSearchResult iSearchResult) {
+    final OQueryOperator operator = iSearchResult.lastOperator;
+    final boolean fullKey = iSearchResult.getFieldCount() == iDefinition.getParamCount();
+
+    if (operator instanceof OQueryOperatorEquals)
+      return fullKey ? iStatistics.estimateEquals() : -1;
+
+    if (iSearchResult.lastValue instanceof OSQLQuery<?>)
+      return -1;
+
+    if (operator instanceof OQueryOperatorIn) {
+      if (!fullKey)
+        return -1;
+
+      final Object values = OSQLHelper.getValue(iSearchResult.lastValue, null, context);
+      return iStatistics.estimateEquals() * (OMultiValue.isMultiValue(values) ? OMultiValue.getSize(values) : 1);
+    }
+
+    if (iDefinition.getParamCount() != 1)
+      // HISTOGRAMS ARE AVAILABLE ONLY FOR SINGLE-FIELD INDEXES
+      return -1;
+
+    if (operator instanceof OQueryOperatorBetween) {
+      final Object[] keys = (Object[]) iSearchResult.lastValue;
+      final Object from = OSQLHelper.getValue(keys[0], null, context);
+      final Object to = OSQLHelper.getValue(keys[2], null, context);
+      if (from == null || to == null)
+        return -1;
+
+      final OQueryOperatorBetween between = (OQueryOperatorBetween) operator;
+      return iStatistics.estimateRange(from, between.isLeftInclusive(), to, between.isRightInclusive());
+    }
+
+    final Object value = OSQLHelper.getValue(iSearchResult.lastValue, null, context);
+    if (value == null)
+      return -1;
+
+    if (operator instanceof OQueryOperatorMajor)
+      return iStatistics.estimateRange(value, false, null, true);
+    if (operator instanceof OQueryOperatorMajorEquals)
+      return iStatistics.estimateRange(value, true, null, true);
+    if (operator instanceof OQueryOperatorMinor)
+      return iStatistics.estimateRange(null, true, value, false);
+    if (operator instanceof OQueryOperatorMinorEquals)
+      return iStatistics.estimateRange(null, true, value, true);
+
+    return -1;
+  }
+
+  /**
+   * Checks if the index can be used to resolve the search result.
+   */
+  private boolean canUseIndex(final OIndex<?> index, final OIndexSearchResult searchResult) {
+    if (index.isRebuiding())
+      return false;
+
+    final OIndexDefinition indexDefinition = index.getDefinition();
+
+    if (searchResult.containsNullValues && indexDefinition.isNullValuesIgnored())
+      return false;
+
+    // we need to test that last field in query subset and field in index that has the same position
+    // are equals.
+    if (!OIndexSearchResult.isIndexEqualityOperator(searchResult.lastOperator)) {
+      final String lastFiled = searchResult.lastField.getItemName(searchResult.lastField.getItemCount() - 1);
+      final String relatedIndexField = indexDefinition.getFields().get(searchResult.fieldValuePairs.size());
+      if (!lastFiled.equals(relatedIndexField))
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * Returns the keys to look up in the index, or null if any of them is a sub-query.
+   */
+  private List<Object> getIndexKeyParams(final OIndexDefinition indexDefinition, final OIndexSearchResult searchResult) {
+    final int searchResultFieldsCount = searchResult.fields().size();
+    final List<Object> keyParams = new ArrayList<Object>(searchResultFieldsCount);
+    // We get only subset contained in processed sub query.
+    for (final String fieldName : indexDefinition.getFields().subList(0, searchResultFieldsCount)) {
+      final Object fieldValue = searchResult.fieldValuePairs.get(fieldName);
+      if (fieldValue instanceof OSQLQuery<?>)
+        return null;
+
+      if (fieldValue != null)
+        keyParams.add(fieldValue);
+      else {
+        if (searchResult.lastValue instanceof OSQLQuery<?>)
+          return null;
+
+        keyParams.add(searchResult.lastValue);
+      }
+    }
+    return keyParams;
+  }
+
+  /**
+   * Returns the sorted RIDs of the first index able to resolve the search result, or null if no index can be used.
+   */
+  @SuppressWarnings("rawtypes")
+  private List<ORID> fetchRidsFromIndex(final OClass iSchemaClass, final OIndexSearchResult searchResult) {
+    final List<OIndex<?>> involvedIndexes = filterAnalyzer.getInvolvedIndexes(iSchemaClass, searchResult);
+    Collections.sort(involvedIndexes, new IndexComparator());
+
+    for (final OIndex index : involvedIndexes) {
+      if (!canUseIndex(index, searchResult))
+        continue;
+
+      final List<Object> keyParams = getIndexKeyParams(index.getDefinition(), searchResult);
+      if (keyParams == null)
+        return null;
+
+      final OIndexCursor cursor;
+      try {
+        cursor = searchResult.lastOperator.executeIndexQuery(context, index, keyParams, true);
+      } catch (Exception e) {
+        OLogManager.instance().error(this, "Error on using index %s in query '%s'. Probably you need to rebuild indexes", e,
+            index.getName(), request != null && request.getText() != null ? request.getText() : "");
+        return null;
+      }
+
+      if (cursor != null) {
+        metricRecorder.recordInvolvedIndexesMetric(index);
+        return OIndexRidMerge.toSortedRids(cursor);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Resolves a condition with OR operators by the union of the RIDs returned by the indexes of every branch. Only equality and IN
+   * lookups are merged, because all the RIDs are fetched before applying the LIMIT and ranges can return big part of the index. The
+   * whole filter is still evaluated against the loaded records.
+   *
+   * @return true if every branch has been resolved by an index, otherwise false
+   */
+  private boolean searchForIndexUnion(final OClass iSchemaClass) {
+    final OSQLFilterCondition root = skipBrackets(compiledFilter.getRootCondition());
+    if (root == null || !(root.getOperator() instanceof OQueryOperatorOr))
+      return false;
+
+    final List<OSQLFilterCondition> branches = new ArrayList<OSQLFilterCondition>();
+    if (!collectOrBranches(root, branches))
+      return false;
+
+    List<ORID> result = null;
+    for (OSQLFilterCondition branch : branches) {
+      List<ORID> branchRids = null;
+      for (OIndexSearchResult searchResult : filterAnalyzer.analyzeCondition(branch, iSchemaClass, context)) {
+        if (!OIndexSearchResult.isIndexEqualityOperator(searchResult.lastOperator)
+            && !(searchResult.lastOperator instanceof OQueryOperatorIn))
+          continue;
+
+        branchRids = fetchRidsFromIndex(iSchemaClass, searchResult);
+        if (branchRids != null)
+          break;
+      }
+
+      if (branchRids == null)
+        // AT LEAST ONE BRANCH NEEDS A SCAN: SCAN EVERYTHING
+        return false;
+
+      result = result == null ? branchRids : OIndexRidMerge.union(result, branchRids);
+    }
+
+    context.setVariable("indexMerge", "union");
+    fetchFromTarget(result.iterator());
+    return true;
+  }
+
+  private boolean collectOrBranches(OSQLFilterCondition iCondition, final List<OSQLFilterCondition> iBranches) {
+    iCondition = skipBrackets(iCondition);
+    if (iCondition == null)
+      return false;
+
+    if (!(iCondition.getOperator() instanceof OQueryOperatorOr)) {
+      iBranches.add(iCondition);
+      return true;
+    }
+
+    if (!(iCondition.getLeft() instanceof OSQLFilterCondition) || !(iCondition.getRight() instanceof OSQLFilterCondition))
+      return false;
+
+    return collectOrBranches((OSQLFilterCondition) iCondition.getLeft(), iBranches)
+        && collectOrBranches((OSQLFilterCondition) iCondition.getRight(), iBranches);
+  }
+
+  private static OSQLFilterCondition skipBrackets(OSQLFilterCondition iCondition) {
+    while (iCondition != null && iCondition.getOperator() == null)
+      if (iCondition.getRight() == null && iCondition.getLeft() instanceof OSQLFilterCondition)
+        iCondition = (OSQLFilterCondition) iCondition.getLeft();
+      else
+        return null;
+    return iCondition;
+  }
+
+  /**
+   * Resolves a condition with AND operators against fields indexed by different single-field indexes by the intersection of the
+   * RIDs returned by every index. Only equality lookups are merged, because ranges can return big part of the index. The whole
+   * filter is still evaluated against the loaded records.
+   *
+   * @return true if at least two indexes have been used, otherwise false
+   */
+  private boolean searchForIndexIntersection(final OClass iSchemaClass, final List<OIndexSearchResult> iSearchResults) {
+    if (iSearchResults.size() < 2 || iSearchResults.get(0).getFieldCount() > 1)
+      // NONE OR A COMPOSITE INDEX IS AVAILABLE
+      return false;
+
+    final List<OIndexSearchResult> candidates = new ArrayList<OIndexSearchResult>();
+    final Set<String> fields = new HashSet<String>();
+    for (OIndexSearchResult searchResult : iSearchResults)
+      if (OIndexSearchResult.isIndexEqualityOperator(searchResult.lastOperator) && !searchResult.lastField.isLong()
+          && fields.add(searchResult.fields().get(0)))
+        candidates.add(searchResult);
+
+    if (candidates.size() < 2)
+      return false;
+
+    List<ORID> result = null;
+    int usedIndexes = 0;
+    for (OIndexSearchResult searchResult : candidates) {
+      final List<ORID> rids = fetchRidsFromIndex(iSchemaClass, searchResult);
+      if (rids == null)
+        continue;
+
+      result = result == null ? rids : OIndexRidMerge.intersect(result, rids);
+      usedIndexes++;
+
+      if (result.isEmpty())
+        break;
+    }
+
+    if (usedIndexes < 2 && (result == null || !result.isEmpty()))
+      // NOT ENOUGH INDEXES: LET THE SINGLE INDEX SEARCH TO WORK
+      return false;
+
+    context.setVariable("indexMerge", "intersection");
+    fetchFromTarget(result.iterator());
+    return true;
+  }
+
   /**
    * Use index to order documents by provided fields.
    * 
@@ -1681,11 +2157,19 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
 
         tempResult = new ArrayList<OIdentifiable>();
 
+        final boolean partial = groupByFields != null && Boolean.TRUE.equals(context.getVariable(VAR_PARTIAL_RESULT));
+
         for (Entry<Object, ORuntimeResult> g : groupedResult.entrySet()) {
           if (g.getKey() != null || (groupedResult.size() == 1 && groupByFields == null)) {
             final ODocument doc = g.getValue().getResult();
-            if (doc != null && !doc.isEmpty())
+            if (doc != null && !doc.isEmpty()) {
+              if (partial) {
+                final Object groupValue = g.getValue().getFieldValue();
+                doc.field(FIELD_GROUP_KEY, groupValue instanceof Object[] ? new ArrayList<Object>(Arrays.asList((Object[]) groupValue))
+                    : new ArrayList<Object>(Collections.singletonList(groupValue)));
+              }
               ((List<OIdentifiable>) tempResult).add(doc);
+            }
           }
         }
 
@@ -131,10 +131,9 @@ public class OCommandExecutorSQLTraverse extends OCommandExecutorSQLResultsetAbs
     context.beginExecution(timeoutMs, timeoutStrategy);
 
     try {
-      // BROWSE ALL THE RECORDS AND COLLECTS RESULT
-      final List<OIdentifiable> result = traverse.execute();
-      for (OIdentifiable r : result)
-        if (!handleResult(r))
+      // BROWSE ALL THE RECORDS PASSING EACH RESULT AS SOON AS IT'S TRAVERSED
+      while (traverse.hasNext())
+        if (!handleResult(traverse.next()))
           // LIMIT REACHED
           break;
 
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.index.OIndexCursor;
+
+/**
+ * Merges the RIDs returned by more index cursors before loading any record. RIDs are kept as sorted lists without duplicates, so
+ * intersection and union are linear merges and the records are loaded by cluster position order.
+ *
+ * @author Luca Garulli
+ */
+public class OIndexRidMerge {
+
+  /**
+   * Drains the cursor returning its RIDs sorted and without duplicates.
+   */
+  public static List<ORID> toSortedRids(final OIndexCursor iCursor) {
+    final List<ORID> rids = new ArrayList<ORID>();
+    while (iCursor.hasNext()) {
+      final OIdentifiable next = iCursor.next();
+      if (next == null)
+        break;
+      rids.add(next.getIdentity());
+    }
+
+    Collections.sort(rids);
+
+    // REMOVE DUPLICATES, FOR EXAMPLE WITH IN OPERATORS AGAINST MULTI-VALUE INDEXES
+    int last = -1;
+    for (int i = 0; i < rids.size(); ++i) {
+      final ORID rid = rids.get(i);
+      if (last == -1 || !rid.equals(rids.get(last)))
+        rids.set(++last, rid);
+    }
+    return rids.subList(0, last + 1);
+  }
+
+  public static List<ORID> intersect(final List<ORID> iLeft, final List<ORID> iRight) {
+    final List<ORID> result = new ArrayList<ORID>(Math.min(iLeft.size(), iRight.size()));
+
+    int l = 0;
+    int r = 0;
+    while (l < iLeft.size() && r < iRight.size()) {
+      final int compare = iLeft.get(l).compareTo(iRight.get(r));
+      if (compare == 0) {
+        result.add(iLeft.get(l));
+        l++;
+        r++;
+      } else if (compare < 0)
+        l++;
+      else
+        r++;
+    }
+    return result;
+  }
+
+  public static List<ORID> union(final List<ORID> iLeft, final List<ORID> iRight) {
+    final List<ORID> result = new ArrayList<ORID>(iLeft.size() + iRight.size());
+
+    int l = 0;
+    int r = 0;
+    while (l < iLeft.size() || r < iRight.size()) {
+      if (r >= iRight.size())
+        result.add(iLeft.get(l++));
+      else if (l >= iLeft.size())
+        result.add(iRight.get(r++));
+      else {
+        final int compare = iLeft.get(l).compareTo(iRight.get(r));
+        if (compare == 0) {
+          result.add(iLeft.get(l));
+          l++;
+          r++;
+        } else if (compare < 0)
+          result.add(iLeft.get(l++));
+        else
+          result.add(iRight.get(r++));
+      }
+    }
+    return result;
+  }
+}
@@ -37,17 +37,19 @@ public class OFilterOptimizer {
       return condition;
 
     case INDEX_INTERSECTION:
-      if (condition.getLeft() instanceof OSQLFilterCondition)
-        condition.setLeft(optimize((OSQLFilterCondition) condition.getLeft(), indexMatch));
+      // DON'T CHANGE THE PARSED CONDITION: IT'S USED AGAIN BY THE NEXT EXECUTION OF THE QUERY
+      final Object left = condition.getLeft() instanceof OSQLFilterCondition ? optimize((OSQLFilterCondition) condition.getLeft(),
+          indexMatch) : condition.getLeft();
+      final Object right = condition.getRight() instanceof OSQLFilterCondition ? optimize(
+          (OSQLFilterCondition) condition.getRight(), indexMatch) : condition.getRight();
 
-      if (condition.getRight() instanceof OSQLFilterCondition)
-        condition.setRight(optimize((OSQLFilterCondition) condition.getRight(), indexMatch));
-
-      if (condition.getLeft() == null)
-        return (OSQLFilterCondition) condition.getRight();
-      if (condition.getRight() == null)
-        return (OSQLFilterCondition) condition.getLeft();
-      return condition;
+      if (left == null)
+        return (OSQLFilterCondition) right;
+      if (right == null)
+        return (OSQLFilterCondition) left;
+      if (left == condition.getLeft() && right == condition.getRight())
+        return condition;
+      return new OSQLFilterCondition(left, operator, right);
 
     default:
       return condition;
@@ -17,6 +17,7 @@ package com.orientechnologies.orient.core.sql.filter;
 
 import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.command.OCommandPredicate;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.exception.OQueryParsingException;
 import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.impl.ODocument;
@@ -28,6 +29,9 @@ import com.orientechnologies.orient.core.record.impl.ODocument;
  * 
  */
 public class OSQLFilter extends OSQLPredicate implements OCommandPredicate {
+  private OSQLFilterCompiler.OCompiledCondition compiledCondition;
+  private OSQLFilterCondition                   compiledFrom;
+
   public OSQLFilter(final String iText, final OCommandContext iContext, final String iFilterKeyword) {
     super();
 
@@ -64,9 +68,28 @@ public class OSQLFilter extends OSQLPredicate implements OCommandPredicate {
     if (rootCondition == null)
       return true;
 
+    if (iRecord != null && iCurrentResult == null && OGlobalConfiguration.QUERY_COMPILE_FILTER.getValueAsBoolean()) {
+      final OSQLFilterCompiler.OCompiledCondition compiled = getCompiledCondition(iRecord);
+      if (compiled != null)
+        return compiled.evaluate(iRecord, iContext);
+    }
+
     return rootCondition.evaluate(iRecord, iCurrentResult, iContext);
   }
 
+  /**
+   * Returns the compiled version of the root condition, compiling it against the schema class of the passed record the first time
+   * and every time the root condition changes.
+   */
+  protected OSQLFilterCompiler.OCompiledCondition getCompiledCondition(final ORecord<?> iRecord) {
+    if (compiledFrom != rootCondition) {
+      compiledFrom = rootCondition;
+      compiledCondition = iRecord instanceof ODocument ? OSQLFilterCompiler.compile(rootCondition,
+          ((ODocument) iRecord).getSchemaClass()) : null;
+    }
+    return compiledCondition;
+  }
+
   public OSQLFilterCondition getRootCondition() {
     return rootCondition;
   }
@@ -0,0 +1,417 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql.filter;
+
+import com.orientechnologies.orient.core.collate.OCollate;
+import com.orientechnologies.orient.core.collate.ODefaultCollate;
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.db.record.ORecordElement;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OProperty;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OSQLHelper;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperator;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorAnd;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorEquals;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMajor;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMajorEquals;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMinor;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMinorEquals;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorNotEquals;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorOr;
+
+/**
+ * Compiles a tree of {@link OSQLFilterCondition} into a tree of specialized predicates. Conditions in the form
+ * <code>&lt;field&gt; &lt;operator&gt; &lt;value&gt;</code> against a schema property of a primitive type are translated into nodes
+ * that read the raw field and compare it using the primitive type, with the right value converted only once. AND/OR are
+ * short-circuited. Every other condition is delegated to the interpreted {@link OSQLFilterCondition#evaluate}, as well as any
+ * record whose field value has not the type expected at compile time, so the result is always the same of the interpreter.
+ *
+ * @author Luca Garulli
+ *
+ */
+public class OSQLFilterCompiler {
+  private static final Object FALLBACK = new Object();
+
+  private enum COMPARISON {
+    EQ, NE, LT, LE, GT, GE
+  }
+
+  /**
+   * Compiled predicate.
+   */
+  public static abstract class OCompiledCondition {
+    public abstract boolean evaluate(OIdentifiable iRecord, OCommandContext iContext);
+  }
+
+  /**
+   * Compiles the condition against the properties of the passed class.
+   *
+   * @param iCondition
+   *          Root condition to compile
+   * @param iClass
+   *          Schema class of the records to evaluate, can be null
+   * @return The compiled condition, or null if no part of the condition can be specialized
+   */
+  public static OCompiledCondition compile(final OSQLFilterCondition iCondition, final OClass iClass) {
+    if (iCondition == null || iClass == null)
+      return null;
+
+    final OCompiledCondition compiled = compileCondition(iCondition, iClass);
+    if (compiled instanceof OInterpretedCondition)
+      // NOTHING TO SPECIALIZE: AVOID THE INDIRECTION
+      return null;
+
+    return compiled;
+  }
+
+  private static OCompiledCondition compileCondition(final OSQLFilterCondition iCondition, final OClass iClass) {
+    final OQueryOperator operator = iCondition.getOperator();
+
+    if (operator == null) {
+      if (iCondition.getLeft() instanceof OSQLFilterCondition && iCondition.getRight() == null)
+        // BRACKETS
+        return compileCondition((OSQLFilterCondition) iCondition.getLeft(), iClass);
+      return new OInterpretedCondition(iCondition);
+    }
+
+    if (operator.getClass() == OQueryOperatorAnd.class || operator.getClass() == OQueryOperatorOr.class) {
+      if (!(iCondition.getLeft() instanceof OSQLFilterCondition) || !(iCondition.getRight() instanceof OSQLFilterCondition))
+        return new OInterpretedCondition(iCondition);
+
+      final OCompiledCondition left = compileCondition((OSQLFilterCondition) iCondition.getLeft(), iClass);
+      final OCompiledCondition right = compileCondition((OSQLFilterCondition) iCondition.getRight(), iClass);
+
+      if (left instanceof OInterpretedCondition && right instanceof OInterpretedCondition)
+        return new OInterpretedCondition(iCondition);
+
+      if (operator.getClass() == OQueryOperatorAnd.class)
+        return new OAndCondition(left, right);
+      return new OOrCondition(left, right);
+    }
+
+    final COMPARISON comparison = getComparison(operator);
+    if (comparison == null || iCondition.getLeft() == null || iCondition.getLeft().getClass() != OSQLFilterItemField.class)
+      return new OInterpretedCondition(iCondition);
+
+    final OSQLFilterItemField field = (OSQLFilterItemField) iCondition.getLeft();
+    final String fieldName = field.getRoot();
+    if (field.hasChainOperators() || fieldName == null || fieldName.length() == 0 || fieldName.charAt(0) == '@')
+      return new OInterpretedCondition(iCondition);
+
+    final Object right = iCondition.getRight();
+    if (!(right instanceof OSQLFilterItemParameter) && !(right instanceof Number) && !(right instanceof String)
+        && !(right instanceof Boolean))
+      return new OInterpretedCondition(iCondition);
+
+    final OProperty property = iClass.getProperty(fieldName);
+    if (property == null)
+      return new OInterpretedCondition(iCondition);
+
+    final OCollate collate = property.getCollate();
+    if (collate != null && !ODefaultCollate.NAME.equals(collate.getName()))
+      return new OInterpretedCondition(iCondition);
+
+    final OType type = property.getType();
+    switch (type) {
+    case BYTE:
+    case SHORT:
+    case INTEGER:
+    case LONG:
+      return new OIntegralComparison(iCondition, fieldName, comparison, type.getDefaultJavaType(), right);
+    case FLOAT:
+    case DOUBLE:
+      return new OFloatingComparison(iCondition, fieldName, comparison, type.getDefaultJavaType(), right);
+    case STRING:
+      return new OStringComparison(iCondition, fieldName, comparison, right);
+    case BOOLEAN:
+      if (comparison == COMPARISON.EQ || comparison == COMPARISON.NE)
+        return new OBooleanComparison(iCondition, fieldName, comparison, right);
+    default:
+      return new OInterpretedCondition(iCondition);
+    }
+  }
+
+  private static COMPARISON getComparison(final OQueryOperator iOperator) {
+    final Class<?> cls = iOperator.getClass();
+    if (cls == OQueryOperatorEquals.class)
+      return COMPARISON.EQ;
+    else if (cls == OQueryOperatorNotEquals.class)
+      return COMPARISON.NE;
+    else if (cls == OQueryOperatorMinor.class)
+      return COMPARISON.LT;
+    else if (cls == OQueryOperatorMinorEquals.class)
+      return COMPARISON.LE;
+    else if (cls == OQueryOperatorMajor.class)
+      return COMPARISON.GT;
+    else if (cls == OQueryOperatorMajorEquals.class)
+      return COMPARISON.GE;
+    return null;
+  }
+
+  private static boolean matches(final COMPARISON iComparison, final int iCompareResult) {
+    switch (iComparison) {
+    case EQ:
+      return iCompareResult == 0;
+    case NE:
+      return iCompareResult != 0;
+    case LT:
+      return iCompareResult < 0;
+    case LE:
+      return iCompareResult <= 0;
+    case GT:
+      return iCompareResult > 0;
+    default:
+      return iCompareResult >= 0;
+    }
+  }
+
+  private static final class OInterpretedCondition extends OCompiledCondition {
+    private final OSQLFilterCondition condition;
+
+    private OInterpretedCondition(final OSQLFilterCondition iCondition) {
+      condition = iCondition;
+    }
+
+    @Override
+    public boolean evaluate(final OIdentifiable iRecord, final OCommandContext iContext) {
+      return Boolean.TRUE.equals(condition.evaluate(iRecord, null, iContext));
+    }
+  }
+
+  private static final class OAndCondition extends OCompiledCondition {
+    private final OCompiledCondition left;
+    private final OCompiledCondition right;
+
+    private OAndCondition(final OCompiledCondition iLeft, final OCompiledCondition iRight) {
+      left = iLeft;
+      right = iRight;
+    }
+
+    @Override
+    public boolean evaluate(final OIdentifiable iRecord, final OCommandContext iContext) {
+      return left.evaluate(iRecord, iContext) && right.evaluate(iRecord, iContext);
+    }
+  }
+
+  private static final class OOrCondition extends OCompiledCondition {
+    private final OCompiledCondition left;
+    private final OCompiledCondition right;
+
+    private OOrCondition(final OCompiledCondition iLeft, final OCompiledCondition iRight) {
+      left = iLeft;
+      right = iRight;
+    }
+
+    @Override
+    public boolean evaluate(final OIdentifiable iRecord, final OCommandContext iContext) {
+      return left.evaluate(iRecord, iContext) || right.evaluate(iRecord, iContext);
+    }
+  }
+
+  /**
+   * Base class for the comparisons of a field against a constant or a parameter. The right value is converted only once per
+   * distinct value, while the left value is read in raw format from the document.
+   */
+  private static abstract class OFieldComparison extends OCompiledCondition {
+    protected final OSQLFilterCondition condition;
+    protected final String              fieldName;
+    protected final COMPARISON          comparison;
+    private final Object                right;
+    private Object                      lastRight     = FALLBACK;
+    private Object                      lastConverted = FALLBACK;
+
+    protected OFieldComparison(final OSQLFilterCondition iCondition, final String iFieldName, final COMPARISON iComparison,
+        final Object iRight) {
+      condition = iCondition;
+      fieldName = iFieldName;
+      comparison = iComparison;
+      right = iRight;
+    }
+
+    @Override
+    public boolean evaluate(final OIdentifiable iRecord, final OCommandContext iContext) {
+      final Object r = getRight(iContext);
+      if (r == FALLBACK)
+        return interpret(iRecord, iContext);
+
+      final ORecord<?> record = iRecord.getRecord();
+      if (!(record instanceof ODocument) || record.getInternalStatus() == ORecordElement.STATUS.NOT_LOADED)
+        return interpret(iRecord, iContext);
+
+      final Object l = ((ODocument) record).rawField(fieldName);
+      if (l == null)
+        // NULL NEVER MATCHES, AS FOR THE EQUALITY OPERATORS
+        return false;
+
+      final int result = compare(l, r);
+      if (result == Integer.MIN_VALUE)
+        // UNEXPECTED TYPE
+        return interpret(iRecord, iContext);
+
+      return matches(comparison, result);
+    }
+
+    /**
+     * Converts the right value in the type to use for the comparison.
+     *
+     * @return The converted value or FALLBACK if the interpreter must be used
+     */
+    protected abstract Object convertRight(Object iValue);
+
+    /**
+     * Compares the raw field value against the converted right value.
+     *
+     * @return The comparison result or Integer.MIN_VALUE if the left value is not of the expected type
+     */
+    protected abstract int compare(Object iLeft, Object iRight);
+
+    private Object getRight(final OCommandContext iContext) {
+      final Object value = right instanceof OSQLFilterItemParameter ? ((OSQLFilterItemParameter) right).getValue(null, null,
+          iContext) : right;
+
+      if (value != lastRight) {
+        // CONVERT IT ONLY ONCE PER DISTINCT VALUE
+        lastConverted = value == null ? FALLBACK : convertRight(value);
+        lastRight = value;
+      }
+      return lastConverted;
+    }
+
+    private boolean interpret(final OIdentifiable iRecord, final OCommandContext iContext) {
+      return Boolean.TRUE.equals(condition.evaluate(iRecord, null, iContext));
+    }
+  }
+
+  private static final class OIntegralComparison extends OFieldComparison {
+    private final Class<?> fieldClass;
+
+    private OIntegralComparison(final OSQLFilterCondition iCondition, final String iFieldName, final COMPARISON iComparison,
+        final Class<?> iFieldClass, final Object iRight) {
+      super(iCondition, iFieldName, iComparison, iRight);
+      fieldClass = iFieldClass;
+    }
+
+    @Override
+    protected Object convertRight(final Object iValue) {
+      // FLOATS ARE CONVERTED BY THE INTERPRETER IN A SPECIAL WAY
+      if (!(iValue instanceof Number) || iValue instanceof Float)
+        return FALLBACK;
+
+      final Object converted = OType.convert(iValue, fieldClass);
+      if (!(converted instanceof Number))
+        return FALLBACK;
+      return ((Number) converted).longValue();
+    }
+
+    @Override
+    protected int compare(final Object iLeft, final Object iRight) {
+      if (iLeft.getClass() != fieldClass)
+        return Integer.MIN_VALUE;
+
+      final long l = ((Number) iLeft).longValue();
+      final long r = (Long) iRight;
+      return l < r ? -1 : (l == r ? 0 : 1);
+    }
+  }
+
+  private static final class OFloatingComparison extends OFieldComparison {
+    private final Class<?> fieldClass;
+
+    private OFloatingComparison(final OSQLFilterCondition iCondition, final String iFieldName, final COMPARISON iComparison,
+        final Class<?> iFieldClass, final Object iRight) {
+      super(iCondition, iFieldName, iComparison, iRight);
+      fieldClass = iFieldClass;
+    }
+
+    @Override
+    protected Object convertRight(final Object iValue) {
+      if (!(iValue instanceof Number))
+        return FALLBACK;
+
+      if (fieldClass == Float.class)
+        // THE INTERPRETER CONVERTS THE RIGHT VALUE USING ITS STRING REPRESENTATION
+        return iValue instanceof Float ? iValue : Float.valueOf(iValue.toString());
+
+      if (iValue instanceof Float)
+        // THE INTERPRETER DOWNGRADES THE LEFT VALUE TO FLOAT IN THIS CASE
+        return FALLBACK;
+
+      final Object converted = OType.convert(iValue, Double.class);
+      if (!(converted instanceof Double))
+        return FALLBACK;
+      return converted;
+    }
+
+    @Override
+    protected int compare(final Object iLeft, final Object iRight) {
+      if (iLeft.getClass() != fieldClass)
+        return Integer.MIN_VALUE;
+
+      if (fieldClass == Float.class)
+        return Float.compare((Float) iLeft, (Float) iRight);
+      return Double.compare((Double) iLeft, (Double) iRight);
+    }
+  }
+
+  private static final class OStringComparison extends OFieldComparison {
+    private OStringComparison(final OSQLFilterCondition iCondition, final String iFieldName, final COMPARISON iComparison,
+        final Object iRight) {
+      super(iCondition, iFieldName, iComparison, iRight);
+    }
+
+    @Override
+    protected Object convertRight(final Object iValue) {
+      if (!(iValue instanceof String) || OSQLHelper.DEFINED.equals(iValue) || OSQLHelper.NOT_NULL.equals(iValue))
+        return FALLBACK;
+      return iValue;
+    }
+
+    @Override
+    protected int compare(final Object iLeft, final Object iRight) {
+      if (!(iLeft instanceof String))
+        return Integer.MIN_VALUE;
+
+      if (comparison == COMPARISON.EQ || comparison == COMPARISON.NE)
+        return iLeft.equals(iRight) ? 0 : 1;
+      return ((String) iLeft).compareTo((String) iRight);
+    }
+  }
+
+  private static final class OBooleanComparison extends OFieldComparison {
+    private OBooleanComparison(final OSQLFilterCondition iCondition, final String iFieldName, final COMPARISON iComparison,
+        final Object iRight) {
+      super(iCondition, iFieldName, iComparison, iRight);
+    }
+
+    @Override
+    protected Object convertRight(final Object iValue) {
+      if (!(iValue instanceof Boolean))
+        return FALLBACK;
+      return iValue;
+    }
+
+    @Override
+    protected int compare(final Object iLeft, final Object iRight) {
+      if (!(iLeft instanceof Boolean))
+        return Integer.MIN_VALUE;
+      return iLeft.equals(iRight) ? 0 : 1;
+    }
+  }
+}
@@ -104,6 +104,17 @@ public abstract class OSQLQuery<T> extends OQueryAbstract<T> implements OCommand
     return queryToStream().toByteArray();
   }
 
+  /**
+   * Serializes only the parameters, to execute again a query already prepared on the server.
+   */
+  public byte[] parametersToStream() {
+    return serializeQueryParameters(parameters);
+  }
+
+  public void parametersFromStream(final byte[] iStream) {
+    parameters = deserializeQueryParameters(iStream);
+  }
+
   protected OMemoryStream queryToStream() {
     final OMemoryStream buffer = new OMemoryStream();
 
@@ -30,6 +30,7 @@ import com.orientechnologies.orient.core.util.OBackupable;
 import com.orientechnologies.orient.core.version.ORecordVersion;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -81,6 +82,13 @@ public interface OStorage extends OBackupable, OSharedContainer {
   public OStorageOperationResult<ORawBuffer> readRecord(ORecordId iRid, String iFetchPlan, boolean iIgnoreCache,
       ORecordCallback<ORawBuffer> iCallback, boolean loadTombstones, LOCKING_STRATEGY iLockingStrategy);
 
+  /**
+   * Reads a group of records in one call.
+   * 
+   * @return the buffers in the same order of the RIDs, with null for the records not found
+   */
+  public List<ORawBuffer> readRecords(Collection<ORecordId> iRids);
+
   public OStorageOperationResult<ORecordVersion> updateRecord(ORecordId iRecordId, boolean updateContent, byte[] iContent,
       ORecordVersion iVersion, byte iRecordType, int iMode, ORecordCallback<ORecordVersion> iCallback);
 
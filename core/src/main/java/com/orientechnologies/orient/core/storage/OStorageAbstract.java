@@ -26,11 +26,15 @@ import com.orientechnologies.orient.core.config.OStorageConfiguration;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.record.OCurrentStorageComponentsFactory;
 import com.orientechnologies.orient.core.exception.OSecurityException;
+import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.metadata.OMetadata;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.security.OSecurityShared;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicLong;
@@ -129,6 +133,16 @@ public abstract class OStorageAbstract extends OSharedContainerImpl implements O
     return lock.removeUser();
   }
 
+  /**
+   * Reads the records one by one. Storages able to read a group of records at once override it.
+   */
+  public List<ORawBuffer> readRecords(final Collection<ORecordId> iRids) {
+    final List<ORawBuffer> result = new ArrayList<ORawBuffer>(iRids.size());
+    for (ORecordId rid : iRids)
+      result.add(readRecord(rid, null, false, null, false, LOCKING_STRATEGY.DEFAULT).getResult());
+    return result;
+  }
+
   public OSharedResourceAdaptiveExternal getLock() {
     return lock;
   }
@@ -20,6 +20,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -662,6 +663,32 @@ public abstract class OAbstractPaginatedStorage extends OStorageEmbedded {
         iLockingStrategy));
   }
 
+  /**
+   * Reads the records under one storage lock, cluster by cluster in position order to improve the locality of the read pages.
+   */
+  @Override
+  public List<ORawBuffer> readRecords(final Collection<ORecordId> iRids) {
+    checkOpeness();
+
+    final ORecordId[] sorted = iRids.toArray(new ORecordId[iRids.size()]);
+    Arrays.sort(sorted);
+
+    final Map<ORecordId, ORawBuffer> buffers = new HashMap<ORecordId, ORawBuffer>(sorted.length);
+    lock.acquireSharedLock();
+    try {
+      for (ORecordId rid : sorted)
+        if (!buffers.containsKey(rid))
+          buffers.put(rid, readRecord(getClusterById(rid.clusterId), rid, false, false, LOCKING_STRATEGY.DEFAULT));
+    } finally {
+      lock.releaseSharedLock();
+    }
+
+    final List<ORawBuffer> result = new ArrayList<ORawBuffer>(sorted.length);
+    for (ORecordId rid : iRids)
+      result.add(buffers.get(rid));
+    return result;
+  }
+
   @Override
   public OStorageOperationResult<ORecordVersion> updateRecord(final ORecordId rid, boolean updateContent, byte[] content,
       final ORecordVersion version, final byte recordType, final int mode, ORecordCallback<ORecordVersion> callback) {
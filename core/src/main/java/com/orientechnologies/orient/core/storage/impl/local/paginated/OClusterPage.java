@@ -411,6 +411,33 @@ public class OClusterPage extends ODurablePage {
     }
   }
 
+  /**
+   * Copies the record bytes from the page straight into the destination array, without allocating an intermediate one.
+   */
+  public void getRecordBinaryValue(int recordPosition, int offset, byte[] destination, int destinationOffset, int size) {
+    assert isPositionInsideInterval(recordPosition);
+    assert offset >= 0;
+
+    final int entryIndexPosition = PAGE_INDEXES_OFFSET + recordPosition * INDEX_ITEM_SIZE;
+    final int entryPointer = getIntValue(entryIndexPosition);
+    final int entryPosition = entryPointer & POSITION_MASK;
+
+    assert insideRecordBounds(entryPosition, offset, size);
+    getBinaryValue(entryPosition + offset + 3 * OIntegerSerializer.INT_SIZE, destination, destinationOffset, size);
+  }
+
+  public int getRecordIntValue(int recordPosition, int offset) {
+    assert isPositionInsideInterval(recordPosition);
+    assert offset >= 0;
+
+    final int entryIndexPosition = PAGE_INDEXES_OFFSET + recordPosition * INDEX_ITEM_SIZE;
+    final int entryPointer = getIntValue(entryIndexPosition);
+    final int entryPosition = entryPointer & POSITION_MASK;
+
+    assert insideRecordBounds(entryPosition, offset, OIntegerSerializer.INT_SIZE);
+    return getIntValue(entryPosition + offset + 3 * OIntegerSerializer.INT_SIZE);
+  }
+
   public byte getRecordByteValue(int recordPosition, int offset) {
     assert isPositionInsideInterval(recordPosition);
 
@@ -24,6 +24,7 @@ import com.orientechnologies.common.serialization.types.OLongSerializer;
 import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.compression.OCompression;
 import com.orientechnologies.orient.core.compression.OCompressionFactory;
+import com.orientechnologies.orient.core.compression.impl.ONothingCompression;
 import com.orientechnologies.orient.core.config.OContextConfiguration;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.config.OStorageClusterConfiguration;
@@ -527,6 +528,9 @@ public class OPaginatedCluster extends ODurableComponent implements OCluster {
         diskCache.release(cacheEntry);
       }
 
+      if (!useCRC32 && compression instanceof ONothingCompression)
+        return readUncompressedRecord(clusterPosition, pageIndex, recordPosition, recordVersion);
+
       byte[] fullContent = readFullEntry(clusterPosition, pageIndex, recordPosition);
       if (fullContent == null)
         return null;
@@ -1347,6 +1351,64 @@ public class OPaginatedCluster extends ODurableComponent implements OCluster {
     return fullContent;
   }
 
+  /**
+   * Copies the content of a record stored without compression and CRC straight from the pages of the disk cache into the record
+   * buffer. Neither the chunks of the entry nor the full entry are built on heap: the content is copied once.
+   */
+  private ORawBuffer readUncompressedRecord(OClusterPosition clusterPosition, long pageIndex, int recordPosition,
+      ORecordVersion recordVersion) throws IOException {
+    if (diskCache.getFilledUpTo(fileId) <= pageIndex)
+      return null;
+
+    byte recordType = 0;
+    byte[] content = null;
+    int contentPosition = 0;
+
+    long nextPagePointer;
+    do {
+      OCacheEntry cacheEntry = diskCache.load(fileId, pageIndex, false);
+      try {
+        final OClusterPage localPage = new OClusterPage(cacheEntry, false, ODurablePage.TrackMode.NONE);
+
+        if (localPage.isDeleted(recordPosition)) {
+          if (content == null)
+            return null;
+          else
+            throw new OStorageException("Content of record " + new ORecordId(id, clusterPosition) + " was broken.");
+        }
+
+        final int chunkSize = localPage.getRecordSize(recordPosition) - OLongSerializer.LONG_SIZE - OByteSerializer.BYTE_SIZE;
+        int chunkPosition = 0;
+
+        if (content == null) {
+          // THE FIRST CHUNK STARTS WITH RECORD TYPE AND CONTENT SIZE
+          if (localPage.getRecordByteValue(recordPosition, chunkSize) == 0)
+            return null;
+
+          recordType = localPage.getRecordByteValue(recordPosition, 0);
+          content = new byte[localPage.getRecordIntValue(recordPosition, OByteSerializer.BYTE_SIZE)];
+          chunkPosition = OByteSerializer.BYTE_SIZE + OIntegerSerializer.INT_SIZE;
+        }
+
+        // THE CONTENT CAN BE FOLLOWED BY THE SPACE RESERVED TO GROW
+        final int toCopy = Math.min(chunkSize - chunkPosition, content.length - contentPosition);
+        if (toCopy > 0) {
+          localPage.getRecordBinaryValue(recordPosition, chunkPosition, content, contentPosition, toCopy);
+          contentPosition += toCopy;
+        }
+
+        nextPagePointer = localPage.getRecordLongValue(recordPosition, -OLongSerializer.LONG_SIZE);
+      } finally {
+        diskCache.release(cacheEntry);
+      }
+
+      pageIndex = nextPagePointer >>> PAGE_INDEX_OFFSET;
+      recordPosition = (int) (nextPagePointer & RECORD_POSITION_MASK);
+    } while (nextPagePointer >= 0 && contentPosition < content.length);
+
+    return new ORawBuffer(content, recordVersion, recordType);
+  }
+
   private AddEntryResult addEntry(ORecordVersion recordVersion, byte[] entryContent, OClusterPage.TrackMode trackMode)
       throws IOException {
     final FindFreePageResult findFreePageResult = findFreePage(entryContent.length, trackMode);
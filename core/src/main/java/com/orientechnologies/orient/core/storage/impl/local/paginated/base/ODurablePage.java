@@ -105,6 +105,10 @@ public class ODurablePage {
     return pagePointer.get(pageOffset + PAGE_PADDING, valLen);
   }
 
+  protected void getBinaryValue(int pageOffset, byte[] destination, int destinationOffset, int valLen) {
+    pagePointer.get(pageOffset + PAGE_PADDING, destination, destinationOffset, valLen);
+  }
+
   protected int getObjectSizeInDirectMemory(OBinarySerializer binarySerializer, long offset) {
     return binarySerializer.getObjectSizeInDirectMemory(pagePointer, offset + PAGE_PADDING);
   }
@@ -0,0 +1,46 @@
+package com.orientechnologies.orient.core.command.traverse;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+
+@Test
+public class OTraverseHistoryTest {
+
+  public void testAddContains() {
+    final OTraverseHistory history = new OTraverseHistory();
+    final Set<ORID> expected = new HashSet<ORID>();
+
+    for (int cluster = -2; cluster < 20; cluster += 3)
+      for (long position = -1; position < 1000; position += 7) {
+        final ORID rid = new ORecordId(cluster, OClusterPositionFactory.INSTANCE.valueOf(position));
+        Assert.assertTrue(history.add(rid));
+        Assert.assertFalse(history.add(new ORecordId(rid)));
+        expected.add(rid);
+      }
+
+    final ORID minPosition = new ORecordId(5, OClusterPositionFactory.INSTANCE.valueOf(Long.MIN_VALUE));
+    Assert.assertFalse(history.contains(minPosition));
+    Assert.assertTrue(history.add(minPosition));
+    expected.add(minPosition);
+
+    Assert.assertEquals(history.size(), expected.size());
+    for (ORID rid : expected)
+      Assert.assertTrue(history.contains(rid), rid.toString());
+
+    Assert.assertFalse(history.contains(new ORecordId(1, OClusterPositionFactory.INSTANCE.valueOf(5))));
+    Assert.assertFalse(history.contains(new ORecordId(100, OClusterPositionFactory.INSTANCE.valueOf(6))));
+
+    Assert.assertEquals(new HashSet<ORID>(history), expected);
+
+    history.clear();
+    Assert.assertTrue(history.isEmpty());
+    Assert.assertFalse(history.iterator().hasNext());
+  }
+}
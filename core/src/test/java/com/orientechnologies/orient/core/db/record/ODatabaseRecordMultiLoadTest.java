@@ -0,0 +1,69 @@
+package com.orientechnologies.orient.core.db.record;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+@Test
+public class ODatabaseRecordMultiLoadTest {
+  private ODatabaseDocumentTx db;
+  private final List<ORID>    rids = new ArrayList<ORID>();
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:" + ODatabaseRecordMultiLoadTest.class.getSimpleName());
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+    db.create();
+
+    db.getMetadata().getSchema().createClass("MultiLoad");
+    for (int i = 0; i < 10; ++i)
+      rids.add(new ODocument("MultiLoad").field("i", i).save().getIdentity());
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+    ODatabaseRecordThreadLocal.INSTANCE.remove();
+  }
+
+  public void testLoadKeepsTheRequestedOrder() {
+    db.getLocalCache().clear();
+
+    // ONE RECORD IS ALREADY IN THE LOCAL CACHE, ONE DOESN'T EXIST
+    final ODocument cached = db.load(rids.get(3));
+    final ORID missing = new ORecordId(rids.get(0).getClusterId(), OClusterPositionFactory.INSTANCE.valueOf(1000));
+
+    final List<ORID> toLoad = new ArrayList<ORID>();
+    for (int i = rids.size() - 1; i >= 0; --i)
+      toLoad.add(rids.get(i));
+    toLoad.add(missing);
+
+    final List<ODocument> result = db.load(toLoad);
+    assertEquals(result.size(), toLoad.size());
+
+    for (int i = 0; i < rids.size(); ++i) {
+      final ODocument doc = result.get(i);
+      assertEquals(doc.getIdentity(), toLoad.get(i));
+      assertEquals(doc.field("i"), rids.size() - 1 - i);
+    }
+    assertSame(result.get(rids.size() - 1 - 3), cached);
+    assertNull(result.get(rids.size()));
+  }
+}
@@ -109,6 +109,33 @@ public class ODocumentSchemalessBinarySerializationTest {
 
   }
 
+  @Test
+  public void testPartialDeserialization() {
+    ODatabaseRecordThreadLocal.INSTANCE.set(null);
+    ODocument document = new ODocument();
+    document.field("name", "name");
+    document.field("age", 20);
+    document.field("alive", true);
+    document.field("embedded", new ODocument().field("inner", "value"), OType.EMBEDDED);
+
+    byte[] res = serializer.toStream(document, false);
+    ODocument extr = (ODocument) serializer.fromStream(res, new ODocument(), new String[] { "age", "missing" });
+
+    assertEquals(extr.fields(), 1);
+    assertEquals(extr.field("age"), document.field("age"));
+    assertTrue(extr.containsField("age"));
+    assertTrue(!extr.containsField("name"));
+
+    extr = (ODocument) serializer.fromStream(res, extr, new String[] { "embedded", "name" });
+    assertEquals(extr.fields(), 3);
+    assertEquals(extr.field("name"), document.field("name"));
+    assertEquals(((ODocument) extr.field("embedded")).field("inner"), "value");
+
+    extr = (ODocument) serializer.fromStream(res, extr, new String[] {});
+    assertEquals(extr.fields(), document.fields());
+    assertEquals(extr.field("alive"), document.field("alive"));
+  }
+
   @SuppressWarnings({ "rawtypes", "unchecked" })
   @Test
   public void testSimpleLiteralArray() {
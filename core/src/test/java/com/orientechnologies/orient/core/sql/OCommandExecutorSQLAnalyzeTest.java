@@ -0,0 +1,137 @@
+package com.orientechnologies.orient.core.sql;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.index.OIndexStatistics;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class OCommandExecutorSQLAnalyzeTest {
+  private ODatabaseDocumentTx db;
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:" + OCommandExecutorSQLAnalyzeTest.class.getSimpleName());
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+    db.create();
+
+    db.command(new OCommandSQL("CREATE class Analyzed")).execute();
+    db.command(new OCommandSQL("CREATE property Analyzed.id INTEGER")).execute();
+    db.command(new OCommandSQL("CREATE property Analyzed.gender STRING")).execute();
+    db.command(new OCommandSQL("CREATE index Analyzed.id UNIQUE")).execute();
+    db.command(new OCommandSQL("CREATE index Analyzed.gender NOTUNIQUE")).execute();
+
+    for (int i = 0; i < 1000; ++i)
+      db.command(new OCommandSQL("INSERT INTO Analyzed SET id = " + i + ", gender = '" + (i % 2 == 0 ? "M" : "F") + "'")).execute();
+
+    db.command(new OCommandSQL("CREATE class NotAnalyzed")).execute();
+    db.command(new OCommandSQL("CREATE property NotAnalyzed.id INTEGER")).execute();
+    db.command(new OCommandSQL("CREATE index NotAnalyzed.id UNIQUE")).execute();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+    ODatabaseRecordThreadLocal.INSTANCE.remove();
+  }
+
+  public void testNoStatistics() {
+    assertNull(OIndexStatistics.get(db.getMetadata().getIndexManager().getIndex("NotAnalyzed.id")));
+  }
+
+  public void testStatistics() {
+    final OIndex<?> index = db.getMetadata().getIndexManager().getIndex("Analyzed.id");
+    assertEquals(db.command(new OCommandSQL("ANALYZE INDEX Analyzed.id")).execute(), 1);
+
+    final OIndexStatistics statistics = OIndexStatistics.get(index);
+    assertNotNull(statistics);
+    assertEquals(statistics.getSize(), 1000);
+    assertEquals(statistics.getKeySize(), 1000);
+    assertEquals(statistics.getRecordCount(), 1000);
+    assertEquals(statistics.estimateEquals(), 1);
+
+    assertTrue(Math.abs(statistics.estimateRange(null, true, null, true) - 1000) <= 20);
+    assertEquals(statistics.estimateRange(2000, true, null, true), 0);
+    assertTrue(Math.abs(statistics.estimateRange(100, true, 300, true) - 200) <= 20);
+    assertTrue(Math.abs(statistics.estimateRange("900", false, null, true) - 100) <= 20);
+  }
+
+  public void testEstimatesDriveIndexChoice() {
+    assertEquals(db.command(new OCommandSQL("ANALYZE CLASS Analyzed")).execute(), 2);
+
+    // THE GENDER INDEX RETURNS HALF OF THE CLASS: THE ID INDEX IS PREFERRED
+    ODocument explain = db.command(new OCommandSQL("explain select from Analyzed where gender = 'M' and id > 990")).execute();
+    assertTrue((Long) explain.field("estimatedRows") <= 20);
+    assertEquals(((Number) explain.field("resultSize")).intValue(), 4);
+
+    // NO INDEX IS SELECTIVE ENOUGH: SCAN
+    explain = db.command(new OCommandSQL("explain select from Analyzed where gender = 'M' and id >= 0")).execute();
+    assertNull(explain.field("estimatedRows"));
+    assertNull(explain.field("involvedIndexes"));
+    assertEquals(((Number) explain.field("resultSize")).intValue(), 500);
+
+    // A SINGLE INDEX IS USED WITHOUT ESTIMATING IT
+    explain = db.command(new OCommandSQL("explain select from Analyzed where gender = 'M'")).execute();
+    assertNull(explain.field("estimatedRows"));
+    assertNotNull(explain.field("involvedIndexes"));
+
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(
+        "select from Analyzed where id in [3, 4, 5000] and gender = 'M'"));
+    assertEquals(result.size(), 1);
+    explain = db.command(new OCommandSQL("explain select from Analyzed where id in [3, 4, 5000] and gender = 'M'")).execute();
+    assertEquals(explain.field("estimatedRows"), 3l);
+  }
+
+  public void testStatisticsSurviveReopen() {
+    final String url = "plocal:./target/" + OCommandExecutorSQLAnalyzeTest.class.getSimpleName() + "Reopen";
+    ODatabaseDocumentTx plocal = new ODatabaseDocumentTx(url);
+    if (plocal.exists()) {
+      plocal.open("admin", "admin");
+      plocal.drop();
+      plocal = new ODatabaseDocumentTx(url);
+    }
+    plocal.create();
+    try {
+      plocal.command(new OCommandSQL("CREATE class Reopened")).execute();
+      plocal.command(new OCommandSQL("CREATE property Reopened.id INTEGER")).execute();
+      plocal.command(new OCommandSQL("CREATE index Reopened.id UNIQUE")).execute();
+      for (int i = 0; i < 100; ++i)
+        plocal.command(new OCommandSQL("INSERT INTO Reopened SET id = " + i)).execute();
+      assertEquals(plocal.command(new OCommandSQL("ANALYZE INDEX Reopened.id")).execute(), 1);
+
+      // CLOSE THE STORAGE TOO, SO THE INDEX CONFIGURATION IS LOADED AGAIN
+      plocal.getStorage().close(true, false);
+      plocal.close();
+      plocal = new ODatabaseDocumentTx(url);
+      plocal.open("admin", "admin");
+
+      final OIndexStatistics statistics = OIndexStatistics.get(plocal.getMetadata().getIndexManager().getIndex("Reopened.id"));
+      assertNotNull(statistics);
+      assertEquals(statistics.getSize(), 100);
+      assertEquals(statistics.getKeySize(), 100);
+      assertEquals(statistics.getRecordCount(), 100);
+      assertNotNull(statistics.getHistogram());
+      assertTrue(Math.abs(statistics.estimateRange(10, true, 60, true) - 50) <= 5);
+    } finally {
+      if (!plocal.isClosed())
+        plocal.drop();
+      ODatabaseRecordThreadLocal.INSTANCE.set(db);
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package com.orientechnologies.orient.core.sql;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class OCommandExecutorSQLSelectIndexMergeTest {
+  private ODatabaseDocumentTx db;
+  private Object              oldIndexMerge;
+
+  @BeforeClass
+  public void beforeClass() {
+    oldIndexMerge = OGlobalConfiguration.QUERY_INDEX_MERGE.getValue();
+    OGlobalConfiguration.QUERY_INDEX_MERGE.setValue(true);
+
+    db = new ODatabaseDocumentTx("memory:" + OCommandExecutorSQLSelectIndexMergeTest.class.getSimpleName());
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+    db.create();
+
+    db.command(new OCommandSQL("CREATE class IndexMerge")).execute();
+    db.command(new OCommandSQL("CREATE property IndexMerge.a INTEGER")).execute();
+    db.command(new OCommandSQL("CREATE property IndexMerge.b INTEGER")).execute();
+    db.command(new OCommandSQL("CREATE property IndexMerge.c INTEGER")).execute();
+    db.command(new OCommandSQL("CREATE index IndexMerge.a NOTUNIQUE")).execute();
+    db.command(new OCommandSQL("CREATE index IndexMerge.b NOTUNIQUE")).execute();
+
+    for (int i = 0; i < 100; ++i)
+      db.command(new OCommandSQL("INSERT INTO IndexMerge SET a = " + (i % 10) + ", b = " + (i % 7) + ", c = " + i)).execute();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+    ODatabaseRecordThreadLocal.INSTANCE.remove();
+
+    OGlobalConfiguration.QUERY_INDEX_MERGE.setValue(oldIndexMerge);
+  }
+
+  public void testIntersection() {
+    checkMerge("select from IndexMerge where a = 3 and b = 5", "intersection");
+    checkMerge("select from IndexMerge where a = 3 and b = 5 and c > 50", "intersection");
+    checkMerge("select from IndexMerge where a = 3 and c = 5", null);
+  }
+
+  public void testUnion() {
+    checkMerge("select from IndexMerge where a = 3 or b = 5", "union");
+    checkMerge("select from IndexMerge where (a = 3 and c < 50) or b in [1, 2]", "union");
+    checkMerge("select from IndexMerge where a = 3 or c = 5", null);
+    // RANGES ARE NOT MERGED
+    checkMerge("select from IndexMerge where a > 3 or b = 5", null);
+  }
+
+  public void testRidMerge() {
+    final List<ORID> left = OIndexRidMerge.toSortedRids(db.getMetadata().getIndexManager().getIndex("IndexMerge.a")
+        .iterateEntries(Arrays.asList(1, 2, 1), true));
+    final List<ORID> right = OIndexRidMerge.toSortedRids(db.getMetadata().getIndexManager().getIndex("IndexMerge.b")
+        .iterateEntries(Arrays.asList(3), true));
+
+    assertEquals(left.size(), 20);
+    assertEquals(right.size(), 14);
+    assertEquals(new HashSet<ORID>(OIndexRidMerge.union(left, right)).size(), OIndexRidMerge.union(left, right).size());
+    assertEquals(OIndexRidMerge.union(left, right).size(), 34 - OIndexRidMerge.intersect(left, right).size());
+  }
+
+  private void checkMerge(final String iQuery, final String iExpectedMerge) {
+    final ODocument explain = db.command(new OCommandSQL("explain " + iQuery)).execute();
+    if (iExpectedMerge == null)
+      assertNull(explain.field("indexMerge"), iQuery);
+    else
+      assertEquals(explain.field("indexMerge"), iExpectedMerge, iQuery);
+
+    final Set<ORID> merged = toRids(db.<List<ODocument>> query(new OSQLSynchQuery<ODocument>(iQuery)));
+
+    OGlobalConfiguration.QUERY_INDEX_MERGE.setValue(false);
+    try {
+      assertEquals(merged, toRids(db.<List<ODocument>> query(new OSQLSynchQuery<ODocument>(iQuery))), iQuery);
+    } finally {
+      OGlobalConfiguration.QUERY_INDEX_MERGE.setValue(true);
+    }
+  }
+
+  private Set<ORID> toRids(final List<ODocument> iResult) {
+    final Set<ORID> rids = new HashSet<ORID>();
+    for (ODocument d : iResult)
+      rids.add(d.getIdentity());
+    return rids;
+  }
+}
@@ -0,0 +1,56 @@
+package com.orientechnologies.orient.core.sql;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+
+@Test
+public class OCommandExecutorSQLSelectReusableTest {
+  private ODatabaseDocumentTx db;
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:" + OCommandExecutorSQLSelectReusableTest.class.getSimpleName());
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+    db.create();
+
+    db.command(new OCommandSQL("CREATE class Reusable")).execute();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+    ODatabaseRecordThreadLocal.INSTANCE.remove();
+  }
+
+  public void testReusable() {
+    assertTrue(isReusable("select from Reusable where name = ?"));
+    // KEYWORDS IN THE STRINGS ARE NOT SUB-QUERIES
+    assertTrue(isReusable("select from Reusable where name = 'select from traverse'"));
+    assertTrue(isReusable("select from Reusable let $max = (select max(i) from Reusable) where name = ?"));
+  }
+
+  public void testSubQueries() {
+    assertFalse(isReusable("select from (select from Reusable) where name = ?"));
+    assertFalse(isReusable("select from (traverse * from Reusable) where name = ?"));
+    assertFalse(isReusable("select from Reusable where name in (select name from Reusable where i = 0)"));
+    assertFalse(isReusable("select from Reusable where i = 3 and name in (select name from Reusable)"));
+  }
+
+  private boolean isReusable(final String iText) {
+    final OCommandSQL command = new OCommandSQL(iText);
+    final OCommandExecutorSQLSelect select = new OCommandExecutorSQLSelect();
+    select.setContext(command.getContext());
+    select.parse(command);
+    return select.isReusable();
+  }
+}
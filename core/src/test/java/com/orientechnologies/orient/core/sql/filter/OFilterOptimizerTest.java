@@ -65,6 +65,22 @@ public class OFilterOptimizerTest {
     Assert.assertEquals(filter.getRootCondition().toString(), "(b > 5)");
   }
 
+  @Test
+  public void testOptimizeKeepsParsedCondition() throws Exception {
+    final OSQLFilter filter = OSQLEngine.getInstance().parseCondition("a = 3 and b > 5", null, "WHERE");
+
+    final OSQLFilterCondition condition = filter.getRootCondition();
+
+    final OIndexSearchResult searchResult = new OIndexSearchResult(((OSQLFilterCondition) condition.getLeft()).getOperator(),
+        ((OSQLFilterItemField) ((OSQLFilterCondition) condition.getLeft()).getLeft()).getFieldChain(), 3);
+
+    optimizer.optimize(filter, searchResult);
+
+    // THE PARSED CONDITION IS USED AGAIN BY THE NEXT EXECUTION
+    Assert.assertEquals(filter.getRootCondition().toString(), "(b > 5)");
+    Assert.assertEquals(condition.toString(), "((a = 3) AND (b > 5))");
+  }
+
   @Test
   public void testOptimizePartialOptimizationMethod() throws Exception {
     final OSQLFilter filter = OSQLEngine.getInstance().parseCondition("a = 3 and b.asFloat() > 3.14", null, "WHERE");
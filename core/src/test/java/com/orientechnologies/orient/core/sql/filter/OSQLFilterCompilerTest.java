@@ -0,0 +1,137 @@
+package com.orientechnologies.orient.core.sql.filter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.command.OBasicCommandContext;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OSQLEngine;
+
+@Test
+public class OSQLFilterCompilerTest {
+  private ODatabaseDocumentTx db;
+  private OClass              oClass;
+  private List<ODocument>     docs = new ArrayList<ODocument>();
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:" + OSQLFilterCompilerTest.class.getSimpleName());
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+    db.create();
+
+    oClass = db.getMetadata().getSchema().createClass("CompiledFilter");
+    oClass.createProperty("i", OType.INTEGER);
+    oClass.createProperty("l", OType.LONG);
+    oClass.createProperty("d", OType.DOUBLE);
+    oClass.createProperty("f", OType.FLOAT);
+    oClass.createProperty("s", OType.STRING);
+    oClass.createProperty("b", OType.BOOLEAN);
+
+    for (int n = 0; n < 20; ++n) {
+      final ODocument doc = new ODocument(oClass);
+      if (n % 7 != 0) {
+        doc.field("i", n);
+        doc.field("l", n * 1000l);
+        doc.field("d", n / 2.0);
+        doc.field("f", n / 4.0f);
+        doc.field("s", "v" + n);
+        doc.field("b", n % 2 == 0);
+      }
+      doc.save();
+      docs.add(doc);
+    }
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+    ODatabaseRecordThreadLocal.INSTANCE.remove();
+  }
+
+  public void testCompilation() {
+    Assert.assertNotNull(compile("i = 3"));
+    Assert.assertNotNull(compile("i > 3 and s = 'v4'"));
+    Assert.assertNotNull(compile("(i > 3) or undefined = 4"));
+    Assert.assertNull(compile("undefined = 4"));
+    Assert.assertNull(compile("i.asString() = '4'"));
+    Assert.assertNull(compile("s like 'v%'"));
+  }
+
+  public void testSameResultsOfInterpreter() {
+    checkSameResults("i = 3");
+    checkSameResults("i <> 3");
+    checkSameResults("i > 3.5");
+    checkSameResults("i >= 5 and i <= 10");
+    checkSameResults("i < 2 or i > 17");
+    checkSameResults("l = 5000");
+    checkSameResults("l > 12000");
+    checkSameResults("d >= 4.5");
+    checkSameResults("d = 3");
+    checkSameResults("f < 2");
+    checkSameResults("f = 1.25");
+    checkSameResults("s = 'v12'");
+    checkSameResults("s > 'v3'");
+    checkSameResults("s = 12");
+    checkSameResults("b = true");
+    checkSameResults("b <> false");
+    checkSameResults("i > 3 and s like 'v1%'");
+    checkSameResults("(i > 3 and i < 8) or (s = 'v19' and b = false)");
+    checkSameResults("i is null or i > 15");
+  }
+
+  public void testParameters() {
+    final OSQLFilter filter = OSQLEngine.getInstance().parseCondition("i > ? and s <> :s", null, "WHERE");
+    final Map<Object, Object> params = new HashMap<Object, Object>();
+    params.put(0, 10);
+    params.put("s", "v15");
+    filter.bindParameters(params);
+    Assert.assertEquals(evaluate(filter, true), evaluate(filter, false));
+
+    params.put(0, 15);
+    params.put("s", "v16");
+    filter.bindParameters(params);
+    Assert.assertEquals(evaluate(filter, true), evaluate(filter, false));
+  }
+
+  private OSQLFilterCompiler.OCompiledCondition compile(final String iCondition) {
+    return OSQLFilterCompiler.compile(OSQLEngine.getInstance().parseCondition(iCondition, null, "WHERE").getRootCondition(),
+        oClass);
+  }
+
+  private void checkSameResults(final String iCondition) {
+    final OSQLFilter filter = OSQLEngine.getInstance().parseCondition(iCondition, null, "WHERE");
+    Assert.assertEquals(evaluate(filter, true), evaluate(filter, false), iCondition);
+  }
+
+  private List<ODocument> evaluate(final OSQLFilter iFilter, final boolean iCompiled) {
+    final OBasicCommandContext context = new OBasicCommandContext();
+    final OSQLFilterCompiler.OCompiledCondition compiled = OSQLFilterCompiler.compile(iFilter.getRootCondition(), oClass);
+
+    final List<ODocument> result = new ArrayList<ODocument>();
+    for (ODocument doc : docs) {
+      final boolean matches;
+      if (iCompiled && compiled != null)
+        matches = compiled.evaluate(doc, context);
+      else
+        matches = (Boolean) iFilter.getRootCondition().evaluate(doc, null, context);
+
+      if (matches)
+        result.add(doc);
+    }
+    return result;
+  }
+}
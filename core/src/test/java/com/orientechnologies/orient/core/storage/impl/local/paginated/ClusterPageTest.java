@@ -11,6 +11,7 @@ import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import com.orientechnologies.common.directmemory.ODirectMemoryPointer;
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
 import com.orientechnologies.common.util.MersenneTwisterFast;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OPageChanges;
 import com.orientechnologies.orient.core.version.ORecordVersion;
@@ -55,6 +56,32 @@ public class ClusterPageTest {
     }
   }
 
+  public void testCopyRecordValues() throws Exception {
+    ODirectMemoryPointer pagePointer = new ODirectMemoryPointer(new byte[OClusterPage.PAGE_SIZE + ODurablePage.PAGE_PADDING]);
+    OCachePointer cachePointer = new OCachePointer(pagePointer, new OLogSequenceNumber(0, 0));
+    cachePointer.incrementReferrer();
+
+    OCacheEntry cacheEntry = new OCacheEntry(0, 0, cachePointer, false);
+    try {
+      OClusterPage localPage = new OClusterPage(cacheEntry, true, ODurablePage.TrackMode.FULL);
+
+      ORecordVersion recordVersion = OVersionFactory.instance().createVersion();
+      recordVersion.increment();
+
+      final byte[] record = new byte[] { 1, 2, 3, 4, 5, 6, 5, 4, 3, 2, 1 };
+      OIntegerSerializer.INSTANCE.serializeNative(123456, record, 1);
+      int position = localPage.appendRecord(recordVersion, record, false);
+
+      Assert.assertEquals(localPage.getRecordIntValue(position, 1), 123456);
+
+      final byte[] destination = new byte[8];
+      localPage.getRecordBinaryValue(position, 5, destination, 2, 6);
+      Assert.assertEquals(destination, new byte[] { 0, 0, 6, 5, 4, 3, 2, 1 });
+    } finally {
+      cachePointer.decrementReferrer();
+    }
+  }
+
   public void testAddTreeRecords() throws Exception {
     ODirectMemoryPointer pagePointer = new ODirectMemoryPointer(new byte[OClusterPage.PAGE_SIZE + ODurablePage.PAGE_PADDING]);
     OCachePointer cachePointer = new OCachePointer(pagePointer, new OLogSequenceNumber(0, 0));
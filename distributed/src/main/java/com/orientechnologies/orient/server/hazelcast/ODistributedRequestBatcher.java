@@ -0,0 +1,176 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.hazelcast;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the requests sent in a short time window to flush them together. The first request of a batch waits until the window
+ * expires or the batch is full, then the collected requests are flushed by the thread that closed the batch. Batches are flushed
+ * in the same order they have been closed. Every request returns once its batch has been flushed.
+ * 
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ * 
+ */
+public abstract class ODistributedRequestBatcher<T> {
+  private final int      maxSize;
+  private final long     window;
+  private final Object   flushOrder = new Object();
+  private OBatch<T>      batch      = new OBatch<T>();
+  private long           closed     = 0;
+  private long           flushed    = 0;
+
+  private static class OBatch<T> {
+    private final List<T> requests = new ArrayList<T>();
+    private long          sequence;
+    private boolean       flushed;
+    private Exception     error;
+  }
+
+  /**
+   * @param iMaxSize
+   *          maximum number of requests in a batch
+   * @param iWindow
+   *          maximum time in milliseconds the first request of a batch waits for the other ones
+   */
+  public ODistributedRequestBatcher(final int iMaxSize, final long iWindow) {
+    maxSize = iMaxSize;
+    window = iWindow;
+  }
+
+  /**
+   * Adds the request to the current batch and returns once the batch has been flushed.
+   * 
+   * @throws Exception
+   *           if the flush of the batch failed
+   */
+  public void add(final T iRequest) throws Exception {
+    final OBatch<T> current;
+    boolean close = false;
+    boolean interrupted = false;
+
+    synchronized (this) {
+      current = batch;
+      current.requests.add(iRequest);
+
+      if (current.requests.size() >= maxSize)
+        close = true;
+      else if (current.requests.size() == 1) {
+        // FIRST REQUEST OF THE BATCH: WAIT FOR THE OTHER ONES
+        final long deadline = System.currentTimeMillis() + window;
+        for (long wait = window; batch == current && current.requests.size() < maxSize && wait > 0; wait = deadline
+            - System.currentTimeMillis()) {
+          try {
+            wait(wait);
+          } catch (InterruptedException e) {
+            // FLUSH IT ANYWAY: THE OTHER REQUESTS OF THE BATCH ARE WAITING TOO
+            interrupted = true;
+            break;
+          }
+        }
+
+        // NOT CLOSED BY ANOTHER THREAD
+        close = batch == current;
+      }
+
+      if (close) {
+        current.sequence = closed++;
+        batch = new OBatch<T>();
+        notifyAll();
+      }
+    }
+
+    try {
+      if (close)
+        flushInOrder(current);
+      else
+        interrupted |= waitForFlush(current);
+    } finally {
+      if (interrupted)
+        Thread.currentThread().interrupt();
+    }
+
+    if (current.error != null)
+      throw current.error;
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public long getWindow() {
+    return window;
+  }
+
+  /**
+   * Sends the requests of the batch in the order they have been added.
+   */
+  protected abstract void flush(List<T> iRequests) throws Exception;
+
+  /**
+   * Flushes the closed batch once the batches closed before it have been flushed, then wakes up its requests.
+   */
+  private void flushInOrder(final OBatch<T> iBatch) {
+    boolean interrupted = false;
+    synchronized (flushOrder) {
+      while (flushed < iBatch.sequence)
+        try {
+          flushOrder.wait();
+        } catch (InterruptedException e) {
+          // THE REQUESTS OF THE BATCH ARE WAITING FOR IT: FLUSH IT ANYWAY
+          interrupted = true;
+        }
+    }
+
+    try {
+      flush(iBatch.requests);
+    } catch (Exception e) {
+      iBatch.error = e;
+    } finally {
+      synchronized (flushOrder) {
+        flushed++;
+        flushOrder.notifyAll();
+      }
+      synchronized (iBatch) {
+        iBatch.flushed = true;
+        iBatch.notifyAll();
+      }
+
+      if (interrupted)
+        Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Waits until the batch has been flushed by the thread that closed it.
+   * 
+   * @return true if the thread has been interrupted while waiting
+   */
+  private boolean waitForFlush(final OBatch<T> iBatch) {
+    boolean interrupted = false;
+    synchronized (iBatch) {
+      while (!iBatch.flushed)
+        try {
+          iBatch.wait();
+        } catch (InterruptedException e) {
+          // THE REQUEST IS SENT ANYWAY: DON'T RETURN BEFORE
+          interrupted = true;
+        }
+    }
+    return interrupted;
+  }
+}
@@ -24,11 +24,15 @@ import com.hazelcast.core.IMap;
 import com.hazelcast.core.IQueue;
 import com.hazelcast.spi.exception.DistributedObjectDestroyedException;
 import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OAbstractProfiler.OProfilerHookValue;
+import com.orientechnologies.common.profiler.OProfilerMBean.METRIC_TYPE;
+import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.OScenarioThreadLocal;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.metadata.security.OUser;
+import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.server.config.OServerUserConfiguration;
 import com.orientechnologies.orient.server.distributed.ODistributedAbstractPlugin;
@@ -37,6 +41,7 @@ import com.orientechnologies.orient.server.distributed.ODistributedRequest;
 import com.orientechnologies.orient.server.distributed.ODistributedResponse;
 import com.orientechnologies.orient.server.distributed.ODistributedServerLog;
 import com.orientechnologies.orient.server.distributed.ODistributedServerLog.DIRECTION;
+import com.orientechnologies.orient.server.distributed.task.OAbstractRecordReplicatedTask;
 import com.orientechnologies.orient.server.distributed.task.OAbstractRemoteTask;
 import com.orientechnologies.orient.server.distributed.task.OCreateRecordTask;
 import com.orientechnologies.orient.server.distributed.task.ODeleteRecordTask;
@@ -47,7 +52,14 @@ import com.orientechnologies.orient.server.distributed.task.OTxTask;
 import com.orientechnologies.orient.server.distributed.task.OUpdateRecordTask;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Hazelcast implementation of distributed peer. There is one instance per database. Each node creates own instance to talk with
@@ -62,13 +74,29 @@ public class ODistributedWorker extends Thread {
   protected final OHazelcastPlugin                    manager;
   protected final OHazelcastDistributedMessageService msgService;
   protected final String                              databaseName;
-  protected final IQueue<ODistributedRequest>         requestQueue;
+  protected final BlockingQueue<Object>               requestQueue;
   protected volatile ODatabaseDocumentTx              database;
   protected volatile OUser                            lastUser;
   protected boolean                                   restoringMessages;
-
-  public ODistributedWorker(final OHazelcastDistributedDatabase iDistributed, final IQueue<ODistributedRequest> iRequestQueue,
+  protected final LinkedList<ODistributedRequest>     batchedRequests     = new LinkedList<ODistributedRequest>();
+  protected final List<ODistributedResponse>          batchedResponses    = new ArrayList<ODistributedResponse>();
+  protected long                                      dequeuedMessages    = 0;
+  protected int                                       queuedMessages      = 0;
+  protected final ODistributedWorker                  parent;
+  protected ODistributedWorker[]                      partitions;
+  protected final AtomicInteger                       pendingInPartitions = new AtomicInteger();
+  protected final AtomicLong                          appliedMessages     = new AtomicLong();
+
+  public ODistributedWorker(final OHazelcastDistributedDatabase iDistributed, final BlockingQueue<Object> iRequestQueue,
       final String iDatabaseName, final int i, final boolean iRestoringMessages) {
+    this(iDistributed, iRequestQueue, iDatabaseName, i, iRestoringMessages, null);
+  }
+
+  /**
+   * Creates a worker that applies the operations dispatched by the parent worker.
+   */
+  protected ODistributedWorker(final OHazelcastDistributedDatabase iDistributed, final BlockingQueue<Object> iRequestQueue,
+      final String iDatabaseName, final int i, final boolean iRestoringMessages, final ODistributedWorker iParent) {
     setName("OrientDB DistributedWorker-" + iDatabaseName + "-" + i);
     distributed = iDistributed;
     requestQueue = iRequestQueue;
@@ -76,25 +104,34 @@ public class ODistributedWorker extends Thread {
     manager = distributed.manager;
     msgService = distributed.msgService;
     restoringMessages = iRestoringMessages;
+    parent = iParent;
   }
 
   @Override
   public void run() {
     final int queuedMsg = requestQueue.size();
+    queuedMessages = queuedMsg;
+
+    final int applyThreads = OGlobalConfiguration.DISTRIBUTED_APPLY_THREADS.getValueAsInteger();
+    if (parent == null && applyThreads > 0)
+      startPartitions(applyThreads);
 
-    for (long processedMessages = 0; !Thread.interrupted(); processedMessages++) {
-      if (restoringMessages && processedMessages >= queuedMsg) {
+    boolean restored = false;
+    while (!Thread.interrupted()) {
+      if (restoringMessages && dequeuedMessages >= queuedMsg && batchedRequests.isEmpty()) {
         // END OF RESTORING MESSAGES, SET IT ONLINE
         ODistributedServerLog.info(this, getLocalNodeName(), null, DIRECTION.NONE,
             "executed all pending tasks in queue (%d), set restoringMessages=false and database '%s' as online...", queuedMsg,
             databaseName);
 
         restoringMessages = false;
+        restored = true;
         break;
       }
 
       String senderNode = null;
       ODistributedRequest message = null;
+      boolean dispatched = false;
       try {
         message = readRequest();
 
@@ -106,7 +143,11 @@ public class ODistributedWorker extends Thread {
           // lastPendingMessagesMap.put(databaseName, message);
 
           senderNode = message.getSenderNodeName();
-          onMessage(message);
+
+          if (partitions != null)
+            dispatched = dispatch(message);
+          else
+            onMessage(message);
 
           // if (saveAsPending)
           // OK: REMOVE THE UNDO BUFFER
@@ -128,6 +169,30 @@ public class ODistributedWorker extends Thread {
         ODistributedServerLog.error(this, getLocalNodeName(), senderNode, DIRECTION.IN,
             "error on executing distributed request %d: %s", e, message.getId(), message != null ? message.getTask() : "-");
       }
+
+      if (batchedRequests.isEmpty())
+        // ALL THE REQUESTS OF THE BATCH HAVE BEEN EXECUTED: SEND BACK THEIR RESPONSES WITH ONE MESSAGE
+        sendBatchedResponses();
+
+      if (message != null && !dispatched) {
+        if (distributed.appliedOperations != null)
+          distributed.appliedOperations.onApplied(message.getId());
+
+        appliedMessages.incrementAndGet();
+        if (parent != null)
+          parent.onPartitionExecuted();
+      }
+    }
+
+    if (partitions != null) {
+      if (restored)
+        try {
+          // THE DISPATCHED OPERATIONS ARE PART OF THE PENDING MESSAGES
+          waitForPartitions();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      shutdownPartitions();
     }
 
     ODistributedServerLog.debug(this, manager.getLocalNodeName(), null, DIRECTION.NONE, "end of reading requests for database %s",
@@ -162,6 +227,8 @@ public class ODistributedWorker extends Thread {
   }
 
   public void shutdown() {
+    shutdownPartitions();
+
     try {
       if (database != null)
         database.close();
@@ -175,9 +242,10 @@ public class ODistributedWorker extends Thread {
 
   protected ODistributedRequest readRequest() throws InterruptedException {
     // GET FROM DISTRIBUTED QUEUE. IF EMPTY WAIT FOR A MESSAGE
-    ODistributedRequest req = requestQueue.take();
+    ODistributedRequest req = nextRequest();
 
-    while (distributed.waitForMessageId.get() > -1) {
+    // THE PARENT WORKER ALREADY DISCARDED THE MESSAGES DISPATCHED TO THE PARTITIONS
+    while (parent == null && distributed.waitForMessageId.get() > -1) {
       if (req != null) {
         if (req.getId() >= distributed.waitForMessageId.get()) {
           // ARRIVED, RESET IT
@@ -193,8 +261,12 @@ public class ODistributedWorker extends Thread {
               "discarded request %d because waiting for %d request=%s sourceNode=%s", req.getId(),
               distributed.waitForMessageId.get(), req, req.getSenderNodeName());
 
+          if (restoringMessages && dequeuedMessages >= queuedMessages && batchedRequests.isEmpty())
+            // ALL THE PENDING MESSAGES HAVE BEEN DISCARDED: DON'T WAIT FOR NEW ONES BEFORE TO GO ONLINE
+            return null;
+
           // READ THE NEXT ONE
-          req = requestQueue.take();
+          req = nextRequest();
         }
       }
     }
@@ -213,9 +285,162 @@ public class ODistributedWorker extends Thread {
       ODistributedServerLog.debug(this, manager.getLocalNodeName(), req.getSenderNodeName(), DIRECTION.IN,
           "processing request=%s sourceNode=%s", req, req.getSenderNodeName());
 
+    if (parent == null && distributed.appliedOperations != null)
+      distributed.appliedOperations.onReceived(req.getId());
+
     return req;
   }
 
+  /**
+   * Returns the number of operations dispatched to the partitions and not applied yet.
+   */
+  public int getPendingInPartitions() {
+    return pendingInPartitions.get();
+  }
+
+  /**
+   * Returns the number of requests applied by this worker and its partitions.
+   */
+  public long getAppliedMessages() {
+    long total = appliedMessages.get();
+    final ODistributedWorker[] current = partitions;
+    if (current != null)
+      for (ODistributedWorker p : current)
+        total += p.getAppliedMessages();
+    return total;
+  }
+
+  protected void startPartitions(final int iThreads) {
+    final ODistributedWorker[] workers = new ODistributedWorker[iThreads];
+    for (int i = 0; i < iThreads; ++i) {
+      workers[i] = createPartition(i);
+      workers[i].setName(getName() + "-p" + i);
+      workers[i].setDaemon(true);
+      workers[i].start();
+    }
+    partitions = workers;
+
+    Orient
+        .instance()
+        .getProfiler()
+        .registerHookValue(getPendingMetricName(), "Number of replicated operations waiting to be applied", METRIC_TYPE.SIZE,
+            new OProfilerHookValue() {
+              public Object getValue() {
+                return requestQueue.size() + batchedRequests.size() + pendingInPartitions.get();
+              }
+            }, "distributed.db.*.pendingOperations");
+
+    ODistributedServerLog.info(this, getLocalNodeName(), null, DIRECTION.NONE,
+        "applying the record operations against database '%s' with %d threads", databaseName, iThreads);
+  }
+
+  /**
+   * Creates the worker applying the operations dispatched to the partition i.
+   */
+  protected ODistributedWorker createPartition(final int i) {
+    return new ODistributedWorker(distributed, new LinkedBlockingQueue<Object>(), databaseName, i, false, this);
+  }
+
+  protected void shutdownPartitions() {
+    final ODistributedWorker[] current = partitions;
+    if (current == null)
+      return;
+
+    if (Orient.instance().getProfiler() != null)
+      Orient.instance().getProfiler().unregisterHookValue(getPendingMetricName());
+
+    // APPLY THE OPERATIONS ALREADY TAKEN FROM THE QUEUE BEFORE STOPPING THE PARTITIONS
+    try {
+      if (!waitForPartitions(OGlobalConfiguration.DISTRIBUTED_QUEUE_TIMEOUT.getValueAsLong()))
+        ODistributedServerLog.warn(this, getLocalNodeName(), null, DIRECTION.NONE,
+            "%d operations against database '%s' have not been applied before the shutdown, they will be requested again",
+            pendingInPartitions.get(), databaseName);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    for (ODistributedWorker p : current) {
+      p.interrupt();
+      p.shutdown();
+    }
+  }
+
+  /**
+   * Dispatches the record operations to the partition of their cluster, so the operations against the same cluster are applied in
+   * the same order they have been received. Any other operation (transactions, commands, deploys) is executed by the current
+   * thread once all the previous operations have been applied.
+   */
+  protected boolean dispatch(final ODistributedRequest iRequest) throws InterruptedException {
+    final OAbstractRemoteTask task = iRequest.getTask();
+
+    if (task instanceof OAbstractRecordReplicatedTask) {
+      final ORecordId rid = ((OAbstractRecordReplicatedTask) task).getRid();
+      if (rid != null && rid.getClusterId() > -1) {
+        pendingInPartitions.incrementAndGet();
+        partitions[rid.getClusterId() % partitions.length].requestQueue.put(iRequest);
+        return true;
+      }
+    }
+
+    waitForPartitions();
+    onMessage(iRequest);
+    return false;
+  }
+
+  /**
+   * Waits until all the operations dispatched to the partitions have been applied.
+   */
+  protected void waitForPartitions() throws InterruptedException {
+    synchronized (pendingInPartitions) {
+      while (pendingInPartitions.get() > 0)
+        pendingInPartitions.wait();
+    }
+  }
+
+  /**
+   * Waits until all the operations dispatched to the partitions have been applied or the timeout expires.
+   *
+   * @return false if the timeout expired
+   */
+  protected boolean waitForPartitions(final long iTimeout) throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + iTimeout;
+    synchronized (pendingInPartitions) {
+      while (pendingInPartitions.get() > 0) {
+        final long left = deadline - System.currentTimeMillis();
+        if (left <= 0)
+          return false;
+        pendingInPartitions.wait(left);
+      }
+    }
+    return true;
+  }
+
+  protected void onPartitionExecuted() {
+    if (pendingInPartitions.decrementAndGet() == 0)
+      synchronized (pendingInPartitions) {
+        pendingInPartitions.notifyAll();
+      }
+  }
+
+  /**
+   * Returns the next request of the current batch if any, otherwise waits for the next message in the queue. A batch is unwrapped
+   * in its requests, executed one by one.
+   */
+  protected ODistributedRequest nextRequest() throws InterruptedException {
+    if (!batchedRequests.isEmpty())
+      return batchedRequests.removeFirst();
+
+    final Object message = requestQueue.take();
+    dequeuedMessages++;
+
+    if (message instanceof OHazelcastDistributedRequestBatch) {
+      batchedRequests.addAll(((OHazelcastDistributedRequestBatch) message).getRequests());
+      return batchedRequests.removeFirst();
+    }
+
+    return (ODistributedRequest) message;
+  }
+
   /**
    * Execute the remote call on the local node and send back the result
    */
@@ -262,6 +487,12 @@ public class ODistributedWorker extends Thread {
         }
       }
 
+      if (iRequest instanceof OHazelcastDistributedRequest) {
+        final long sentOn = ((OHazelcastDistributedRequest) iRequest).getSentOn();
+        if (sentOn > 0)
+          distributed.getMetrics().onApplied(manager.getDistributedTime(System.currentTimeMillis()) - sentOn);
+      }
+
       sendResponseBack(iRequest, task, responsePayload);
 
     } finally {
@@ -284,6 +515,10 @@ public class ODistributedWorker extends Thread {
     return manager.getLocalNodeName();
   }
 
+  protected String getPendingMetricName() {
+    return "distributed.db." + databaseName + ".pendingOperations";
+  }
+
   protected IMap<String, Object> restoreMessagesBeforeFailure(final boolean iRestoreMessages) {
     final IMap<String, Object> lastPendingRequestMap = manager.getHazelcastInstance().getMap(getPendingRequestMapName());
     if (iRestoreMessages) {
@@ -383,16 +618,43 @@ public class ODistributedWorker extends Thread {
     final OHazelcastDistributedResponse response = new OHazelcastDistributedResponse(iRequest.getId(), manager.getLocalNodeName(),
         iRequest.getSenderNodeName(), responsePayload);
 
+    if (!batchedRequests.isEmpty() || !batchedResponses.isEmpty()) {
+      // PART OF A BATCH: SENT BACK ONCE ALL THE REQUESTS OF THE BATCH HAVE BEEN EXECUTED
+      batchedResponses.add(response);
+      return;
+    }
+
+    sendResponse(iRequest.getSenderNodeName(), response);
+  }
+
+  private void sendBatchedResponses() {
+    if (batchedResponses.isEmpty())
+      return;
+
+    final String senderNodeName = batchedResponses.get(0).getSenderNodeName();
+    final Object response = batchedResponses.size() == 1 ? batchedResponses.get(0) : new OHazelcastDistributedResponseBatch(
+        new ArrayList<ODistributedResponse>(batchedResponses));
+    batchedResponses.clear();
+
+    try {
+      sendResponse(senderNodeName, response);
+    } catch (ODistributedException e) {
+      ODistributedServerLog.error(this, getLocalNodeName(), senderNodeName, DIRECTION.OUT,
+          "error on sending back the responses of batch %s", e, response);
+    }
+  }
+
+  private void sendResponse(final String iSenderNodeName, final Object iResponse) {
     try {
       // GET THE SENDER'S RESPONSE QUEUE
-      final IQueue<ODistributedResponse> queue = msgService.getQueue(OHazelcastDistributedMessageService
-          .getResponseQueueName(iRequest.getSenderNodeName()));
+      final IQueue<Object> queue = msgService.getQueue(OHazelcastDistributedMessageService
+          .getResponseQueueName(iSenderNodeName));
 
-      if (!queue.offer(response, OGlobalConfiguration.DISTRIBUTED_QUEUE_TIMEOUT.getValueAsLong(), TimeUnit.MILLISECONDS))
-        throw new ODistributedException("Timeout on dispatching response to the thread queue " + iRequest.getSenderNodeName());
+      if (!queue.offer(iResponse, OGlobalConfiguration.DISTRIBUTED_QUEUE_TIMEOUT.getValueAsLong(), TimeUnit.MILLISECONDS))
+        throw new ODistributedException("Timeout on dispatching response to the thread queue " + iSenderNodeName);
 
     } catch (Exception e) {
-      throw new ODistributedException("Cannot dispatch response to the thread queue " + iRequest.getSenderNodeName(), e);
+      throw new ODistributedException("Cannot dispatch response to the thread queue " + iSenderNodeName, e);
     }
   }
 
@@ -15,12 +15,17 @@
  */
 package com.orientechnologies.orient.server.hazelcast;
 
+import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.IQueue;
+import com.hazelcast.instance.HazelcastInstanceProxy;
+import com.hazelcast.nio.serialization.Data;
 import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.server.distributed.ODistributedAppliedOperations;
 import com.orientechnologies.orient.server.distributed.ODistributedConfiguration;
 import com.orientechnologies.orient.server.distributed.ODistributedDatabase;
+import com.orientechnologies.orient.server.distributed.ODistributedDatabaseMetrics;
 import com.orientechnologies.orient.server.distributed.ODistributedException;
 import com.orientechnologies.orient.server.distributed.ODistributedRequest;
 import com.orientechnologies.orient.server.distributed.ODistributedResponse;
@@ -28,6 +33,7 @@ import com.orientechnologies.orient.server.distributed.ODistributedResponseManag
 import com.orientechnologies.orient.server.distributed.ODistributedServerLog;
 import com.orientechnologies.orient.server.distributed.ODistributedServerLog.DIRECTION;
 import com.orientechnologies.orient.server.distributed.ODistributedServerManager;
+import com.orientechnologies.orient.server.distributed.task.OAbstractRecordReplicatedTask;
 import com.orientechnologies.orient.server.distributed.task.OAbstractRemoteTask;
 import com.orientechnologies.orient.server.distributed.task.OCreateRecordTask;
 import com.orientechnologies.orient.server.distributed.task.ODeleteRecordTask;
@@ -39,7 +45,10 @@ import com.orientechnologies.orient.server.distributed.task.OUpdateRecordTask;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -54,18 +63,37 @@ import java.util.concurrent.locks.Lock;
  */
 public class OHazelcastDistributedDatabase implements ODistributedDatabase {
 
-  public static final String                          NODE_QUEUE_PREFIX          = "orientdb.node.";
-  public static final String                          NODE_QUEUE_PENDING_POSTFIX = ".pending";
-  private static final String                         NODE_LOCK_PREFIX           = "orientdb.reqlock.";
-  protected final OHazelcastPlugin                    manager;
-  protected final OHazelcastDistributedMessageService msgService;
-  protected final String                              databaseName;
-  protected final Lock                                requestLock;
-  protected final int                                 numWorkers                 = 8;
-  protected volatile boolean                          restoringMessages          = false;
-  protected AtomicBoolean                             status                     = new AtomicBoolean(false);
-  protected List<ODistributedWorker>                  workers                    = new ArrayList<ODistributedWorker>();
-  protected AtomicLong                                waitForMessageId           = new AtomicLong(-1);
+  public static final String                                  NODE_QUEUE_PREFIX          = "orientdb.node.";
+  public static final String                                  NODE_QUEUE_PENDING_POSTFIX = ".pending";
+  private static final String                                 NODE_LOCK_PREFIX           = "orientdb.reqlock.";
+  protected final OHazelcastPlugin                            manager;
+  protected final OHazelcastDistributedMessageService         msgService;
+  protected final String                                      databaseName;
+  protected final Lock                                        requestLock;
+  protected final int                                         numWorkers                 = 8;
+  protected volatile boolean                                  restoringMessages          = false;
+  protected AtomicBoolean                                     status                     = new AtomicBoolean(false);
+  protected List<ODistributedWorker>                          workers                    = new ArrayList<ODistributedWorker>();
+  protected AtomicLong                                        waitForMessageId           = new AtomicLong(-1);
+  protected final ODistributedRequestBatcher<OPendingRequest> batcher;
+  protected final ODistributedDatabaseMetrics                 metrics;
+  protected final ODistributedAppliedOperations               appliedOperations;
+
+  /**
+   * Request waiting to be replicated together with the other requests of its batch.
+   */
+  protected static class OPendingRequest {
+    protected final ODistributedRequest           request;
+    protected final IQueue<Object>[] queues;
+    protected final ODistributedResponseManager   responseManager;
+
+    public OPendingRequest(final ODistributedRequest iRequest, final IQueue<Object>[] iQueues,
+        final ODistributedResponseManager iResponseManager) {
+      request = iRequest;
+      queues = iQueues;
+      responseManager = iResponseManager;
+    }
+  }
 
   public OHazelcastDistributedDatabase(final OHazelcastPlugin manager, final OHazelcastDistributedMessageService msgService,
       final String iDatabaseName) {
@@ -75,6 +103,38 @@ public class OHazelcastDistributedDatabase implements ODistributedDatabase {
 
     this.requestLock = manager.getHazelcastInstance().getLock(NODE_LOCK_PREFIX + iDatabaseName);
 
+    final int batchSize = OGlobalConfiguration.DISTRIBUTED_BATCH_SIZE.getValueAsInteger();
+    if (batchSize > 0)
+      this.batcher = new ODistributedRequestBatcher<OPendingRequest>(batchSize,
+          OGlobalConfiguration.DISTRIBUTED_BATCH_WINDOW.getValueAsLong()) {
+        @Override
+        protected void flush(final List<OPendingRequest> iRequests) throws InterruptedException {
+          sendBatch(iRequests);
+        }
+      };
+    else
+      this.batcher = null;
+
+    // TRACK THE APPLIED OPERATIONS: THE LOCAL READS WAIT FOR THE WRITES OF THE SESSION AND THE OPERATION LOG SERVES ONLY THE
+    // OPERATIONS APPLIED WITHOUT GAPS
+    this.appliedOperations = new ODistributedAppliedOperations();
+
+    this.metrics = new ODistributedDatabaseMetrics(iDatabaseName) {
+      @Override
+      public long getQueueSize() {
+        final String localNode = getLocalNodeName();
+        return msgService.getQueue(OHazelcastDistributedMessageService.getRequestQueueName(localNode, getDatabaseName())).size()
+            + msgService.getQueue(
+                OHazelcastDistributedMessageService.getRequestQueueName(localNode, getDatabaseName()
+                    + OCreateRecordTask.SUFFIX_QUEUE_NAME)).size();
+      }
+
+      @Override
+      public long getPendingResponses() {
+        return msgService.getPendingResponses(getDatabaseName());
+      }
+    };
+
     checkLocalNodeInConfiguration();
 
     // CREATE 2 QUEUES FOR GENERIC REQUESTS + INSERT ONLY
@@ -99,9 +159,11 @@ public class OHazelcastDistributedDatabase implements ODistributedDatabase {
     final ODistributedConfiguration cfg = manager.getDatabaseConfiguration(databaseName);
 
     // TODO: REALLY STILL MATTERS THE NUMBER OF THE QUEUES?
-    final IQueue<ODistributedRequest>[] reqQueues = getRequestQueues(databaseName, iNodes, iRequest.getTask());
+    final IQueue<Object>[] reqQueues = getRequestQueues(databaseName, iNodes, iRequest.getTask());
 
     iRequest.setSenderNodeName(getLocalNodeName());
+    if (iRequest instanceof OHazelcastDistributedRequest)
+      ((OHazelcastDistributedRequest) iRequest).setSentOn(manager.getDistributedTime(System.currentTimeMillis()));
 
     int availableNodes;
     if (iRequest.getTask().isRequireNodeOnline()) {
@@ -122,7 +184,7 @@ public class OHazelcastDistributedDatabase implements ODistributedDatabase {
     } else {
       // EXPECT ANSWER FROM ALL NODES WITH A QUEUE
       availableNodes = 0;
-      for (IQueue<ODistributedRequest> q : reqQueues)
+      for (IQueue<Object> q : reqQueues)
         if (q != null)
           availableNodes++;
     }
@@ -151,27 +213,38 @@ public class OHazelcastDistributedDatabase implements ODistributedDatabase {
     final long timeout = OGlobalConfiguration.DISTRIBUTED_QUEUE_TIMEOUT.getValueAsLong();
 
     try {
-      requestLock.lock();
-      try {
-        // LOCK = ASSURE MESSAGES IN THE QUEUE ARE INSERTED SEQUENTIALLY AT CLUSTER LEVEL
-        // BROADCAST THE REQUEST TO ALL THE NODE QUEUES
-
-        // TODO: CAN I MOVE THIS OUTSIDE?
-        iRequest.setId(msgService.getMessageIdCounter().getAndIncrement());
+      if (batcher != null && iRequest.getTask() instanceof OAbstractRecordReplicatedTask
+          && iRequest.getExecutionMode() == ODistributedRequest.EXECUTION_MODE.RESPONSE)
+        // REPLICATE IT TOGETHER WITH THE OTHER RECORD OPERATIONS SENT IN THE SAME TIME WINDOW. REQUESTS WITHOUT RESPONSE ARE SENT
+        // RIGHT AWAY, IN THE SAME ORDER OF THE CALLERS
+        batcher.add(new OPendingRequest(iRequest, reqQueues, currentResponseMgr));
+      else {
+        requestLock.lock();
+        try {
+          // LOCK = ASSURE MESSAGES IN THE QUEUE ARE INSERTED SEQUENTIALLY AT CLUSTER LEVEL
+          // BROADCAST THE REQUEST TO ALL THE NODE QUEUES
 
-        if (ODistributedServerLog.isDebugEnabled())
-          ODistributedServerLog.debug(this, getLocalNodeName(), iNodes.toString(), DIRECTION.OUT, "sending request %s", iRequest);
+          // TODO: CAN I MOVE THIS OUTSIDE?
+          iRequest.setId(msgService.getMessageIdCounter().getAndIncrement());
 
-        // TODO: CAN I MOVE THIS OUTSIDE?
-        msgService.registerRequest(iRequest.getId(), currentResponseMgr);
+          if (ODistributedServerLog.isDebugEnabled())
+            ODistributedServerLog.debug(this, getLocalNodeName(), iNodes.toString(), DIRECTION.OUT, "sending request %s", iRequest);
+
+          // TODO: CAN I MOVE THIS OUTSIDE?
+          msgService.registerRequest(iRequest.getId(), currentResponseMgr);
+
+          // SERIALIZE THE REQUEST ONCE FOR ALL THE QUEUES
+          final Object message = serialize(iRequest);
+          for (IQueue<Object> queue : reqQueues) {
+            if (queue != null) {
+              queue.offer(message, timeout, TimeUnit.MILLISECONDS);
+              onSent(message);
+            }
+          }
 
-        for (IQueue<ODistributedRequest> queue : reqQueues) {
-          if (queue != null)
-            queue.offer(iRequest, timeout, TimeUnit.MILLISECONDS);
+        } finally {
+          requestLock.unlock();
         }
-
-      } finally {
-        requestLock.unlock();
       }
 
       if (ODistributedServerLog.isDebugEnabled())
@@ -191,25 +264,94 @@ public class OHazelcastDistributedDatabase implements ODistributedDatabase {
     }
   }
 
+  /**
+   * Sends the requests of a batch with one message per node. The ids of the requests are contiguous, so all the nodes execute them
+   * in the same order.
+   */
+  protected void sendBatch(final List<OPendingRequest> iRequests) throws InterruptedException {
+    final long timeout = OGlobalConfiguration.DISTRIBUTED_QUEUE_TIMEOUT.getValueAsLong();
+
+    final Map<String, IQueue<Object>> queues = new LinkedHashMap<String, IQueue<Object>>();
+    final Map<String, List<ODistributedRequest>> requestsByQueue = new HashMap<String, List<ODistributedRequest>>();
+
+    requestLock.lock();
+    try {
+      final long firstId = msgService.getMessageIdCounter().getAndAdd(iRequests.size());
+
+      for (int i = 0; i < iRequests.size(); ++i) {
+        final OPendingRequest pending = iRequests.get(i);
+        pending.request.setId(firstId + i);
+        msgService.registerRequest(pending.request.getId(), pending.responseManager);
+
+        // GROUP THE REQUESTS BY DESTINATION QUEUE
+        for (IQueue<Object> queue : pending.queues) {
+          if (queue != null) {
+            List<ODistributedRequest> requests = requestsByQueue.get(queue.getName());
+            if (requests == null) {
+              requests = new ArrayList<ODistributedRequest>();
+              requestsByQueue.put(queue.getName(), requests);
+              queues.put(queue.getName(), queue);
+            }
+            requests.add(pending.request);
+          }
+        }
+      }
+
+      for (Map.Entry<String, IQueue<Object>> entry : queues.entrySet()) {
+        final List<ODistributedRequest> requests = requestsByQueue.get(entry.getKey());
+        final Object message = serialize(requests.size() == 1 ? requests.get(0) : new OHazelcastDistributedRequestBatch(requests));
+        entry.getValue().offer(message, timeout, TimeUnit.MILLISECONDS);
+        onSent(message);
+      }
+
+    } finally {
+      requestLock.unlock();
+    }
+
+    if (ODistributedServerLog.isDebugEnabled())
+      ODistributedServerLog.debug(this, getLocalNodeName(), queues.keySet().toString(), DIRECTION.OUT,
+          "sent batch of %d requests", iRequests.size());
+
+    Orient
+        .instance()
+        .getProfiler()
+        .updateCounter("distributed.db." + databaseName + ".batchSent", "Number of batches of replication messages sent from current node",
+            +1, "distributed.db.*.batchSent");
+  }
+
   public boolean isRestoringMessages() {
     return restoringMessages;
   }
 
+  @Override
+  public ODistributedDatabaseMetrics getMetrics() {
+    return metrics;
+  }
+
+  @Override
+  public ODistributedAppliedOperations getAppliedOperations() {
+    return appliedOperations;
+  }
+
   public OHazelcastDistributedDatabase configureDatabase(final boolean iRestoreMessages, final boolean iUnqueuePendingMessages) {
+    manager.removeOperationLogState(databaseName);
+
     // CREATE A QUEUE PER DATABASE REQUESTS
     final String queueName = OHazelcastDistributedMessageService.getRequestQueueName(getLocalNodeName(), databaseName);
-    final IQueue<ODistributedRequest> requestQueue = msgService.getQueue(queueName);
+    final IQueue<Object> requestQueue = msgService.getQueue(queueName);
 
     unqueuePendingMessages(iRestoreMessages, iUnqueuePendingMessages, queueName, requestQueue);
 
     final String insertQueueName = OHazelcastDistributedMessageService.getRequestQueueName(getLocalNodeName(), databaseName
         + OCreateRecordTask.SUFFIX_QUEUE_NAME);
-    final IQueue<ODistributedRequest> insertQueue = msgService.getQueue(insertQueueName);
+    final IQueue<Object> insertQueue = msgService.getQueue(insertQueueName);
 
     unqueuePendingMessages(iRestoreMessages, iUnqueuePendingMessages, insertQueueName, insertQueue);
 
     setOnline();
 
+    metrics.registerHooks();
+
     // CREATE 1 WORKER THREAD FOR INSERT (ONLY 1 TO MAINTAIN THE SEQUENCE OF REQUESTS)
     ODistributedWorker listenerThread = new ODistributedWorker(this, requestQueue, databaseName, 0, false);
     workers.add(listenerThread);
@@ -245,12 +387,17 @@ public class OHazelcastDistributedDatabase implements ODistributedDatabase {
   }
 
   public void shutdown() {
+    metrics.unregisterHooks();
+
     for (int i = 0; i < workers.size(); ++i)
       workers.get(i).shutdown();
+
+    // AFTER THE RESTART ASK ONLY FOR THE OPERATIONS EXECUTED IN THE MEANTIME
+    manager.saveOperationLogState(databaseName);
   }
 
   protected void unqueuePendingMessages(boolean iRestoreMessages, boolean iUnqueuePendingMessages, String queueName,
-      IQueue<ODistributedRequest> requestQueue) {
+      IQueue<Object> requestQueue) {
     if (ODistributedServerLog.isDebugEnabled())
       ODistributedServerLog.debug(this, getLocalNodeName(), null, DIRECTION.NONE, "listening for incoming requests on queue: %s",
           queueName);
@@ -354,7 +501,10 @@ public class OHazelcastDistributedDatabase implements ODistributedDatabase {
     final long beginTime = System.currentTimeMillis();
 
     // WAIT FOR THE MINIMUM SYNCHRONOUS RESPONSES (QUORUM)
-    if (!currentResponseMgr.waitForSynchronousResponses()) {
+    final boolean quorumReached = currentResponseMgr.waitForSynchronousResponses();
+    metrics.onQuorumWait(System.currentTimeMillis() - beginTime);
+
+    if (!quorumReached) {
       ODistributedServerLog.warn(this, getLocalNodeName(), null, DIRECTION.IN,
           "timeout (%dms) on waiting for synchronous responses from nodes=%s responsesSoFar=%s request=%s",
           System.currentTimeMillis() - beginTime, currentResponseMgr.getExpectedNodes(), currentResponseMgr.getRespondingNodes(),
@@ -364,15 +514,34 @@ public class OHazelcastDistributedDatabase implements ODistributedDatabase {
     return currentResponseMgr.getFinalResponse();
   }
 
-  protected IQueue<ODistributedRequest>[] getRequestQueues(final String iDatabaseName, final Collection<String> nodes,
+  /**
+   * Serializes a message with the Hazelcast serialization. The queues don't serialize it again, so the message is serialized once
+   * for all the nodes and its size is known without extra work.
+   */
+  protected Object serialize(final Object iMessage) {
+    final HazelcastInstance hz = manager.getHazelcastInstance();
+    if (hz instanceof HazelcastInstanceProxy)
+      return ((HazelcastInstanceProxy) hz).getSerializationService().toData(iMessage);
+    return iMessage;
+  }
+
+  /**
+   * Accounts the bytes of a message sent to a node.
+   */
+  protected void onSent(final Object iMessage) {
+    if (iMessage instanceof Data)
+      metrics.onSent(((Data) iMessage).totalSize());
+  }
+
+  protected IQueue<Object>[] getRequestQueues(final String iDatabaseName, final Collection<String> nodes,
       final OAbstractRemoteTask iTask) {
-    final IQueue<ODistributedRequest>[] queues = new IQueue[nodes.size()];
+    final IQueue<Object>[] queues = new IQueue[nodes.size()];
 
     int i = 0;
     // GET ALL THE EXISTENT QUEUES
     for (String node : nodes) {
       final String queueName = OHazelcastDistributedMessageService.getRequestQueueName(node, iDatabaseName);
-      final IQueue<ODistributedRequest> queue = msgService.getQueue(queueName);
+      final IQueue<Object> queue = msgService.getQueue(queueName);
       queues[i++] = queue;
     }
 
@@ -24,6 +24,7 @@ import com.hazelcast.spi.exception.DistributedObjectDestroyedException;
 import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.server.distributed.ODistributedDatabaseChunk;
 import com.orientechnologies.orient.server.distributed.ODistributedMessageService;
 import com.orientechnologies.orient.server.distributed.ODistributedRequest;
 import com.orientechnologies.orient.server.distributed.ODistributedResponse;
@@ -38,6 +39,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TimerTask;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -53,8 +55,9 @@ public class OHazelcastDistributedMessageService implements ODistributedMessageS
   public static final String                                           NODE_QUEUE_PREFIX           = "orientdb.node.";
   public static final String                                           NODE_QUEUE_REQUEST_POSTFIX  = ".request";
   public static final String                                           NODE_QUEUE_RESPONSE_POSTFIX = ".response";
+  public static final String                                           DEPLOY_QUEUE_PREFIX         = "orientdb.deploy.";
   protected final OHazelcastPlugin                                     manager;
-  protected final IQueue<ODistributedResponse>                         nodeResponseQueue;
+  protected final IQueue<Object>                                       nodeResponseQueue;
   protected final ConcurrentHashMap<Long, ODistributedResponseManager> responsesByRequestIds;
   protected final TimerTask                                            asynchMessageManager;
   protected Map<String, OHazelcastDistributedDatabase>                 databases                   = new ConcurrentHashMap<String, OHazelcastDistributedDatabase>();
@@ -97,13 +100,25 @@ public class OHazelcastDistributedMessageService implements ODistributedMessageS
         Thread.currentThread().setName("OrientDB Node Response " + queueName);
         while (!Thread.interrupted()) {
           String senderNode = null;
-          ODistributedResponse message = null;
+          Object message = null;
           try {
             message = nodeResponseQueue.take();
 
-            if (message != null) {
-              senderNode = message.getSenderNodeName();
-              final long responseTime = dispatchResponseToThread(message);
+            if (message instanceof OHazelcastDistributedResponseBatch) {
+              final OHazelcastDistributedResponseBatch batch = (OHazelcastDistributedResponseBatch) message;
+              senderNode = batch.getSenderNodeName();
+
+              // FAN OUT THE RESPONSES TO THE THREADS WAITING FOR THEM
+              for (ODistributedResponse response : batch.getResponses()) {
+                final long responseTime = dispatchResponseToThread(response);
+                if (responseTime > -1)
+                  collectMetric(responseTime);
+              }
+            } else if (message != null) {
+              final ODistributedResponse response = (ODistributedResponse) message;
+              senderNode = response.getSenderNodeName();
+
+              final long responseTime = dispatchResponseToThread(response);
 
               if (responseTime > -1)
                 collectMetric(responseTime);
@@ -121,7 +136,7 @@ public class OHazelcastDistributedMessageService implements ODistributedMessageS
             break;
           } catch (Throwable e) {
             ODistributedServerLog.error(this, manager.getLocalNodeName(), senderNode, DIRECTION.IN,
-                "error on reading distributed response", e, message != null ? message.getPayload() : "-");
+                "error on reading distributed response", e, message != null ? message : "-");
           }
         }
 
@@ -159,6 +174,11 @@ public class OHazelcastDistributedMessageService implements ODistributedMessageS
     return buffer.toString();
   }
 
+  @Override
+  public BlockingQueue<ODistributedDatabaseChunk> getDeployQueue(final String iNodeName, final String iDatabaseName) {
+    return getQueue(DEPLOY_QUEUE_PREFIX + iNodeName + "." + iDatabaseName);
+  }
+
   public OHazelcastDistributedDatabase getDatabase(final String iDatabaseName) {
     return databases.get(iDatabaseName);
   }
@@ -218,6 +238,17 @@ public class OHazelcastDistributedMessageService implements ODistributedMessageS
     return getMessageIdCounter().get();
   }
 
+  /**
+   * Returns the number of requests against the database still waiting for the responses.
+   */
+  public int getPendingResponses(final String iDatabaseName) {
+    int pending = 0;
+    for (ODistributedResponseManager r : responsesByRequestIds.values())
+      if (iDatabaseName.equals(r.getDatabaseName()))
+        pending++;
+    return pending;
+  }
+
   public IAtomicLong getMessageIdCounter() {
     return manager.getHazelcastInstance().getAtomicLong("orientdb.requestId");
   }
@@ -37,6 +37,7 @@ public class OHazelcastDistributedRequest implements ODistributedRequest, Extern
   private long                senderThreadId;
   private OAbstractRemoteTask task;
   private String              userName = "";
+  private long                sentOn   = 0;
 
   /**
    * Constructor used by serializer.
@@ -111,6 +112,18 @@ public class OHazelcastDistributedRequest implements ODistributedRequest, Extern
     return this;
   }
 
+  /**
+   * Returns the distributed time the request has been sent, or 0 if it hasn't been sent yet.
+   */
+  public long getSentOn() {
+    return sentOn;
+  }
+
+  public OHazelcastDistributedRequest setSentOn(final long iSentOn) {
+    this.sentOn = iSentOn;
+    return this;
+  }
+
   @Override
   public void writeExternal(final ObjectOutput out) throws IOException {
     out.writeLong(id);
@@ -120,6 +133,7 @@ public class OHazelcastDistributedRequest implements ODistributedRequest, Extern
     out.writeUTF(userName);
     out.writeObject(task);
     out.writeUTF(userName);
+    out.writeLong(sentOn);
   }
 
   @Override
@@ -131,6 +145,7 @@ public class OHazelcastDistributedRequest implements ODistributedRequest, Extern
     userName = in.readUTF();
     task = (OAbstractRemoteTask) in.readObject();
     userName = in.readUTF();
+    sentOn = in.readLong();
   }
 
   @Override
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2010-2013 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.hazelcast;
+
+import com.orientechnologies.orient.server.distributed.ODistributedRequest;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Message carrying the requests replicated to a node at once. It isn't a request itself: the worker of the receiving node unwraps
+ * it and executes the requests one by one in the same order.
+ * 
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ * 
+ */
+public class OHazelcastDistributedRequestBatch implements Externalizable {
+  private List<ODistributedRequest> requests;
+
+  /**
+   * Constructor used by serializer.
+   */
+  public OHazelcastDistributedRequestBatch() {
+  }
+
+  public OHazelcastDistributedRequestBatch(final List<ODistributedRequest> iRequests) {
+    requests = iRequests;
+  }
+
+  public List<ODistributedRequest> getRequests() {
+    return requests;
+  }
+
+  @Override
+  public void writeExternal(final ObjectOutput out) throws IOException {
+    out.writeInt(requests.size());
+    for (ODistributedRequest req : requests)
+      out.writeObject(req);
+  }
+
+  @Override
+  public void readExternal(final ObjectInput in) throws IOException, ClassNotFoundException {
+    final int size = in.readInt();
+    requests = new ArrayList<ODistributedRequest>(size);
+    for (int i = 0; i < size; ++i)
+      requests.add((ODistributedRequest) in.readObject());
+  }
+
+  @Override
+  public String toString() {
+    final ODistributedRequest first = requests.get(0);
+    return "batch[size=" + requests.size() + " firstId=" + first.getId() + " from=" + first.getSenderNodeName() + "]";
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2010-2013 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.hazelcast;
+
+import com.orientechnologies.orient.server.distributed.ODistributedResponse;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Message carrying the responses to the requests of a batch. It isn't a response itself: the response thread of the receiving node
+ * unwraps it and dispatches each response to the thread waiting for it.
+ * 
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ * 
+ */
+public class OHazelcastDistributedResponseBatch implements Externalizable {
+  private List<ODistributedResponse> responses;
+
+  /**
+   * Constructor used by serializer.
+   */
+  public OHazelcastDistributedResponseBatch() {
+  }
+
+  public OHazelcastDistributedResponseBatch(final List<ODistributedResponse> iResponses) {
+    responses = iResponses;
+  }
+
+  public List<ODistributedResponse> getResponses() {
+    return responses;
+  }
+
+  public String getSenderNodeName() {
+    return responses.get(0).getSenderNodeName();
+  }
+
+  @Override
+  public void writeExternal(final ObjectOutput out) throws IOException {
+    out.writeInt(responses.size());
+    for (ODistributedResponse res : responses)
+      out.writeObject(res);
+  }
+
+  @Override
+  public void readExternal(final ObjectInput in) throws IOException, ClassNotFoundException {
+    final int size = in.readInt();
+    responses = new ArrayList<ODistributedResponse>(size);
+    for (int i = 0; i < size; ++i)
+      responses.add((ODistributedResponse) in.readObject());
+  }
+
+  @Override
+  public String toString() {
+    return "batch[size=" + responses.size() + " firstRequestId=" + responses.get(0).getRequestId() + "]";
+  }
+}
@@ -15,6 +15,7 @@
  */
 package com.orientechnologies.orient.server.hazelcast;
 
+import com.hazelcast.config.Config;
 import com.hazelcast.config.FileSystemXmlConfig;
 import com.hazelcast.config.QueueConfig;
 import com.hazelcast.core.*;
@@ -43,21 +44,30 @@ import com.orientechnologies.orient.server.OServer;
 import com.orientechnologies.orient.server.config.OServerConfiguration;
 import com.orientechnologies.orient.server.config.OServerHandlerConfiguration;
 import com.orientechnologies.orient.server.config.OServerParameterConfiguration;
+import com.orientechnologies.orient.server.config.OServerUserConfiguration;
 import com.orientechnologies.orient.server.distributed.ODistributedAbstractPlugin;
+import com.orientechnologies.orient.server.distributed.ODistributedChunkInputStream;
 import com.orientechnologies.orient.server.distributed.ODistributedConfiguration;
 import com.orientechnologies.orient.server.distributed.ODistributedDatabaseChunk;
+import com.orientechnologies.orient.server.distributed.ODistributedDatabaseDelta;
 import com.orientechnologies.orient.server.distributed.ODistributedException;
+import com.orientechnologies.orient.server.distributed.ODistributedOperationLog;
 import com.orientechnologies.orient.server.distributed.ODistributedRequest;
 import com.orientechnologies.orient.server.distributed.ODistributedRequest.EXECUTION_MODE;
 import com.orientechnologies.orient.server.distributed.ODistributedResponse;
 import com.orientechnologies.orient.server.distributed.ODistributedServerLog;
 import com.orientechnologies.orient.server.distributed.ODistributedServerLog.DIRECTION;
+import com.orientechnologies.orient.server.distributed.ODistributedSessionToken;
 import com.orientechnologies.orient.server.distributed.ODistributedStorage;
 import com.orientechnologies.orient.server.distributed.conflict.OReplicationConflictResolver;
+import com.orientechnologies.orient.server.distributed.task.OAbstractRecordReplicatedTask;
 import com.orientechnologies.orient.server.distributed.task.OAbstractRemoteTask;
 import com.orientechnologies.orient.server.distributed.task.OCopyDatabaseChunkTask;
 import com.orientechnologies.orient.server.distributed.task.OCreateRecordTask;
 import com.orientechnologies.orient.server.distributed.task.ODeployDatabaseTask;
+import com.orientechnologies.orient.server.distributed.task.OSQLCommandTask;
+import com.orientechnologies.orient.server.distributed.task.OSyncDatabaseDeltaTask;
+import com.orientechnologies.orient.server.distributed.task.OTxTask;
 import com.orientechnologies.orient.server.network.OServerNetworkListener;
 
 import java.io.File;
@@ -65,6 +75,7 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -76,7 +87,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 
 /**
@@ -91,6 +105,7 @@ public class OHazelcastPlugin extends ODistributedAbstractPlugin implements Memb
   protected static final String                 CONFIG_NODE_PREFIX     = "node.";
   protected static final String                 CONFIG_DBSTATUS_PREFIX = "dbstatus.";
   protected static final String                 CONFIG_DATABASE_PREFIX = "database.";
+  protected static final String                 CONFIG_SYNC_EPOCH      = "syncepoch";
 
   protected String                              nodeId;
   protected String                              hazelcastConfigFile    = "hazelcast.xml";
@@ -106,6 +121,7 @@ public class OHazelcastPlugin extends ODistributedAbstractPlugin implements Memb
   protected volatile HazelcastInstance          hazelcastInstance;
   protected Object                              installDatabaseLock    = new Object();
   protected long                                lastClusterChangeOn;
+  protected long                                syncEpoch;
 
   public OHazelcastPlugin() {
   }
@@ -199,6 +215,11 @@ public class OHazelcastPlugin extends ODistributedAbstractPlugin implements Memb
       // PUBLISH LOCAL NODE CFG
       configurationMap.put(CONFIG_NODE_PREFIX + getLocalNodeId(), getLocalNodeConfiguration());
 
+      // OPERATION IDS ARE VALID UNTIL THE WHOLE CLUSTER IS RESTARTED
+      final long newEpoch = UUID.randomUUID().getLeastSignificantBits();
+      final Object epoch = configurationMap.putIfAbsent(CONFIG_SYNC_EPOCH, newEpoch);
+      syncEpoch = epoch != null ? (Long) epoch : newEpoch;
+
       messageService = new OHazelcastDistributedMessageService(this);
 
       installNewDatabases(true);
@@ -379,13 +400,37 @@ public class OHazelcastPlugin extends ODistributedAbstractPlugin implements Memb
           + req);
     }
 
+    final boolean appliedLocally = iExecutionMode == EXECUTION_MODE.NO_RESPONSE && isSessionWrite(iTask)
+        && !iTargetNodes.contains(getLocalNodeName());
+    if (appliedLocally) {
+      // THE CHANGE WAS APPLIED BY THE LOCAL NODE BEFORE REPLICATING IT (APPEND-ONLY CLUSTERS): LOG IT BEFORE SENDING, SO THE
+      // NODES THAT MISS IT GET IT BY DELTA SYNC
+      if (currentDatabase != null && currentDatabase.getStorage() instanceof ODistributedStorage)
+        ((ODistributedStorage) currentDatabase.getStorage()).setLastOperationId(req.getId());
+      logOperation(iDatabaseName, req);
+    }
+
     final ODistributedResponse response = db.send2Nodes(req, iClusterNames, iTargetNodes);
+
+    if (appliedLocally)
+      return null;
+
+    if (currentDatabase != null && isSessionWrite(iTask)
+        && OGlobalConfiguration.DISTRIBUTED_READ_YOUR_WRITES_TIMEOUT.getValueAsLong() > 0)
+      // THE NEXT LOCAL READS OF THE SESSION WAIT FOR THIS OPERATION
+      ODistributedSessionToken.get(currentDatabase, true).update(iClusterNames, req.getId());
+
     if (response != null)
       return response.getPayload();
 
     return null;
   }
 
+  protected boolean isSessionWrite(final OAbstractRemoteTask iTask) {
+    return (iTask instanceof OAbstractRecordReplicatedTask || iTask instanceof OTxTask || iTask instanceof OSQLCommandTask)
+        && !iTask.isIdempotent();
+  }
+
   public Set<String> getManagedDatabases() {
     return messageService != null ? messageService.getDatabases() : Collections.EMPTY_SET;
   }
@@ -515,6 +560,10 @@ public class OHazelcastPlugin extends ODistributedAbstractPlugin implements Memb
     for (String dbName : messageService.getDatabases()) {
       Map<String, Object> db = new HashMap<String, Object>();
       databases.put(dbName, db);
+
+      final OHazelcastDistributedDatabase distributedDatabase = messageService.getDatabase(dbName);
+      if (distributedDatabase != null)
+        db.put("metrics", distributedDatabase.getMetrics().toMap());
     }
 
     for (Entry<String, QueueConfig> entry : hazelcastInstance.getConfig().getQueueConfigs().entrySet()) {
@@ -786,6 +835,8 @@ public class OHazelcastPlugin extends ODistributedAbstractPlugin implements Memb
         ODistributedServerLog.error(this, getLocalNodeName(), req.getSenderNodeName(), DIRECTION.IN,
             "error on executing request %d (%s) on local node: ", (Throwable) result, req.getId(), req != null ? req.getTask()
                 : "-");
+      else if (database != null)
+        logOperation(database.getName(), req);
 
       return result;
 
@@ -833,21 +884,19 @@ public class OHazelcastPlugin extends ODistributedAbstractPlugin implements Memb
     return getHazelcastInstance().getMap("orientdb");
   }
 
-  public boolean installDatabase(boolean iStartup, String databaseName, ODocument config) {
+  public boolean installDatabase(final boolean iStartup, final String databaseName, final ODocument config) {
 
     final Boolean hotAlignment = config.field("hotAlignment");
     final String dbPath = serverInstance.getDatabaseDirectory() + databaseName;
 
+    ODocument syncState = null;
+
     final Set<String> configuredDatabases = serverInstance.getAvailableStorageNames().keySet();
     if (configuredDatabases.contains(databaseName)) {
       if (iStartup && hotAlignment != null && !hotAlignment) {
-        // DROP THE DATABASE ON CURRENT NODE
-        ODistributedServerLog.warn(this, getLocalNodeName(), null, DIRECTION.NONE,
-            "dropping local database '%s' in '%s' and get a fresh copy from a remote node...", databaseName, dbPath);
-
-        Orient.instance().unregisterStorageByName(databaseName);
-
-        OFileUtils.deleteRecursively(new File(dbPath));
+        syncState = loadOperationLogState(databaseName);
+        if (syncState == null)
+          dropLocalDatabase(databaseName, dbPath);
       } else
         // HOT ALIGNMENT RUNNING, DON'T INSTALL THE DB FROM SCRATCH BUT RATHER LET TO THE NODE TO ALIGN BY READING THE QUEUE
         return false;
@@ -875,97 +924,295 @@ public class OHazelcastPlugin extends ODistributedAbstractPlugin implements Memb
     // GET ALL THE OTHER SERVERS
     final Collection<String> nodes = cfg.getServers(null, getLocalNodeName());
 
+    if (syncState != null) {
+      if (synchronizeDatabase(distrDatabase, databaseName, nodes, syncState))
+        return true;
+
+      dropLocalDatabase(databaseName, dbPath);
+    }
+
+    // THE OPERATIONS EXECUTED BEFORE ARE NOT VALID FOR THE NEW COPY OF THE DATABASE
+    operationLogs.remove(databaseName);
+    misalignedDatabases.remove(databaseName);
+
+    final ODeployDatabaseTask deployTask = new ODeployDatabaseTask(null);
+
+    Thread restoreThread = null;
+    final AtomicReference<Throwable> restoreError = new AtomicReference<Throwable>();
+    if (deployTask.isStreamed()) {
+      // START RESTORING BEFORE ASKING FOR THE DATABASE: THE REMOTE NODE WAITS UNTIL THE CHUNKS ARE CONSUMED
+      final BlockingQueue<ODistributedDatabaseChunk> deployQueue = messageService.getDeployQueue(getLocalNodeName(), databaseName);
+      deployQueue.clear();
+
+      final ODistributedChunkInputStream in = new ODistributedChunkInputStream(deployQueue,
+          OGlobalConfiguration.DISTRIBUTED_DEPLOYDB_TASK_SYNCH_TIMEOUT.getValueAsLong());
+
+      restoreThread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            try {
+              restoreDatabase(databaseName, dbPath, in);
+            } finally {
+              in.close();
+            }
+
+            ODistributedServerLog.info(OHazelcastPlugin.this, getLocalNodeName(), null, DIRECTION.NONE,
+                "installed database '%s' received in %d chunks, size=%s", databaseName, in.getChunks(),
+                OFileUtils.getSizeAsString(in.getSize()));
+          } catch (Throwable t) {
+            restoreError.set(t);
+          }
+        }
+      }, "OrientDB DeployDatabase-" + databaseName);
+      restoreThread.setDaemon(true);
+      restoreThread.start();
+    }
+
     ODistributedServerLog.warn(this, getLocalNodeName(), nodes.toString(), DIRECTION.OUT,
         "requesting deploy of database '%s' on local server...", databaseName);
 
-    final Map<String, Object> results = (Map<String, Object>) sendRequest(databaseName, null, nodes, new ODeployDatabaseTask(null),
-        EXECUTION_MODE.RESPONSE);
+    try {
+      final Map<String, Object> results = (Map<String, Object>) sendRequest(databaseName, null, nodes, deployTask,
+          EXECUTION_MODE.RESPONSE);
+
+      ODistributedServerLog.warn(this, getLocalNodeName(), nodes.toString(), DIRECTION.OUT, "deploy returned: %s", results);
+
+      // EXTRACT THE REAL RESULT
+      for (Entry<String, Object> r : results.entrySet()) {
+        final Object value = r.getValue();
+
+        if (value instanceof Boolean) {
+          continue;
+        } else if (value instanceof Throwable) {
+          ODistributedServerLog.error(this, getLocalNodeName(), r.getKey(), DIRECTION.IN, "error on installing database %s in %s",
+              (Exception) value, databaseName, dbPath);
+        } else if (value instanceof ODistributedDatabaseChunk) {
+          ODistributedDatabaseChunk chunk = (ODistributedDatabaseChunk) value;
+
+          // DISCARD ALL THE MESSAGES BEFORE THE BACKUP
+          distrDatabase.setWaitForMessage(chunk.getLastOperationId() + 1);
+
+          if (restoreThread != null) {
+            // THE DATABASE HAS BEEN ALREADY SENT: WAIT FOR THE RESTORE TO COMPLETE
+            try {
+              restoreThread.join();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              throw new ODistributedException("Interrupted on installing database '" + databaseName + "'");
+            }
 
-    ODistributedServerLog.warn(this, getLocalNodeName(), nodes.toString(), DIRECTION.OUT, "deploy returned: %s", results);
+            if (restoreError.get() != null) {
+              ODistributedServerLog.error(this, getLocalNodeName(), r.getKey(), DIRECTION.IN,
+                  "error on installing database '%s' in %s", restoreError.get(), databaseName, dbPath);
+              throw new ODistributedException("Error on transferring database", restoreError.get());
+            }
 
-    // EXTRACT THE REAL RESULT
-    for (Entry<String, Object> r : results.entrySet()) {
-      final Object value = r.getValue();
+            distrDatabase.configureDatabase(false, true);
+            return true;
+          }
 
-      if (value instanceof Boolean) {
-        continue;
-      } else if (value instanceof Throwable) {
-        ODistributedServerLog.error(this, getLocalNodeName(), r.getKey(), DIRECTION.IN, "error on installing database %s in %s",
-            (Exception) value, databaseName, dbPath);
-      } else if (value instanceof ODistributedDatabaseChunk) {
-        ODistributedDatabaseChunk chunk = (ODistributedDatabaseChunk) value;
+          if (installDatabaseFromChunks(distrDatabase, databaseName, dbPath, r.getKey(), chunk))
+            return true;
+
+        } else
+          throw new IllegalArgumentException("Type " + value + " not supported");
+      }
+
+    } finally {
+      if (restoreThread != null && restoreThread.isAlive())
+        restoreThread.interrupt();
+    }
+
+    throw new ODistributedException("No response received from remote nodes for auto-deploy of database");
 
-        // DISCARD ALL THE MESSAGES BEFORE THE BACKUP
-        distrDatabase.setWaitForMessage(chunk.getLastOperationId() + 1);
+  }
 
-        final String fileName = Orient.getTempPath() + "install_" + databaseName + ".zip";
+  /**
+   * Copies the database chunk by chunk to a temporary file and then installs it.
+   */
+  protected boolean installDatabaseFromChunks(final OHazelcastDistributedDatabase distrDatabase, final String databaseName,
+      final String dbPath, final String iNode, ODistributedDatabaseChunk chunk) {
+    final String fileName = Orient.getTempPath() + "install_" + databaseName + ".zip";
 
-        ODistributedServerLog.info(this, getLocalNodeName(), r.getKey(), DIRECTION.IN, "copying remote database '%s' to: %s",
-            databaseName, fileName);
+    ODistributedServerLog.info(this, getLocalNodeName(), iNode, DIRECTION.IN, "copying remote database '%s' to: %s", databaseName,
+        fileName);
 
-        final File file = new File(fileName);
-        if (file.exists())
-          file.delete();
+    final File file = new File(fileName);
+    if (file.exists())
+      file.delete();
 
-        try {
-          file.getParentFile().mkdirs();
-          file.createNewFile();
-        } catch (IOException e) {
-          throw new ODistributedException("Error on creating temp database file to install locally", e);
+    try {
+      file.getParentFile().mkdirs();
+      file.createNewFile();
+    } catch (IOException e) {
+      throw new ODistributedException("Error on creating temp database file to install locally", e);
+    }
+
+    FileOutputStream out = null;
+    try {
+      out = new FileOutputStream(fileName, false);
+
+      long fileSize = writeDatabaseChunk(1, chunk, out);
+      for (int chunkNum = 2; !chunk.last; chunkNum++) {
+        final Object result = sendRequest(databaseName, null, Collections.singleton(iNode), new OCopyDatabaseChunkTask(
+            chunk.filePath, chunkNum, chunk.offset + chunk.buffer.length), EXECUTION_MODE.RESPONSE);
+
+        if (result instanceof Boolean)
+          continue;
+        else if (result instanceof Exception) {
+          ODistributedServerLog.error(this, getLocalNodeName(), iNode, DIRECTION.IN,
+              "error on installing database %s in %s (chunk #%d)", (Exception) result, databaseName, dbPath, chunkNum);
+        } else if (result instanceof ODistributedDatabaseChunk) {
+          chunk = (ODistributedDatabaseChunk) result;
+          fileSize += writeDatabaseChunk(chunkNum, chunk, out);
         }
+      }
 
-        FileOutputStream out = null;
-        try {
-          out = new FileOutputStream(fileName, false);
+      ODistributedServerLog.info(this, getLocalNodeName(), null, DIRECTION.NONE, "database copied correctly, size=%s",
+          OFileUtils.getSizeAsString(fileSize));
 
-          long fileSize = writeDatabaseChunk(1, chunk, out);
-          for (int chunkNum = 2; !chunk.last; chunkNum++) {
-            final Object result = sendRequest(databaseName, null, Collections.singleton(r.getKey()), new OCopyDatabaseChunkTask(
-                chunk.filePath, chunkNum, chunk.offset + chunk.buffer.length), EXECUTION_MODE.RESPONSE);
+    } catch (Exception e) {
+      ODistributedServerLog.error(this, getLocalNodeName(), null, DIRECTION.NONE, "error on transferring database '%s' to '%s'", e,
+          databaseName, fileName);
+      throw new ODistributedException("Error on transferring database", e);
+    } finally {
+      try {
+        if (out != null) {
+          out.flush();
+          out.close();
+        }
+      } catch (IOException e) {
+      }
+    }
 
-            if (result instanceof Boolean)
-              continue;
-            else if (result instanceof Exception) {
-              ODistributedServerLog.error(this, getLocalNodeName(), r.getKey(), DIRECTION.IN,
-                  "error on installing database %s in %s (chunk #%d)", (Exception) result, databaseName, dbPath, chunkNum);
-            } else if (result instanceof ODistributedDatabaseChunk) {
-              chunk = (ODistributedDatabaseChunk) result;
-              fileSize += writeDatabaseChunk(chunkNum, chunk, out);
-            }
-          }
+    installDatabaseOnLocalNode(distrDatabase, databaseName, dbPath, iNode, fileName);
+    distrDatabase.configureDatabase(false, true);
 
-          ODistributedServerLog.info(this, getLocalNodeName(), null, DIRECTION.NONE, "database copied correctly, size=%s",
-              OFileUtils.getSizeAsString(fileSize));
+    return true;
+  }
 
-        } catch (Exception e) {
-          ODistributedServerLog.error(this, getLocalNodeName(), null, DIRECTION.NONE,
-              "error on transferring database '%s' to '%s'", e, databaseName, fileName);
-          throw new ODistributedException("Error on transferring database", e);
-        } finally {
-          try {
-            if (out != null) {
-              out.flush();
-              out.close();
-            }
-          } catch (IOException e) {
-          }
+  /**
+   * Aligns the local database by executing only the operations executed by the other nodes after the last one executed before the
+   * shutdown.
+   *
+   * @return true if the database has been aligned, false if the operations are not available and the database must be deployed
+   */
+  protected boolean synchronizeDatabase(final OHazelcastDistributedDatabase distrDatabase, final String databaseName,
+      final Collection<String> nodes, final ODocument syncState) {
+    final int maxSize = OGlobalConfiguration.DISTRIBUTED_OPERATION_LOG_SIZE.getValueAsInteger();
+    final long epoch = ((Number) syncState.field("epoch")).longValue();
+    final long lastOperationId = ((Number) syncState.field("lastOperationId")).longValue();
+
+    if (maxSize <= 0 || epoch != syncEpoch) {
+      ODistributedServerLog.info(this, getLocalNodeName(), null, DIRECTION.NONE,
+          "operations executed against database '%s' after the shutdown are not available, the database must be deployed",
+          databaseName);
+      return false;
+    }
+
+    // THE NODE MUST HAVE EXECUTED THE OPERATIONS AGAINST ALL THE LOCAL CLUSTERS
+    final ODistributedConfiguration cfg = getDatabaseConfiguration(databaseName);
+    final List<String> donors = new ArrayList<String>(nodes);
+    for (String clusterName : cfg.getClusterNames()) {
+      final List<String> servers = cfg.getServers(clusterName, null);
+      if (servers.contains(getLocalNodeName()))
+        donors.retainAll(servers);
+    }
+
+    if (donors.isEmpty())
+      return false;
+
+    ODistributedServerLog.warn(this, getLocalNodeName(), donors.toString(), DIRECTION.OUT,
+        "requesting operations executed against database '%s' after %d...", databaseName, lastOperationId);
+
+    final Object result = sendRequest(databaseName, null, donors, new OSyncDatabaseDeltaTask(epoch, lastOperationId),
+        EXECUTION_MODE.RESPONSE);
+
+    ODistributedDatabaseDelta delta = null;
+    for (Object value : result instanceof Map ? ((Map<String, Object>) result).values() : Collections.singleton(result))
+      if (value instanceof ODistributedDatabaseDelta) {
+        delta = (ODistributedDatabaseDelta) value;
+        break;
+      }
+
+    if (delta == null)
+      return false;
+
+    // DISCARD ALL THE MESSAGES ALREADY IN THE DELTA
+    distrDatabase.setWaitForMessage(delta.getLastOperationId() + 1);
+
+    // THE LOCAL DATABASE CONTAINS ALL THE OPERATIONS EXECUTED BEFORE THE SHUTDOWN
+    final ODistributedOperationLog log = new ODistributedOperationLog(databaseName, syncEpoch, lastOperationId + 1, maxSize);
+    log.setAppliedOperations(distrDatabase.getAppliedOperations());
+    operationLogs.put(databaseName, log);
+
+    final OServerUserConfiguration replicatorUser = serverInstance.getUser(REPLICATOR_USER);
+    final ODatabaseDocumentTx database = (ODatabaseDocumentTx) serverInstance.openDatabase("document", databaseName,
+        replicatorUser.name, replicatorUser.password);
+
+    OScenarioThreadLocal.INSTANCE.set(OScenarioThreadLocal.RUN_MODE.RUNNING_DISTRIBUTED);
+    try {
+      for (ODistributedRequest req : delta.getOperations()) {
+        req.getTask().setNodeSource(req.getSenderNodeName());
+
+        final Object opResult = executeOnLocalNode(req, database);
+        database.getLocalCache().clear();
+
+        if (opResult instanceof Throwable) {
+          ODistributedServerLog.warn(this, getLocalNodeName(), req.getSenderNodeName(), DIRECTION.IN,
+              "cannot execute operation %d against database '%s', the database must be deployed", req.getId(), databaseName);
+          operationLogs.remove(databaseName);
+          return false;
         }
+      }
+    } finally {
+      OScenarioThreadLocal.INSTANCE.set(OScenarioThreadLocal.RUN_MODE.DEFAULT);
+      database.close();
+    }
 
-        installDatabaseOnLocalNode(distrDatabase, databaseName, dbPath, r.getKey(), fileName);
-        distrDatabase.configureDatabase(false, true);
+    ODistributedServerLog.warn(this, getLocalNodeName(), null, DIRECTION.NONE,
+        "database '%s' aligned by executing %d operations", databaseName, delta.getOperations().size());
 
-        return true;
+    distrDatabase.configureDatabase(false, true);
+    return true;
+  }
 
-      } else
-        throw new IllegalArgumentException("Type " + value + " not supported");
+  protected void logOperation(final String iDatabaseName, final ODistributedRequest iRequest) {
+    final int maxSize = OGlobalConfiguration.DISTRIBUTED_OPERATION_LOG_SIZE.getValueAsInteger();
+    if (maxSize <= 0)
+      return;
+
+    ODistributedOperationLog log = operationLogs.get(iDatabaseName);
+    if (log == null) {
+      // THE OPERATIONS EXECUTED BEFORE THIS ONE ARE NOT AVAILABLE
+      log = new ODistributedOperationLog(iDatabaseName, syncEpoch, iRequest.getId(), maxSize);
+      final OHazelcastDistributedDatabase db = messageService.getDatabase(iDatabaseName);
+      if (db != null)
+        log.setAppliedOperations(db.getAppliedOperations());
+      operationLogs.put(iDatabaseName, log);
     }
+    log.logOperation(iRequest);
+  }
 
-    throw new ODistributedException("No response received from remote nodes for auto-deploy of database");
+  protected void dropLocalDatabase(final String databaseName, final String dbPath) {
+    // DROP THE DATABASE ON CURRENT NODE
+    ODistributedServerLog.warn(this, getLocalNodeName(), null, DIRECTION.NONE,
+        "dropping local database '%s' in '%s' and get a fresh copy from a remote node...", databaseName, dbPath);
+
+    Orient.instance().unregisterStorageByName(databaseName);
 
+    OFileUtils.deleteRecursively(new File(dbPath));
   }
 
   protected HazelcastInstance configureHazelcast() throws FileNotFoundException {
-    return Hazelcast.newHazelcastInstance(new FileSystemXmlConfig(hazelcastConfigFile));
+    final Config config = new FileSystemXmlConfig(hazelcastConfigFile);
+
+    // THE DEPLOY QUEUES ARE BOUNDED: THE NODE SENDING THE DATABASE WAITS FOR THE CHUNKS TO BE CONSUMED
+    config.addQueueConfig(new QueueConfig().setName(OHazelcastDistributedMessageService.DEPLOY_QUEUE_PREFIX + "*")
+        .setMaxSize(Math.max(1, OGlobalConfiguration.DISTRIBUTED_DEPLOYDB_STREAM_CHUNKS.getValueAsInteger())).setBackupCount(0));
+
+    return Hazelcast.newHazelcastInstance(config);
   }
 
   /**
@@ -1031,21 +1278,13 @@ public class OHazelcastPlugin extends ODistributedAbstractPlugin implements Memb
         dbPath);
 
     try {
-      File f = new File(iDatabaseCompressedFile);
-
-      new File(dbPath).mkdirs();
-      final ODatabaseDocumentTx db = new ODatabaseDocumentTx("plocal:" + dbPath);
-
-      final FileInputStream in = new FileInputStream(f);
+      final FileInputStream in = new FileInputStream(iDatabaseCompressedFile);
       try {
-        db.restore(in, null, null, this);
+        restoreDatabase(databaseName, dbPath, in);
       } finally {
         in.close();
       }
 
-      db.close();
-      Orient.instance().unregisterStorageByName(db.getURL().substring(db.getStorage().getType().length() + 1));
-
       ODistributedServerLog.info(this, getLocalNodeName(), null, DIRECTION.NONE, "installed database '%s'", databaseName);
 
     } catch (IOException e) {
@@ -1054,6 +1293,19 @@ public class OHazelcastPlugin extends ODistributedAbstractPlugin implements Memb
     }
   }
 
+  /**
+   * Restores the database from the compressed backup read from the stream.
+   */
+  protected void restoreDatabase(final String databaseName, final String dbPath, final InputStream in) throws IOException {
+    new File(dbPath).mkdirs();
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx("plocal:" + dbPath);
+
+    db.restore(in, null, null, this);
+
+    db.close();
+    Orient.instance().unregisterStorageByName(db.getURL().substring(db.getStorage().getType().length() + 1));
+  }
+
   @Override
   protected ODocument loadDatabaseConfiguration(final String iDatabaseName, final File file) {
     // FIRST LOOK IN THE CLUSTER
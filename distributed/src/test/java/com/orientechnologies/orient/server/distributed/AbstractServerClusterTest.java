@@ -16,12 +16,16 @@
 package com.orientechnologies.orient.server.distributed;
 
 import com.hazelcast.core.Hazelcast;
+import com.orientechnologies.common.io.OIOUtils;
 import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import org.junit.Assert;
 
+import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -30,6 +34,9 @@ import java.util.List;
  * Test class that creates and executes distributed operations against a cluster of servers created in the same JVM.
  */
 public abstract class AbstractServerClusterTest {
+  protected static final int MAX_SERVERS       = 10;
+  protected static final int HAZELCAST_PORT    = 2434;
+
   protected int             delayServerStartup = 0;
   protected int             delayServerAlign   = 0;
   protected String          rootDirectory      = "target/servers/";
@@ -79,6 +86,9 @@ public abstract class AbstractServerClusterTest {
   }
 
   public void init(final int servers) {
+    if (servers > MAX_SERVERS)
+      throw new IllegalArgumentException("Cannot start more than " + MAX_SERVERS + " servers");
+
     Orient.setRegisterDatabaseByPath(true);
     for (int i = 0; i < servers; ++i)
       serverInstance.add(new ServerRun(rootDirectory, "" + i));
@@ -168,7 +178,62 @@ public abstract class AbstractServerClusterTest {
   }
 
   protected String getDistributedServerConfiguration(final ServerRun server) {
-    return "orientdb-dserver-config-" + server.getServerId() + ".xml";
+    final String resource = "orientdb-dserver-config-" + server.getServerId() + ".xml";
+    if (getClass().getClassLoader().getResource(resource) != null)
+      return resource;
+
+    // ONLY THE FIRST 3 SERVERS HAVE THEIR OWN CONFIGURATION
+    try {
+      return createServerConfiguration(server);
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot create the configuration of server " + server.getServerId(), e);
+    }
+  }
+
+  /**
+   * Creates the configuration of a server beyond the configured ones from the configuration of the first server, with its own node
+   * name and Hazelcast port. Its Hazelcast instance joins through the ports of all the other servers.
+   * 
+   * @return The path of the server configuration file
+   */
+  protected String createServerConfiguration(final ServerRun server) throws IOException {
+    final int id = Integer.parseInt(server.getServerId());
+
+    final StringBuilder members = new StringBuilder();
+    for (int i = 0; i < serverInstance.size(); ++i)
+      if (i != id)
+        members.append("<member>127.0.0.1:").append(HAZELCAST_PORT + i).append("</member>");
+
+    final File directory = new File(rootDirectory);
+    directory.mkdirs();
+
+    final File hazelcast = new File(directory, "hazelcast-" + id + ".xml");
+    writeFile(
+        hazelcast,
+        readResource("hazelcast-0.xml").replace(">" + HAZELCAST_PORT + "</port>", ">" + (HAZELCAST_PORT + id) + "</port>")
+            .replaceAll("(?s)<tcp-ip enabled=\"true\">.*</tcp-ip>", "<tcp-ip enabled=\"true\">" + members + "</tcp-ip>"));
+
+    // THE BINARY PORTS GO UP TO THE FIRST HAZELCAST PORT
+    final File config = new File(directory, "orientdb-dserver-config-" + id + ".xml");
+    writeFile(config, readResource("orientdb-dserver-config-0.xml").replace("europe0", "europe" + id)
+        .replace("src/test/resources/hazelcast-0.xml", hazelcast.getPath()).replace("2424-2430", "2424-" + (HAZELCAST_PORT - 1)));
+    return config.getPath();
+  }
+
+  private String readResource(final String iName) throws IOException {
+    final InputStream stream = getClass().getClassLoader().getResourceAsStream(iName);
+    if (stream == null)
+      throw new IOException("Resource " + iName + " not found");
+    return OIOUtils.readStreamAsString(stream);
+  }
+
+  private static void writeFile(final File iFile, final String iContent) throws IOException {
+    final FileWriter writer = new FileWriter(iFile);
+    try {
+      writer.write(iContent);
+    } finally {
+      writer.close();
+    }
   }
 
 }
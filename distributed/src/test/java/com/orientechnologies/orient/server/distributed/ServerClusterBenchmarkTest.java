@@ -0,0 +1,305 @@
+/*
+ * Copyright 2010-2013 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.distributed;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentPool;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.server.hazelcast.OHazelcastPlugin;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the replication throughput and latency of a cluster of servers created in the same JVM and joined through Hazelcast TCP
+ * discovery. Every server runs concurrent workers executing a mix of writes and reads; at the end the throughput, the latency
+ * percentiles and the time needed by all the nodes to converge to the same content are reported. A node can be killed and
+ * restarted while the workload is running. The benchmark runs as a test only with -Dbenchmark=true, for example:
+ * <code>mvn test -Dtest=ServerClusterBenchmarkTest -Dbenchmark=true</code>. The settings are read from the system properties:
+ * <ul>
+ * <li>benchmark.servers: number of servers, up to 10 (default 3)</li>
+ * <li>benchmark.workers: workers per server (default 4)</li>
+ * <li>benchmark.operations: operations per worker (default 1000)</li>
+ * <li>benchmark.reads: percentage of reads (default 50)</li>
+ * <li>benchmark.writeQuorum, benchmark.readQuorum: quorums to set, -1 to keep the configured ones (default -1)</li>
+ * <li>benchmark.killServer: index of the server to kill, -1 to never kill (default -1)</li>
+ * <li>benchmark.killMode: "terminate" to crash the server terminating its Hazelcast instance, "shutdown" to shut it down gracefully
+ * (default terminate)</li>
+ * <li>benchmark.killAfter, benchmark.restartAfter: milliseconds before to kill and to restart the server (default 2000)</li>
+ * <li>benchmark.convergenceTimeout: maximum milliseconds to wait for the nodes to converge (default 60000)</li>
+ * </ul>
+ */
+public class ServerClusterBenchmarkTest extends AbstractServerClusterTest {
+  protected static final String  CLASS_NAME         = "Benchmark";
+
+  protected int                  servers            = Integer.getInteger("benchmark.servers", 3);
+  protected int                  workers            = Integer.getInteger("benchmark.workers", 4);
+  protected int                  operations         = Integer.getInteger("benchmark.operations", 1000);
+  protected int                  readPercentage     = Integer.getInteger("benchmark.reads", 50);
+  protected int                  writeQuorum        = Integer.getInteger("benchmark.writeQuorum", -1);
+  protected int                  readQuorum         = Integer.getInteger("benchmark.readQuorum", -1);
+  protected int                  killServer         = Integer.getInteger("benchmark.killServer", -1);
+  protected boolean              gracefulKill       = "shutdown".equalsIgnoreCase(System.getProperty("benchmark.killMode",
+                                                        "terminate"));
+  protected long                 killAfter          = Long.getLong("benchmark.killAfter", 2000);
+  protected long                 restartAfter       = Long.getLong("benchmark.restartAfter", 2000);
+  protected long                 convergenceTimeout = Long.getLong("benchmark.convergenceTimeout", 60000);
+
+  protected final Set<ServerRun> offline            = Collections.newSetFromMap(new ConcurrentHashMap<ServerRun, Boolean>());
+  protected final AtomicLong     errors             = new AtomicLong();
+
+  @Test
+  public void test() throws Exception {
+    Assume.assumeTrue(Boolean.getBoolean("benchmark"));
+
+    init(servers);
+    prepare(true);
+    execute();
+  }
+
+  public String getDatabaseName() {
+    return "benchmark";
+  }
+
+  protected String getDatabaseURL(final ServerRun server) {
+    return "plocal:" + server.getDatabasePath(getDatabaseName());
+  }
+
+  @Override
+  protected void onAfterDatabaseCreation(final ODatabaseDocumentTx db) {
+    final OClass cls = db.getMetadata().getSchema().createClass(CLASS_NAME);
+    cls.createProperty("worker", OType.INTEGER);
+    cls.createProperty("value", OType.STRING);
+  }
+
+  @Override
+  protected void executeTest() throws Exception {
+    setQuorums();
+
+    final long beginRecords = countRecords(serverInstance.get(0));
+
+    final List<Worker> workerList = new ArrayList<Worker>();
+    for (ServerRun server : serverInstance)
+      for (int i = 0; i < workers; ++i)
+        workerList.add(new Worker(workerList.size(), server));
+
+    final ExecutorService executor = Executors.newCachedThreadPool();
+
+    System.out.println("Running " + workerList.size() + " workers executing " + operations + " operations each (reads="
+        + readPercentage + "%)...");
+
+    final Future<Void> killer = killServer > -1 ? executor.submit(new Killer(serverInstance.get(killServer))) : null;
+
+    final long begin = System.currentTimeMillis();
+    for (Future<Void> f : executor.invokeAll(workerList))
+      f.get();
+    final long elapsed = Math.max(1, System.currentTimeMillis() - begin);
+
+    if (killer != null)
+      killer.get();
+
+    executor.shutdown();
+    executor.awaitTermination(1, TimeUnit.MINUTES);
+
+    long writes = 0;
+    long reads = 0;
+    for (Worker w : workerList) {
+      writes += w.writes;
+      reads += w.reads;
+    }
+
+    System.out.println("\nBenchmark results (" + serverInstance.size() + " servers, " + workerList.size() + " workers):");
+    System.out.println("- elapsed: " + elapsed + "ms, errors: " + errors.get());
+    report("writes", workerList, writes, elapsed, true);
+    report("reads", workerList, reads, elapsed, false);
+
+    final long convergence = waitForConvergence(beginRecords + writes);
+    if (convergence > -1)
+      System.out.println("- convergence: " + convergence + "ms");
+    else {
+      System.out.println("- convergence: not reached in " + convergenceTimeout + "ms, expected records: " + (beginRecords + writes));
+      for (ServerRun server : serverInstance)
+        System.out.println("- server " + server.getServerId() + " records: " + countRecords(server));
+    }
+
+    for (ServerRun server : serverInstance) {
+      final ODistributedDatabase db = server.getServerInstance().getDistributedManager().getMessageService()
+          .getDatabase(getDatabaseName());
+      if (db != null)
+        System.out.println("- server " + server.getServerId() + " metrics: " + db.getMetrics().toMap());
+    }
+  }
+
+  protected void setQuorums() {
+    if (writeQuorum < 0 && readQuorum < 0)
+      return;
+
+    final OHazelcastPlugin manager = (OHazelcastPlugin) serverInstance.get(0).getServerInstance().getDistributedManager();
+    final ODocument cfg = manager.getDatabaseConfiguration(getDatabaseName()).serialize().copy();
+    if (writeQuorum > -1)
+      cfg.field("writeQuorum", writeQuorum);
+    if (readQuorum > -1)
+      cfg.field("readQuorum", readQuorum);
+
+    // SAVE AND SEND THE NEW CONFIGURATION TO THE OTHER NODES
+    manager.updateCachedDatabaseConfiguration(getDatabaseName(), cfg, true, true);
+  }
+
+  protected void report(final String iName, final List<Worker> iWorkers, final long iTotal, final long iElapsed,
+      final boolean iWrites) {
+    final long[] latencies = new long[(int) iTotal];
+    int i = 0;
+    for (Worker w : iWorkers) {
+      final int count = iWrites ? w.writes : w.reads;
+      System.arraycopy(iWrites ? w.writeLatencies : w.readLatencies, 0, latencies, i, count);
+      i += count;
+    }
+    Arrays.sort(latencies);
+
+    System.out.println(String.format("- %s: %d, throughput: %.1f ops/sec, latency p50: %.3fms p99: %.3fms max: %.3fms", iName,
+        iTotal, iTotal * 1000f / iElapsed, percentile(latencies, 50) / 1000000f, percentile(latencies, 99) / 1000000f,
+        percentile(latencies, 100) / 1000000f));
+  }
+
+  /**
+   * Waits for all the servers to contain the same records, at least the ones written with success. The writes failed on the client
+   * side could have been applied anyway.
+   *
+   * @return the milliseconds waited, or -1 if the timeout expired
+   */
+  protected long waitForConvergence(final long iExpected) throws InterruptedException {
+    final long begin = System.currentTimeMillis();
+    while (System.currentTimeMillis() - begin < convergenceTimeout) {
+      final long records = countRecords(serverInstance.get(0));
+
+      boolean converged = records >= iExpected;
+      for (int i = 1; converged && i < serverInstance.size(); ++i)
+        converged = countRecords(serverInstance.get(i)) == records;
+
+      if (converged)
+        return System.currentTimeMillis() - begin;
+
+      Thread.sleep(10);
+    }
+    return -1;
+  }
+
+  protected long countRecords(final ServerRun server) {
+    final ODatabaseDocumentTx database = ODatabaseDocumentPool.global().acquire(getDatabaseURL(server), "admin", "admin");
+    try {
+      return database.countClass(CLASS_NAME);
+    } finally {
+      database.close();
+    }
+  }
+
+  protected static long percentile(final long[] iSorted, final int iPercentile) {
+    if (iSorted.length == 0)
+      return 0;
+    final int index = (int) Math.ceil(iSorted.length * iPercentile / 100d) - 1;
+    return iSorted[Math.max(0, index)];
+  }
+
+  class Worker implements Callable<Void> {
+    private final int        id;
+    private final ServerRun  server;
+    private final long[]     writeLatencies = new long[operations];
+    private final long[]     readLatencies  = new long[operations];
+    private final List<ORID> written        = new ArrayList<ORID>();
+    private int              writes         = 0;
+    private int              reads          = 0;
+
+    public Worker(final int iId, final ServerRun iServer) {
+      id = iId;
+      server = iServer;
+    }
+
+    @Override
+    public Void call() throws Exception {
+      final Random random = new Random(id);
+
+      for (int i = 0; i < operations; ++i) {
+        while (offline.contains(server))
+          // THE SERVER HAS BEEN KILLED: WAIT FOR THE RESTART
+          Thread.sleep(10);
+
+        final boolean read = !written.isEmpty() && random.nextInt(100) < readPercentage;
+
+        final ODatabaseDocumentTx database = ODatabaseDocumentPool.global().acquire(getDatabaseURL(server), "admin", "admin");
+        try {
+          final long begin = System.nanoTime();
+          if (read) {
+            database.load(written.get(random.nextInt(written.size())));
+            readLatencies[reads++] = System.nanoTime() - begin;
+          } else {
+            final ODocument doc = new ODocument(CLASS_NAME).fields("worker", id, "value", "value" + i);
+            database.save(doc);
+            writeLatencies[writes++] = System.nanoTime() - begin;
+            written.add(doc.getIdentity());
+          }
+        } catch (Exception e) {
+          errors.incrementAndGet();
+        } finally {
+          database.close();
+        }
+      }
+      return null;
+    }
+  }
+
+  class Killer implements Callable<Void> {
+    private final ServerRun server;
+
+    public Killer(final ServerRun iServer) {
+      server = iServer;
+    }
+
+    @Override
+    public Void call() throws Exception {
+      Thread.sleep(killAfter);
+
+      System.out.println((gracefulKill ? "Shutting down" : "Killing") + " server " + server.getServerId() + "...");
+      offline.add(server);
+      if (gracefulKill)
+        server.shutdownServer();
+      else
+        server.terminateServer();
+
+      Thread.sleep(restartAfter);
+
+      System.out.println("Restarting server " + server.getServerId() + "...");
+      server.startServer(getDistributedServerConfiguration(server));
+      offline.remove(server);
+      return null;
+    }
+  }
+}
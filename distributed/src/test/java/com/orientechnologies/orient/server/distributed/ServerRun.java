@@ -19,10 +19,13 @@ import com.orientechnologies.common.io.OFileUtils;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.server.OServer;
+import com.orientechnologies.orient.server.hazelcast.OHazelcastPlugin;
 import com.orientechnologies.orient.server.network.protocol.binary.ONetworkProtocolBinary;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 
 /**
@@ -97,9 +100,14 @@ public class ServerRun {
 
     System.setProperty("ORIENTDB_HOME", getServerHome());
 
+    // THE CONFIGURATION IS A RESOURCE OR A FILE CREATED BY THE TEST
+    InputStream config = getClass().getClassLoader().getResourceAsStream(iServerConfigFile);
+    if (config == null)
+      config = new FileInputStream(iServerConfigFile);
+
     server = new OServer();
     server.setServerRootDirectory(getServerHome());
-    server.startup(getClass().getClassLoader().getResourceAsStream(iServerConfigFile));
+    server.startup(config);
     server.activate();
     return server;
   }
@@ -109,6 +117,22 @@ public class ServerRun {
       server.shutdown();
   }
 
+  /**
+   * Simulates a crash of the node: the Hazelcast instance is terminated without leaving the cluster gracefully, so the other nodes
+   * lose it with its pending requests and responses. The server is then shut down only to release its ports and storages to
+   * restart it in the same JVM.
+   */
+  protected void terminateServer() {
+    if (server == null)
+      return;
+
+    final ODistributedServerManager manager = server.getDistributedManager();
+    if (manager instanceof OHazelcastPlugin)
+      ((OHazelcastPlugin) manager).getHazelcastInstance().getLifecycleService().terminate();
+
+    server.shutdown();
+  }
+
   protected String getServerHome() {
     return getServerHome(serverId);
   }
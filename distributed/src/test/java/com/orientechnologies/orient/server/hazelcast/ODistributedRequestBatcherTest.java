@@ -0,0 +1,171 @@
+package com.orientechnologies.orient.server.hazelcast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ODistributedRequestBatcherTest {
+
+  @Test
+  public void testFlushWhenFull() throws Exception {
+    final List<List<Integer>> batches = Collections.synchronizedList(new ArrayList<List<Integer>>());
+    final ODistributedRequestBatcher<Integer> batcher = new ODistributedRequestBatcher<Integer>(3, 60000) {
+      @Override
+      protected void flush(final List<Integer> iRequests) {
+        batches.add(iRequests);
+      }
+    };
+
+    // THE FIRST REQUEST WAITS UNTIL THE BATCH IS FULL, THE MIDDLE ONE UNTIL THE BATCH IS FLUSHED
+    final Thread first = add(batcher, 0);
+    while (first.getState() != Thread.State.TIMED_WAITING)
+      Thread.sleep(10);
+
+    final Thread middle = add(batcher, 1);
+    while (middle.getState() != Thread.State.WAITING)
+      Thread.sleep(10);
+    Assert.assertTrue(batches.isEmpty());
+
+    batcher.add(2);
+    first.join(10000);
+    middle.join(10000);
+
+    Assert.assertFalse(first.isAlive());
+    Assert.assertFalse(middle.isAlive());
+    Assert.assertEquals(1, batches.size());
+    Assert.assertEquals(3, batches.get(0).size());
+    Assert.assertEquals(Integer.valueOf(0), batches.get(0).get(0));
+  }
+
+  @Test
+  public void testFlushAfterWindow() throws Exception {
+    final List<List<Integer>> batches = new ArrayList<List<Integer>>();
+    final ODistributedRequestBatcher<Integer> batcher = new ODistributedRequestBatcher<Integer>(100, 10) {
+      @Override
+      protected void flush(final List<Integer> iRequests) {
+        batches.add(iRequests);
+      }
+    };
+
+    batcher.add(0);
+    batcher.add(1);
+
+    Assert.assertEquals(2, batches.size());
+    Assert.assertEquals(Collections.singletonList(0), batches.get(0));
+    Assert.assertEquals(Collections.singletonList(1), batches.get(1));
+  }
+
+  @Test
+  public void testConcurrentRequestsAreFlushedOnce() throws Exception {
+    final int threads = 8;
+    final int requestsPerThread = 500;
+
+    final List<Integer> flushed = Collections.synchronizedList(new ArrayList<Integer>());
+    final List<Integer> sizes = Collections.synchronizedList(new ArrayList<Integer>());
+    final ODistributedRequestBatcher<Integer> batcher = new ODistributedRequestBatcher<Integer>(16, 1) {
+      @Override
+      protected void flush(final List<Integer> iRequests) {
+        sizes.add(iRequests.size());
+        flushed.addAll(iRequests);
+      }
+    };
+
+    final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+    final CountDownLatch start = new CountDownLatch(1);
+    final List<Thread> workers = new ArrayList<Thread>();
+    for (int t = 0; t < threads; ++t) {
+      final int base = t * requestsPerThread;
+      final Thread thread = new Thread() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+            for (int i = 0; i < requestsPerThread; ++i) {
+              batcher.add(base + i);
+              // RETURNED ONCE FLUSHED
+              Assert.assertTrue(flushed.contains(base + i));
+            }
+          } catch (Throwable e) {
+            errors.add(e);
+          }
+        }
+      };
+      workers.add(thread);
+      thread.start();
+    }
+
+    start.countDown();
+    for (Thread thread : workers)
+      thread.join();
+
+    Assert.assertTrue(errors.toString(), errors.isEmpty());
+    Assert.assertEquals(threads * requestsPerThread, flushed.size());
+    for (Integer size : sizes)
+      Assert.assertTrue(size <= 16);
+
+    // THE REQUESTS OF EACH THREAD ARE FLUSHED IN THE ORDER THEY HAVE BEEN ADDED
+    final int[] last = new int[threads];
+    Arrays.fill(last, -1);
+    for (Integer req : flushed) {
+      final int thread = req / requestsPerThread;
+      Assert.assertTrue(req > last[thread]);
+      last[thread] = req;
+    }
+  }
+
+  @Test
+  public void testFlushErrorIsThrownToAllTheRequests() throws Exception {
+    final ODistributedRequestBatcher<Integer> batcher = new ODistributedRequestBatcher<Integer>(2, 60000) {
+      @Override
+      protected void flush(final List<Integer> iRequests) {
+        throw new IllegalStateException("flush failed");
+      }
+    };
+
+    final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+    final Thread first = new Thread() {
+      @Override
+      public void run() {
+        try {
+          batcher.add(0);
+        } catch (Throwable e) {
+          errors.add(e);
+        }
+      }
+    };
+    first.start();
+    while (first.getState() != Thread.State.TIMED_WAITING)
+      Thread.sleep(10);
+
+    try {
+      batcher.add(1);
+      Assert.fail();
+    } catch (IllegalStateException e) {
+      // EXPECTED
+    }
+    first.join(10000);
+
+    Assert.assertEquals(1, errors.size());
+    Assert.assertTrue(errors.get(0) instanceof IllegalStateException);
+  }
+
+  private static Thread add(final ODistributedRequestBatcher<Integer> iBatcher, final int iRequest) {
+    final Thread thread = new Thread() {
+      @Override
+      public void run() {
+        try {
+          iBatcher.add(iRequest);
+        } catch (Exception e) {
+          throw new RuntimeException(e);
+        }
+      }
+    };
+    thread.start();
+    return thread;
+  }
+}
@@ -0,0 +1,151 @@
+package com.orientechnologies.orient.server.hazelcast;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.version.OVersionFactory;
+import com.orientechnologies.orient.server.distributed.ODistributedRequest;
+import com.orientechnologies.orient.server.distributed.ODistributedRequest.EXECUTION_MODE;
+import com.orientechnologies.orient.server.distributed.task.OAbstractRemoteTask;
+import com.orientechnologies.orient.server.distributed.task.ODeleteRecordTask;
+import com.orientechnologies.orient.server.distributed.task.OSQLCommandTask;
+
+public class ODistributedWorkerTest {
+  private OHazelcastDistributedDatabase distributed;
+  private Object                        applyThreads;
+
+  @Before
+  public void before() throws Exception {
+    distributed = Mockito.mock(OHazelcastDistributedDatabase.class);
+    distributed.waitForMessageId = new AtomicLong(-1);
+
+    final Field manager = OHazelcastDistributedDatabase.class.getDeclaredField("manager");
+    manager.setAccessible(true);
+    manager.set(distributed, new OHazelcastPlugin());
+
+    applyThreads = OGlobalConfiguration.DISTRIBUTED_APPLY_THREADS.getValue();
+  }
+
+  @After
+  public void after() {
+    OGlobalConfiguration.DISTRIBUTED_APPLY_THREADS.setValue(applyThreads);
+  }
+
+  @Test
+  public void testRestoreEndsWhenAllThePendingMessagesAreDiscarded() throws Exception {
+    // THE DEPLOYED DATABASE ALREADY CONTAINS ALL THE QUEUED OPERATIONS
+    final BlockingQueue<Object> queue = new LinkedBlockingQueue<Object>();
+    for (long id = 0; id < 5; ++id)
+      queue.add(request(id, 0));
+    distributed.waitForMessageId.set(10);
+
+    final ODistributedWorker worker = new ODistributedWorker(distributed, queue, "test", 0, true);
+    worker.start();
+    try {
+      worker.join(5000);
+      Assert.assertFalse("The worker is still waiting for new messages", worker.isAlive());
+      Assert.assertTrue(queue.isEmpty());
+    } finally {
+      worker.interrupt();
+    }
+  }
+
+  @Test
+  public void testPartitionsApplyTheOperationsOfEachClusterInOrder() throws Exception {
+    OGlobalConfiguration.DISTRIBUTED_APPLY_THREADS.setValue(3);
+
+    // 4 CLUSTERS ON 3 PARTITIONS: CLUSTERS 0 AND 3 SHARE THE SAME PARTITION
+    final BlockingQueue<Object> queue = new LinkedBlockingQueue<Object>();
+    for (long id = 0; id < 60; ++id)
+      queue.add(id == 30 ? request(id, new OSQLCommandTask(new OCommandSQL("select from V"))) : request(id, (int) (id % 4)));
+
+    final List<ODistributedRequest> applied = Collections.synchronizedList(new ArrayList<ODistributedRequest>());
+    final RecordingWorker worker = new RecordingWorker(distributed, queue, applied, null);
+    worker.start();
+    try {
+      final long deadline = System.currentTimeMillis() + 10000;
+      while (applied.size() < 60 && System.currentTimeMillis() < deadline)
+        Thread.sleep(10);
+      Assert.assertEquals(60, applied.size());
+    } finally {
+      worker.interrupt();
+      worker.join(5000);
+    }
+
+    // THE OPERATIONS OF EACH CLUSTER ARE APPLIED IN THE ORDER THEY HAVE BEEN RECEIVED, EVEN AFTER A FAILED ONE
+    final long[] lastByCluster = new long[] { -1, -1, -1, -1 };
+    int barrier = -1;
+    for (int i = 0; i < applied.size(); ++i) {
+      final ODistributedRequest req = applied.get(i);
+      if (req.getTask() instanceof ODeleteRecordTask) {
+        final int clusterId = ((ODeleteRecordTask) req.getTask()).getRid().getClusterId();
+        Assert.assertTrue(req.getId() > lastByCluster[clusterId]);
+        lastByCluster[clusterId] = req.getId();
+      } else
+        barrier = i;
+    }
+
+    // THE COMMAND IS APPLIED AFTER ALL THE PREVIOUS OPERATIONS AND BEFORE ALL THE FOLLOWING ONES
+    Assert.assertEquals(30, barrier);
+    for (int i = 0; i < applied.size(); ++i)
+      Assert.assertEquals(i < barrier, applied.get(i).getId() < 30);
+  }
+
+  private static ODistributedRequest request(final long iId, final int iClusterId) {
+    return request(iId, new ODeleteRecordTask(new ORecordId(iClusterId, OClusterPositionFactory.INSTANCE.valueOf(iId)),
+        OVersionFactory.instance().createVersion()));
+  }
+
+  private static ODistributedRequest request(final long iId, final OAbstractRemoteTask iTask) {
+    final OHazelcastDistributedRequest req = new OHazelcastDistributedRequest("node", "test", iTask, EXECUTION_MODE.NO_RESPONSE);
+    req.setId(iId);
+    return req;
+  }
+
+  /**
+   * Records the applied operations instead of executing them. Operations take a random time and one of them fails.
+   */
+  private static class RecordingWorker extends ODistributedWorker {
+    private final List<ODistributedRequest> applied;
+
+    public RecordingWorker(final OHazelcastDistributedDatabase iDistributed, final BlockingQueue<Object> iRequestQueue,
+        final List<ODistributedRequest> iApplied, final ODistributedWorker iParent) {
+      super(iDistributed, iRequestQueue, "test", 0, false, iParent);
+      applied = iApplied;
+    }
+
+    @Override
+    protected ODistributedWorker createPartition(final int i) {
+      return new RecordingWorker(distributed, new LinkedBlockingQueue<Object>(), applied, this);
+    }
+
+    @Override
+    protected void onMessage(final ODistributedRequest iRequest) {
+      try {
+        Thread.sleep((long) (Math.random() * 3));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+
+      applied.add(iRequest);
+
+      if (iRequest.getId() == 7)
+        throw new IllegalStateException("Simulated failure applying operation " + iRequest.getId());
+    }
+  }
+}
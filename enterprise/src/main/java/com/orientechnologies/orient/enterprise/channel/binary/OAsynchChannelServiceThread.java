@@ -16,10 +16,14 @@
 package com.orientechnologies.orient.enterprise.channel.binary;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 import com.orientechnologies.common.thread.OSoftThread;
 import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.version.ORecordVersion;
 
 /**
  * Service thread that catches internal messages sent by the server
@@ -52,6 +56,14 @@ public class OAsynchChannelServiceThread extends OSoftThread {
       case OChannelBinaryProtocol.REQUEST_PUSH_DISTRIB_CONFIG:
         obj = network.readBytes();
         break;
+
+      case OChannelBinaryProtocol.REQUEST_PUSH_RECORD_INVALIDATE:
+        final int tot = network.readInt();
+        final Map<ORID, ORecordVersion> invalidated = new HashMap<ORID, ORecordVersion>(tot);
+        for (int i = 0; i < tot; ++i)
+          invalidated.put(network.readRID(), network.readVersion());
+        obj = invalidated;
+        break;
       }
 
       if (remoteServerEventListener != null)
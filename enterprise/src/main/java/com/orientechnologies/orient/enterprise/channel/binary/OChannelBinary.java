@@ -18,6 +18,7 @@ package com.orientechnologies.orient.enterprise.channel.binary;
 import com.orientechnologies.common.io.OIOException;
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.orient.core.config.OContextConfiguration;
+import com.orientechnologies.orient.core.compression.OCompression;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.id.OClusterPosition;
 import com.orientechnologies.orient.core.id.OClusterPositionFactory;
@@ -399,6 +400,19 @@ public abstract class OChannelBinary extends OChannel {
     }
   }
 
+  /**
+   * Compresses the data exchanged from now on with the algorithm negotiated with the other peer. Must be called by both the peers
+   * right after the negotiation, when no data is in flight. Frames smaller than the threshold are sent raw. Written and read frames
+   * share the same bound, {@link OGlobalConfiguration#NETWORK_BINARY_MAX_CONTENT_LENGTH}, so the other peer accepts every frame.
+   */
+  public void enableCompression(final OCompression iCompression, final int iThreshold) {
+    inStream = new OChannelBinaryCompressedInputStream(inStream, iCompression, maxChunkSize);
+    outStream = new OChannelBinaryCompressedOutputStream(outStream, iCompression, iThreshold, maxChunkSize);
+
+    in = new DataInputStream(inStream);
+    out = new DataOutputStream(outStream);
+  }
+
   public void clearInput() throws IOException {
     if (in == null)
       return;
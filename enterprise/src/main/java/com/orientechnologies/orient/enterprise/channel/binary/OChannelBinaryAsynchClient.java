@@ -20,6 +20,7 @@ import com.orientechnologies.common.concur.lock.OLockException;
 import com.orientechnologies.common.exception.OException;
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.common.util.OPair;
+import com.orientechnologies.orient.core.compression.OCompressionFactory;
 import com.orientechnologies.orient.core.config.OContextConfiguration;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.exception.OStorageException;
@@ -39,17 +40,21 @@ import java.net.Socket;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
 
 public class OChannelBinaryAsynchClient extends OChannelBinary {
   protected final int                          socketTimeout;                                               // IN MS
   protected final short                        srvProtocolVersion;
-  private final Condition                      readCondition = getLockRead().getUnderlying().newCondition();
+  private final Condition                      readCondition    = getLockRead().getUnderlying().newCondition();
   private final int                            maxUnreadResponses;
+  private final AtomicInteger                  pendingResponses = new AtomicInteger();
   private String                               serverURL;
-  private volatile boolean                     channelRead   = false;
+  private volatile boolean                     channelRead      = false;
   private byte                                 currentStatus;
   private int                                  currentSessionId;
+  private int                                  currentRequestId;
+  private int                                  lastRequestId;
   private volatile OAsynchChannelServiceThread serviceThread;
 
   public OChannelBinaryAsynchClient(final String remoteHost, final int remotePort, final String iDatabaseName,
@@ -101,10 +106,45 @@ public class OChannelBinaryAsynchClient extends OChannelBinary {
               + ". You could not use the full features of the newer version. Assure to have the same versions on both");
     }
 
+    final String compression = iConfig.getValueAsString(OGlobalConfiguration.NETWORK_BINARY_COMPRESSION);
+    if (compression != null && !compression.isEmpty() && srvProtocolVersion >= OChannelBinaryProtocol.PROTOCOL_VERSION_30)
+      negotiateCompression(compression, iConfig.getValueAsInteger(OGlobalConfiguration.NETWORK_BINARY_COMPRESSION_THRESHOLD));
+
     if (asynchEventListener != null)
       serviceThread = new OAsynchChannelServiceThread(asynchEventListener, this);
   }
 
+  /**
+   * Asks the server to compress the data exchanged on this channel. It's the first request sent and the service thread is not
+   * started yet, so no other data can be in flight when the streams are switched.
+   */
+  private void negotiateCompression(final String iCompression, final int iThreshold) throws IOException {
+    if (!OCompressionFactory.INSTANCE.getCompressions().contains(iCompression)) {
+      OLogManager.instance().warn(this, "Unknown compression '%s' for the binary channels: the data is sent uncompressed",
+          iCompression);
+      return;
+    }
+
+    writeByte(OChannelBinaryProtocol.REQUEST_CHANNEL_COMPRESSION);
+    writeInt(-1);
+    writeString(iCompression);
+    flush();
+
+    final byte status = readByte();
+    readInt();
+    if (status != OChannelBinaryProtocol.RESPONSE_STATUS_OK) {
+      close();
+      throw new ONetworkProtocolException("Cannot negotiate the compression of the channel with the remote server "
+          + socket.getRemoteSocketAddress());
+    }
+
+    final String accepted = readString();
+    if (accepted != null && !accepted.isEmpty())
+      enableCompression(OCompressionFactory.INSTANCE.getCompression(accepted), iThreshold);
+    else
+      OLogManager.instance().debug(this, "The remote server refused the compression '%s' of the channel", iCompression);
+  }
+
   @SuppressWarnings("unchecked")
   private static RuntimeException createException(final String iClassName, final String iMessage, final Exception iPrevious) {
     RuntimeException rootException = null;
@@ -156,11 +196,51 @@ public class OChannelBinaryAsynchClient extends OChannelBinary {
     releaseWriteLock();
   }
 
+  /**
+   * Writes the header of a request. If the server supports it, the request is tagged with a new request id: the response will be
+   * tagged with the same id, so more requests can be sent before reading their responses. The write lock must be held.
+   * 
+   * @return the request id to pass to {@link #beginResponse(int, int, long)}, or -1 if the request is not tagged
+   */
+  public int writeRequestHeader(final byte iCommand, final int iSessionId, final boolean iTagged) throws IOException {
+    if (!iTagged || !isRequestIdSupported()) {
+      writeByte(iCommand);
+      writeInt(iSessionId);
+      return -1;
+    }
+
+    lastRequestId = (lastRequestId + 1) & Integer.MAX_VALUE;
+
+    writeByte((byte) (iCommand | OChannelBinaryProtocol.REQUEST_ID_FLAG));
+    writeInt(iSessionId);
+    writeInt(lastRequestId);
+    pendingResponses.incrementAndGet();
+    return lastRequestId;
+  }
+
+  public boolean isRequestIdSupported() {
+    return srvProtocolVersion >= OChannelBinaryProtocol.PROTOCOL_VERSION_26;
+  }
+
+  /**
+   * Tells if tagged requests are waiting for their response, so the channel cannot be closed even if it's back in the pool.
+   */
+  public boolean hasPendingResponses() {
+    return pendingResponses.get() > 0;
+  }
+
   public void beginResponse(final int iRequesterId) throws IOException {
     beginResponse(iRequesterId, timeout);
   }
 
   public void beginResponse(final int iRequesterId, final long iTimeout) throws IOException {
+    beginResponse(iRequesterId, -1, iTimeout);
+  }
+
+  /**
+   * Waits for the response of a request. Tagged requests are matched by request id, the others by session id.
+   */
+  public void beginResponse(final int iRequesterId, final int iRequestId, final long iTimeout) throws IOException {
     try {
       int unreadResponse = 0;
       final long startClock = iTimeout > 0 ? System.currentTimeMillis() : 0;
@@ -181,12 +261,20 @@ public class OChannelBinaryAsynchClient extends OChannelBinary {
           channelRead = true;
 
           try {
-            currentStatus = readByte();
+            final byte status = readByte();
             currentSessionId = readInt();
 
+            if ((status & OChannelBinaryProtocol.REQUEST_ID_FLAG) != 0) {
+              currentStatus = (byte) (status & ~OChannelBinaryProtocol.REQUEST_ID_FLAG);
+              currentRequestId = readInt();
+            } else {
+              currentStatus = status;
+              currentRequestId = -1;
+            }
+
             if (debug)
-              OLogManager.instance().debug(this, "%s - Read response: %d-%d", socket.getLocalAddress(), (int) currentStatus,
-                  currentSessionId);
+              OLogManager.instance().debug(this, "%s - Read response: %d-%d-%d", socket.getLocalAddress(), (int) currentStatus,
+                  currentSessionId, currentRequestId);
 
           } catch (IOException e) {
             // UNLOCK THE RESOURCE AND PROPAGATES THE EXCEPTION
@@ -197,14 +285,17 @@ public class OChannelBinaryAsynchClient extends OChannelBinary {
           }
         }
 
-        if (currentSessionId == iRequesterId)
+        if (iRequestId > -1 ? currentRequestId == iRequestId : currentRequestId == -1 && currentSessionId == iRequesterId) {
           // IT'S FOR ME
+          if (iRequestId > -1)
+            pendingResponses.decrementAndGet();
           break;
+        }
 
         try {
           if (debug)
-            OLogManager.instance().debug(this, "%s - Session %d skip response, it is for %d", socket.getLocalAddress(),
-                iRequesterId, currentSessionId);
+            OLogManager.instance().debug(this, "%s - Session %d/%d skip response, it is for %d/%d", socket.getLocalAddress(),
+                iRequesterId, iRequestId, currentSessionId, currentRequestId);
 
           if (iTimeout > 0 && (System.currentTimeMillis() - startClock) > iTimeout) {
             // CLOSE THE SOCKET TO CHANNEL TO AVOID FURTHER DIRTY DATA
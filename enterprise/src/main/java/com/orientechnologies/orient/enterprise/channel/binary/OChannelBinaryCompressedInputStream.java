@@ -0,0 +1,107 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.enterprise.channel.binary;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.orientechnologies.orient.core.compression.OCompression;
+
+/**
+ * InputStream that reads the frames sent by {@link OChannelBinaryCompressedOutputStream}, uncompressing the compressed ones.
+ *
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ */
+public class OChannelBinaryCompressedInputStream extends InputStream {
+  private final DataInputStream in;
+  private final OCompression    compression;
+  private final int             maxFrameSize;
+  private byte[]                frame  = new byte[0];
+  private byte[]                buffer = frame;
+  private int                   pos    = 0;
+  private int                   total  = 0;
+
+  public OChannelBinaryCompressedInputStream(final InputStream iIn, final OCompression iCompression, final int iMaxFrameSize) {
+    in = new DataInputStream(iIn);
+    compression = iCompression;
+    maxFrameSize = iMaxFrameSize;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (pos >= total && !fetch())
+      return -1;
+
+    return buffer[pos++] & 0xFF;
+  }
+
+  @Override
+  public int read(final byte[] iBuffer, final int iOffset, final int iLength) throws IOException {
+    if (iLength == 0)
+      return 0;
+
+    if (pos >= total && !fetch())
+      return -1;
+
+    final int read = Math.min(iLength, total - pos);
+    System.arraycopy(buffer, pos, iBuffer, iOffset, read);
+    pos += read;
+    return read;
+  }
+
+  /**
+   * Returns the bytes left in the current frame, or the bytes not read yet from the underlying stream: a new frame is on the way.
+   */
+  @Override
+  public int available() throws IOException {
+    final int remaining = total - pos;
+    return remaining > 0 ? remaining : in.available();
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  private boolean fetch() throws IOException {
+    final int length;
+    try {
+      length = in.readInt();
+    } catch (EOFException e) {
+      return false;
+    }
+
+    final int size = Math.abs(length);
+    if (size > maxFrameSize)
+      throw new ONetworkProtocolException("Bad frame size received: " + size + " when the maximum can be: " + maxFrameSize);
+
+    if (frame.length < size)
+      frame = new byte[size];
+    in.readFully(frame, 0, size);
+
+    if (length < 0) {
+      buffer = compression.uncompress(frame, 0, size);
+      total = buffer.length;
+    } else {
+      buffer = frame;
+      total = size;
+    }
+    pos = 0;
+    return true;
+  }
+}
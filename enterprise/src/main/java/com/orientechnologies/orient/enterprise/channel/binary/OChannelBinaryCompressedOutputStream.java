@@ -0,0 +1,132 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.enterprise.channel.binary;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.orientechnologies.common.profiler.OAbstractProfiler.OProfilerHookValue;
+import com.orientechnologies.common.profiler.OProfilerMBean;
+import com.orientechnologies.common.profiler.OProfilerMBean.METRIC_TYPE;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.compression.OCompression;
+
+/**
+ * OutputStream that sends the data written between two flushes as one frame, compressed if it's not smaller than the threshold.
+ * Each frame starts with the length of its content, negative if the content is compressed.
+ *
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ * @see OChannelBinaryCompressedInputStream
+ */
+public class OChannelBinaryCompressedOutputStream extends OutputStream {
+  private static final OProfilerMBean PROFILER                    = Orient.instance().getProfiler();
+  private static final AtomicLong     metricGlobalRawBytes        = new AtomicLong();
+  private static final AtomicLong     metricGlobalCompressedBytes = new AtomicLong();
+  private final DataOutputStream      out;
+  private final OCompression          compression;
+  private final int                   threshold;
+  private final byte[]                buffer;
+  private int                         pos                         = 0;
+
+  static {
+    final String profilerMetric = PROFILER.getProcessMetric("network.channel.binary");
+
+    PROFILER.registerHookValue(profilerMetric + ".compressedBytes",
+        "Bytes of the compressed frames transmitted to all the network channels", METRIC_TYPE.SIZE, new OProfilerHookValue() {
+          public Object getValue() {
+            return metricGlobalCompressedBytes.get();
+          }
+        });
+    PROFILER.registerHookValue(profilerMetric + ".compressionSavedBytes",
+        "Bytes saved by compressing the frames transmitted to all the network channels", METRIC_TYPE.SIZE,
+        new OProfilerHookValue() {
+          public Object getValue() {
+            return metricGlobalRawBytes.get() - metricGlobalCompressedBytes.get();
+          }
+        });
+  }
+
+  public OChannelBinaryCompressedOutputStream(final OutputStream iOut, final OCompression iCompression, final int iThreshold,
+      final int iFrameSize) {
+    out = new DataOutputStream(iOut);
+    compression = iCompression;
+    threshold = iThreshold;
+    buffer = new byte[iFrameSize];
+  }
+
+  public static long getMetricCompressionSavedBytes() {
+    return metricGlobalRawBytes.get() - metricGlobalCompressedBytes.get();
+  }
+
+  @Override
+  public void write(final int iByte) throws IOException {
+    if (pos >= buffer.length)
+      writeFrame();
+
+    buffer[pos++] = (byte) iByte;
+  }
+
+  @Override
+  public void write(final byte[] iBuffer, int iOffset, int iLength) throws IOException {
+    while (iLength > 0) {
+      if (pos >= buffer.length)
+        writeFrame();
+
+      final int chunk = Math.min(iLength, buffer.length - pos);
+      System.arraycopy(iBuffer, iOffset, buffer, pos, chunk);
+      pos += chunk;
+      iOffset += chunk;
+      iLength -= chunk;
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    writeFrame();
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    flush();
+    out.close();
+  }
+
+  private void writeFrame() throws IOException {
+    if (pos == 0)
+      return;
+
+    if (pos >= threshold) {
+      final byte[] compressed = compression.compress(buffer, 0, pos);
+      if (compressed.length < pos) {
+        out.writeInt(-compressed.length);
+        out.write(compressed);
+
+        metricGlobalRawBytes.addAndGet(pos);
+        metricGlobalCompressedBytes.addAndGet(compressed.length);
+        pos = 0;
+        return;
+      }
+    }
+
+    // TOO SMALL OR NOT COMPRESSIBLE: SEND IT RAW
+    out.writeInt(pos);
+    out.write(buffer, 0, pos);
+    pos = 0;
+  }
+}
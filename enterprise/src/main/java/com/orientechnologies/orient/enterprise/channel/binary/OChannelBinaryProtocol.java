@@ -67,6 +67,13 @@ public class OChannelBinaryProtocol {
   public static final byte  REQUEST_COMMAND                         = 41;
   public static final byte  REQUEST_POSITIONS_CEILING               = 42; // since 1.3.0
   public static final byte  REQUEST_RECORD_HIDE                     = 43; // since 1.7
+  public static final byte  REQUEST_RECORD_LOAD_MULTI               = 44; // since protocol 27
+  public static final byte  REQUEST_CURSOR_FETCH                    = 45; // since protocol 28
+  public static final byte  REQUEST_CURSOR_CLOSE                    = 46; // since protocol 28
+  public static final byte  REQUEST_NEAR_CACHE_SUBSCRIBE            = 47; // since protocol 29
+  public static final byte  REQUEST_CHANNEL_COMPRESSION             = 48; // since protocol 30
+  public static final byte  REQUEST_STATEMENT_PREPARE               = 49; // since protocol 31
+  public static final byte  REQUEST_STATEMENT_EXECUTE               = 50; // since protocol 31
 
   public static final byte  REQUEST_TX_COMMIT                       = 60;
 
@@ -77,6 +84,7 @@ public class OChannelBinaryProtocol {
   public static final byte  REQUEST_DB_LIST                         = 74; // SINCE 1.0rc6
 
   public static final byte  REQUEST_PUSH_DISTRIB_CONFIG             = 80;
+  public static final byte  REQUEST_PUSH_RECORD_INVALIDATE          = 81; // since protocol 29
 
   // DISTRIBUTED
   public static final byte  REQUEST_DB_COPY                         = 90; // SINCE 1.0rc8
@@ -103,6 +111,9 @@ public class OChannelBinaryProtocol {
   public static final byte  RESPONSE_STATUS_ERROR                   = 1;
   public static final byte  PUSH_DATA                               = 3;
 
+  // SET ON REQUEST AND RESPONSE TYPE WHEN AN INT REQUEST ID FOLLOWS THE SESSION ID: SINCE 26
+  public static final byte  REQUEST_ID_FLAG                         = (byte) 0x80;
+
   // CONSTANTS
   public static final short RECORD_NULL                             = -2;
   public static final short RECORD_RID                              = -3;
@@ -111,7 +122,13 @@ public class OChannelBinaryProtocol {
   public static final int   PROTOCOL_VERSION_21                     = 21;
 
   public static final int   PROTOCOL_VERSION_24                     = 24;
-  public static final int   CURRENT_PROTOCOL_VERSION                = 25; // SENT AS SHORT AS FIRST PACKET AFTER SOCKET CONNECTION
+  public static final int   PROTOCOL_VERSION_26                     = 26;
+  public static final int   PROTOCOL_VERSION_27                     = 27;
+  public static final int   PROTOCOL_VERSION_28                     = 28;
+  public static final int   PROTOCOL_VERSION_29                     = 29;
+  public static final int   PROTOCOL_VERSION_30                     = 30;
+  public static final int   PROTOCOL_VERSION_31                     = 31;
+  public static final int   CURRENT_PROTOCOL_VERSION                = 31; // SENT AS SHORT AS FIRST PACKET AFTER SOCKET CONNECTION
 
   public static OIdentifiable readIdentifiable(final OChannelBinaryAsynchClient network) throws IOException {
     final int classId = network.readShort();
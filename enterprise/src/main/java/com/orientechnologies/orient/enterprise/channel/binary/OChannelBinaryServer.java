@@ -35,9 +35,16 @@ import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
 
 import com.orientechnologies.orient.core.config.OContextConfiguration;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 
 public class OChannelBinaryServer extends OChannelBinary {
 
@@ -45,10 +52,78 @@ public class OChannelBinaryServer extends OChannelBinary {
 		super(iSocket, iConfig);
 
 		inStream = new BufferedInputStream(socket.getInputStream(), socketBufferSize);
-		outStream = new BufferedOutputStream(socket.getOutputStream(), socketBufferSize);
+		if (socket.getChannel() != null)
+			// THE CHANNEL CAN BE SWITCHED TO NON-BLOCKING MODE WHILE IDLE: WRITE DIRECTLY TO IT TO ALLOW PUSH MESSAGES
+			outStream = new BufferedOutputStream(new SocketChannelOutputStream(socket.getChannel(),
+					iConfig.getValueAsInteger(OGlobalConfiguration.NETWORK_SOCKET_TIMEOUT)), socketBufferSize);
+		else
+			outStream = new BufferedOutputStream(socket.getOutputStream(), socketBufferSize);
 
 		out = new DataOutputStream(outStream);
 		in = new DataInputStream(inStream);
 		connected();
 	}
+
+	/**
+	 * Writes to the socket channel in both blocking and non-blocking mode. The streams of the socket throw
+	 * IllegalBlockingModeException when the channel is not blocking. In non-blocking mode a full socket buffer is waited on a
+	 * private selector, up to the socket timeout.
+	 */
+	private static class SocketChannelOutputStream extends OutputStream {
+		private final SocketChannel	channel;
+		private final int						timeout;
+		private Selector						writeSelector;
+
+		private SocketChannelOutputStream(final SocketChannel iChannel, final int iTimeout) {
+			channel = iChannel;
+			timeout = iTimeout;
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) throws IOException {
+			final ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+			while (buffer.hasRemaining())
+				if (channel.write(buffer) == 0)
+					// SOCKET BUFFER FULL
+					waitForWrite();
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				channel.close();
+			} finally {
+				synchronized (channel.blockingLock()) {
+					if (writeSelector != null)
+						writeSelector.close();
+				}
+			}
+		}
+
+		private void waitForWrite() throws IOException {
+			// THE BLOCKING LOCK KEEPS THE CHANNEL NON-BLOCKING WHILE IT'S REGISTERED IN THE WRITE SELECTOR
+			synchronized (channel.blockingLock()) {
+				if (channel.isBlocking())
+					return;
+
+				if (writeSelector == null)
+					writeSelector = Selector.open();
+
+				final SelectionKey key = channel.register(writeSelector, SelectionKey.OP_WRITE);
+				try {
+					if (writeSelector.select(timeout) == 0)
+						throw new SocketTimeoutException("Timeout on writing to " + channel.socket().getRemoteSocketAddress());
+				} finally {
+					key.cancel();
+					// DEREGISTER THE CHANNEL, OTHERWISE IT CANNOT BE SWITCHED BACK TO BLOCKING MODE
+					writeSelector.selectNow();
+				}
+			}
+		}
+	}
 }
\ No newline at end of file
@@ -15,27 +15,44 @@
  */
 package com.orientechnologies.orient.server;
 
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.db.raw.ODatabaseRaw;
 import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinary;
 import com.orientechnologies.orient.server.config.OServerUserConfiguration;
 import com.orientechnologies.orient.server.network.protocol.ONetworkProtocol;
 import com.orientechnologies.orient.server.network.protocol.ONetworkProtocolData;
+import com.orientechnologies.orient.server.network.protocol.binary.OCommandCursor;
+import com.orientechnologies.orient.server.network.protocol.binary.OPreparedStatement;
 
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.net.InetSocketAddress;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class OClientConnection {
-  public final int                         id;
-  public volatile ONetworkProtocol         protocol;
-  public final long                        since;
-  public volatile ODatabaseDocumentTx      database;
-  public volatile ODatabaseRaw             rawDatabase;
-  public volatile OServerUserConfiguration serverUser;
+  public final int                                     id;
+  public volatile ONetworkProtocol                     protocol;
+  public final long                                    since;
+  public volatile ODatabaseDocumentTx                  database;
+  public volatile ODatabaseRaw                         rawDatabase;
+  public volatile OServerUserConfiguration             serverUser;
 
-  public ONetworkProtocolData              data = new ONetworkProtocolData();
+  public ONetworkProtocolData                          data         = new ONetworkProtocolData();
+
+  private final ConcurrentMap<Integer, OCommandCursor> cursors      = new ConcurrentHashMap<Integer, OCommandCursor>();
+  private final AtomicInteger                          cursorSerial = new AtomicInteger();
+
+  // ACCESS ORDERED TO CLOSE THE LEAST RECENTLY USED STATEMENT
+  private final Map<Integer, OPreparedStatement>       statements   = new LinkedHashMap<Integer, OPreparedStatement>(16, 0.75f,
+                                                                        true);
+  private int                                          statementSerial;
 
   public OClientConnection(final int id, final ONetworkProtocol protocol) throws IOException {
     this.id = id;
@@ -44,6 +61,14 @@ public class OClientConnection {
   }
 
   public void close() {
+    for (Iterator<OCommandCursor> it = cursors.values().iterator(); it.hasNext();) {
+      it.next().close();
+      it.remove();
+    }
+    synchronized (statements) {
+      statements.clear();
+    }
+
     if (database != null) {
       if (!database.isClosed())
         database.close();
@@ -52,6 +77,80 @@ public class OClientConnection {
     }
   }
 
+  /**
+   * Registers the cursor assigning it a new id.
+   */
+  public int registerCursor(final OCommandCursor iCursor) {
+    final int cursorId = cursorSerial.incrementAndGet();
+    iCursor.setId(cursorId);
+    cursors.put(cursorId, iCursor);
+    return cursorId;
+  }
+
+  /**
+   * Returns the cursor or null if it has been closed or it's expired.
+   */
+  public OCommandCursor getCursor(final int iCursorId) {
+    return cursors.get(iCursorId);
+  }
+
+  public void removeCursor(final int iCursorId) {
+    final OCommandCursor cursor = cursors.remove(iCursorId);
+    if (cursor != null)
+      cursor.close();
+  }
+
+  /**
+   * Registers the prepared statement assigning it a new id. Over the configured maximum the least recently used statement is
+   * closed.
+   *
+   * @return the id of the closed statement, or -1 if none
+   */
+  public int registerPreparedStatement(final OPreparedStatement iStatement) {
+    final int max = OGlobalConfiguration.NETWORK_BINARY_MAX_PREPARED_STATEMENTS.getValueAsInteger();
+
+    synchronized (statements) {
+      iStatement.setId(++statementSerial);
+
+      int closed = -1;
+      if (statements.size() >= max && !statements.isEmpty()) {
+        final Iterator<Integer> eldest = statements.keySet().iterator();
+        closed = eldest.next();
+        eldest.remove();
+      }
+
+      statements.put(iStatement.getId(), iStatement);
+      return closed;
+    }
+  }
+
+  /**
+   * Returns the prepared statement or null if it has been closed.
+   */
+  public OPreparedStatement getPreparedStatement(final int iStatementId) {
+    synchronized (statements) {
+      return statements.get(iStatementId);
+    }
+  }
+
+  /**
+   * Closes the cursors not fetched by the client since more than the configured timeout.
+   */
+  public void closeExpiredCursors() {
+    if (cursors.isEmpty())
+      return;
+
+    final long now = System.currentTimeMillis();
+    final long timeout = OGlobalConfiguration.NETWORK_BINARY_CURSOR_TIMEOUT.getValueAsLong();
+    for (Iterator<OCommandCursor> it = cursors.values().iterator(); it.hasNext();) {
+      final OCommandCursor cursor = it.next();
+      if (cursor.isExpired(now, timeout)) {
+        it.remove();
+        cursor.close();
+      }
+    }
+  }
+
   @Override
   public String toString() {
     return "OClientConnection [id="
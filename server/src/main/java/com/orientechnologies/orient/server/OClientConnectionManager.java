@@ -20,8 +20,11 @@ import com.orientechnologies.common.profiler.OAbstractProfiler.OProfilerHookValu
 import com.orientechnologies.common.profiler.OProfilerMBean.METRIC_TYPE;
 import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.version.ORecordVersion;
 import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinary;
 import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryAsynchClient;
 import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryProtocol;
@@ -31,21 +34,42 @@ import com.orientechnologies.orient.server.network.protocol.binary.ONetworkProto
 import java.io.IOException;
 import java.net.Socket;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
 import java.util.Set;
 import java.util.TimerTask;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class OClientConnectionManager {
-  private static final OClientConnectionManager       instance         = new OClientConnectionManager();
-  protected ConcurrentMap<Integer, OClientConnection> connections      = new ConcurrentHashMap<Integer, OClientConnection>();
-  protected AtomicInteger                             connectionSerial = new AtomicInteger(0);
+  private static final OClientConnectionManager                instance                = new OClientConnectionManager();
+  protected ConcurrentMap<Integer, OClientConnection>          connections             = new ConcurrentHashMap<Integer, OClientConnection>();
+  protected AtomicInteger                                      connectionSerial        = new AtomicInteger(0);
+  protected ConcurrentMap<String, Set<ONetworkProtocolBinary>> invalidationSubscribers = new ConcurrentHashMap<String, Set<ONetworkProtocolBinary>>();
+  private final Queue<ORecordInvalidation>                     pendingInvalidations    = new ConcurrentLinkedQueue<ORecordInvalidation>();
+  private final AtomicBoolean                                  pushingInvalidations    = new AtomicBoolean();
+
+  private static class ORecordInvalidation {
+    private final String         databaseName;
+    private final ORID           rid;
+    private final ORecordVersion version;
+
+    private ORecordInvalidation(final String iDatabaseName, final ORID iRid, final ORecordVersion iVersion) {
+      databaseName = iDatabaseName;
+      rid = iRid;
+      version = iVersion;
+    }
+  }
 
   public OClientConnectionManager() {
     final int delay = OGlobalConfiguration.SERVER_CHANNEL_CLEAN_DELAY.getValueAsInteger();
@@ -68,12 +92,14 @@ public class OClientConnectionManager {
             OLogManager.instance().debug(this, "[OClientConnectionManager] found and removed pending closed channel %d (%s)",
                 entry.getKey(), socket);
             try {
+              unsubscribeRecordInvalidation(entry.getValue());
               entry.getValue().close();
             } catch (Exception e) {
               OLogManager.instance().error(this, "Error during close of connection for close channel", e);
             }
             iterator.remove();
-          }
+          } else
+            entry.getValue().closeExpiredCursors();
         }
       }
     }, delay, delay);
@@ -200,6 +226,7 @@ public class OClientConnectionManager {
     final OClientConnection connection = connections.remove(iChannelId);
 
     if (connection != null) {
+      unsubscribeRecordInvalidation(connection);
       connection.close();
 
       // CHECK IF THERE ARE OTHER CONNECTIONS
@@ -222,6 +249,7 @@ public class OClientConnectionManager {
   public void disconnect(final OClientConnection iConnection) {
     OLogManager.instance().debug(this, "Disconnecting connection %s...", iConnection);
 
+    unsubscribeRecordInvalidation(iConnection);
     iConnection.close();
 
     int totalRemoved = 0;
@@ -294,4 +322,122 @@ public class OClientConnectionManager {
       }
     }
   }
+
+  /**
+   * Subscribes the binary connection to the invalidation of the records changed in the database.
+   */
+  public void subscribeRecordInvalidation(final String iDatabaseName, final ONetworkProtocolBinary iProtocol) {
+    Set<ONetworkProtocolBinary> subscribers = invalidationSubscribers.get(iDatabaseName);
+    if (subscribers == null) {
+      subscribers = Collections.newSetFromMap(new ConcurrentHashMap<ONetworkProtocolBinary, Boolean>());
+      final Set<ONetworkProtocolBinary> previous = invalidationSubscribers.putIfAbsent(iDatabaseName, subscribers);
+      if (previous != null)
+        subscribers = previous;
+    }
+    subscribers.add(iProtocol);
+  }
+
+  /**
+   * Unsubscribes the channel of the closing connection from the invalidation of its database, unless other connections on the same
+   * channel still use the database.
+   */
+  public void unsubscribeRecordInvalidation(final OClientConnection iConnection) {
+    final ODatabaseDocumentTx database = iConnection.database;
+    if (!(iConnection.protocol instanceof ONetworkProtocolBinary) || database == null)
+      return;
+
+    final String databaseName = database.getName();
+    final Set<ONetworkProtocolBinary> subscribers = invalidationSubscribers.get(databaseName);
+    if (subscribers == null || !subscribers.contains(iConnection.protocol))
+      return;
+
+    for (OClientConnection c : connections.values())
+      if (!c.equals(iConnection) && c.protocol == iConnection.protocol && c.database != null
+          && databaseName.equals(c.database.getName()))
+        // THE CHANNEL IS STILL USED BY ANOTHER CONNECTION ON THE SAME DATABASE
+        return;
+
+    subscribers.remove(iConnection.protocol);
+  }
+
+  public boolean hasRecordInvalidationSubscribers(final String iDatabaseName) {
+    final Set<ONetworkProtocolBinary> subscribers = invalidationSubscribers.get(iDatabaseName);
+    return subscribers != null && !subscribers.isEmpty();
+  }
+
+  /**
+   * Pushes the invalidation of the changed record to the subscribed clients. The push is made by a worker thread, together with
+   * the records changed in the meanwhile, so the changes don't wait for the clients.
+   */
+  public void pushRecordInvalidation(final String iDatabaseName, final ORID iRid, final ORecordVersion iVersion) {
+    if (!hasRecordInvalidationSubscribers(iDatabaseName))
+      return;
+
+    pendingInvalidations.offer(new ORecordInvalidation(iDatabaseName, iRid.copy(), iVersion.copy()));
+
+    if (pushingInvalidations.compareAndSet(false, true))
+      Orient.instance().getWorkers().submit(new Runnable() {
+        public void run() {
+          pushRecordInvalidations();
+        }
+      });
+  }
+
+  protected void pushRecordInvalidations() {
+    do {
+      try {
+        // GROUP THE PENDING RECORDS BY DATABASE
+        final Map<String, Map<ORID, ORecordVersion>> databases = new HashMap<String, Map<ORID, ORecordVersion>>();
+        ORecordInvalidation invalidation;
+        while ((invalidation = pendingInvalidations.poll()) != null) {
+          Map<ORID, ORecordVersion> records = databases.get(invalidation.databaseName);
+          if (records == null) {
+            records = new LinkedHashMap<ORID, ORecordVersion>();
+            databases.put(invalidation.databaseName, records);
+          }
+          records.put(invalidation.rid, invalidation.version);
+        }
+
+        for (Entry<String, Map<ORID, ORecordVersion>> database : databases.entrySet()) {
+          final Set<ONetworkProtocolBinary> subscribers = invalidationSubscribers.get(database.getKey());
+          if (subscribers != null)
+            for (Iterator<ONetworkProtocolBinary> it = subscribers.iterator(); it.hasNext();)
+              if (!pushRecordInvalidation((OChannelBinary) it.next().getChannel(), database.getValue()))
+                // CLOSED CONNECTION
+                it.remove();
+        }
+      } finally {
+        pushingInvalidations.set(false);
+      }
+
+      // PUSH THE RECORDS QUEUED AFTER THE LAST POLL, UNLESS ANOTHER WORKER IS ALREADY DOING IT
+    } while (!pendingInvalidations.isEmpty() && pushingInvalidations.compareAndSet(false, true));
+  }
+
+  protected boolean pushRecordInvalidation(final OChannelBinary iChannel, final Map<ORID, ORecordVersion> iRecords) {
+    if (iChannel == null || iChannel.socket == null || iChannel.socket.isClosed())
+      return false;
+
+    try {
+      iChannel.acquireWriteLock();
+      try {
+        iChannel.writeByte(OChannelBinaryProtocol.PUSH_DATA);
+        iChannel.writeInt(Integer.MIN_VALUE);
+        iChannel.writeByte(OChannelBinaryProtocol.REQUEST_PUSH_RECORD_INVALIDATE);
+        iChannel.writeInt(iRecords.size());
+        for (Entry<ORID, ORecordVersion> record : iRecords.entrySet()) {
+          iChannel.writeRID(record.getKey());
+          iChannel.writeVersion(record.getValue());
+        }
+        iChannel.flush();
+      } finally {
+        iChannel.releaseWriteLock();
+      }
+      return true;
+
+    } catch (Exception e) {
+      OLogManager.instance().debug(this, "Cannot push the invalidated records to the client %s", e, iChannel);
+      return false;
+    }
+  }
 }
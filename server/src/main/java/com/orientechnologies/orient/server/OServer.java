@@ -41,6 +41,7 @@ import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPagi
 import com.orientechnologies.orient.core.storage.impl.memory.ODirectMemoryStorage;
 import com.orientechnologies.orient.server.config.*;
 import com.orientechnologies.orient.server.distributed.ODistributedServerManager;
+import com.orientechnologies.orient.server.handler.OClientRecordInvalidationHook;
 import com.orientechnologies.orient.server.handler.OConfigurableHooksManager;
 import com.orientechnologies.orient.server.network.OServerNetworkListener;
 import com.orientechnologies.orient.server.network.OServerSocketFactory;
@@ -85,6 +86,7 @@ public class OServer {
   protected List<OServerLifecycleListener>                 lifecycleListeners     = new ArrayList<OServerLifecycleListener>();
   protected OServerPluginManager                           pluginManager;
   protected OConfigurableHooksManager                      hookManager;
+  protected OClientRecordInvalidationHook                  recordInvalidationHook;
   protected ODistributedServerManager                      distributedManager;
   private ODatabaseDocumentPool                            dbPool;
   private Random                                           random                 = new Random();
@@ -234,6 +236,10 @@ public class OServer {
 
     registerPlugins();
 
+    // NOTIFY THE CHANGED RECORDS TO THE CLIENT NEAR CACHES
+    recordInvalidationHook = new OClientRecordInvalidationHook();
+    Orient.instance().addDbLifecycleListener(recordInvalidationHook);
+
     for (OServerLifecycleListener l : lifecycleListeners)
       l.onAfterActivate();
 
@@ -298,6 +304,9 @@ public class OServer {
       if (pluginManager != null)
         pluginManager.shutdown();
 
+      if (recordInvalidationHook != null)
+        Orient.instance().removeDbLifecycleListener(recordInvalidationHook);
+
     } finally {
       lock.unlock();
     }
@@ -19,8 +19,10 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import com.orientechnologies.common.log.OLogManager;
@@ -52,6 +54,7 @@ public abstract class ODistributedAbstractPlugin extends OServerPluginAbstract i
 
   protected static final String                            PAR_DEF_DISTRIB_DB_CONFIG   = "configuration.db.default";
   protected static final String                            FILE_DISTRIBUTED_DB_CONFIG  = "distributed-config.json";
+  protected static final String                            FILE_DISTRIBUTED_DB_SYNC    = "distributed-sync.json";
 
   protected OServer                                        serverInstance;
   protected Map<String, ODocument>                         cachedDatabaseConfiguration = new HashMap<String, ODocument>();
@@ -61,6 +64,8 @@ public abstract class ODistributedAbstractPlugin extends OServerPluginAbstract i
   protected Class<? extends OReplicationConflictResolver>  confictResolverClass;
   protected File                                           defaultDatabaseConfigFile;
   protected ConcurrentHashMap<String, ODistributedStorage> storages                    = new ConcurrentHashMap<String, ODistributedStorage>();
+  protected Map<String, ODistributedOperationLog>          operationLogs               = new ConcurrentHashMap<String, ODistributedOperationLog>();
+  protected Set<String>                                    misalignedDatabases         = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
   @Override
   public PRIORITY getPriority() {
@@ -282,6 +287,96 @@ public abstract class ODistributedAbstractPlugin extends OServerPluginAbstract i
     return serverInstance;
   }
 
+  public ODistributedOperationLog getOperationLog(final String iDatabaseName) {
+    if (misalignedDatabases.contains(iDatabaseName))
+      // THE OPERATIONS CAN'T BE APPLIED TO THE OTHER COPIES
+      return null;
+    return operationLogs.get(iDatabaseName);
+  }
+
+  public void setDatabaseMisaligned(final String iDatabaseName) {
+    misalignedDatabases.add(iDatabaseName);
+    removeOperationLogState(iDatabaseName);
+  }
+
+  /**
+   * Saves the id of the last operation executed against the database, so after the restart the node asks only for the following
+   * ones.
+   */
+  public void saveOperationLogState(final String iDatabaseName) {
+    final ODistributedOperationLog log = getOperationLog(iDatabaseName);
+    if (log == null || log.getLastOperationId() < 0)
+      // WITHOUT THE STATE THE DATABASE IS DEPLOYED AGAIN AFTER THE RESTART
+      return;
+
+    FileOutputStream f = null;
+    try {
+      final File file = getOperationLogStateFile(iDatabaseName);
+      if (!file.getParentFile().exists())
+        // DATABASE DROPPED
+        return;
+
+      f = new FileOutputStream(file);
+      f.write(log.getState().toJSON().getBytes());
+      f.flush();
+    } catch (Exception e) {
+      ODistributedServerLog.error(this, getLocalNodeName(), null, DIRECTION.NONE,
+          "Error on saving the last operation executed against database '%s'", e, iDatabaseName);
+    } finally {
+      if (f != null)
+        try {
+          f.close();
+        } catch (IOException e) {
+        }
+    }
+  }
+
+  /**
+   * Removes the state of the database saved on last shutdown: it's not valid anymore once the database executes new operations.
+   */
+  public void removeOperationLogState(final String iDatabaseName) {
+    final File file = getOperationLogStateFile(iDatabaseName);
+    if (file.exists())
+      file.delete();
+  }
+
+  public File getOperationLogStateFile(final String iDatabaseName) {
+    return new File(serverInstance.getDatabaseDirectory() + iDatabaseName + "/" + FILE_DISTRIBUTED_DB_SYNC);
+  }
+
+  /**
+   * Loads the state of the database saved on last shutdown and removes it: if the node crashes from now on, the state is not
+   * reliable anymore.
+   * 
+   * @return the state, or null if the node was not shut down correctly
+   */
+  public ODocument loadOperationLogState(final String iDatabaseName) {
+    final File file = getOperationLogStateFile(iDatabaseName);
+    if (!file.exists())
+      return null;
+
+    FileInputStream f = null;
+    try {
+      f = new FileInputStream(file);
+      final byte[] buffer = new byte[(int) file.length()];
+      f.read(buffer);
+
+      return (ODocument) new ODocument().fromJSON(new String(buffer));
+
+    } catch (Exception e) {
+      ODistributedServerLog.error(this, getLocalNodeName(), null, DIRECTION.NONE,
+          "Error on loading the last operation executed against database '%s'", e, iDatabaseName);
+      return null;
+    } finally {
+      if (f != null)
+        try {
+          f.close();
+        } catch (IOException e) {
+        }
+      file.delete();
+    }
+  }
+
   protected ODocument loadDatabaseConfiguration(final String iDatabaseName, final File file) {
     if (!file.exists() || file.length() == 0)
       return null;
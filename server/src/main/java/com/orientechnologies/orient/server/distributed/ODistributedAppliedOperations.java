@@ -0,0 +1,104 @@
+/*
+ * Copyright 2010-2013 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.distributed;
+
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks the replicated operations received by the local node against a database, to know if all the operations up to an id have
+ * been applied. Operations are received in order of id, but can be applied in parallel.
+ *
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ */
+public class ODistributedAppliedOperations {
+  private final ConcurrentSkipListSet<Long> pending      = new ConcurrentSkipListSet<Long>();
+  private final AtomicInteger               waiters      = new AtomicInteger();
+  private volatile long                     lastReceived = -1;
+
+  /**
+   * Called when an operation is taken from the queue, before applying it.
+   */
+  public void onReceived(final long iOperationId) {
+    pending.add(iOperationId);
+    if (iOperationId > lastReceived)
+      lastReceived = iOperationId;
+  }
+
+  public void onApplied(final long iOperationId) {
+    if (pending.remove(iOperationId) && waiters.get() > 0)
+      synchronized (pending) {
+        pending.notifyAll();
+      }
+  }
+
+  /**
+   * Returns true if the operation and all the previous ones have been applied.
+   */
+  public boolean isApplied(final long iOperationId) {
+    if (iOperationId > lastReceived)
+      return false;
+
+    // THE PREVIOUS OPERATIONS HAVE BEEN RECEIVED: CHECK NONE OF THEM IS STILL PENDING
+    final Long first = pending.ceiling(Long.MIN_VALUE);
+    return first == null || first > iOperationId;
+  }
+
+  /**
+   * Waits until the operation and all the previous ones have been applied.
+   *
+   * @return false if the timeout expired
+   */
+  public boolean waitFor(final long iOperationId, final long iTimeout) throws InterruptedException {
+    if (isApplied(iOperationId))
+      return true;
+
+    final long deadline = System.currentTimeMillis() + iTimeout;
+    waiters.incrementAndGet();
+    try {
+      synchronized (pending) {
+        while (!isApplied(iOperationId)) {
+          final long left = deadline - System.currentTimeMillis();
+          if (left <= 0)
+            return false;
+          pending.wait(left);
+        }
+      }
+      return true;
+    } finally {
+      waiters.decrementAndGet();
+    }
+  }
+
+  /**
+   * Returns the id before the first operation received and not applied yet, or Long.MAX_VALUE if all the received operations have
+   * been applied. Operations applied in parallel can be applied after the following ones: this is the bound of the operations
+   * applied without gaps.
+   */
+  public long getAppliedUntil() {
+    final Long first = pending.ceiling(Long.MIN_VALUE);
+    return first == null ? Long.MAX_VALUE : first - 1;
+  }
+
+  public long getLastReceived() {
+    return lastReceived;
+  }
+
+  public int getPending() {
+    return pending.size();
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2010-2014 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.distributed;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the database chunks sent by {@link ODistributedChunkOutputStream} as they arrive. Closing the stream consumes the chunks
+ * not read yet, so the sender is never left waiting. A chunk aborting the transfer makes the reads fail.
+ *
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ */
+public class ODistributedChunkInputStream extends InputStream {
+  private final BlockingQueue<ODistributedDatabaseChunk> queue;
+  private final long                                     timeout;
+  private ODistributedDatabaseChunk                      chunk;
+  private int                                            position = 0;
+  private int                                            chunks   = 0;
+  private long                                           size     = 0;
+
+  /**
+   * @param iTimeout
+   *          maximum time in milliseconds to wait for the next chunk
+   */
+  public ODistributedChunkInputStream(final BlockingQueue<ODistributedDatabaseChunk> iQueue, final long iTimeout) {
+    queue = iQueue;
+    timeout = iTimeout;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!fetch())
+      return -1;
+    return chunk.buffer[position++] & 0xFF;
+  }
+
+  @Override
+  public int read(final byte[] b, final int off, final int len) throws IOException {
+    if (len == 0)
+      return 0;
+    if (!fetch())
+      return -1;
+
+    final int toCopy = Math.min(len, chunk.buffer.length - position);
+    System.arraycopy(chunk.buffer, position, b, off, toCopy);
+    position += toCopy;
+    return toCopy;
+  }
+
+  @Override
+  public int available() {
+    return chunk != null ? chunk.buffer.length - position : 0;
+  }
+
+  @Override
+  public void close() throws IOException {
+    // CONSUME THE REMAINING CHUNKS
+    while (chunk == null || !chunk.last)
+      next();
+    position = chunk.buffer.length;
+  }
+
+  /**
+   * Returns the last chunk received, or null if none.
+   */
+  public ODistributedDatabaseChunk getLastChunk() {
+    return chunk;
+  }
+
+  public int getChunks() {
+    return chunks;
+  }
+
+  public long getSize() {
+    return size;
+  }
+
+  private boolean fetch() throws IOException {
+    while (chunk == null || position >= chunk.buffer.length) {
+      if (chunk != null && chunk.last)
+        return false;
+      next();
+    }
+    return true;
+  }
+
+  private void next() throws IOException {
+    try {
+      final ODistributedDatabaseChunk received = queue.poll(timeout, TimeUnit.MILLISECONDS);
+      if (received == null)
+        throw new IOException("Timeout on receiving chunk #" + (chunks + 1) + " of the database");
+      if (received.isAborted())
+        throw new IOException("Transfer of the database aborted by the sender: " + new String(received.buffer));
+
+      chunk = received;
+      position = 0;
+      chunks++;
+      size += chunk.buffer.length;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted on receiving chunk #" + (chunks + 1) + " of the database");
+    }
+  }
+}
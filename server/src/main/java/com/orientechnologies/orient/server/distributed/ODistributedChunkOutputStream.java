@@ -0,0 +1,136 @@
+/*
+ * Copyright 2010-2014 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.distributed;
+
+import com.orientechnologies.common.log.OLogManager;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends the written bytes as database chunks through a bounded queue. When the queue is full the writer waits for the receiver to
+ * consume the previous chunks, so the database is never materialized on disk. Closing the stream sends the last chunk, while
+ * aborting it sends a chunk that makes the receiver fail.
+ *
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ */
+public class ODistributedChunkOutputStream extends OutputStream {
+  private final BlockingQueue<ODistributedDatabaseChunk> queue;
+  private final String                                   name;
+  private final AtomicLong                               lastOperationId;
+  private final long                                     timeout;
+  private final byte[]                                   buffer;
+  private int                                            position = 0;
+  private long                                           offset   = 0;
+  private int                                            chunks   = 0;
+  private boolean                                        closed   = false;
+
+  /**
+   * @param iLastOperationId
+   *          id of the last operation contained in the database, set once the backup begins
+   * @param iTimeout
+   *          maximum time in milliseconds to wait for the receiver to consume a chunk
+   */
+  public ODistributedChunkOutputStream(final BlockingQueue<ODistributedDatabaseChunk> iQueue, final String iName,
+      final AtomicLong iLastOperationId, final int iChunkSize, final long iTimeout) {
+    queue = iQueue;
+    name = iName;
+    lastOperationId = iLastOperationId;
+    buffer = new byte[iChunkSize];
+    timeout = iTimeout;
+  }
+
+  @Override
+  public void write(final int b) throws IOException {
+    if (position == buffer.length)
+      send(false);
+    buffer[position++] = (byte) b;
+  }
+
+  @Override
+  public void write(final byte[] b, int off, int len) throws IOException {
+    while (len > 0) {
+      if (position == buffer.length)
+        send(false);
+
+      final int toCopy = Math.min(len, buffer.length - position);
+      System.arraycopy(b, off, buffer, position, toCopy);
+      position += toCopy;
+      off += toCopy;
+      len -= toCopy;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed)
+      return;
+
+    closed = true;
+    send(true);
+  }
+
+  /**
+   * Sends a chunk that aborts the transfer in place of the last chunk, so the receiver doesn't install a partial database. The
+   * caller is already failing, so a chunk not consumed in time is only logged.
+   */
+  public void abort(final String iReason) {
+    if (closed)
+      return;
+
+    closed = true;
+    final ODistributedDatabaseChunk chunk = new ODistributedDatabaseChunk(lastOperationId.get(), name, -1, iReason.getBytes(),
+        true);
+    try {
+      if (!queue.offer(chunk, timeout, TimeUnit.MILLISECONDS))
+        OLogManager.instance().warn(this, "Timeout on aborting the transfer of %s: the receiver is not consuming the chunks",
+            name);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public long getSize() {
+    return offset + position;
+  }
+
+  public int getChunks() {
+    return chunks;
+  }
+
+  private void send(final boolean iLast) throws IOException {
+    final ODistributedDatabaseChunk chunk = new ODistributedDatabaseChunk(lastOperationId.get(), name, offset, Arrays.copyOf(
+        buffer, position), iLast);
+
+    try {
+      if (!queue.offer(chunk, timeout, TimeUnit.MILLISECONDS))
+        throw new IOException("Timeout on sending chunk #" + (chunks + 1) + " of " + name + ": the receiver is not consuming them");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted on sending chunk #" + (chunks + 1) + " of " + name);
+    }
+
+    offset += position;
+    position = 0;
+    chunks++;
+  }
+}
@@ -23,9 +23,11 @@ import com.orientechnologies.orient.core.record.impl.ODocument;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -189,6 +191,22 @@ public class ODistributedConfiguration {
     }
   }
 
+  /**
+   * Returns true if the records of the cluster are created only by its master server, that replicates them without waiting for the
+   * quorum. Default is false.
+   * 
+   * @param iClusterName
+   *          Cluster name, or null for *
+   */
+  public boolean isAppendOnly(final String iClusterName) {
+    synchronized (configuration) {
+      Object value = getClusterConfiguration(iClusterName).field("appendOnly");
+      if (value == null)
+        value = configuration.field("appendOnly");
+      return value != null && Boolean.parseBoolean(value.toString());
+    }
+  }
+
   /**
    * Returns maximum queue size for offline nodes. After this threshold the queue is removed and the offline server needs a complete
    * database deployment as soon as return online.
@@ -214,31 +232,52 @@ public class ODistributedConfiguration {
    *          Local node name
    */
   public Collection<String> getOneServerPerCluster(Collection<String> iClusterNames, final String iLocalNode) {
+    return new HashSet<String>(getClustersPerServer(iClusterNames, iLocalNode).keySet());
+  }
+
+  /**
+   * Assigns every cluster involved to one server. The local node is preferred when it owns the cluster.
+   * 
+   * @param iClusterNames
+   *          Set of cluster names to find
+   * @param iLocalNode
+   *          Local node name
+   * @return the clusters assigned to every server
+   */
+  public Map<String, Collection<String>> getClustersPerServer(Collection<String> iClusterNames, final String iLocalNode) {
     synchronized (configuration) {
       if (iClusterNames == null || iClusterNames.isEmpty())
         iClusterNames = Collections.singleton("*");
 
-      final Set<String> partitions = new HashSet<String>(iClusterNames.size());
+      final Map<String, Collection<String>> partitions = new HashMap<String, Collection<String>>();
       for (String p : iClusterNames) {
         final List<String> serverList = getClusterConfiguration(p).field("servers");
         if (serverList != null) {
-          boolean localNodeFound = false;
+          String server = null;
           // CHECK IF THE LOCAL NODE IS INVOLVED: IF YES PREFER LOCAL EXECUTION
           for (String s : serverList)
             if (s.equals(iLocalNode)) {
               // FOUND: JUST USE THIS AND CONTINUE WITH THE NEXT PARTITION
-              partitions.add(s);
-              localNodeFound = true;
+              server = s;
               break;
             }
 
-          if (!localNodeFound)
+          if (server == null)
             for (String s : serverList)
               if (!s.equals(NEW_NODE_TAG)) {
                 // TODO: USE A ROUND-ROBIN OR RANDOM ALGORITHM
-                partitions.add(s);
+                server = s;
                 break;
               }
+
+          if (server != null) {
+            Collection<String> clusters = partitions.get(server);
+            if (clusters == null) {
+              clusters = new HashSet<String>();
+              partitions.put(server, clusters);
+            }
+            clusters.add(p);
+          }
         }
       }
       return partitions;
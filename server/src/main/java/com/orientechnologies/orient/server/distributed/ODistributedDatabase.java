@@ -27,4 +27,14 @@ public interface ODistributedDatabase {
   public ODistributedResponse send2Nodes(ODistributedRequest iRequest, Collection<String> iClusterNames, Collection<String> iNodes);
 
   public void setOnline();
+
+  /**
+   * Returns the replication metrics of the database on the local node.
+   */
+  public ODistributedDatabaseMetrics getMetrics();
+
+  /**
+   * Returns the replicated operations received and applied by the local node, or null if they are not tracked.
+   */
+  public ODistributedAppliedOperations getAppliedOperations();
 }
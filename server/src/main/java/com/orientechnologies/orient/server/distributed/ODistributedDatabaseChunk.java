@@ -63,6 +63,15 @@ public class ODistributedDatabaseChunk implements Externalizable {
     }
   }
 
+  public ODistributedDatabaseChunk(final long iLastOperationId, final String iFilePath, final long iOffset, final byte[] iBuffer,
+      final boolean iLast) {
+    lastOperationId = iLastOperationId;
+    filePath = iFilePath;
+    offset = iOffset;
+    buffer = iBuffer;
+    last = iLast;
+  }
+
   @Override
   public String toString() {
     return filePath + "[" + offset + "-" + buffer.length + "] (last=" + last + ")";
@@ -72,6 +81,14 @@ public class ODistributedDatabaseChunk implements Externalizable {
     return lastOperationId;
   }
 
+  /**
+   * Tells if the chunk aborts the transfer of the database. An aborting chunk has a negative offset and carries the reason as
+   * buffer.
+   */
+  public boolean isAborted() {
+    return offset < 0;
+  }
+
   @Override
   public void writeExternal(final ObjectOutput out) throws IOException {
     out.writeLong(lastOperationId);
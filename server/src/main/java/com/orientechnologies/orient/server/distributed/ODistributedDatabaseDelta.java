@@ -0,0 +1,72 @@
+/*
+ * Copyright 2010-2014 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.distributed;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replicated operations a node missed while it was offline, in the order they have been executed.
+ *
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ */
+public class ODistributedDatabaseDelta implements Externalizable {
+  public long                      lastOperationId;
+  public List<ODistributedRequest> operations;
+
+  public ODistributedDatabaseDelta() {
+  }
+
+  public ODistributedDatabaseDelta(final long iLastOperationId, final List<ODistributedRequest> iOperations) {
+    lastOperationId = iLastOperationId;
+    operations = iOperations;
+  }
+
+  public long getLastOperationId() {
+    return lastOperationId;
+  }
+
+  public List<ODistributedRequest> getOperations() {
+    return operations;
+  }
+
+  @Override
+  public String toString() {
+    return "delta[operations=" + operations.size() + " lastOperationId=" + lastOperationId + "]";
+  }
+
+  @Override
+  public void writeExternal(final ObjectOutput out) throws IOException {
+    out.writeLong(lastOperationId);
+    out.writeInt(operations.size());
+    for (ODistributedRequest req : operations)
+      out.writeObject(req);
+  }
+
+  @Override
+  public void readExternal(final ObjectInput in) throws IOException, ClassNotFoundException {
+    lastOperationId = in.readLong();
+    final int size = in.readInt();
+    operations = new ArrayList<ODistributedRequest>(size);
+    for (int i = 0; i < size; ++i)
+      operations.add((ODistributedRequest) in.readObject());
+  }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2010-2013 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.distributed;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.orientechnologies.common.profiler.OAbstractProfiler.OProfilerHookValue;
+import com.orientechnologies.common.profiler.OProfilerMBean;
+import com.orientechnologies.common.profiler.OProfilerMBean.METRIC_TYPE;
+import com.orientechnologies.orient.core.Orient;
+
+/**
+ * Replication metrics of a distributed database on the local node. They are registered as profiler hooks named
+ * "distributed.db.&lt;database&gt;.&lt;metric&gt;", so they can be read by the HTTP server, JMX or any other profiler consumer.
+ * Latencies are averaged on the last {@link #STATS_MAX_SAMPLES} samples.
+ *
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ */
+public abstract class ODistributedDatabaseMetrics {
+  public static final int    STATS_MAX_SAMPLES  = 20;
+  public static final String METRIC_PREFIX      = "distributed.db.";
+  public static final String QUEUE_SIZE         = "queueSize";
+  public static final String PENDING_RESPONSES  = "pendingResponses";
+  public static final String APPLY_LATENCY      = "applyLatency";
+  public static final String QUORUM_WAIT        = "quorumWait";
+  public static final String BYTES_PER_SECOND   = "bytesPerSecond";
+
+  private final String       databaseName;
+  private final long[]       applyLatencies     = newSamples();
+  private int                applyLatencyIndex  = 0;
+  private final long[]       quorumWaits        = newSamples();
+  private int                quorumWaitIndex    = 0;
+  private long               currentSecond      = 0;
+  private long               bytesCurrentSecond = 0;
+  private long               bytesLastSecond    = 0;
+  private long               bytesSent          = 0;
+
+  public ODistributedDatabaseMetrics(final String iDatabaseName) {
+    databaseName = iDatabaseName;
+  }
+
+  /**
+   * Returns the number of requests waiting in the queues of the local node.
+   */
+  public abstract long getQueueSize();
+
+  /**
+   * Returns the number of requests sent by the local node still waiting for the responses.
+   */
+  public abstract long getPendingResponses();
+
+  /**
+   * Records the time in milliseconds between the sending of a request and its execution on the local node.
+   */
+  public synchronized void onApplied(final long iLatency) {
+    if (applyLatencyIndex >= applyLatencies.length)
+      applyLatencyIndex = 0;
+    applyLatencies[applyLatencyIndex++] = Math.max(0, iLatency);
+  }
+
+  /**
+   * Records the time in milliseconds waited for the quorum of the responses.
+   */
+  public synchronized void onQuorumWait(final long iTime) {
+    if (quorumWaitIndex >= quorumWaits.length)
+      quorumWaitIndex = 0;
+    quorumWaits[quorumWaitIndex++] = iTime;
+  }
+
+  public void onSent(final long iBytes) {
+    onSent(iBytes, System.currentTimeMillis());
+  }
+
+  public synchronized void onSent(final long iBytes, final long iNow) {
+    rollSecond(iNow);
+    bytesCurrentSecond += iBytes;
+    bytesSent += iBytes;
+  }
+
+  public synchronized long getAverageApplyLatency() {
+    return average(applyLatencies);
+  }
+
+  public synchronized long getAverageQuorumWait() {
+    return average(quorumWaits);
+  }
+
+  public long getBytesPerSecond() {
+    return getBytesPerSecond(System.currentTimeMillis());
+  }
+
+  /**
+   * Returns the bytes sent in the last complete second.
+   */
+  public synchronized long getBytesPerSecond(final long iNow) {
+    rollSecond(iNow);
+    return bytesLastSecond;
+  }
+
+  public synchronized long getBytesSent() {
+    return bytesSent;
+  }
+
+  public String getDatabaseName() {
+    return databaseName;
+  }
+
+  public Map<String, Object> toMap() {
+    final Map<String, Object> map = new HashMap<String, Object>();
+    map.put(QUEUE_SIZE, getQueueSize());
+    map.put(PENDING_RESPONSES, getPendingResponses());
+    map.put(APPLY_LATENCY, getAverageApplyLatency());
+    map.put(QUORUM_WAIT, getAverageQuorumWait());
+    map.put(BYTES_PER_SECOND, getBytesPerSecond());
+    map.put("bytesSent", getBytesSent());
+    return map;
+  }
+
+  public String getMetricName(final String iMetric) {
+    return METRIC_PREFIX + databaseName + "." + iMetric;
+  }
+
+  public void registerHooks() {
+    final OProfilerMBean profiler = Orient.instance().getProfiler();
+
+    profiler.registerHookValue(getMetricName(QUEUE_SIZE), "Number of replication requests waiting in the queue", METRIC_TYPE.SIZE,
+        new OProfilerHookValue() {
+          public Object getValue() {
+            return getQueueSize();
+          }
+        }, METRIC_PREFIX + "*." + QUEUE_SIZE);
+
+    profiler.registerHookValue(getMetricName(PENDING_RESPONSES), "Number of replication requests waiting for the responses",
+        METRIC_TYPE.SIZE, new OProfilerHookValue() {
+          public Object getValue() {
+            return getPendingResponses();
+          }
+        }, METRIC_PREFIX + "*." + PENDING_RESPONSES);
+
+    profiler.registerHookValue(getMetricName(APPLY_LATENCY),
+        "Average time in ms between the sending of a replication request and its execution", METRIC_TYPE.STAT,
+        new OProfilerHookValue() {
+          public Object getValue() {
+            return getAverageApplyLatency();
+          }
+        }, METRIC_PREFIX + "*." + APPLY_LATENCY);
+
+    profiler.registerHookValue(getMetricName(QUORUM_WAIT), "Average time in ms waited for the quorum of the responses",
+        METRIC_TYPE.STAT, new OProfilerHookValue() {
+          public Object getValue() {
+            return getAverageQuorumWait();
+          }
+        }, METRIC_PREFIX + "*." + QUORUM_WAIT);
+
+    profiler.registerHookValue(getMetricName(BYTES_PER_SECOND),
+        "Bytes of replication requests sent in the last second",
+        METRIC_TYPE.STAT, new OProfilerHookValue() {
+          public Object getValue() {
+            return getBytesPerSecond();
+          }
+        }, METRIC_PREFIX + "*." + BYTES_PER_SECOND);
+  }
+
+  public void unregisterHooks() {
+    final OProfilerMBean profiler = Orient.instance().getProfiler();
+    if (profiler == null)
+      return;
+
+    profiler.unregisterHookValue(getMetricName(QUEUE_SIZE));
+    profiler.unregisterHookValue(getMetricName(PENDING_RESPONSES));
+    profiler.unregisterHookValue(getMetricName(APPLY_LATENCY));
+    profiler.unregisterHookValue(getMetricName(QUORUM_WAIT));
+    profiler.unregisterHookValue(getMetricName(BYTES_PER_SECOND));
+  }
+
+  private void rollSecond(final long iNow) {
+    final long second = iNow / 1000;
+    if (second != currentSecond) {
+      bytesLastSecond = second == currentSecond + 1 ? bytesCurrentSecond : 0;
+      bytesCurrentSecond = 0;
+      currentSecond = second;
+    }
+  }
+
+  private static long[] newSamples() {
+    final long[] samples = new long[STATS_MAX_SAMPLES];
+    for (int i = 0; i < samples.length; ++i)
+      samples[i] = -1;
+    return samples;
+  }
+
+  private static long average(final long[] iSamples) {
+    long total = 0;
+    int involved = 0;
+    for (long sample : iSamples) {
+      if (sample > -1) {
+        total += sample;
+        involved++;
+      }
+    }
+    return involved > 0 ? total / involved : 0;
+  }
+}
@@ -18,6 +18,8 @@ package com.orientechnologies.orient.server.distributed;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 
 /**
  * 
@@ -36,4 +38,11 @@ public interface ODistributedMessageService {
   public ODistributedDatabase getDatabase(String iDatabaseName);
 
   public List<String> getManagedQueueNames();
+
+  public Set<String> getDatabases();
+
+  /**
+   * Returns the bounded queue used to stream the database to the node that deploys it.
+   */
+  public BlockingQueue<ODistributedDatabaseChunk> getDeployQueue(String iNodeName, String iDatabaseName);
 }
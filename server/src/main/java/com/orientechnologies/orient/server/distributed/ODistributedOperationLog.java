@@ -0,0 +1,157 @@
+/*
+ * Copyright 2010-2014 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.distributed;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.server.distributed.task.OAbstractRemoteTask;
+
+/**
+ * Log of the last replicated operations executed by the local node against a database. A node that rejoins the cluster sends the
+ * id of the last operation it executed: if the log still contains all the following operations, they are sent back and executed
+ * instead of deploying the whole database.
+ * <p>
+ * Operation ids are assigned by the cluster and are meaningful only in the same epoch: when the whole cluster is restarted the
+ * counter starts again, so a new epoch is generated.
+ *
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ */
+public class ODistributedOperationLog {
+  private final String                           databaseName;
+  private final long                             epoch;
+  private final int                              maxSize;
+  private final LinkedList<ODistributedRequest>  operations      = new LinkedList<ODistributedRequest>();
+  private long                                   coveredFrom;
+  private long                                   lastOperationId = -1;
+  private volatile ODistributedAppliedOperations appliedOperations;
+
+  /**
+   * @param iFirstOperationId
+   *          id of the first operation executed since the log was created: the previous ones are not available
+   */
+  public ODistributedOperationLog(final String iDatabaseName, final long iEpoch, final long iFirstOperationId, final int iMaxSize) {
+    databaseName = iDatabaseName;
+    epoch = iEpoch;
+    coveredFrom = iFirstOperationId;
+    maxSize = iMaxSize;
+  }
+
+  /**
+   * Logs an operation executed on the local node. Only the operations that change the database are kept. Operations applied in
+   * parallel can be logged out of order: the log is kept sorted by id.
+   */
+  public synchronized void logOperation(final ODistributedRequest iRequest) {
+    final long id = iRequest.getId();
+    if (id < coveredFrom)
+      // NOT AVAILABLE ANYMORE
+      return;
+
+    if (id > lastOperationId)
+      lastOperationId = id;
+
+    final OAbstractRemoteTask task = iRequest.getTask();
+    if (task.isIdempotent() || !task.isRequireNodeOnline())
+      // QUERIES AND DEPLOYMENTS DON'T CHANGE THE DATABASE
+      return;
+
+    final ListIterator<ODistributedRequest> it = operations.listIterator(operations.size());
+    while (it.hasPrevious()) {
+      final long previousId = it.previous().getId();
+      if (previousId == id)
+        // ALREADY EXECUTED
+        return;
+
+      if (previousId < id) {
+        it.next();
+        break;
+      }
+    }
+    it.add(iRequest);
+    while (operations.size() > maxSize)
+      // THE OPERATIONS UNTIL THE REMOVED ONE ARE NOT AVAILABLE ANYMORE
+      coveredFrom = operations.removeFirst().getId() + 1;
+  }
+
+  /**
+   * Returns the operations executed after the requested one, up to the last one executed without gaps, or null if some of them
+   * are not available anymore.
+   */
+  public synchronized ODistributedDatabaseDelta getOperationsAfter(final long iEpoch, final long iOperationId) {
+    final long last = getLastAppliedOperationId();
+    if (iEpoch != epoch || iOperationId + 1 < coveredFrom || iOperationId > last)
+      return null;
+
+    final List<ODistributedRequest> result = new ArrayList<ODistributedRequest>();
+    for (ODistributedRequest req : operations)
+      if (req.getId() > iOperationId && req.getId() <= last)
+        result.add(req);
+
+    return new ODistributedDatabaseDelta(last, result);
+  }
+
+  /**
+   * Returns the state to save when the node is shut down, so the database can be resynchronized after the restart. The operations
+   * after the last one executed without gaps are requested again.
+   */
+  public synchronized ODocument getState() {
+    final ODocument state = new ODocument();
+    state.field("epoch", epoch);
+    state.field("lastOperationId", getLastAppliedOperationId());
+    return state;
+  }
+
+  /**
+   * Returns the id of the last operation executed such that all the previous operations received have been executed too.
+   */
+  public synchronized long getLastAppliedOperationId() {
+    final ODistributedAppliedOperations applied = appliedOperations;
+    return applied != null ? Math.min(lastOperationId, applied.getAppliedUntil()) : lastOperationId;
+  }
+
+  /**
+   * Sets the operations received by the local node, to bound the operations served and saved to the ones executed without gaps.
+   */
+  public void setAppliedOperations(final ODistributedAppliedOperations iAppliedOperations) {
+    appliedOperations = iAppliedOperations;
+  }
+
+  public String getDatabaseName() {
+    return databaseName;
+  }
+
+  public long getEpoch() {
+    return epoch;
+  }
+
+  public synchronized long getLastOperationId() {
+    return lastOperationId;
+  }
+
+  public synchronized int size() {
+    return operations.size();
+  }
+
+  @Override
+  public synchronized String toString() {
+    return databaseName + "(epoch=" + epoch + " from=" + coveredFrom + " last=" + lastOperationId + " size=" + operations.size()
+        + ")";
+  }
+}
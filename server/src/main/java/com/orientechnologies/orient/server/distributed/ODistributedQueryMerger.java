@@ -0,0 +1,231 @@
+/*
+ * Copyright 2010-2014 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.distributed;
+
+import com.orientechnologies.common.util.OPair;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.record.impl.ODocumentComparator;
+import com.orientechnologies.orient.core.sql.OCommandExecutorSQLSelect;
+import com.orientechnologies.orient.core.sql.functions.OSQLFunctionRuntime;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Merges the results of a SELECT executed by multiple nodes. Aggregates are merged per group, sorted results are merged keeping the
+ * order of the ORDER BY fields and finally SKIP and LIMIT are applied. With partial results every node executed the query only
+ * against its own clusters and returned its first SKIP + LIMIT records, so the SKIP is applied here.
+ *
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ */
+public class ODistributedQueryMerger {
+  private final OCommandExecutorSQLSelect select;
+  private final boolean                   partialResult;
+
+  public ODistributedQueryMerger(final OCommandExecutorSQLSelect iSelect, final boolean iPartialResult) {
+    select = iSelect;
+    partialResult = iPartialResult;
+  }
+
+  /**
+   * Merges the results received by the nodes.
+   *
+   * @param iResults
+   *          result of every node
+   * @return the merged result set
+   * @throws Exception
+   *           the exception received by a node
+   */
+  @SuppressWarnings("unchecked")
+  public List<Object> merge(final Map<String, Object> iResults) throws Exception {
+    final List<List<Object>> resultSets = new ArrayList<List<Object>>(iResults.size());
+    for (Object nodeResult : iResults.values()) {
+      if (nodeResult instanceof Exception)
+        // RECEIVED EXCEPTION
+        throw (Exception) nodeResult;
+      else if (nodeResult instanceof Collection)
+        resultSets.add(new ArrayList<Object>((Collection<?>) nodeResult));
+      else if (nodeResult != null)
+        resultSets.add(Collections.singletonList(nodeResult));
+    }
+
+    final List<OPair<String, String>> orderedFields = select.getOrderedFields();
+
+    List<Object> result;
+    if (select.isAnyFunctionAggregates()) {
+      result = mergeAggregates(resultSets);
+      if (!orderedFields.isEmpty())
+        Collections.sort((List<OIdentifiable>) (List<?>) result, new ODocumentComparator(orderedFields, select.getContext()));
+    } else if (!orderedFields.isEmpty() && areDocuments(resultSets))
+      result = mergeSorted(resultSets, orderedFields);
+    else if (partialResult) {
+      // EVERY NODE BROWSED DIFFERENT CLUSTERS: NO DUPLICATES
+      result = new ArrayList<Object>();
+      for (List<Object> resultSet : resultSets)
+        result.addAll(resultSet);
+    } else {
+      // MIX & FILTER RESULT SET AVOIDING DUPLICATES
+      final Collection<Object> set = new LinkedHashSet<Object>();
+      for (List<Object> resultSet : resultSets)
+        set.addAll(resultSet);
+      result = new ArrayList<Object>(set);
+    }
+
+    return applyLimitAndSkip(result);
+  }
+
+  /**
+   * Merges the partial aggregates of every group. The groups are identified by the values of the GROUP BY fields: the nodes return
+   * them in the {@link OCommandExecutorSQLSelect#FIELD_GROUP_KEY} field, otherwise they are read from the projected fields.
+   */
+  protected List<Object> mergeAggregates(final List<List<Object>> iResultSets) {
+    final Map<String, Object> projections = select.getProjections();
+    final List<String> groupByFields = select.getGroupByFields();
+
+    final Map<List<Object>, List<ODocument>> groups = new LinkedHashMap<List<Object>, List<ODocument>>();
+    for (List<Object> resultSet : iResultSets) {
+      for (Object r : resultSet) {
+        if (!(r instanceof ODocument))
+          continue;
+
+        final ODocument d = (ODocument) r;
+
+        final List<Object> key = new ArrayList<Object>();
+        if (groupByFields != null) {
+          final List<Object> groupKey = d.field(OCommandExecutorSQLSelect.FIELD_GROUP_KEY);
+          if (groupKey != null)
+            key.addAll(groupKey);
+          else
+            for (String f : groupByFields)
+              key.add(d.field(f));
+        }
+
+        List<ODocument> group = groups.get(key);
+        if (group == null) {
+          group = new ArrayList<ODocument>();
+          groups.put(key, group);
+        }
+        group.add(d);
+      }
+    }
+
+    final List<Object> result = new ArrayList<Object>(groups.size());
+    final List<Object> toMerge = new ArrayList<Object>();
+    for (List<ODocument> group : groups.values()) {
+      final ODocument doc = new ODocument();
+
+      for (Map.Entry<String, Object> p : projections.entrySet()) {
+        if (isAggregate(p.getValue())) {
+          toMerge.clear();
+          for (ODocument d : group)
+            toMerge.add(d.rawField(p.getKey()));
+
+          // WRITE THE FINAL MERGED RESULT
+          doc.field(p.getKey(), ((OSQLFunctionRuntime) p.getValue()).getFunction().mergeDistributedResult(toMerge));
+        } else
+          // SAME VALUE FOR THE WHOLE GROUP
+          doc.field(p.getKey(), group.get(0).field(p.getKey()));
+      }
+
+      result.add(doc);
+    }
+    return result;
+  }
+
+  /**
+   * Merges the result sets, already sorted by every node, stopping once SKIP + LIMIT records have been collected.
+   */
+  protected List<Object> mergeSorted(final List<List<Object>> iResultSets, final List<OPair<String, String>> iOrderedFields) {
+    final ODocumentComparator comparator = new ODocumentComparator(iOrderedFields, select.getContext());
+
+    final PriorityQueue<OPair<Integer, Integer>> heads = new PriorityQueue<OPair<Integer, Integer>>(Math.max(1,
+        iResultSets.size()), new Comparator<OPair<Integer, Integer>>() {
+      @Override
+      public int compare(final OPair<Integer, Integer> o1, final OPair<Integer, Integer> o2) {
+        final int result = comparator.compare((OIdentifiable) iResultSets.get(o1.getKey()).get(o1.getValue()),
+            (OIdentifiable) iResultSets.get(o2.getKey()).get(o2.getValue()));
+        // SAME VALUES: KEEP THE ORDER OF THE NODES
+        return result != 0 ? result : o1.getKey().compareTo(o2.getKey());
+      }
+    });
+
+    for (int i = 0; i < iResultSets.size(); ++i)
+      if (!iResultSets.get(i).isEmpty())
+        heads.add(new OPair<Integer, Integer>(i, 0));
+
+    final int max = getMaxResults();
+
+    // WITHOUT PARTIAL RESULTS THE NODES CAN RETURN THE SAME RECORDS. PROJECTIONS HAVE TEMPORARY RIDS THAT DON'T IDENTIFY THEM
+    final Set<ORID> merged = partialResult ? null : new HashSet<ORID>();
+
+    final List<Object> result = new ArrayList<Object>();
+    while (!heads.isEmpty() && (max < 0 || result.size() < max)) {
+      final OPair<Integer, Integer> head = heads.poll();
+      final List<Object> resultSet = iResultSets.get(head.getKey());
+      final Object record = resultSet.get(head.getValue());
+      final ORID rid = ((OIdentifiable) record).getIdentity();
+      if (merged == null || !rid.isPersistent() || merged.add(rid))
+        result.add(record);
+
+      if (head.getValue() + 1 < resultSet.size())
+        heads.add(new OPair<Integer, Integer>(head.getKey(), head.getValue() + 1));
+    }
+    return result;
+  }
+
+  protected List<Object> applyLimitAndSkip(final List<Object> iResult) {
+    // WITHOUT PARTIAL RESULTS THE SKIP HAS BEEN ALREADY APPLIED BY THE NODES
+    final int skip = partialResult ? Math.min(select.getSkip(), iResult.size()) : 0;
+    final int limit = select.getLimit();
+
+    final int end = limit > -1 ? Math.min(skip + limit, iResult.size()) : iResult.size();
+    if (skip == 0 && end == iResult.size())
+      return iResult;
+
+    return new ArrayList<Object>(iResult.subList(skip, end));
+  }
+
+  private int getMaxResults() {
+    final int limit = select.getLimit();
+    if (limit < 0)
+      return -1;
+    return partialResult ? select.getSkip() + limit : limit;
+  }
+
+  private static boolean isAggregate(final Object iProjection) {
+    return iProjection instanceof OSQLFunctionRuntime && ((OSQLFunctionRuntime) iProjection).aggregateResults();
+  }
+
+  private static boolean areDocuments(final List<List<Object>> iResultSets) {
+    for (List<Object> resultSet : iResultSets)
+      for (Object r : resultSet)
+        if (!(r instanceof OIdentifiable))
+          return false;
+    return true;
+  }
+}
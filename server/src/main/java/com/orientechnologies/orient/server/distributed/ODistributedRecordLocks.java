@@ -0,0 +1,97 @@
+/*
+ * Copyright 2010-2013 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.distributed;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import com.orientechnologies.common.concur.lock.OLockException;
+import com.orientechnologies.orient.core.id.ORID;
+
+/**
+ * Locks the records changed by the distributed transactions coordinated by the local node, until the nodes have answered. The
+ * records of a transaction are locked together in RID order, so two transactions never wait for each other. These locks are taken
+ * before the storage ones.
+ *
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ */
+public class ODistributedRecordLocks {
+  private final Map<ORID, Thread> locks = new HashMap<ORID, Thread>();
+
+  /**
+   * Locks all the records, in RID order.
+   *
+   * @param iTimeout
+   *          maximum time in milliseconds to wait for all the locks
+   * @return the locked records, to pass to {@link #unlock(Collection)}
+   * @throws OLockException
+   *           if the timeout expired. No record remains locked
+   */
+  public List<ORID> lock(final Collection<? extends ORID> iRids, final long iTimeout) throws InterruptedException {
+    final List<ORID> sorted = new ArrayList<ORID>(new TreeSet<ORID>(iRids));
+    final List<ORID> acquired = new ArrayList<ORID>(sorted.size());
+    final Thread current = Thread.currentThread();
+    final long deadline = System.currentTimeMillis() + iTimeout;
+
+    boolean done = false;
+    synchronized (locks) {
+      try {
+        for (ORID rid : sorted) {
+          Thread owner = locks.get(rid);
+          while (owner != null && owner != current) {
+            final long left = deadline - System.currentTimeMillis();
+            if (left <= 0)
+              throw new OLockException("Timeout on locking record " + rid + " for the distributed transaction, locked by " + owner);
+            locks.wait(left);
+            owner = locks.get(rid);
+          }
+
+          if (owner == null) {
+            locks.put(rid, current);
+            acquired.add(rid);
+          }
+        }
+        done = true;
+      } finally {
+        if (!done)
+          unlock(acquired);
+      }
+    }
+    return acquired;
+  }
+
+  public void unlock(final Collection<ORID> iRids) {
+    if (iRids.isEmpty())
+      return;
+
+    synchronized (locks) {
+      for (ORID rid : iRids)
+        locks.remove(rid);
+      locks.notifyAll();
+    }
+  }
+
+  public boolean isLocked(final ORID iRid) {
+    synchronized (locks) {
+      return locks.containsKey(iRid);
+    }
+  }
+}
@@ -95,6 +95,17 @@ public interface ODistributedServerManager {
 
   public ODistributedConfiguration getDatabaseConfiguration(String iDatabaseName);
 
+  /**
+   * Returns the log of the last replicated operations executed against the database, or null if it's not kept.
+   */
+  public ODistributedOperationLog getOperationLog(String iDatabaseName);
+
+  /**
+   * Marks the local database as not aligned with the other nodes: its operations are not sent to the other nodes anymore and its
+   * state is not saved, so after the restart the database is deployed again.
+   */
+  public void setDatabaseMisaligned(String iDatabaseName);
+
   public Object sendRequest(String iDatabaseName, Collection<String> iClusterNames, Collection<String> iTargetNodeNames, OAbstractRemoteTask iTask, EXECUTION_MODE iExecutionMode);
 
   public ODocument getStats();
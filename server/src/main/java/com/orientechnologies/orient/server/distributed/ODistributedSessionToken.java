@@ -0,0 +1,90 @@
+/*
+ * Copyright 2010-2013 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.distributed;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.orientechnologies.orient.core.db.ODatabase;
+
+/**
+ * Causality token of a session: the id of the last replicated operation written by the session against each cluster. It's kept as
+ * property of the database, so a read served by a replica waits only until the replica has applied the writes of the same session,
+ * instead of raising the read quorum.
+ *
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ */
+public class ODistributedSessionToken {
+  public static final String      PROPERTY     = "distributed.sessionToken";
+  public static final String      ALL_CLUSTERS = "*";
+
+  private final Map<String, Long> operations   = new ConcurrentHashMap<String, Long>();
+
+  /**
+   * Returns the token of the session, or null if the session has no token yet and iCreate is false.
+   */
+  public static ODistributedSessionToken get(final ODatabase iDatabase, final boolean iCreate) {
+    if (iDatabase == null)
+      return null;
+
+    ODistributedSessionToken token = (ODistributedSessionToken) iDatabase.getProperty(PROPERTY);
+    if (token == null && iCreate) {
+      token = new ODistributedSessionToken();
+      iDatabase.setProperty(PROPERTY, token);
+    }
+    return token;
+  }
+
+  /**
+   * Updates the token with the operation written against the clusters. Null or empty clusters mean all the clusters.
+   */
+  public void update(final Collection<String> iClusterNames, final long iOperationId) {
+    if (iClusterNames == null || iClusterNames.isEmpty())
+      update(ALL_CLUSTERS, iOperationId);
+    else
+      for (String c : iClusterNames)
+        update(c, iOperationId);
+  }
+
+  /**
+   * Returns the id of the last operation written by the session against the cluster, or -1 if none.
+   */
+  public long getOperationId(final String iClusterName) {
+    final Long all = operations.get(ALL_CLUSTERS);
+    final Long cluster = iClusterName != null ? operations.get(iClusterName.toLowerCase()) : null;
+
+    long result = -1;
+    if (all != null)
+      result = all;
+    if (cluster != null && cluster > result)
+      result = cluster;
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return operations.toString();
+  }
+
+  private void update(final String iClusterName, final long iOperationId) {
+    final String key = iClusterName.toLowerCase();
+    final Long current = operations.get(key);
+    if (current == null || current < iOperationId)
+      operations.put(key, iOperationId);
+  }
+}
@@ -30,6 +30,7 @@ import com.orientechnologies.orient.core.command.ODistributedCommand;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.config.OStorageConfiguration;
 import com.orientechnologies.orient.core.conflict.ORecordConflictStrategy;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.OScenarioThreadLocal;
 import com.orientechnologies.orient.core.db.OScenarioThreadLocal.RUN_MODE;
 import com.orientechnologies.orient.core.db.record.OCurrentStorageComponentsFactory;
@@ -63,6 +64,7 @@ import com.orientechnologies.orient.server.OServer;
 import com.orientechnologies.orient.server.distributed.ODistributedRequest.EXECUTION_MODE;
 import com.orientechnologies.orient.server.distributed.task.OAbstractRecordReplicatedTask;
 import com.orientechnologies.orient.server.distributed.task.OAbstractRemoteTask;
+import com.orientechnologies.orient.server.distributed.task.OAppendRecordTask;
 import com.orientechnologies.orient.server.distributed.task.OCreateRecordTask;
 import com.orientechnologies.orient.server.distributed.task.ODeleteRecordTask;
 import com.orientechnologies.orient.server.distributed.task.OReadRecordTask;
@@ -99,6 +101,8 @@ public class ODistributedStorage implements OStorage, OFreezableStorage, OAutosh
   protected final TimerTask                                                 purgeDeletedRecordsTask;
   protected final ConcurrentHashMap<ORecordId, OPair<Long, ORecordVersion>> deletedRecords  = new ConcurrentHashMap<ORecordId, OPair<Long, ORecordVersion>>();
   protected final AtomicLong                                                lastOperationId = new AtomicLong();
+  protected final ConcurrentHashMap<Integer, Object>                        appendLocks     = new ConcurrentHashMap<Integer, Object>();
+  protected final ODistributedRecordLocks                                   recordLocks     = new ODistributedRecordLocks();
 
   public ODistributedStorage(final OServer iServer, final OStorageEmbedded wrapped) {
     this.serverInstance = iServer;
@@ -230,94 +234,100 @@ public class ODistributedStorage implements OStorage, OFreezableStorage, OAutosh
           // LOCAL NODE, AVOID TO DISTRIBUTE IT
           return wrapped.command(iCommand);
 
-        // TODO: OPTIMIZE FILTERING BY CHANGING TARGET PER CLUSTER INSTEAD OF LEAVING CLASS
+        final OCommandExecutorSQLSelect select = exec instanceof OCommandExecutorSQLSelect ? (OCommandExecutorSQLSelect) exec
+            : null;
+        final boolean pushdown = OGlobalConfiguration.DISTRIBUTED_QUERY_PUSHDOWN.getValueAsBoolean();
+
+        if (select != null && nodes.size() > 1 && !involvedClusters.isEmpty() && pushdown) {
+          // PUSH THE QUERY DOWN: EVERY NODE BROWSES ONLY THE CLUSTERS ASSIGNED TO IT
+          final Map<String, Collection<String>> clustersPerNode = dbCfg.getClustersPerServer(involvedClusters,
+              dManager.getLocalNodeName());
+          if (clustersPerNode.keySet().equals(new HashSet<String>(nodes)))
+            task.setClustersPerNode(clustersPerNode);
+        }
+
         result = dManager.sendRequest(getName(), involvedClusters, nodes, task, EXECUTION_MODE.RESPONSE);
 
-        if (result instanceof Map) {
-          if (executor instanceof OCommandExecutorSQLDelegate
-              && ((OCommandExecutorSQLDelegate) executor).getDelegate() instanceof OCommandExecutorSQLSelect) {
-            final OCommandExecutorSQLSelect cmd = (OCommandExecutorSQLSelect) ((OCommandExecutorSQLDelegate) executor)
-                .getDelegate();
-
-            if (((Map<String, Object>) result).size() == 1)
-              // USE THE COLLECTION DIRECTLY
-              result = ((Map<String, Object>) result).values().iterator().next();
-            else {
-              if (cmd.isAnyFunctionAggregates()) {
-                final Map<String, Object> proj = cmd.getProjections();
-
-                final List<Object> list = new ArrayList<Object>();
-                final ODocument doc = new ODocument();
-                list.add(doc);
-
-                boolean hasNonAggregates = false;
-                for (Map.Entry<String, Object> p : proj.entrySet()) {
-                  if (!(p.getValue() instanceof OSQLFunctionRuntime)) {
-                    hasNonAggregates = true;
-                    break;
-                  }
+        if (result instanceof Map && select != null) {
+          if (pushdown)
+            result = new ODistributedQueryMerger(select, task.isPartialResult()).merge((Map<String, Object>) result);
+          else if (((Map<String, Object>) result).size() == 1)
+            // USE THE COLLECTION DIRECTLY
+            result = ((Map<String, Object>) result).values().iterator().next();
+          else {
+            if (select.isAnyFunctionAggregates()) {
+              final Map<String, Object> proj = select.getProjections();
+
+              final List<Object> list = new ArrayList<Object>();
+              final ODocument doc = new ODocument();
+              list.add(doc);
+
+              boolean hasNonAggregates = false;
+              for (Map.Entry<String, Object> p : proj.entrySet()) {
+                if (!(p.getValue() instanceof OSQLFunctionRuntime)) {
+                  hasNonAggregates = true;
+                  break;
                 }
+              }
 
-                if (hasNonAggregates) {
-                  // MERGE NON AGGREGATED FIELDS
-                  for (Map.Entry<String, Object> entry : ((Map<String, Object>) result).entrySet()) {
-                    final List<Object> resultSet = (List<Object>) entry.getValue();
+              if (hasNonAggregates) {
+                // MERGE NON AGGREGATED FIELDS
+                for (Map.Entry<String, Object> entry : ((Map<String, Object>) result).entrySet()) {
+                  final List<Object> resultSet = (List<Object>) entry.getValue();
 
-                    for (Object r : resultSet) {
-                      if (r instanceof ODocument) {
-                        final ODocument d = (ODocument) r;
+                  for (Object r : resultSet) {
+                    if (r instanceof ODocument) {
+                      final ODocument d = (ODocument) r;
 
-                        for (Map.Entry<String, Object> p : proj.entrySet()) {
-                          // WRITE THE FIELD AS IS
-                          if (!(p.getValue() instanceof OSQLFunctionRuntime))
-                            doc.field(p.getKey(), p.getValue());
-                        }
+                      for (Map.Entry<String, Object> p : proj.entrySet()) {
+                        // WRITE THE FIELD AS IS
+                        if (!(p.getValue() instanceof OSQLFunctionRuntime))
+                          doc.field(p.getKey(), p.getValue());
                       }
                     }
                   }
                 }
+              }
 
-                final List<Object> toMerge = new ArrayList<Object>();
+              final List<Object> toMerge = new ArrayList<Object>();
 
-                // MERGE AGGREGATED FIELDS
-                for (Map.Entry<String, Object> p : proj.entrySet()) {
-                  if (p.getValue() instanceof OSQLFunctionRuntime) {
-                    // MERGE RESULTS
-                    final OSQLFunctionRuntime f = (OSQLFunctionRuntime) p.getValue();
+              // MERGE AGGREGATED FIELDS
+              for (Map.Entry<String, Object> p : proj.entrySet()) {
+                if (p.getValue() instanceof OSQLFunctionRuntime) {
+                  // MERGE RESULTS
+                  final OSQLFunctionRuntime f = (OSQLFunctionRuntime) p.getValue();
 
-                    toMerge.clear();
-                    for (Map.Entry<String, Object> entry : ((Map<String, Object>) result).entrySet()) {
-                      final List<Object> resultSet = (List<Object>) entry.getValue();
+                  toMerge.clear();
+                  for (Map.Entry<String, Object> entry : ((Map<String, Object>) result).entrySet()) {
+                    final List<Object> resultSet = (List<Object>) entry.getValue();
 
-                      for (Object r : resultSet) {
-                        if (r instanceof ODocument) {
-                          final ODocument d = (ODocument) r;
-                          toMerge.add(d.rawField(p.getKey()));
-                        }
+                    for (Object r : resultSet) {
+                      if (r instanceof ODocument) {
+                        final ODocument d = (ODocument) r;
+                        toMerge.add(d.rawField(p.getKey()));
                       }
-
                     }
 
-                    // WRITE THE FINAL MERGED RESULT
-                    doc.field(p.getKey(), f.getFunction().mergeDistributedResult(toMerge));
                   }
-                }
 
-                result = list;
-              } else {
-                // MIX & FILTER RESULT SET AVOIDING DUPLICATES
-                // TODO: ONCE OPTIMIZED (SEE ABOVE) AVOID TO FILTER HERE
-                final Set<Object> set = new HashSet<Object>();
-                for (Map.Entry<String, Object> entry : ((Map<String, Object>) result).entrySet()) {
-                  final Object nodeResult = entry.getValue();
-                  if (nodeResult instanceof Collection)
-                    set.addAll((Collection<?>) nodeResult);
-                  else if (nodeResult instanceof Exception)
-                    // RECEIVED EXCEPTION
-                    throw (Exception) nodeResult;
+                  // WRITE THE FINAL MERGED RESULT
+                  doc.field(p.getKey(), f.getFunction().mergeDistributedResult(toMerge));
                 }
-                result = new ArrayList<Object>(set);
               }
+
+              result = list;
+            } else {
+              // MIX & FILTER RESULT SET AVOIDING DUPLICATES
+              final Set<Object> set = new HashSet<Object>();
+              for (Map.Entry<String, Object> entry : ((Map<String, Object>) result).entrySet()) {
+                final Object nodeResult = entry.getValue();
+                if (nodeResult instanceof Collection)
+                  set.addAll((Collection<?>) nodeResult);
+                else if (nodeResult instanceof Exception)
+                  // RECEIVED EXCEPTION
+                  throw (Exception) nodeResult;
+              }
+              result = new ArrayList<Object>(set);
             }
           }
         }
@@ -363,6 +373,10 @@ public class ODistributedStorage implements OStorage, OFreezableStorage, OAutosh
         throw new ODistributedException("Error on inserting into cluster '" + clusterName + "' where local node '"
             + dManager.getLocalNodeName() + "' is not the master of it, but it's '" + masterNode + "'");
 
+      if (dbCfg.isAppendOnly(clusterName))
+        // ONLY THE LOCAL NODE WRITES THE CLUSTER: NO CONFLICTS ARE POSSIBLE
+        return appendRecord(clusterName, nodes, iRecordId, iContent, iRecordVersion, iRecordType, iMode, iCallback);
+
       // REPLICATE IT
       final Object masterResult = dManager.sendRequest(getName(), Collections.singleton(clusterName), nodes, new OCreateRecordTask(
           iRecordId, iContent, iRecordVersion, iRecordType), EXECUTION_MODE.RESPONSE);
@@ -389,6 +403,55 @@ public class ODistributedStorage implements OStorage, OFreezableStorage, OAutosh
     }
   }
 
+  /**
+   * Creates the record in a cluster of the local node and replicates it to the other nodes without waiting for their responses. The
+   * appends of a cluster are sent in the same order they took their positions, so the other nodes assign the same positions.
+   */
+  protected OStorageOperationResult<OPhysicalPosition> appendRecord(final String iClusterName, final List<String> iNodes,
+      final ORecordId iRecordId, final byte[] iContent, final ORecordVersion iRecordVersion, final byte iRecordType,
+      final int iMode, final ORecordCallback<OClusterPosition> iCallback) {
+    final List<String> replicas = new ArrayList<String>(iNodes);
+    replicas.remove(dManager.getLocalNodeName());
+
+    Object lock = appendLocks.get(iRecordId.getClusterId());
+    if (lock == null) {
+      lock = new Object();
+      final Object prev = appendLocks.putIfAbsent(iRecordId.getClusterId(), lock);
+      if (prev != null)
+        lock = prev;
+    }
+
+    synchronized (lock) {
+      final OStorageOperationResult<OPhysicalPosition> result = wrapped.createRecord(iRecordId, iContent, iRecordVersion,
+          iRecordType, iMode, iCallback);
+
+      if (!replicas.isEmpty())
+        try {
+          dManager.sendRequest(getName(), Collections.singleton(iClusterName), replicas, new OAppendRecordTask(iRecordId.copy(),
+              iContent, result.getResult().recordVersion, iRecordType), EXECUTION_MODE.NO_RESPONSE);
+        } catch (Exception e) {
+          // THE RECORD IS CREATED ANYWAY AND THE APPEND IS LOGGED BEFORE SENDING IT: DELTA SYNC REPLAYS IT ON THE NODES THAT MISSED
+          // IT. WITHOUT AN OPERATION LOG THEY CAN ONLY BE ALIGNED BY DEPLOYING THE DATABASE AGAIN
+          ODistributedServerLog.error(this, dManager.getLocalNodeName(), replicas.toString(), ODistributedServerLog.DIRECTION.OUT,
+              "error on replicating the append of record %s", e, iRecordId);
+          if (dManager.getOperationLog(getName()) == null)
+            dManager.setDatabaseMisaligned(getName());
+        }
+
+      return result;
+    }
+  }
+
+  /**
+   * Reads the records one by one, to route every read by the owner of its cluster.
+   */
+  public List<ORawBuffer> readRecords(final Collection<ORecordId> iRids) {
+    final List<ORawBuffer> result = new ArrayList<ORawBuffer>(iRids.size());
+    for (ORecordId rid : iRids)
+      result.add(readRecord(rid, null, false, null, false, LOCKING_STRATEGY.DEFAULT).getResult());
+    return result;
+  }
+
   public OStorageOperationResult<ORawBuffer> readRecord(final ORecordId iRecordId, final String iFetchPlan,
       final boolean iIgnoreCache, final ORecordCallback<ORawBuffer> iCallback, boolean loadTombstones,
       LOCKING_STRATEGY iLockingStrategy) {
@@ -412,11 +475,12 @@ public class ODistributedStorage implements OStorage, OFreezableStorage, OAutosh
         // DON'T REPLICATE
         return wrapped.readRecord(iRecordId, iFetchPlan, iIgnoreCache, iCallback, loadTombstones, LOCKING_STRATEGY.DEFAULT);
 
-      if (nodes.contains(dManager.getLocalNodeName()) && dbCfg.getReadQuorum(clusterName) <= 1)
+      if (nodes.contains(dManager.getLocalNodeName()) && dbCfg.getReadQuorum(clusterName) <= 1
+          && waitForSessionWrites(clusterName))
         // LOCAL NODE OWNS THE DATA AND READ-QUORUM = 1: GET IT LOCALLY BECAUSE IT'S FASTER
         return wrapped.readRecord(iRecordId, iFetchPlan, iIgnoreCache, iCallback, loadTombstones, LOCKING_STRATEGY.DEFAULT);
 
-      // DISTRIBUTE IT
+      // DISTRIBUTE IT. THE REQUEST IS QUEUED AFTER THE WRITES OF THE SESSION, SO IT SEES THEM
       final Object result = dManager.sendRequest(getName(), Collections.singleton(clusterName), nodes, new OReadRecordTask(
           iRecordId), EXECUTION_MODE.RESPONSE);
 
@@ -619,13 +683,19 @@ public class ODistributedStorage implements OStorage, OFreezableStorage, OAutosh
       // ALREADY DISTRIBUTED
       wrapped.commit(iTx, callback);
     else {
+      List<ORID> locked = Collections.emptyList();
       try {
         final ODistributedConfiguration dbCfg = dManager.getDatabaseConfiguration(getName());
         if (!dbCfg.isReplicationActive(null, dManager.getLocalNodeName()))
           // DON'T REPLICATE
           wrapped.commit(iTx, callback);
         else {
-          final OTxTask txTask = new OTxTask();
+          final boolean prepare = OGlobalConfiguration.DISTRIBUTED_TX_PREPARE.getValueAsBoolean();
+          if (prepare)
+            // LOCK THE RECORDS TO CHANGE UNTIL THE NODES ANSWER: THE TRANSACTIONS AGAINST THE SAME RECORDS ARE SENT ONE AT A TIME
+            locked = recordLocks.lock(getRecordsToLock(iTx), OGlobalConfiguration.STORAGE_RECORD_LOCK_TIMEOUT.getValueAsLong());
+
+          final OTxTask txTask = new OTxTask().setPrepare(prepare);
           final Set<String> involvedClusters = new HashSet<String>();
 
           for (ORecordOperation op : iTx.getCurrentRecordEntries()) {
@@ -713,10 +783,23 @@ public class ODistributedStorage implements OStorage, OFreezableStorage, OAutosh
         }
       } catch (Exception e) {
         handleDistributedException("Cannot route TX operation against distributed node", e);
+      } finally {
+        recordLocks.unlock(locked);
       }
     }
   }
 
+  /**
+   * Returns the records the transaction updates or deletes.
+   */
+  protected List<ORID> getRecordsToLock(final OTransaction iTx) {
+    final List<ORID> rids = new ArrayList<ORID>();
+    for (ORecordOperation op : iTx.getCurrentRecordEntries())
+      if ((op.type == ORecordOperation.UPDATED || op.type == ORecordOperation.DELETED) && op.record.getIdentity().isPersistent())
+        rids.add(op.record.getIdentity().copy());
+    return rids;
+  }
+
   @Override
   public void rollback(final OTransaction iTx) {
     wrapped.rollback(iTx);
@@ -972,6 +1055,37 @@ public class ODistributedStorage implements OStorage, OFreezableStorage, OAutosh
     return dManager.getLocalNodeName();
   }
 
+  /**
+   * Waits until the local node has applied the last operation written by the current session against the cluster.
+   *
+   * @return false if the timeout expired: the read must be sent to the nodes
+   */
+  protected boolean waitForSessionWrites(final String iClusterName) throws InterruptedException {
+    final long timeout = OGlobalConfiguration.DISTRIBUTED_READ_YOUR_WRITES_TIMEOUT.getValueAsLong();
+    if (timeout <= 0)
+      return true;
+
+    final ODistributedSessionToken token = ODistributedSessionToken.get(ODatabaseRecordThreadLocal.INSTANCE.getIfDefined(), false);
+    if (token == null)
+      return true;
+
+    final long operationId = token.getOperationId(iClusterName);
+    if (operationId < 0)
+      return true;
+
+    final ODistributedDatabase db = dManager.getMessageService().getDatabase(getName());
+    if (db == null || db.getAppliedOperations() == null)
+      return true;
+
+    if (db.getAppliedOperations().waitFor(operationId, timeout))
+      return true;
+
+    ODistributedServerLog.debug(this, dManager.getLocalNodeName(), null, ODistributedServerLog.DIRECTION.NONE,
+        "operation %d of the session has not been applied on cluster '%s.%s' after %dms, reading from the nodes", operationId,
+        getName(), iClusterName, timeout);
+    return false;
+  }
+
   protected void handleDistributedException(final String iMessage, final Exception e, final Object... iParams) {
     OLogManager.instance().error(this, iMessage, e, iParams);
     final Throwable t = e.getCause();
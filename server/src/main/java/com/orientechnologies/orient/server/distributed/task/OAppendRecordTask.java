@@ -0,0 +1,95 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.distributed.task;
+
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OPlaceholder;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.version.ORecordVersion;
+import com.orientechnologies.orient.server.OServer;
+import com.orientechnologies.orient.server.distributed.ODistributedException;
+import com.orientechnologies.orient.server.distributed.ODistributedRequest;
+import com.orientechnologies.orient.server.distributed.ODistributedServerLog;
+import com.orientechnologies.orient.server.distributed.ODistributedServerLog.DIRECTION;
+import com.orientechnologies.orient.server.distributed.ODistributedServerManager;
+
+/**
+ * Replicates a record already created by the master of an append-only cluster. The master sends the appends in the same order it
+ * created them and the replicas apply them in order too, so the new record takes the same position on every node.
+ *
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ */
+public class OAppendRecordTask extends OCreateRecordTask {
+  private static final long serialVersionUID = 1L;
+
+  public OAppendRecordTask() {
+  }
+
+  public OAppendRecordTask(final ORecordId iRid, final byte[] iContent, final ORecordVersion iVersion, final byte iRecordType) {
+    super(iRid, iContent, iVersion, iRecordType);
+  }
+
+  @Override
+  public Object execute(final OServer iServer, ODistributedServerManager iManager, final ODatabaseDocumentTx database)
+      throws Exception {
+    ODistributedServerLog.debug(this, iManager.getLocalNodeName(), getNodeSource(), DIRECTION.IN, "appending record %s/%s v.%s...",
+        database.getName(), rid.toString(), version.toString());
+
+    // THE RID IS THE ONE ASSIGNED BY THE MASTER: CREATE THE RECORD AS NEW AND CHECK IT TAKES THE SAME POSITION
+    record = Orient.instance().getRecordFactoryManager().newInstance(recordType);
+    record.fill(new ORecordId(rid.getClusterId()), version, content, true);
+    record.save(database.getClusterNameById(rid.getClusterId()), true);
+
+    if (!record.getIdentity().equals(rid)) {
+      // THE CLUSTER IS NOT ALIGNED WITH THE MASTER: REMOVE THE MISPLACED RECORD AND DEPLOY THE DATABASE AGAIN ON NEXT RESTART
+      final ORID misplaced = record.getIdentity().copy();
+      record.delete();
+
+      iManager.setDatabaseMisaligned(database.getName());
+
+      // THE ERROR IS LOGGED BY THE NODE
+      return new ODistributedException("Record " + rid + " was appended as " + misplaced
+          + " because the cluster is not aligned with the master: database '" + database.getName()
+          + "' will be deployed again on next restart");
+    }
+
+    return new OPlaceholder(record);
+  }
+
+  @Override
+  public QUORUM_TYPE getQuorumType() {
+    return QUORUM_TYPE.NONE;
+  }
+
+  @Override
+  public ODeleteRecordTask getFixTask(final ODistributedRequest iRequest, final Object iBadResponse, final Object iGoodResponse) {
+    // NOBODY WAITS FOR THE RESPONSES: NOTHING TO FIX
+    return null;
+  }
+
+  @Override
+  public ODeleteRecordTask getUndoTask(final ODistributedRequest iRequest, final Object iBadResponse) {
+    return null;
+  }
+
+  @Override
+  public String getName() {
+    return "record_append";
+  }
+}
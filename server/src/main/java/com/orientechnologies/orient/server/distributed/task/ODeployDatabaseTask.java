@@ -26,6 +26,7 @@ import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.storage.OCluster;
 import com.orientechnologies.orient.core.storage.OStorageAbstract;
 import com.orientechnologies.orient.server.OServer;
+import com.orientechnologies.orient.server.distributed.ODistributedChunkOutputStream;
 import com.orientechnologies.orient.server.distributed.ODistributedDatabaseChunk;
 import com.orientechnologies.orient.server.distributed.ODistributedException;
 import com.orientechnologies.orient.server.distributed.ODistributedServerLog;
@@ -53,12 +54,14 @@ public class ODeployDatabaseTask extends OAbstractReplicatedTask implements OCom
   public static final String DEPLOYDB              = "deploydb.";
   protected final ODocument  databaseConfiguration = new ODocument();
   protected long             random;
+  protected boolean          streamed;
 
   public ODeployDatabaseTask() {
   }
 
   public ODeployDatabaseTask(final ODatabaseRecordTx db) {
     random = UUID.randomUUID().getLeastSignificantBits();
+    streamed = OGlobalConfiguration.DISTRIBUTED_DEPLOYDB_STREAM_CHUNKS.getValueAsInteger() > 0;
 
     if (db != null) {
       // TO USE IN CASE OF CHECK CLUSTERS (SPLIT-NETWORK)
@@ -113,6 +116,9 @@ public class ODeployDatabaseTask extends OAbstractReplicatedTask implements OCom
           ODistributedServerLog.warn(this, iManager.getLocalNodeName(), getNodeSource(), DIRECTION.OUT, "deploying database %s...",
               databaseName);
 
+          if (streamed)
+            return streamDatabase(iManager, database);
+
           final File f = new File(Orient.getTempPath() + "/backup_" + database.getName() + ".zip");
           if (f.exists())
             f.delete();
@@ -173,6 +179,55 @@ public class ODeployDatabaseTask extends OAbstractReplicatedTask implements OCom
     return Boolean.FALSE;
   }
 
+  /**
+   * Sends the backup through the bounded deploy queue of the requesting node while it's created. The requesting node restores the
+   * chunks as they arrive, so the database is never written to a temporary file.
+   *
+   * @return an empty chunk with the id of the last operation contained in the backup
+   */
+  protected ODistributedDatabaseChunk streamDatabase(final ODistributedServerManager iManager, final ODatabaseDocumentTx database)
+      throws IOException {
+    final String databaseName = database.getName();
+    final AtomicLong lastOperationId = new AtomicLong(-1);
+
+    final ODistributedChunkOutputStream out = new ODistributedChunkOutputStream(iManager.getMessageService().getDeployQueue(
+        getNodeSource(), databaseName), databaseName, lastOperationId, CHUNK_MAX_SIZE,
+        OGlobalConfiguration.DISTRIBUTED_DEPLOYCHUNK_TASK_SYNCH_TIMEOUT.getValueAsLong());
+
+    ODistributedServerLog.info(this, iManager.getLocalNodeName(), getNodeSource(), DIRECTION.OUT,
+        "streaming the compressed database '%s' over the NETWORK to node '%s'...", databaseName, getNodeSource());
+
+    boolean completed = false;
+    try {
+      database.backup(out, null, new Callable<Object>() {
+        @Override
+        public Object call() throws Exception {
+          lastOperationId.set(database.getStorage().getLastOperationId());
+          return null;
+        }
+      }, this, OGlobalConfiguration.DISTRIBUTED_DEPLOYDB_TASK_COMPRESSION.getValueAsInteger(), 0);
+      completed = true;
+    } finally {
+      if (completed)
+        out.close();
+      else
+        // THE BACKUP IS PARTIAL: THE REQUESTING NODE MUST NOT INSTALL IT
+        out.abort("backup of database '" + databaseName + "' failed on node '" + iManager.getLocalNodeName() + "'");
+    }
+
+    ODistributedServerLog.info(this, iManager.getLocalNodeName(), getNodeSource(), DIRECTION.OUT,
+        "sent the compressed database '%s' to node '%s' in %d chunks, size=%s, lastOperationId=%d", databaseName, getNodeSource(),
+        out.getChunks(), OFileUtils.getSizeAsString(out.getSize()), lastOperationId.get());
+
+    iManager.setDatabaseStatus(iManager.getLocalNodeName(), databaseName, ODistributedServerManager.DB_STATUS.ONLINE);
+
+    return new ODistributedDatabaseChunk(lastOperationId.get(), databaseName, out.getSize(), new byte[0], true);
+  }
+
+  public boolean isStreamed() {
+    return streamed;
+  }
+
   @Override
   public RESULT_STRATEGY getResultStrategy() {
     return RESULT_STRATEGY.UNION;
@@ -209,6 +264,7 @@ public class ODeployDatabaseTask extends OAbstractReplicatedTask implements OCom
     final byte[] buffer = databaseConfiguration.toStream();
     out.writeInt(buffer.length);
     out.write(buffer);
+    out.writeBoolean(streamed);
   }
 
   @Override
@@ -218,6 +274,7 @@ public class ODeployDatabaseTask extends OAbstractReplicatedTask implements OCom
     final byte[] buffer = new byte[bufferLength];
     in.read(buffer);
     databaseConfiguration.fromStream(buffer);
+    streamed = in.readBoolean();
   }
 
   @Override
@@ -19,6 +19,7 @@ import com.orientechnologies.orient.core.command.OCommandRequest;
 import com.orientechnologies.orient.core.command.OCommandRequestText;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.sql.OCommandExecutorSQLSelect;
 import com.orientechnologies.orient.core.sql.OCommandSQL;
 import com.orientechnologies.orient.server.OServer;
 import com.orientechnologies.orient.server.distributed.ODistributedServerLog;
@@ -28,6 +29,7 @@ import com.orientechnologies.orient.server.distributed.ODistributedServerManager
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.Collection;
 import java.util.Map;
 
 /**
@@ -37,11 +39,13 @@ import java.util.Map;
  * 
  */
 public class OSQLCommandTask extends OAbstractReplicatedTask {
-  private static final long     serialVersionUID = 1L;
+  private static final long                 serialVersionUID = 1L;
 
-  protected String              text;
-  protected Map<Object, Object> params;
-  protected RESULT_STRATEGY     resultStrategy;
+  protected String                          text;
+  protected Map<Object, Object>             params;
+  protected RESULT_STRATEGY                 resultStrategy;
+  protected Map<String, Collection<String>> clustersPerNode;
+  protected boolean                         partialResult    = false;
 
   public OSQLCommandTask() {
   }
@@ -56,7 +60,19 @@ public class OSQLCommandTask extends OAbstractReplicatedTask {
     ODistributedServerLog.debug(this, iManager.getLocalNodeName(), getNodeSource(), DIRECTION.IN, "execute command=%s db=%s",
         text.toString(), database.getName());
 
-    final OCommandRequest cmd = database.command(new OCommandSQL(text));
+    final OCommandSQL sql = new OCommandSQL(text);
+
+    if (clustersPerNode != null) {
+      // EXECUTE ONLY AGAINST THE CLUSTERS ASSIGNED TO THE LOCAL NODE
+      final Collection<String> clusters = clustersPerNode.get(iManager.getLocalNodeName());
+      if (clusters != null)
+        sql.getContext().setVariable(OCommandExecutorSQLSelect.VAR_TARGET_CLUSTERS, clusters);
+    }
+
+    if (partialResult)
+      sql.getContext().setVariable(OCommandExecutorSQLSelect.VAR_PARTIAL_RESULT, Boolean.TRUE);
+
+    final OCommandRequest cmd = database.command(sql);
 
     if (params != null)
       // EXECUTE WITH PARAMETERS
@@ -78,6 +94,19 @@ public class OSQLCommandTask extends OAbstractReplicatedTask {
     this.resultStrategy = resultStrategy;
   }
 
+  /**
+   * Pushes the query down to the nodes: every node executes it only against the clusters assigned to it and returns a partial result
+   * merged by the coordinator.
+   */
+  public void setClustersPerNode(final Map<String, Collection<String>> iClustersPerNode) {
+    clustersPerNode = iClustersPerNode;
+    partialResult = iClustersPerNode != null;
+  }
+
+  public boolean isPartialResult() {
+    return partialResult;
+  }
+
   @Override
   public long getTimeout() {
     return OGlobalConfiguration.DISTRIBUTED_COMMAND_TASK_SYNCH_TIMEOUT.getValueAsLong();
@@ -87,12 +116,16 @@ public class OSQLCommandTask extends OAbstractReplicatedTask {
   public void writeExternal(final ObjectOutput out) throws IOException {
     out.writeUTF(text);
     out.writeObject(params);
+    out.writeObject(clustersPerNode);
+    out.writeBoolean(partialResult);
   }
 
   @Override
   public void readExternal(final ObjectInput in) throws IOException, ClassNotFoundException {
     text = in.readUTF();
     params = (Map<Object, Object>) in.readObject();
+    clustersPerNode = (Map<String, Collection<String>>) in.readObject();
+    partialResult = in.readBoolean();
   }
 
   @Override
@@ -100,6 +133,13 @@ public class OSQLCommandTask extends OAbstractReplicatedTask {
     return "command_sql";
   }
 
+  @Override
+  public boolean isIdempotent() {
+    // QUERIES DON'T CHANGE THE DATABASE
+    final String cmd = text.trim().toLowerCase();
+    return cmd.startsWith("select") || cmd.startsWith("traverse");
+  }
+
   @Override
   public String toString() {
     return super.toString() + "(" + text + ")";
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2010-2014 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.distributed.task;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.server.OServer;
+import com.orientechnologies.orient.server.distributed.ODistributedDatabaseDelta;
+import com.orientechnologies.orient.server.distributed.ODistributedOperationLog;
+import com.orientechnologies.orient.server.distributed.ODistributedServerLog;
+import com.orientechnologies.orient.server.distributed.ODistributedServerLog.DIRECTION;
+import com.orientechnologies.orient.server.distributed.ODistributedServerManager;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * Ask for the operations executed after the last one executed by the requesting node. If they are not available anymore the
+ * requesting node deploys the whole database.
+ *
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ */
+public class OSyncDatabaseDeltaTask extends OAbstractReplicatedTask {
+  private static final long serialVersionUID = 1L;
+
+  protected long            epoch;
+  protected long            lastOperationId;
+
+  public OSyncDatabaseDeltaTask() {
+  }
+
+  public OSyncDatabaseDeltaTask(final long iEpoch, final long iLastOperationId) {
+    epoch = iEpoch;
+    lastOperationId = iLastOperationId;
+  }
+
+  @Override
+  public Object execute(final OServer iServer, ODistributedServerManager iManager, final ODatabaseDocumentTx database)
+      throws Exception {
+
+    if (getNodeSource().equals(iManager.getLocalNodeName()))
+      return Boolean.FALSE;
+
+    final String databaseName = database.getName();
+
+    final ODistributedOperationLog log = iManager.getOperationLog(databaseName);
+    final ODistributedDatabaseDelta delta = log != null ? log.getOperationsAfter(epoch, lastOperationId) : null;
+    if (delta == null) {
+      ODistributedServerLog.info(this, iManager.getLocalNodeName(), getNodeSource(), DIRECTION.OUT,
+          "operations of database '%s' after %d are not available (log=%s), the database must be deployed", databaseName,
+          lastOperationId, log);
+      return Boolean.FALSE;
+    }
+
+    ODistributedServerLog.info(this, iManager.getLocalNodeName(), getNodeSource(), DIRECTION.OUT,
+        "sending %d operations of database '%s' executed after %d...", delta.getOperations().size(), databaseName,
+        lastOperationId);
+
+    return delta;
+  }
+
+  @Override
+  public RESULT_STRATEGY getResultStrategy() {
+    return RESULT_STRATEGY.UNION;
+  }
+
+  @Override
+  public QUORUM_TYPE getQuorumType() {
+    return QUORUM_TYPE.NONE;
+  }
+
+  @Override
+  public boolean isRequireNodeOnline() {
+    return false;
+  }
+
+  @Override
+  public long getTimeout() {
+    return OGlobalConfiguration.DISTRIBUTED_DEPLOYCHUNK_TASK_SYNCH_TIMEOUT.getValueAsLong();
+  }
+
+  @Override
+  public String getPayload() {
+    return null;
+  }
+
+  @Override
+  public String getName() {
+    return "sync_db_delta";
+  }
+
+  @Override
+  public void writeExternal(final ObjectOutput out) throws IOException {
+    out.writeLong(epoch);
+    out.writeLong(lastOperationId);
+  }
+
+  @Override
+  public void readExternal(final ObjectInput in) throws IOException, ClassNotFoundException {
+    epoch = in.readLong();
+    lastOperationId = in.readLong();
+  }
+
+  @Override
+  public boolean isRequiredOpenDatabase() {
+    return true;
+  }
+}
@@ -16,11 +16,18 @@
 package com.orientechnologies.orient.server.distributed.task;
 
 import com.orientechnologies.common.concur.ONeedRetryException;
+import com.orientechnologies.common.exception.OException;
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.db.record.OPlaceholder;
+import com.orientechnologies.orient.core.db.record.ORecordOperation;
+import com.orientechnologies.orient.core.exception.OConcurrentModificationException;
+import com.orientechnologies.orient.core.exception.OFastConcurrentModificationException;
+import com.orientechnologies.orient.core.exception.ORecordNotFoundException;
 import com.orientechnologies.orient.core.exception.OTransactionException;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.storage.ORecordMetadata;
 import com.orientechnologies.orient.server.OServer;
 import com.orientechnologies.orient.server.distributed.ODistributedRequest;
 import com.orientechnologies.orient.server.distributed.ODistributedServerLog;
@@ -43,6 +50,7 @@ public class OTxTask extends OAbstractReplicatedTask {
   private static final long                   serialVersionUID = 1L;
 
   private List<OAbstractRecordReplicatedTask> tasks            = new ArrayList<OAbstractRecordReplicatedTask>();
+  private boolean                             prepare          = false;
 
   public OTxTask() {
   }
@@ -60,6 +68,13 @@ public class OTxTask extends OAbstractReplicatedTask {
     ODatabaseRecordThreadLocal.INSTANCE.set(database);
 
     try {
+      if (prepare) {
+        // VALIDATE THE WHOLE TRANSACTION BEFORE APPLYING ANY OPERATION
+        final OException conflict = checkVersions(database);
+        if (conflict != null)
+          return conflict;
+      }
+
       database.begin();
 
       final List<Object> results = new ArrayList<Object>();
@@ -101,6 +116,42 @@ public class OTxTask extends OAbstractReplicatedTask {
     }
   }
 
+  /**
+   * Checks the records to update and delete still have the version read by the transaction.
+   * 
+   * @return the first conflict found, otherwise null
+   */
+  protected OException checkVersions(final ODatabaseDocumentTx database) {
+    for (OAbstractRecordReplicatedTask task : tasks) {
+      final int operation;
+      if (task instanceof OUpdateRecordTask)
+        operation = ORecordOperation.UPDATED;
+      else if (task instanceof ODeleteRecordTask)
+        operation = ORecordOperation.DELETED;
+      else
+        continue;
+
+      final ORecordId rid = task.getRid();
+      if (!rid.isPersistent() || !task.getVersion().isValid())
+        continue;
+
+      final ORecordMetadata metadata = database.getRecordMetadata(rid);
+      if (metadata == null) {
+        if (operation == ORecordOperation.DELETED)
+          // ALREADY DELETED
+          continue;
+        return new ORecordNotFoundException("Record " + rid + " was not found on update");
+      }
+
+      if (metadata.getRecordVersion().getCounter() != task.getVersion().getCounter()) {
+        if (OFastConcurrentModificationException.enabled())
+          return OFastConcurrentModificationException.instance();
+        return new OConcurrentModificationException(rid, metadata.getRecordVersion(), task.getVersion(), operation);
+      }
+    }
+    return null;
+  }
+
   @Override
   public QUORUM_TYPE getQuorumType() {
     return QUORUM_TYPE.WRITE;
@@ -158,6 +209,7 @@ public class OTxTask extends OAbstractReplicatedTask {
     out.writeInt(tasks.size());
     for (OAbstractRecordReplicatedTask task : tasks)
       out.writeObject(task);
+    out.writeBoolean(prepare);
   }
 
   @Override
@@ -165,6 +217,7 @@ public class OTxTask extends OAbstractReplicatedTask {
     final int size = in.readInt();
     for (int i = 0; i < size; ++i)
       tasks.add((OAbstractRecordReplicatedTask) in.readObject());
+    prepare = in.readBoolean();
   }
 
   @Override
@@ -181,6 +234,19 @@ public class OTxTask extends OAbstractReplicatedTask {
     return tasks;
   }
 
+  public boolean isPrepare() {
+    return prepare;
+  }
+
+  /**
+   * Makes every node validate the versions of all the records before applying the transaction, so the nodes with a conflict don't
+   * apply any operation and OFixTxTask is needed only to recover the nodes that applied it against the quorum.
+   */
+  public OTxTask setPrepare(final boolean iPrepare) {
+    prepare = iPrepare;
+    return this;
+  }
+
   /**
    * Returns the ".insert" queue if there is at least 1 CREATE RECORD TASK INSIDE
    * 
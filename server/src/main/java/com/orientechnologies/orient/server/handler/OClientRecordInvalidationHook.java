@@ -0,0 +1,99 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.handler;
+
+import com.orientechnologies.orient.core.db.ODatabase;
+import com.orientechnologies.orient.core.db.ODatabaseComplex;
+import com.orientechnologies.orient.core.db.ODatabaseLifecycleListener;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.hook.ORecordHook;
+import com.orientechnologies.orient.core.hook.ORecordHookAbstract;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.storage.OStorageProxy;
+import com.orientechnologies.orient.core.version.ORecordVersion;
+import com.orientechnologies.orient.server.OClientConnectionManager;
+
+/**
+ * Notifies the records updated and deleted to the remote clients that subscribed their near cache. It's registered in all the
+ * databases opened by the server.
+ *
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ */
+public class OClientRecordInvalidationHook extends ORecordHookAbstract implements ODatabaseLifecycleListener {
+
+  @Override
+  public PRIORITY getPriority() {
+    return PRIORITY.LAST;
+  }
+
+  @Override
+  public void onCreate(final ODatabase iDatabase) {
+    onOpen(iDatabase);
+  }
+
+  @Override
+  public void onOpen(final ODatabase iDatabase) {
+    if (iDatabase instanceof ODatabaseComplex && !(iDatabase.getStorage() instanceof OStorageProxy))
+      ((ODatabaseComplex<?>) iDatabase).registerHook(this, ORecordHook.HOOK_POSITION.LAST);
+  }
+
+  @Override
+  public void onClose(final ODatabase iDatabase) {
+  }
+
+  @Override
+  public void onRecordAfterUpdate(final ORecord<?> iRecord) {
+    push(iRecord, iRecord.getRecordVersion());
+  }
+
+  @Override
+  public void onRecordUpdateReplicated(final ORecord<?> iRecord) {
+    push(iRecord, iRecord.getRecordVersion());
+  }
+
+  @Override
+  public void onRecordAfterDelete(final ORecord<?> iRecord) {
+    push(iRecord, deletedVersion(iRecord));
+  }
+
+  @Override
+  public void onRecordDeleteReplicated(final ORecord<?> iRecord) {
+    push(iRecord, deletedVersion(iRecord));
+  }
+
+  public DISTRIBUTED_EXECUTION_MODE getDistributedExecutionMode() {
+    // EVERY NODE NOTIFIES ITS OWN CLIENTS
+    return DISTRIBUTED_EXECUTION_MODE.BOTH;
+  }
+
+  protected void push(final ORecord<?> iRecord, final ORecordVersion iVersion) {
+    final ODatabaseRecord db = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
+    if (db == null || !iRecord.getIdentity().isPersistent())
+      return;
+
+    OClientConnectionManager.instance().pushRecordInvalidation(db.getName(), iRecord.getIdentity(), iVersion);
+  }
+
+  /**
+   * A deleted record keeps its last version: the next one is notified to refuse a stale content still on the way to the client.
+   */
+  private static ORecordVersion deletedVersion(final ORecord<?> iRecord) {
+    final ORecordVersion version = iRecord.getRecordVersion().copy();
+    version.increment();
+    return version;
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.managed;
+
+import java.util.Map;
+import java.util.Set;
+
+import com.orientechnologies.orient.server.OServer;
+import com.orientechnologies.orient.server.distributed.ODistributedDatabase;
+import com.orientechnologies.orient.server.distributed.ODistributedServerManager;
+
+public class OrientDistributed implements OrientDistributedMBean {
+  protected final OServer server;
+
+  public OrientDistributed(final OServer iServer) {
+    server = iServer;
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return getManager() != null;
+  }
+
+  @Override
+  public String getLocalNodeName() {
+    final ODistributedServerManager manager = getManager();
+    return manager != null ? manager.getLocalNodeName() : null;
+  }
+
+  @Override
+  public String[] getDatabases() {
+    final ODistributedServerManager manager = getManager();
+    if (manager == null)
+      return new String[0];
+
+    final Set<String> databases = manager.getMessageService().getDatabases();
+    return databases.toArray(new String[databases.size()]);
+  }
+
+  @Override
+  public Map<String, Object> getDatabaseMetrics(final String iDatabaseName) {
+    final ODistributedServerManager manager = getManager();
+    if (manager == null)
+      return null;
+
+    final ODistributedDatabase db = manager.getMessageService().getDatabase(iDatabaseName);
+    return db != null ? db.getMetrics().toMap() : null;
+  }
+
+  @Override
+  public String getStats() {
+    final ODistributedServerManager manager = getManager();
+    return manager != null ? manager.getStats().toJSON() : null;
+  }
+
+  protected ODistributedServerManager getManager() {
+    // THE DISTRIBUTED PLUGIN COULD BE STARTED AFTER THE JMX ONE
+    final ODistributedServerManager manager = server.getDistributedManager();
+    return manager != null && manager.isEnabled() ? manager : null;
+  }
+}
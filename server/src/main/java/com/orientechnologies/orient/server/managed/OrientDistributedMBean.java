@@ -0,0 +1,33 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.managed;
+
+import java.util.Map;
+
+public interface OrientDistributedMBean {
+  public boolean isEnabled();
+
+  public String getLocalNodeName();
+
+  public String[] getDatabases();
+
+  /**
+   * Returns the replication metrics of the database on the local node, or null if the database is not replicated.
+   */
+  public Map<String, Object> getDatabaseMetrics(String iDatabaseName);
+
+  public String getStats();
+}
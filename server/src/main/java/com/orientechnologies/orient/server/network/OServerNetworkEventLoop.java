@@ -0,0 +1,210 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.server.network.protocol.ONetworkProtocol;
+
+/**
+ * Serves the connections of a listener without a thread per connection. Idle connections are parked in a selector: when new data
+ * arrives the connection is switched back to blocking mode and its requests are executed by a bounded pool of workers until no
+ * more buffered input is available, then it's parked again. An idle connection costs only its buffers.
+ *
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ */
+public class OServerNetworkEventLoop extends Thread {
+  private static final long             CHECK_INTERVAL = 1000;
+
+  private final Selector                selector;
+  private final ThreadPoolExecutor      workers;
+  private final Queue<ONetworkProtocol> toPark         = new ConcurrentLinkedQueue<ONetworkProtocol>();
+  private final AtomicInteger           parked         = new AtomicInteger();
+  private volatile boolean              active         = true;
+
+  public OServerNetworkEventLoop(final String iName, final int iMaxWorkers) throws IOException {
+    super(Orient.instance().getThreadGroup(), iName);
+    setDaemon(true);
+
+    selector = Selector.open();
+
+    final AtomicInteger workerId = new AtomicInteger();
+    workers = new ThreadPoolExecutor(iMaxWorkers, iMaxWorkers, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactory() {
+          public Thread newThread(final Runnable r) {
+            final Thread t = new Thread(Orient.instance().getThreadGroup(), r, getName() + " worker " + workerId.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+          }
+        });
+    workers.allowCoreThreadTimeOut(true);
+
+    start();
+  }
+
+  /**
+   * Parks the connection until new data is available.
+   */
+  public void park(final ONetworkProtocol iProtocol) {
+    toPark.offer(iProtocol);
+    selector.wakeup();
+  }
+
+  public void shutdown() {
+    active = false;
+    selector.wakeup();
+  }
+
+  public int getParkedConnections() {
+    return parked.get();
+  }
+
+  @Override
+  public void run() {
+    long lastCheck = System.currentTimeMillis();
+
+    try {
+      while (active) {
+        if (selector.selectedKeys().isEmpty())
+          selector.select(CHECK_INTERVAL);
+        else
+          selector.selectNow();
+
+        registerParked();
+        dispatchReady();
+
+        final long now = System.currentTimeMillis();
+        if (now - lastCheck >= CHECK_INTERVAL) {
+          closeKilled();
+          lastCheck = now;
+        }
+      }
+    } catch (Throwable t) {
+      OLogManager.instance().error(this, "Error on network event loop", t);
+    } finally {
+      for (SelectionKey key : selector.keys())
+        shutdownProtocol((ONetworkProtocol) key.attachment());
+      parked.set(0);
+
+      try {
+        selector.close();
+      } catch (IOException e) {
+      }
+      workers.shutdown();
+    }
+  }
+
+  private void registerParked() {
+    ONetworkProtocol protocol;
+    while ((protocol = toPark.poll()) != null) {
+      try {
+        final SocketChannel channel = getSocketChannel(protocol);
+        channel.configureBlocking(false);
+        channel.register(selector, SelectionKey.OP_READ, protocol);
+        parked.incrementAndGet();
+      } catch (Exception e) {
+        // CONNECTION CLOSED IN THE MEANTIME
+        shutdownProtocol(protocol);
+      }
+    }
+  }
+
+  private void dispatchReady() throws IOException {
+    final List<ONetworkProtocol> ready = new ArrayList<ONetworkProtocol>();
+    for (Iterator<SelectionKey> it = selector.selectedKeys().iterator(); it.hasNext();) {
+      final SelectionKey key = it.next();
+      it.remove();
+      key.cancel();
+      parked.decrementAndGet();
+      ready.add((ONetworkProtocol) key.attachment());
+    }
+
+    if (ready.isEmpty())
+      return;
+
+    // DEREGISTER THE CANCELLED KEYS: A REGISTERED CHANNEL CANNOT BE SWITCHED TO BLOCKING MODE
+    selector.selectNow();
+
+    for (final ONetworkProtocol protocol : ready)
+      workers.execute(new Runnable() {
+        public void run() {
+          serve(protocol);
+        }
+      });
+  }
+
+  private void serve(final ONetworkProtocol iProtocol) {
+    try {
+      // SWITCHED BY THE WORKER: IT WAITS FOR A PUSHED MESSAGE STILL BEING WRITTEN IN NON-BLOCKING MODE
+      getSocketChannel(iProtocol).configureBlocking(true);
+    } catch (Exception e) {
+      shutdownProtocol(iProtocol);
+      return;
+    }
+
+    do {
+      if (!iProtocol.executeNext()) {
+        shutdownProtocol(iProtocol);
+        return;
+      }
+    } while (iProtocol.hasBufferedInput());
+
+    park(iProtocol);
+  }
+
+  /**
+   * Closes the parked connections killed by other threads.
+   */
+  private void closeKilled() {
+    for (SelectionKey key : selector.keys()) {
+      final ONetworkProtocol protocol = (ONetworkProtocol) key.attachment();
+      if (key.isValid() && protocol.isShutdownFlag()) {
+        key.cancel();
+        parked.decrementAndGet();
+        shutdownProtocol(protocol);
+      }
+    }
+  }
+
+  private void shutdownProtocol(final ONetworkProtocol iProtocol) {
+    try {
+      iProtocol.sendShutdown();
+      iProtocol.shutdown();
+    } catch (Exception e) {
+      OLogManager.instance().debug(this, "Error on closing connection", e);
+    }
+  }
+
+  private static SocketChannel getSocketChannel(final ONetworkProtocol iProtocol) {
+    return iProtocol.getChannel().socket.getChannel();
+  }
+}
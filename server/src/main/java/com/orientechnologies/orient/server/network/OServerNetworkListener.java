@@ -28,6 +28,7 @@ import com.orientechnologies.orient.server.ShutdownHelper;
 import com.orientechnologies.orient.server.config.OServerCommandConfiguration;
 import com.orientechnologies.orient.server.config.OServerParameterConfiguration;
 import com.orientechnologies.orient.server.network.protocol.ONetworkProtocol;
+import com.orientechnologies.orient.server.network.protocol.binary.OBinaryNetworkProtocolAbstract;
 import com.orientechnologies.orient.server.network.protocol.http.command.OServerCommand;
 
 import java.io.IOException;
@@ -55,6 +56,7 @@ public class OServerNetworkListener extends Thread {
   private OServer                           server;
   private ONetworkProtocol                  protocol;
   private int                               protocolVersion   = -1;
+  private OServerNetworkEventLoop           eventLoop;
 
   public OServerNetworkListener(final OServer iServer, final OServerSocketFactory iSocketFactory, final String iHostName,
       final String iHostPortRange, final String iProtocolName, final Class<? extends ONetworkProtocol> iProtocol,
@@ -74,11 +76,20 @@ public class OServerNetworkListener extends Thread {
           protocolType);
     }
 
+    readParameters(iServer.getContextConfiguration(), iParameters);
+
+    if (configuration.getValueAsBoolean(OGlobalConfiguration.NETWORK_BINARY_EVENT_LOOP)
+        && OBinaryNetworkProtocolAbstract.class.isAssignableFrom(iProtocol))
+      try {
+        eventLoop = new OServerNetworkEventLoop("OrientDB " + iProtocol.getSimpleName() + " event loop at " + iHostName + ":"
+            + iHostPortRange, configuration.getValueAsInteger(OGlobalConfiguration.NETWORK_BINARY_EVENT_LOOP_WORKERS));
+      } catch (IOException e) {
+        OLogManager.instance().error(this, "Cannot open the network event loop, using a thread per connection", e);
+      }
+
     listen(iHostName, iHostPortRange, iProtocolName);
     protocolType = iProtocol;
 
-    readParameters(iServer.getContextConfiguration(), iParameters);
-
     if (iCommands != null) {
       for (int i = 0; i < iCommands.length; ++i) {
         if (iCommands[i].stateful)
@@ -168,6 +179,9 @@ public class OServerNetworkListener extends Thread {
   public void shutdown() {
     this.active = false;
 
+    if (eventLoop != null)
+      eventLoop.shutdown();
+
     if (protocol != null) {
       protocol.sendShutdown();
       protocol = null;
@@ -260,6 +274,13 @@ public class OServerNetworkListener extends Thread {
     return builder.toString();
   }
 
+  /**
+   * Returns the event loop serving the connections of this listener, or null if every connection has its own thread.
+   */
+  public OServerNetworkEventLoop getEventLoop() {
+    return eventLoop;
+  }
+
   public ONetworkProtocol getProtocol() {
     return protocol;
   }
@@ -292,7 +313,11 @@ public class OServerNetworkListener extends Thread {
     for (int port : ports) {
       inboundAddr = new InetSocketAddress(iHostName, port);
       try {
-        serverSocket = socketFactory.createServerSocket(port, 0, InetAddress.getByName(iHostName));
+        if (eventLoop != null)
+          // THE ACCEPTED SOCKETS NEED A CHANNEL TO BE PARKED IN THE EVENT LOOP
+          serverSocket = socketFactory.createChannelServerSocket(port, 0, InetAddress.getByName(iHostName));
+        if (serverSocket == null)
+          serverSocket = socketFactory.createServerSocket(port, 0, InetAddress.getByName(iHostName));
 
         if (serverSocket.isBound()) {
           OLogManager.instance().info(
@@ -17,7 +17,9 @@ package com.orientechnologies.orient.server.network;
 
 import java.io.IOException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
+import java.nio.channels.ServerSocketChannel;
 
 import com.orientechnologies.orient.server.config.OServerParameterConfiguration;
 
@@ -60,6 +62,16 @@ public abstract class OServerSocketFactory {
 
 	public abstract ServerSocket createServerSocket(int port, int backlog,
 			InetAddress ifAddress) throws IOException;
+
+	/**
+	 * Creates a server socket whose accepted sockets have a channel, so they can be served by a selector.
+	 * 
+	 * @return The server socket, or null if the factory doesn't support channels
+	 */
+	public ServerSocket createChannelServerSocket(int port, int backlog,
+			InetAddress ifAddress) throws IOException {
+		return null;
+	}
 }
 
 class ODefaultServerSocketFactory extends OServerSocketFactory {
@@ -88,6 +100,19 @@ class ODefaultServerSocketFactory extends OServerSocketFactory {
 		return new ServerSocket(port, backlog, ifAddress);
 	}
 
+	@Override
+	public ServerSocket createChannelServerSocket(int port, int backlog,
+			InetAddress ifAddress) throws IOException {
+		final ServerSocketChannel channel = ServerSocketChannel.open();
+		try {
+			channel.socket().bind(new InetSocketAddress(ifAddress, port), backlog);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		return channel.socket();
+	}
+
 	@Override
 	public void config(String name, OServerParameterConfiguration[] iParameters) {
 		super.config(name, iParameters);
@@ -22,14 +22,17 @@ import com.orientechnologies.orient.core.config.OContextConfiguration;
 import com.orientechnologies.orient.enterprise.channel.OChannel;
 import com.orientechnologies.orient.server.OServer;
 import com.orientechnologies.orient.server.distributed.ODistributedServerManager;
+import com.orientechnologies.orient.server.network.OServerNetworkEventLoop;
 import com.orientechnologies.orient.server.network.OServerNetworkListener;
 
 import java.io.IOException;
 import java.net.Socket;
 
 public abstract class ONetworkProtocol extends OSoftThread {
-  private static final int MAX_RETRIES = 20;
+  private static final int MAX_RETRIES   = 20;
   protected OServer        server;
+  private final Object     executingLock = new Object();
+  private Thread           executingThread;
 
   public ONetworkProtocol(ThreadGroup group, String name) {
     super(group, name);
@@ -44,6 +47,80 @@ public abstract class ONetworkProtocol extends OSoftThread {
 
   public abstract OChannel getChannel();
 
+  /**
+   * Starts serving the connection. If the listener has an event loop and the socket has a channel, the connection is parked in the
+   * event loop and its requests are executed by the worker threads, otherwise the protocol thread is started.
+   */
+  protected void startServing(final OServerNetworkListener iListener, final Socket iSocket) {
+    final OServerNetworkEventLoop eventLoop = iListener != null ? iListener.getEventLoop() : null;
+    if (eventLoop != null && iSocket.getChannel() != null) {
+      startup();
+      eventLoop.park(this);
+    } else
+      start();
+  }
+
+  /**
+   * Executes the next request in the current thread. Used by the event loop in place of the protocol thread.
+   *
+   * @return false if the connection has been shut down, otherwise true
+   */
+  public boolean executeNext() {
+    if (isShutdownFlag())
+      return false;
+
+    synchronized (executingLock) {
+      executingThread = Thread.currentThread();
+    }
+    try {
+      beforeExecution();
+      execute();
+      afterExecution();
+    } catch (Throwable t) {
+      if (isShutdownFlag() || t instanceof IOException)
+        // CONNECTION CLOSED BY THE CLIENT OR KILLED
+        OLogManager.instance().debug(this, "Connection closed while executing request", t);
+      else
+        OLogManager.instance().error(this, "Error on executing request", t);
+    } finally {
+      synchronized (executingLock) {
+        executingThread = null;
+        // THE WORKER SERVES OTHER CONNECTIONS: CLEAR AN INTERRUPTION ARRIVED DURING THE REQUEST
+        Thread.interrupted();
+      }
+    }
+
+    // THE REQUEST CAN CLOSE THE CONNECTION WITHOUT SETTING THE SHUTDOWN FLAG, AS ON AN UNKNOWN SESSION
+    final OChannel c = getChannel();
+    return !isShutdownFlag() && (c == null || !c.socket.isClosed());
+  }
+
+  /**
+   * Interrupts the thread executing the current request, that is the protocol thread or the event loop worker serving it.
+   */
+  @Override
+  public void interrupt() {
+    synchronized (executingLock) {
+      if (executingThread != null) {
+        executingThread.interrupt();
+        return;
+      }
+    }
+    super.interrupt();
+  }
+
+  /**
+   * Returns true if the input of the connection has already been read and buffered, so it would be not signaled by a selector.
+   */
+  public boolean hasBufferedInput() {
+    final OChannel c = getChannel();
+    try {
+      return c != null && c.inStream != null && c.inStream.available() > 0;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
   public String getListeningAddress() {
     final OChannel c = getChannel();
     if (c != null)
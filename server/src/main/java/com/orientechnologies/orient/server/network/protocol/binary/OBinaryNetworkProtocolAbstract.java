@@ -72,6 +72,7 @@ public abstract class OBinaryNetworkProtocolAbstract extends ONetworkProtocol {
   protected OChannelBinaryServer channel;
   protected int                  requestType;
   protected int                  clientTxId;
+  protected int                  requestId;
 
   public OBinaryNetworkProtocolAbstract(final String iThreadName) {
     super(Orient.instance().getThreadGroup(), iThreadName);
@@ -159,6 +160,7 @@ public abstract class OBinaryNetworkProtocolAbstract extends ONetworkProtocol {
     requestType = -1;
 
     clientTxId = 0;
+    requestId = -1;
 
     long timer = 0;
 
@@ -166,6 +168,12 @@ public abstract class OBinaryNetworkProtocolAbstract extends ONetworkProtocol {
       requestType = channel.readByte();
       clientTxId = channel.readInt();
 
+      if ((requestType & OChannelBinaryProtocol.REQUEST_ID_FLAG) != 0) {
+        // TAGGED REQUEST: THE RESPONSE CARRIES THE SAME REQUEST ID
+        requestType &= ~OChannelBinaryProtocol.REQUEST_ID_FLAG;
+        requestId = channel.readInt();
+      }
+
       timer = Orient.instance().getProfiler().startChrono();
 
       onBeforeRequest();
@@ -198,8 +206,21 @@ public abstract class OBinaryNetworkProtocolAbstract extends ONetworkProtocol {
   }
 
   protected void sendOk(final int iClientTxId) throws IOException {
-    channel.writeByte(OChannelBinaryProtocol.RESPONSE_STATUS_OK);
-    channel.writeInt(iClientTxId);
+    writeResponseHeader(OChannelBinaryProtocol.RESPONSE_STATUS_OK, iClientTxId);
+  }
+
+  /**
+   * Writes the status and the session id of the response, followed by the request id if the request was tagged.
+   */
+  protected void writeResponseHeader(final byte iStatus, final int iClientTxId) throws IOException {
+    if (requestId > -1) {
+      channel.writeByte((byte) (iStatus | OChannelBinaryProtocol.REQUEST_ID_FLAG));
+      channel.writeInt(iClientTxId);
+      channel.writeInt(requestId);
+    } else {
+      channel.writeByte(iStatus);
+      channel.writeInt(iClientTxId);
+    }
   }
 
   protected void checkStorageExistence(final String iDatabaseName) {
@@ -0,0 +1,222 @@
+package com.orientechnologies.orient.server.network.protocol.binary;
+
+import com.orientechnologies.common.exception.OException;
+import com.orientechnologies.common.util.OCallable;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabase;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-side cursor of a query result browsed by the client in batches. The command is executed by a thread of the cursor that
+ * runs only while a batch is fetched: once the batch is full the thread is parked in the result listener until the next fetch, so
+ * the server keeps only one batch in memory. The thread executes the command on a database instance of its own, because the
+ * instance of the connection is not thread safe.
+ * <p>
+ * The threads are taken from a pool shared by all the cursors of the server, bounded by
+ * {@link OGlobalConfiguration#NETWORK_BINARY_MAX_CURSORS}. A cursor closed while parked resumes its thread only to stop the
+ * execution.
+ *
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ */
+public class OCommandCursor extends OAbstractCommandResultListener {
+  private static final AtomicInteger      producerId = new AtomicInteger();
+  private static ThreadPoolExecutor       producers;
+
+  private int                             id         = -1;
+  private final LinkedList<OIdentifiable> buffer     = new LinkedList<OIdentifiable>();
+  private int                             demand;
+  private boolean                         finished;
+  private boolean                         closed;
+  private Throwable                       error;
+  private volatile long                   lastAccess = System.currentTimeMillis();
+
+  /**
+   * Starts executing the command in the thread of the cursor, on a database instance opened as the user of the passed one. The
+   * execution waits for the first {@link #next(int)}.
+   *
+   * @throws OCommandExecutionException
+   *           if the maximum number of open cursors is reached
+   */
+  public void start(final ODatabaseDocumentTx iDatabase, final OCallable<Object, ODatabaseDocumentTx> iExecution) {
+    final Runnable producer = new Runnable() {
+      public void run() {
+        ODatabaseDocumentTx database = null;
+        try {
+          synchronized (OCommandCursor.this) {
+            while (demand == 0 && !closed)
+              OCommandCursor.this.wait();
+          }
+
+          if (!isClosed()) {
+            database = openDatabase(iDatabase);
+            iExecution.call(database);
+          }
+
+        } catch (Throwable t) {
+          synchronized (OCommandCursor.this) {
+            error = t;
+          }
+        } finally {
+          if (database != null)
+            database.close();
+          ODatabaseRecordThreadLocal.INSTANCE.remove();
+          synchronized (OCommandCursor.this) {
+            finished = true;
+            OCommandCursor.this.notifyAll();
+          }
+        }
+      }
+    };
+
+    try {
+      getProducers().execute(producer);
+    } catch (RejectedExecutionException e) {
+      throw new OCommandExecutionException("Cannot open the cursor: " + producers.getMaximumPoolSize()
+          + " cursors are already open. Close the cursors not browsed or increase "
+          + OGlobalConfiguration.NETWORK_BINARY_MAX_CURSORS.getKey());
+    }
+  }
+
+  @Override
+  public synchronized boolean result(final Object iRecord) {
+    if (closed)
+      return false;
+
+    if (iRecord instanceof OIdentifiable) {
+      buffer.add((OIdentifiable) iRecord);
+
+      if (buffer.size() >= demand) {
+        // BATCH FULL: WAKE UP THE CONNECTION THREAD AND WAIT FOR THE NEXT FETCH
+        notifyAll();
+        try {
+          while (!closed && buffer.size() >= demand)
+            wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          closed = true;
+        }
+      }
+    }
+    return !closed;
+  }
+
+  /**
+   * Returns the next batch of records, executing the command until the batch is full or the result is over.
+   *
+   * @throws OCommandExecutionException
+   *           if the execution of the command failed. The cursor is then over
+   */
+  public List<OIdentifiable> next(final int iBatchSize) {
+    lastAccess = System.currentTimeMillis();
+
+    final int batchSize = Math.max(iBatchSize, 1);
+    synchronized (this) {
+      // ONE MORE RECORD TELLS IF THE RESULT IS OVER AFTER THIS BATCH
+      demand = batchSize + 1;
+      notifyAll();
+      try {
+        while (!finished && buffer.size() < demand)
+          wait();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        close();
+        throw new OCommandExecutionException("Interrupted while fetching the cursor " + id);
+      } finally {
+        // THE CURSOR THREAD STAYS PARKED UNTIL THE NEXT FETCH
+        demand = 0;
+      }
+
+      if (error != null) {
+        final Throwable t = error;
+        error = null;
+        buffer.clear();
+        if (t instanceof OException)
+          throw (OException) t;
+        throw new OCommandExecutionException("Error on executing the command of cursor " + id, t);
+      }
+
+      final List<OIdentifiable> batch = new ArrayList<OIdentifiable>(Math.min(batchSize, buffer.size()));
+      while (batch.size() < batchSize && !buffer.isEmpty())
+        batch.add(buffer.removeFirst());
+      return batch;
+    }
+  }
+
+  public synchronized boolean hasNext() {
+    return !buffer.isEmpty();
+  }
+
+  /**
+   * Stops the execution of the command, if still running, and releases the buffered records.
+   */
+  public synchronized void close() {
+    closed = true;
+    buffer.clear();
+    notifyAll();
+  }
+
+  public synchronized boolean isClosed() {
+    return closed;
+  }
+
+  public int getId() {
+    return id;
+  }
+
+  public void setId(final int iId) {
+    id = iId;
+  }
+
+  public boolean isExpired(final long iNow, final long iTimeout) {
+    return iNow - lastAccess > iTimeout;
+  }
+
+  public synchronized boolean isEmpty() {
+    return buffer.isEmpty();
+  }
+
+  /**
+   * Opens another instance of the database for the thread of the cursor. The user is already authenticated by the connection, so
+   * the instance bypasses the authentication and then gets the user of the connection to keep its permissions.
+   */
+  protected static ODatabaseDocumentTx openDatabase(final ODatabaseDocumentTx iDatabase) {
+    final ODatabaseDocumentTx database = new ODatabaseDocumentTx(iDatabase.getURL());
+    database.setProperty(ODatabase.OPTIONS.SECURITY.toString(), Boolean.FALSE);
+    database.open(iDatabase.getUser() != null ? iDatabase.getUser().getName() : "admin", "nopass");
+    database.setUser(iDatabase.getUser());
+    return database;
+  }
+
+  private static synchronized ThreadPoolExecutor getProducers() {
+    final int maxCursors = OGlobalConfiguration.NETWORK_BINARY_MAX_CURSORS.getValueAsInteger();
+    if (producers == null) {
+      // NO QUEUE: A CURSOR IS EITHER EXECUTED BY A THREAD OR REFUSED
+      producers = new ThreadPoolExecutor(0, maxCursors, 60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+          new ThreadFactory() {
+            public Thread newThread(final Runnable r) {
+              final Thread t = new Thread(Orient.instance().getThreadGroup(), r, "OrientDB command cursor "
+                  + producerId.incrementAndGet());
+              t.setDaemon(true);
+              return t;
+            }
+          });
+    } else if (producers.getMaximumPoolSize() != maxCursors)
+      producers.setMaximumPoolSize(maxCursors);
+    return producers;
+  }
+}
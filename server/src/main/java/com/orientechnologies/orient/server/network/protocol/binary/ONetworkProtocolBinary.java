@@ -23,11 +23,16 @@ import com.orientechnologies.common.serialization.types.OBinarySerializer;
 import com.orientechnologies.common.serialization.types.OByteSerializer;
 import com.orientechnologies.common.serialization.types.OIntegerSerializer;
 import com.orientechnologies.common.serialization.types.ONullSerializer;
+import com.orientechnologies.common.util.OCallable;
 import com.orientechnologies.orient.client.remote.OCollectionNetworkSerializer;
 import com.orientechnologies.orient.client.remote.OEngineRemote;
 import com.orientechnologies.orient.core.OConstants;
 import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.command.OCommandExecutor;
+import com.orientechnologies.orient.core.command.OCommandManager;
 import com.orientechnologies.orient.core.command.OCommandRequestText;
+import com.orientechnologies.orient.core.compression.OCompressionFactory;
+import com.orientechnologies.orient.core.compression.impl.ONothingCompression;
 import com.orientechnologies.orient.core.config.OContextConfiguration;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.ODatabase;
@@ -40,6 +45,7 @@ import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.db.record.ridbag.sbtree.OBonsaiCollectionPointer;
 import com.orientechnologies.orient.core.db.record.ridbag.sbtree.OSBTreeCollectionManager;
 import com.orientechnologies.orient.core.db.record.ridbag.sbtree.OSBTreeRidBag;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
 import com.orientechnologies.orient.core.exception.OConfigurationException;
 import com.orientechnologies.orient.core.exception.ODatabaseException;
 import com.orientechnologies.orient.core.exception.OSecurityAccessException;
@@ -72,7 +78,12 @@ import com.orientechnologies.orient.core.serialization.serializer.stream.OStream
 import com.orientechnologies.orient.core.storage.OCluster;
 import com.orientechnologies.orient.core.storage.OPhysicalPosition;
 import com.orientechnologies.orient.core.storage.ORecordMetadata;
+import com.orientechnologies.orient.core.sql.OCommandExecutorSQLDelegate;
+import com.orientechnologies.orient.core.sql.OCommandExecutorSQLSelect;
+import com.orientechnologies.orient.core.sql.query.OSQLAsynchQuery;
+import com.orientechnologies.orient.core.sql.query.OSQLQuery;
 import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.storage.OStorageEmbedded;
 import com.orientechnologies.orient.core.storage.OStorageProxy;
 import com.orientechnologies.orient.core.storage.impl.memory.ODirectMemoryStorage;
 import com.orientechnologies.orient.core.type.ODocumentWrapper;
@@ -94,6 +105,7 @@ import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.net.Socket;
 import java.net.SocketException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
@@ -126,7 +138,7 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
     channel.writeShort((short) getVersion());
 
     channel.flush();
-    start();
+    startServing(iListener, iSocket);
 
     setName("OrientDB <- BinaryClient (" + iSocket.getRemoteSocketAddress() + ")");
   }
@@ -152,6 +164,12 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
 
   @Override
   protected void onBeforeRequest() throws IOException {
+    if (requestType == OChannelBinaryProtocol.REQUEST_CHANNEL_COMPRESSION) {
+      // NEGOTIATED BY THE CHANNEL BEFORE ANY SESSION
+      connection = null;
+      return;
+    }
+
     waitNodeIsOnline();
 
     connection = OClientConnectionManager.instance().getConnection(clientTxId, this);
@@ -298,6 +316,34 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
         readRecord();
         break;
 
+      case OChannelBinaryProtocol.REQUEST_RECORD_LOAD_MULTI:
+        readRecords();
+        break;
+
+      case OChannelBinaryProtocol.REQUEST_CURSOR_FETCH:
+        fetchCursor();
+        break;
+
+      case OChannelBinaryProtocol.REQUEST_CURSOR_CLOSE:
+        closeCursor();
+        break;
+
+      case OChannelBinaryProtocol.REQUEST_NEAR_CACHE_SUBSCRIBE:
+        subscribeNearCache();
+        break;
+
+      case OChannelBinaryProtocol.REQUEST_CHANNEL_COMPRESSION:
+        negotiateCompression();
+        break;
+
+      case OChannelBinaryProtocol.REQUEST_STATEMENT_PREPARE:
+        prepareStatement();
+        break;
+
+      case OChannelBinaryProtocol.REQUEST_STATEMENT_EXECUTE:
+        executeStatement();
+        break;
+
       case OChannelBinaryProtocol.REQUEST_RECORD_CREATE:
         createRecord();
         break;
@@ -640,8 +686,7 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
     channel.acquireWriteLock();
     try {
 
-      channel.writeByte(OChannelBinaryProtocol.RESPONSE_STATUS_ERROR);
-      channel.writeInt(iClientTxId);
+      writeResponseHeader(OChannelBinaryProtocol.RESPONSE_STATUS_ERROR, iClientTxId);
 
       final Throwable current;
       if (t instanceof OLockException && t.getCause() instanceof ODatabaseException)
@@ -919,6 +964,7 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
         sendOk(clientTxId);
 
       if (OClientConnectionManager.instance().disconnect(connection.id))
+        // NO OTHER SESSION IS USING THE SOCKET
         sendShutdown();
     }
   }
@@ -1061,7 +1107,8 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
   protected void command() throws IOException {
     setDataCommandInfo("Execute remote command");
 
-    final boolean asynch = channel.readByte() == 'a';
+    final byte mode = channel.readByte();
+    final boolean cursor = mode == 'c';
     String dbSerializerName = connection.database.getSerializer().toString();
     String name = getRecordSerializerName();
 
@@ -1073,6 +1120,104 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
         .readBytes());
     ONetworkThreadLocalSerializer.setNetworkSerializer(null);
 
+    final int cursorBatchSize = cursor ? channel.readInt() : 0;
+
+    executeCommand(command, null, mode, cursorBatchSize);
+  }
+
+  /**
+   * Prepares the query sent by the client, that can execute it again by the returned id. The query is parsed only once if it can
+   * be executed multiple times.
+   */
+  protected void prepareStatement() throws IOException {
+    setDataCommandInfo("Prepare statement");
+
+    if (!isConnectionAlive())
+      return;
+
+    final byte[] serializedCommand = channel.readBytes();
+    final OCommandRequestText command = readCommand(serializedCommand);
+
+    if (!(command instanceof OSQLQuery<?>))
+      throw new OCommandExecutionException("Only SQL queries can be prepared: " + command);
+
+    connection.data.commandDetail = command.getText();
+
+    // CHECK THE PERMISSION AND THE SYNTAX NOW
+    connection.database.command(command);
+    final OCommandExecutor executor = OCommandManager.instance().getExecutor(command);
+    executor.setContext(command.getContext());
+    executor.parse(command);
+
+    // KEEP THE PARSED EXECUTOR ONLY FOR THE QUERIES WHERE IT'S THE QUERY ITSELF THAT RECEIVES THE RESULTS
+    final boolean reusable = command instanceof OSQLAsynchQuery<?> && executor instanceof OCommandExecutorSQLDelegate
+        && ((OCommandExecutorSQLDelegate) executor).getDelegate() instanceof OCommandExecutorSQLSelect
+        && ((OCommandExecutorSQLSelect) ((OCommandExecutorSQLDelegate) executor).getDelegate()).isReusable();
+
+    final OPreparedStatement statement = new OPreparedStatement((OSQLQuery<?>) command, serializedCommand, reusable ? executor
+        : null);
+    final int closed = connection.registerPreparedStatement(statement);
+
+    beginResponse();
+    try {
+      sendOk(clientTxId);
+      channel.writeInt(statement.getId());
+      channel.writeInt(closed);
+    } finally {
+      endResponse();
+    }
+  }
+
+  /**
+   * Executes a prepared statement with the parameters sent by the client. The response is the same of {@link #command()}.
+   */
+  protected void executeStatement() throws IOException {
+    setDataCommandInfo("Execute prepared statement");
+
+    if (!isConnectionAlive())
+      return;
+
+    final byte mode = channel.readByte();
+    final int statementId = channel.readInt();
+    final byte[] parameters = channel.readBytes();
+    final int cursorBatchSize = mode == 'c' ? channel.readInt() : 0;
+
+    final OPreparedStatement statement = connection.getPreparedStatement(statementId);
+    if (statement == null)
+      throw new OCommandExecutionException("Prepared statement " + statementId + " not found: it has been closed");
+
+    if (mode == 'c') {
+      // THE CURSOR EXECUTES THE QUERY UNTIL IT'S CLOSED: A COPY DOESN'T SHARE ITS STATE WITH THE NEXT EXECUTIONS OF THE STATEMENT
+      final OSQLQuery<?> copy = (OSQLQuery<?>) readCommand(statement.getSerializedQuery());
+      copy.parametersFromStream(parameters);
+      executeCommand(copy, null, mode, cursorBatchSize);
+    } else
+      executeCommand(statement.bind(parameters), statement.getExecutor(), mode, cursorBatchSize);
+  }
+
+  /**
+   * Deserializes a command sent by the client with the record serializer of the client.
+   */
+  protected OCommandRequestText readCommand(final byte[] iSerializedCommand) throws IOException {
+    final String dbSerializerName = connection.database.getSerializer().toString();
+    final String name = getRecordSerializerName();
+    if (!dbSerializerName.equals(name))
+      ONetworkThreadLocalSerializer.setNetworkSerializer(ORecordSerializerFactory.instance().getFormat(name));
+    try {
+      return (OCommandRequestText) OStreamSerializerAnyStreamable.INSTANCE.fromStream(iSerializedCommand);
+    } finally {
+      ONetworkThreadLocalSerializer.setNetworkSerializer(null);
+    }
+  }
+
+  /**
+   * Executes the command sending its result. A parsed executor is used if passed, otherwise the command is parsed.
+   */
+  protected void executeCommand(final OCommandRequestText command, final OCommandExecutor iExecutor, final byte mode,
+      final int cursorBatchSize) throws IOException {
+    final boolean asynch = mode == 'a';
+    final boolean cursor = mode == 'c';
+
     connection.data.commandDetail = command.getText();
 
     // ENABLES THE CACHE TO IMPROVE PERFORMANCE OF COMPLEX COMMANDS LIKE TRAVERSE
@@ -1084,6 +1229,10 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
       if (asynch) {
         listener = new OAsyncCommandResultListener(this, clientTxId, command.getResultListener());
         command.setResultListener(listener);
+      } else if (cursor) {
+        // KEEP THE RESULT ON SERVER SIDE: THE CLIENT BROWSES IT IN BATCHES
+        listener = new OCommandCursor();
+        command.setResultListener(listener);
       } else
         listener = new OSyncCommandResultListener();
 
@@ -1099,7 +1248,34 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
       // ASSIGNED THE PARSED FETCHPLAN
       listener.setFetchPlan(connection.database.command(command).getFetchPlan());
 
-      final Object result = connection.database.command(command).execute();
+      if (cursor) {
+        final OCommandCursor commandCursor = (OCommandCursor) listener;
+        commandCursor.start(connection.database, new OCallable<Object, ODatabaseDocumentTx>() {
+          public Object call(final ODatabaseDocumentTx iDatabase) {
+            return runCommand(iDatabase, command, iExecutor);
+          }
+        });
+
+        final List<OIdentifiable> batch;
+        try {
+          batch = commandCursor.next(cursorBatchSize);
+        } catch (RuntimeException e) {
+          commandCursor.close();
+          throw e;
+        }
+
+        // THE COMMAND HAS BEEN PARSED BY THE CURSOR: ASSIGN THE FETCHPLAN OF THE SQL STATEMENT
+        listener.setFetchPlan(command.getFetchPlan());
+
+        if (commandCursor.hasNext())
+          connection.registerCursor(commandCursor);
+
+        sendOk(clientTxId);
+        writeCursorBatch(commandCursor, batch);
+        return;
+      }
+
+      final Object result = runCommand(command, iExecutor);
 
       // FETCHPLAN HAS TO BE ASSIGNED AGAIN, because it can be changed by SQL statement
       listener.setFetchPlan(command.getFetchPlan());
@@ -1171,6 +1347,147 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
     }
   }
 
+  /**
+   * Sends the next batch of a cursor opened by a previous command.
+   */
+  protected void fetchCursor() throws IOException {
+    setDataCommandInfo("Fetch cursor");
+
+    if (!isConnectionAlive())
+      return;
+
+    final int cursorId = channel.readInt();
+    final int batchSize = channel.readInt();
+
+    final OCommandCursor cursor = connection.getCursor(cursorId);
+    if (cursor == null)
+      throw new OCommandExecutionException("Cursor " + cursorId + " not found: it has been closed or it's expired");
+
+    final List<OIdentifiable> batch;
+    try {
+      batch = cursor.next(batchSize);
+    } catch (RuntimeException e) {
+      connection.removeCursor(cursorId);
+      throw e;
+    }
+
+    beginResponse();
+    try {
+      sendOk(clientTxId);
+      writeCursorBatch(cursor, batch);
+    } finally {
+      endResponse();
+    }
+  }
+
+  /**
+   * Executes the command with the parsed executor if passed, otherwise parsing it.
+   */
+  protected Object runCommand(final OCommandRequestText iCommand, final OCommandExecutor iExecutor) {
+    return runCommand(connection.database, iCommand, iExecutor);
+  }
+
+  /**
+   * Executes the command on the passed database instance, with the parsed executor if passed, otherwise parsing it.
+   */
+  protected Object runCommand(final ODatabaseDocumentTx iDatabase, final OCommandRequestText iCommand,
+      final OCommandExecutor iExecutor) {
+    if (iExecutor != null && iDatabase.getStorage() instanceof OStorageEmbedded)
+      return ((OStorageEmbedded) iDatabase.getStorage()).executeCommand(iCommand, iExecutor);
+    return iDatabase.command(iCommand).execute();
+  }
+
+  protected void closeCursor() throws IOException {
+    setDataCommandInfo("Close cursor");
+
+    if (!isConnectionAlive())
+      return;
+
+    connection.removeCursor(channel.readInt());
+
+    beginResponse();
+    try {
+      sendOk(clientTxId);
+    } finally {
+      endResponse();
+    }
+  }
+
+  /**
+   * Accepts the compression asked by the client if it's registered: the data exchanged on the channel is compressed by both the
+   * peers after the response.
+   */
+  protected void negotiateCompression() throws IOException {
+    final String requested = channel.readString();
+    final boolean accepted = requested != null && !requested.equals(ONothingCompression.NAME)
+        && OCompressionFactory.INSTANCE.getCompressions().contains(requested);
+
+    beginResponse();
+    try {
+      sendOk(clientTxId);
+      channel.writeString(accepted ? requested : "");
+    } finally {
+      endResponse();
+    }
+
+    if (accepted)
+      channel.enableCompression(OCompressionFactory.INSTANCE.getCompression(requested),
+          OGlobalConfiguration.NETWORK_BINARY_COMPRESSION_THRESHOLD.getValueAsInteger());
+  }
+
+  /**
+   * Subscribes the client near cache to the invalidation of the records changed in the database: the server pushes them on this
+   * channel.
+   */
+  protected void subscribeNearCache() throws IOException {
+    setDataCommandInfo("Subscribe near cache");
+
+    if (!isConnectionAlive())
+      return;
+
+    OClientConnectionManager.instance().subscribeRecordInvalidation(connection.database.getName(), this);
+
+    beginResponse();
+    try {
+      sendOk(clientTxId);
+    } finally {
+      endResponse();
+    }
+  }
+
+  /**
+   * Writes the cursor id, or -1 if this is the last batch, followed by the records of the batch and the records to put in the
+   * client cache by the fetch plan.
+   */
+  protected void writeCursorBatch(final OCommandCursor iCursor, final List<OIdentifiable> iBatch) throws IOException {
+    if (iCursor.hasNext())
+      channel.writeInt(iCursor.getId());
+    else {
+      connection.removeCursor(iCursor.getId());
+      channel.writeInt(-1);
+    }
+
+    final Set<ORecord<?>> fetchedRecordsToSend = new HashSet<ORecord<?>>();
+    for (OIdentifiable record : iBatch) {
+      channel.writeByte((byte) 1); // RESULT SET RECORD
+      writeIdentifiable(record);
+
+      iCursor.fetchRecord(record, new ORemoteFetchListener() {
+        @Override
+        protected void sendRecord(ORecord<?> iLinked) {
+          fetchedRecordsToSend.add(iLinked);
+        }
+      });
+    }
+
+    for (ORecord<?> record : fetchedRecordsToSend) {
+      channel.writeByte((byte) 2); // CLIENT CACHE RECORD. IT ISN'T PART OF THE RESULT SET
+      writeIdentifiable(record);
+    }
+
+    channel.writeByte((byte) 0); // NO MORE RECORDS
+  }
+
   protected void deleteRecord() throws IOException {
     setDataCommandInfo("Delete record");
 
@@ -1411,6 +1728,39 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
     }
   }
 
+  protected void readRecords() throws IOException {
+    setDataCommandInfo("Load records");
+
+    if (!isConnectionAlive())
+      return;
+
+    final int tot = channel.readInt();
+    final List<ORecordId> rids = new ArrayList<ORecordId>(tot);
+    for (int i = 0; i < tot; ++i)
+      rids.add(channel.readRID());
+
+    final List<ORecordInternal<?>> records = connection.database.load(rids);
+
+    beginResponse();
+    try {
+      sendOk(clientTxId);
+
+      channel.writeInt(records.size());
+      for (ORecordInternal<?> record : records) {
+        if (record != null) {
+          channel.writeByte((byte) 1); // HAS RECORD
+          channel.writeBytes(getRecordBytes(record));
+          channel.writeVersion(record.getRecordVersion());
+          channel.writeByte(record.getRecordType());
+        } else
+          channel.writeByte((byte) 0);
+      }
+
+    } finally {
+      endResponse();
+    }
+  }
+
   protected void beginResponse() {
     channel.acquireWriteLock();
   }
@@ -1440,11 +1790,6 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
       connection.data.serializationImpl = ORecordSerializerSchemaAware2CSV.NAME;
   }
 
-  protected void sendOk(final int iClientTxId) throws IOException {
-    channel.writeByte(OChannelBinaryProtocol.RESPONSE_STATUS_OK);
-    channel.writeInt(iClientTxId);
-  }
-
   @Override
   protected void handleConnectionError(final OChannelBinaryServer iChannel, final Throwable e) {
     super.handleConnectionError(channel, e);
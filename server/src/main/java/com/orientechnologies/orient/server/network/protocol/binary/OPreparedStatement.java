@@ -0,0 +1,60 @@
+package com.orientechnologies.orient.server.network.protocol.binary;
+
+import com.orientechnologies.orient.core.command.OCommandExecutor;
+import com.orientechnologies.orient.core.command.OCommandResultListener;
+import com.orientechnologies.orient.core.sql.query.OSQLQuery;
+
+/**
+ * Query prepared by a client session. The client executes it again sending only its id and the parameters. When the parsed query
+ * can be executed multiple times its executor is kept, so the query is not parsed again.
+ *
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ */
+public class OPreparedStatement {
+  private int                          id = -1;
+  private final OSQLQuery<?>           query;
+  private final OCommandResultListener resultListener;
+  private final OCommandExecutor       executor;
+  private final byte[]                 serializedQuery;
+
+  public OPreparedStatement(final OSQLQuery<?> iQuery, final byte[] iSerializedQuery, final OCommandExecutor iExecutor) {
+    query = iQuery;
+    serializedQuery = iSerializedQuery;
+    resultListener = iQuery.getResultListener();
+    executor = iExecutor;
+  }
+
+  /**
+   * Returns the query with the parameters of the new execution.
+   */
+  public OSQLQuery<?> bind(final byte[] iParameters) {
+    // THE PREVIOUS EXECUTION COULD HAVE REPLACED THE LISTENER
+    query.setResultListener(resultListener);
+    query.parametersFromStream(iParameters);
+    return query;
+  }
+
+  /**
+   * Returns the query as received by the client. An execution that keeps running after its response, like a cursor, executes a
+   * copy of the query, so it doesn't share its state with the next executions of the statement.
+   */
+  public byte[] getSerializedQuery() {
+    return serializedQuery;
+  }
+
+  /**
+   * Returns the parsed executor, or null if the query must be parsed at every execution.
+   */
+  public OCommandExecutor getExecutor() {
+    return executor;
+  }
+
+  public int getId() {
+    return id;
+  }
+
+  public void setId(final int iId) {
+    id = iId;
+  }
+}
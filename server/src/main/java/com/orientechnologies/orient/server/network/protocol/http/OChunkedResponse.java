@@ -35,6 +35,20 @@ public class OChunkedResponse extends OutputStream {
       writeContent();
   }
 
+  @Override
+  public void write(final byte[] b, int off, int len) throws IOException {
+    while (len > 0) {
+      final int chunk = Math.min(len, buffer.length - bufferSize);
+      System.arraycopy(b, off, buffer, bufferSize, chunk);
+      bufferSize += chunk;
+      off += chunk;
+      len -= chunk;
+
+      if (bufferSize >= buffer.length)
+        writeContent();
+    }
+  }
+
   @Override
   public void flush() throws IOException {
     writeContent();
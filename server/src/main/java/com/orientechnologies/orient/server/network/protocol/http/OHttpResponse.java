@@ -401,6 +401,25 @@ public class OHttpResponse {
     out.flush();
   }
 
+  /**
+   * Sends the status and the headers of a chunked response and returns the stream to write the content to, compressed when the
+   * client accepts it. Closing the returned stream sends the last chunk.
+   */
+  public OutputStream sendChunked(final int iCode, final String iReason, final String iContentType) throws IOException {
+    sendStarted = true;
+
+    writeStatus(iCode, iReason);
+    writeHeaders(callbackFunction != null ? "text/javascript" : iContentType);
+    writeLine("Set-Cookie: " + OHttpUtils.OSESSIONID + "=" + (sessionId != null ? sessionId : "-") + "; Path=/; HttpOnly");
+    writeLine("Transfer-Encoding: chunked");
+    writeLine(null);
+
+    final OChunkedResponse chunkedOutput = new OChunkedResponse(this);
+    if (contentEncoding != null && contentEncoding.equals(OHttpUtils.CONTENT_ACCEPT_GZIP_ENCODED))
+      return new GZIPOutputStream(chunkedOutput, 16384);
+    return chunkedOutput;
+  }
+
   // Compress content string
   public byte[] compress(String jsonStr) {
     if (jsonStr == null || jsonStr.length() == 0)
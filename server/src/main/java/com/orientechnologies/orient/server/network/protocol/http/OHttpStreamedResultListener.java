@@ -0,0 +1,116 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network.protocol.http;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import com.orientechnologies.common.io.OIOException;
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.command.OCommandRequest;
+import com.orientechnologies.orient.core.command.OCommandResultListener;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.serialization.serializer.OJSONWriter;
+
+/**
+ * Writes the results of an asynchronous query to the HTTP response as soon as they are produced, in the same JSON format of
+ * {@link OHttpResponse#writeRecords(Object, String, String, String)}. The content is sent in chunks, so the memory used doesn't
+ * depend on the number of the records. The response is completed by {@link #finish()} only when the query succeeded: on error
+ * the response has already started and the connection is closed.
+ *
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ */
+public class OHttpStreamedResultListener implements OCommandResultListener {
+  private final OHttpResponse   response;
+  private final OCommandRequest command;
+  private final String          format;
+  private Writer                writer;
+  private OJSONWriter           json;
+  private String                recordFormat;
+  private int                   counter = 0;
+
+  public OHttpStreamedResultListener(final OHttpResponse iResponse, final OCommandRequest iCommand, final String iFormat) {
+    response = iResponse;
+    command = iCommand;
+    format = iFormat != null ? OHttpResponse.JSON_FORMAT + "," + iFormat : OHttpResponse.JSON_FORMAT;
+  }
+
+  public boolean result(final Object iRecord) {
+    try {
+      begin();
+
+      if (iRecord instanceof OIdentifiable) {
+        final ORecord<?> rec = ((OIdentifiable) iRecord).getRecord();
+        if (rec != null)
+          try {
+            final String objectJson = rec.toJSON(recordFormat);
+            if (counter++ > 0)
+              writer.write(", ");
+            writer.write(objectJson);
+          } catch (OIOException e) {
+            throw e;
+          } catch (Exception e) {
+            OLogManager.instance().error(this, "Error transforming record " + rec.getIdentity() + " to JSON", e);
+          }
+      } else if (iRecord != null) {
+        if (counter++ > 0)
+          writer.write(", ");
+        writer.write(OJSONWriter.writeValue(iRecord, recordFormat));
+      }
+      return true;
+
+    } catch (IOException e) {
+      throw new OIOException("Error on sending the query results to the HTTP client", e);
+    }
+  }
+
+  public void end() {
+  }
+
+  /**
+   * Closes the result collection and sends the last chunk.
+   */
+  public void finish() throws IOException {
+    begin();
+
+    json.endCollection(-1, true);
+    json.endObject();
+    if (response.callbackFunction != null)
+      writer.write(')');
+
+    writer.close();
+    response.flush();
+  }
+
+  private void begin() throws IOException {
+    if (writer != null)
+      return;
+
+    // THE FETCH PLAN CAN BE DECLARED IN THE QUERY TEXT: READ IT ONCE THE QUERY HAS BEEN PARSED
+    final String fetchPlan = command.getFetchPlan();
+    recordFormat = fetchPlan != null ? format + ",fetchPlan:" + fetchPlan : format;
+
+    writer = new OutputStreamWriter(response.sendChunked(OHttpUtils.STATUS_OK_CODE, "OK", OHttpUtils.CONTENT_JSON), "UTF-8");
+    if (response.callbackFunction != null)
+      writer.write(response.callbackFunction + "(");
+
+    json = new OJSONWriter(writer, format);
+    json.beginObject();
+    json.beginCollection(-1, true, "result");
+  }
+}
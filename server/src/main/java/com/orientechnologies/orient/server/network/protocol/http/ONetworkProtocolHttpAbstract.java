@@ -64,6 +64,7 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
   private static int                   requestMaxContentLength;                    // MAX = 10Kb
   private static int                   socketTimeout;
   private final StringBuilder          requestContent    = new StringBuilder(512);
+  private final StringBuilder          headerContent     = new StringBuilder(512);
   protected OClientConnection          connection;
   protected OChannelTextServer         channel;
   protected OUser                      account;
@@ -309,6 +310,13 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
       errorMessage = buffer.toString();
     }
 
+    if (response != null && response.sendStarted) {
+      // THE RESPONSE IS ALREADY STREAMING: CLOSE THE CONNECTION TO LET THE CLIENT KNOW IT'S INCOMPLETE
+      OLogManager.instance().error(this, "Error on sending the HTTP response, closing the connection:\n%s", errorMessage);
+      sendShutdown();
+      return;
+    }
+
     if (errorReason == null) {
       errorReason = OHttpUtils.STATUS_INTERNALERROR_DESCRIPTION;
       OLogManager.instance().error(this, "Internal server error:\n%s", errorMessage);
@@ -371,7 +379,8 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
     int contentLength = -1;
     boolean endOfHeaders = false;
 
-    final StringBuilder request = new StringBuilder(512);
+    final StringBuilder request = headerContent;
+    request.setLength(0);
 
     while (!channel.socket.isInputShutdown()) {
       in = channel.read();
@@ -519,8 +528,10 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
         c = (char) channel.read();
 
         if (c == '\r') {
-          final String[] words = requestContent.toString().split(" ");
-          if (words.length < 3) {
+          // REQUEST LINE: <METHOD> <URL> <VERSION>
+          final int urlBegin = requestContent.indexOf(" ");
+          final int urlEnd = urlBegin > -1 ? requestContent.indexOf(" ", urlBegin + 1) : -1;
+          if (urlEnd == -1) {
             OLogManager.instance().warn(this,
                 "->" + channel.socket.getInetAddress().getHostAddress() + ": Error on invalid content:\n" + requestContent);
             while (channel.inStream.available() > 0) {
@@ -532,8 +543,8 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
           // CONSUME THE NEXT \n
           channel.read();
 
-          request.httpMethod = words[0].toUpperCase();
-          request.url = URLDecoder.decode(words[1].trim(), "UTF-8");
+          request.httpMethod = requestContent.substring(0, urlBegin).toUpperCase();
+          request.url = URLDecoder.decode(requestContent.substring(urlBegin + 1, urlEnd).trim(), "UTF-8");
 
           final int parametersPos = request.url.indexOf('?');
           if (parametersPos > -1) {
@@ -541,7 +552,9 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
             request.url = request.url.substring(0, parametersPos);
           }
 
-          request.httpVersion = words[2];
+          final int versionEnd = requestContent.indexOf(" ", urlEnd + 1);
+          request.httpVersion = versionEnd > -1 ? requestContent.substring(urlEnd + 1, versionEnd) : requestContent
+              .substring(urlEnd + 1);
           readAllContent(request);
 
           if (request.content != null && request.contentType != null
@@ -654,6 +667,7 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
     cmdManager.registerCommand(new OServerCommandGetQuery());
     cmdManager.registerCommand(new OServerCommandGetServer());
     cmdManager.registerCommand(new OServerCommandGetConnections());
+    cmdManager.registerCommand(new OServerCommandGetDistributed());
     cmdManager.registerCommand(new OServerCommandGetStorageAllocation());
     cmdManager.registerCommand(new OServerCommandGetFileDownload());
     cmdManager.registerCommand(new OServerCommandGetIndex());
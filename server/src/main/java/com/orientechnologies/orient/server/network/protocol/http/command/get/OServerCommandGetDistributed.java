@@ -0,0 +1,76 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network.protocol.http.command.get;
+
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.server.distributed.ODistributedDatabase;
+import com.orientechnologies.orient.server.distributed.ODistributedServerManager;
+import com.orientechnologies.orient.server.network.protocol.http.OHttpRequest;
+import com.orientechnologies.orient.server.network.protocol.http.OHttpResponse;
+import com.orientechnologies.orient.server.network.protocol.http.OHttpUtils;
+import com.orientechnologies.orient.server.network.protocol.http.command.OServerCommandAuthenticatedServerAbstract;
+
+/**
+ * Returns the replication metrics of the local node: all the databases or the database passed in the URL.
+ * 
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ * 
+ */
+public class OServerCommandGetDistributed extends OServerCommandAuthenticatedServerAbstract {
+  private static final String[] NAMES = { "GET|distributed/*" };
+
+  public OServerCommandGetDistributed() {
+    super("server.info");
+  }
+
+  @Override
+  public boolean execute(final OHttpRequest iRequest, final OHttpResponse iResponse) throws Exception {
+    final String[] args = checkSyntax(iRequest.url, 1, "Syntax error: distributed[/<database>]");
+
+    iRequest.data.commandInfo = "Distributed status";
+
+    final ODistributedServerManager manager = server.getDistributedManager();
+    if (manager == null || !manager.isEnabled()) {
+      iResponse.send(OHttpUtils.STATUS_NOTFOUND_CODE, OHttpUtils.STATUS_NOTFOUND_DESCRIPTION, OHttpUtils.CONTENT_TEXT_PLAIN,
+          "Distributed configuration is not active", null);
+      return false;
+    }
+
+    final String databaseName = args.length > 1 && args[1].length() > 0 ? args[1] : null;
+
+    if (databaseName == null) {
+      iResponse.writeRecord(manager.getStats());
+      return false;
+    }
+
+    final ODistributedDatabase db = manager.getMessageService().getDatabase(databaseName);
+    if (db == null) {
+      iResponse.send(OHttpUtils.STATUS_NOTFOUND_CODE, OHttpUtils.STATUS_NOTFOUND_DESCRIPTION, OHttpUtils.CONTENT_TEXT_PLAIN,
+          "Database '" + databaseName + "' is not replicated", null);
+      return false;
+    }
+
+    final ODocument result = new ODocument();
+    result.fields(db.getMetrics().toMap());
+    iResponse.writeRecord(result);
+    return false;
+  }
+
+  @Override
+  public String[] getNames() {
+    return NAMES;
+  }
+}
@@ -20,8 +20,13 @@ import com.orientechnologies.orient.core.command.OCommandManager;
 import com.orientechnologies.orient.core.command.OCommandRequestText;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.record.ORecordSchemaAware;
+import com.orientechnologies.orient.core.sql.OCommandExecutorSQLSelect;
+import com.orientechnologies.orient.core.sql.query.OSQLAsynchQuery;
+import com.orientechnologies.orient.core.storage.OStorageEmbedded;
 import com.orientechnologies.orient.server.network.protocol.http.OHttpRequest;
 import com.orientechnologies.orient.server.network.protocol.http.OHttpResponse;
+import com.orientechnologies.orient.server.network.protocol.http.OHttpStreamedResultListener;
 import com.orientechnologies.orient.server.network.protocol.http.command.OServerCommandAuthenticatedDbAbstract;
 
 public class OServerCommandPostCommand extends OServerCommandAuthenticatedDbAbstract {
@@ -56,10 +61,23 @@ public class OServerCommandPostCommand extends OServerCommandAuthenticatedDbAbst
     try {
       db = getProfiledDatabaseInstance(iRequest);
 
-      final OCommandRequestText cmd = (OCommandRequestText) OCommandManager.instance().getRequester(language);
+      String format = null;
+      if (iRequest.parameters.get("format") != null)
+        format = iRequest.parameters.get("format");
 
-      cmd.setText(text);
-      cmd.setLimit(limit);
+      final OCommandRequestText cmd;
+      OHttpStreamedResultListener listener = null;
+      if ((accept == null || !accept.contains("text/csv")) && isSQLSelect(language, text)) {
+        // SQL SELECT: SEND THE RECORDS WHILE THEY ARE FOUND
+        final OSQLAsynchQuery<ORecordSchemaAware<?>> query = new OSQLAsynchQuery<ORecordSchemaAware<?>>(text, limit, null);
+        listener = new OHttpStreamedResultListener(iResponse, query, format);
+        query.setResultListener(listener);
+        cmd = query;
+      } else {
+        cmd = (OCommandRequestText) OCommandManager.instance().getRequester(language);
+        cmd.setText(text);
+        cmd.setLimit(limit);
+      }
       cmd.setFetchPlan(fetchPlan);
 
       final OCommandExecutor executor = OCommandManager.instance().getExecutor(cmd);
@@ -70,14 +88,20 @@ public class OServerCommandPostCommand extends OServerCommandAuthenticatedDbAbst
       if (!executor.isIdempotent() && iRequest.httpMethod.equals("GET"))
         throw new OCommandExecutionException("Cannot execute non idempotent command using HTTP GET");
 
+      if (listener != null) {
+        // EXECUTE THE PARSED QUERY
+        if (db.getStorage() instanceof OStorageEmbedded)
+          ((OStorageEmbedded) db.getStorage()).executeCommand(cmd, executor);
+        else
+          db.query((OSQLAsynchQuery<?>) cmd);
+        listener.finish();
+        return false;
+      }
+
       response = db.command(cmd).execute();
 
       fetchPlan = executor.getFetchPlan();
 
-      String format = null;
-      if (iRequest.parameters.get("format") != null)
-        format = iRequest.parameters.get("format");
-
       if (fetchPlan != null)
         if (format != null)
           format += ",fetchPlan:" + fetchPlan;
@@ -94,6 +118,19 @@ public class OServerCommandPostCommand extends OServerCommandAuthenticatedDbAbst
     return false;
   }
 
+  /**
+   * Tells if the command is a SQL SELECT by its first keyword, so the query to stream is parsed only once.
+   */
+  protected static boolean isSQLSelect(final String iLanguage, final String iText) {
+    if (!"sql".equalsIgnoreCase(iLanguage))
+      return false;
+
+    final String text = iText.trim();
+    final int length = OCommandExecutorSQLSelect.KEYWORD_SELECT.length();
+    return text.length() > length && text.regionMatches(true, 0, OCommandExecutorSQLSelect.KEYWORD_SELECT, 0, length)
+        && Character.isWhitespace(text.charAt(length));
+  }
+
   @Override
   public String[] getNames() {
     return NAMES;
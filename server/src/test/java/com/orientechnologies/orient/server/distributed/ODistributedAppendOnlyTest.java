@@ -0,0 +1,178 @@
+package com.orientechnologies.orient.server.distributed;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OPlaceholder;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.OCluster;
+import com.orientechnologies.orient.core.storage.OPhysicalPosition;
+import com.orientechnologies.orient.core.storage.ORecordCallback;
+import com.orientechnologies.orient.core.storage.OStorageOperationResult;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+import com.orientechnologies.orient.core.version.ORecordVersion;
+import com.orientechnologies.orient.core.version.OVersionFactory;
+import com.orientechnologies.orient.server.OServer;
+import com.orientechnologies.orient.server.distributed.ODistributedRequest.EXECUTION_MODE;
+import com.orientechnologies.orient.server.distributed.task.OAbstractRemoteTask;
+import com.orientechnologies.orient.server.distributed.task.OAppendRecordTask;
+import com.orientechnologies.orient.server.distributed.task.OCreateRecordTask;
+
+public class ODistributedAppendOnlyTest {
+  @Test
+  public void testConfiguration() {
+    final ODistributedConfiguration cfg = configuration(false);
+    Assert.assertFalse(cfg.isAppendOnly("events"));
+
+    cfg.getClusterConfiguration("events").field("appendOnly", true);
+    Assert.assertTrue(cfg.isAppendOnly("events"));
+    Assert.assertFalse(cfg.isAppendOnly("other"));
+
+    // DEFAULT FOR ALL THE CLUSTERS
+    cfg.serialize().field("appendOnly", true);
+    Assert.assertTrue(cfg.isAppendOnly("other"));
+
+    // SET AS STRING BY JSON EDITORS
+    cfg.serialize().field("appendOnly", "false");
+    Assert.assertFalse(cfg.isAppendOnly("other"));
+  }
+
+  @Test
+  public void testAppendOnReplica() throws Exception {
+    // THE ENGINE COULD HAVE BEEN SHUT DOWN BY A SERVER OF ANOTHER TEST
+    Orient.instance().startup();
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx("memory:appendReplica").create();
+    try {
+      final ODistributedServerManager manager = manager(configuration(true));
+
+      // ALIGNED CLUSTER: THE RECORD TAKES THE POSITION ASSIGNED BY THE MASTER
+      final int aligned = db.getMetadata().getSchema().createClass("Aligned").getDefaultClusterId();
+      Object result = append(aligned, 0).execute(null, manager, db);
+      Assert.assertTrue(result instanceof OPlaceholder);
+      Assert.assertEquals(((OPlaceholder) result).getIdentity(),
+          new ORecordId(aligned, OClusterPositionFactory.INSTANCE.valueOf(0)));
+      Mockito.verify(manager, Mockito.never()).setDatabaseMisaligned(Matchers.anyString());
+
+      // THE REPLICA HAS A RECORD THE MASTER DOESN'T HAVE: THE APPENDED RECORD IS REMOVED
+      final int misaligned = db.getMetadata().getSchema().createClass("Misaligned").getDefaultClusterId();
+      new ODocument("Misaligned").field("local", true).save();
+
+      result = append(misaligned, 0).execute(null, manager, db);
+      Assert.assertTrue(result instanceof ODistributedException);
+      Assert.assertEquals(db.countClusterElements(misaligned), 1);
+      Mockito.verify(manager).setDatabaseMisaligned(db.getName());
+    } finally {
+      db.drop();
+    }
+  }
+
+  @Test
+  public void testAppendIsReplicatedWithoutResponse() {
+    final ODistributedServerManager manager = manager(configuration(true));
+    final OLocalPaginatedStorage wrapped = wrapped();
+    final ODistributedStorage storage = new ODistributedStorage(server(manager), wrapped);
+
+    final ORecordId rid = new ORecordId(9);
+    storage.createRecord(rid, new byte[] { 1 }, OVersionFactory.instance().createVersion(), (byte) 'd', 0, null);
+
+    Mockito.verify(wrapped).createRecord(Matchers.eq(rid), Matchers.any(byte[].class), Matchers.any(ORecordVersion.class),
+        Matchers.eq((byte) 'd'), Matchers.eq(0), Matchers.any(ORecordCallback.class));
+
+    final ArgumentCaptor<Collection> nodes = ArgumentCaptor.forClass(Collection.class);
+    final ArgumentCaptor<OAbstractRemoteTask> task = ArgumentCaptor.forClass(OAbstractRemoteTask.class);
+    Mockito.verify(manager).sendRequest(Matchers.eq("test"), Matchers.any(Collection.class), nodes.capture(), task.capture(),
+        Matchers.eq(EXECUTION_MODE.NO_RESPONSE));
+
+    // THE LOCAL NODE HAS ALREADY CREATED THE RECORD
+    Assert.assertEquals(nodes.getValue(), Collections.singletonList("node2"));
+    Assert.assertTrue(task.getValue() instanceof OAppendRecordTask);
+    Assert.assertEquals(((OAppendRecordTask) task.getValue()).getRid(),
+        new ORecordId(9, OClusterPositionFactory.INSTANCE.valueOf(5)));
+  }
+
+  @Test
+  public void testCreateWaitsForQuorum() {
+    final ODistributedServerManager manager = manager(configuration(false));
+    final OLocalPaginatedStorage wrapped = wrapped();
+    final ODistributedStorage storage = new ODistributedStorage(server(manager), wrapped);
+
+    final ORecordId assigned = new ORecordId(9, OClusterPositionFactory.INSTANCE.valueOf(3));
+    Mockito.when(
+        manager.sendRequest(Matchers.anyString(), Matchers.any(Collection.class), Matchers.any(Collection.class),
+            Matchers.any(OAbstractRemoteTask.class), Matchers.any(EXECUTION_MODE.class))).thenReturn(
+        new OPlaceholder(assigned, OVersionFactory.instance().createVersion()));
+
+    final ORecordId rid = new ORecordId(9);
+    storage.createRecord(rid, new byte[] { 1 }, OVersionFactory.instance().createVersion(), (byte) 'd', 0, null);
+    Assert.assertEquals(rid, assigned);
+
+    Mockito.verify(manager).sendRequest(Matchers.eq("test"), Matchers.any(Collection.class),
+        Matchers.eq(Arrays.asList("node1", "node2")), Matchers.any(OCreateRecordTask.class), Matchers.eq(EXECUTION_MODE.RESPONSE));
+    Mockito.verify(wrapped, Mockito.never()).createRecord(Matchers.any(ORecordId.class), Matchers.any(byte[].class),
+        Matchers.any(ORecordVersion.class), Matchers.anyByte(), Matchers.anyInt(), Matchers.any(ORecordCallback.class));
+  }
+
+  private static OAppendRecordTask append(final int iClusterId, final long iPosition) {
+    return new OAppendRecordTask(new ORecordId(iClusterId, OClusterPositionFactory.INSTANCE.valueOf(iPosition)), new ODocument()
+        .field("appended", true).toStream(), OVersionFactory.instance().createVersion(), ODocument.RECORD_TYPE);
+  }
+
+  private static ODistributedConfiguration configuration(final boolean iAppendOnly) {
+    final ODocument events = new ODocument().field("servers", Arrays.asList("node1", "node2"), OType.EMBEDDEDLIST);
+    if (iAppendOnly)
+      events.field("appendOnly", true);
+
+    final ODocument clusters = new ODocument().field("*", new ODocument()).field("events", events);
+    return new ODistributedConfiguration(new ODocument().field("clusters", clusters));
+  }
+
+  private static ODistributedServerManager manager(final ODistributedConfiguration iConfiguration) {
+    final ODistributedServerManager manager = Mockito.mock(ODistributedServerManager.class);
+    Mockito.when(manager.getLocalNodeName()).thenReturn("node1");
+    Mockito.when(manager.getDatabaseConfiguration("test")).thenReturn(iConfiguration);
+    return manager;
+  }
+
+  private static OServer server(final ODistributedServerManager iManager) {
+    final OServer server = Mockito.mock(OServer.class);
+    Mockito.when(server.getDistributedManager()).thenReturn(iManager);
+    return server;
+  }
+
+  private static OLocalPaginatedStorage wrapped() {
+    final OCluster cluster = Mockito.mock(OCluster.class);
+    Mockito.when(cluster.getName()).thenReturn("events");
+
+    final OLocalPaginatedStorage wrapped = Mockito.mock(OLocalPaginatedStorage.class);
+    Mockito.when(wrapped.getName()).thenReturn("test");
+    Mockito.when(wrapped.getClusterById(9)).thenReturn(cluster);
+    Mockito.when(
+        wrapped.createRecord(Matchers.any(ORecordId.class), Matchers.any(byte[].class), Matchers.any(ORecordVersion.class),
+            Matchers.anyByte(), Matchers.anyInt(), Matchers.any(ORecordCallback.class)))
+        .thenAnswer(new Answer<Object>() {
+          @Override
+          public Object answer(final InvocationOnMock invocation) {
+            // THE STORAGE ASSIGNS THE POSITION TO THE RID
+            final ORecordId rid = (ORecordId) invocation.getArguments()[0];
+            rid.clusterPosition = OClusterPositionFactory.INSTANCE.valueOf(5);
+            return new OStorageOperationResult<OPhysicalPosition>(new OPhysicalPosition(rid.clusterPosition, OVersionFactory
+                .instance().createVersion()));
+          }
+        });
+    return wrapped;
+  }
+}
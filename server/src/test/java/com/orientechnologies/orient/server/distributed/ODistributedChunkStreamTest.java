@@ -0,0 +1,116 @@
+package com.orientechnologies.orient.server.distributed;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class ODistributedChunkStreamTest {
+  private static final int  CHUNK_SIZE = 1024;
+  private static final long TIMEOUT    = 10000;
+
+  @Test
+  public void testStreamThroughBoundedQueue() throws Exception {
+    final byte[] content = new byte[CHUNK_SIZE * 20 + 123];
+    new Random(7).nextBytes(content);
+
+    // THE QUEUE IS MUCH SMALLER THAN THE CONTENT: THE WRITER MUST WAIT FOR THE READER
+    final BlockingQueue<ODistributedDatabaseChunk> queue = new ArrayBlockingQueue<ODistributedDatabaseChunk>(2);
+    final AtomicLong lastOperationId = new AtomicLong(-1);
+    final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+
+    final ODistributedChunkOutputStream out = new ODistributedChunkOutputStream(queue, "test", lastOperationId, CHUNK_SIZE, TIMEOUT);
+    final Thread writer = new Thread() {
+      @Override
+      public void run() {
+        try {
+          lastOperationId.set(33);
+          out.write(content, 0, 100);
+          out.write(content[100]);
+          out.write(content, 101, content.length - 101);
+          out.close();
+        } catch (Throwable t) {
+          error.set(t);
+        }
+      }
+    };
+    writer.start();
+
+    final ODistributedChunkInputStream in = new ODistributedChunkInputStream(queue, TIMEOUT);
+    final ByteArrayOutputStream received = new ByteArrayOutputStream();
+    final byte[] buffer = new byte[300];
+    int read;
+    while ((read = in.read(buffer)) > -1)
+      received.write(buffer, 0, read);
+    in.close();
+
+    writer.join();
+    Assert.assertNull(error.get());
+
+    Assert.assertEquals(received.toByteArray(), content);
+    Assert.assertEquals(in.getSize(), content.length);
+    Assert.assertEquals(in.getChunks(), out.getChunks());
+    Assert.assertEquals(out.getSize(), content.length);
+
+    Assert.assertTrue(in.getLastChunk().last);
+    Assert.assertEquals(in.getLastChunk().getLastOperationId(), 33);
+    Assert.assertEquals(in.getLastChunk().offset + in.getLastChunk().buffer.length, content.length);
+  }
+
+  @Test
+  public void testCloseConsumesRemainingChunks() throws Exception {
+    final BlockingQueue<ODistributedDatabaseChunk> queue = new ArrayBlockingQueue<ODistributedDatabaseChunk>(10);
+    final ODistributedChunkOutputStream out = new ODistributedChunkOutputStream(queue, "test", new AtomicLong(), CHUNK_SIZE,
+        TIMEOUT);
+    out.write(new byte[CHUNK_SIZE * 3]);
+    out.close();
+    out.close();
+
+    Assert.assertEquals(queue.size(), 3);
+
+    final ODistributedChunkInputStream in = new ODistributedChunkInputStream(queue, TIMEOUT);
+    Assert.assertEquals(in.read(), 0);
+    in.close();
+
+    Assert.assertTrue(queue.isEmpty());
+    Assert.assertEquals(in.read(), -1);
+  }
+
+  @Test
+  public void testAbortFailsTheReceiver() throws Exception {
+    final BlockingQueue<ODistributedDatabaseChunk> queue = new ArrayBlockingQueue<ODistributedDatabaseChunk>(10);
+    final ODistributedChunkOutputStream out = new ODistributedChunkOutputStream(queue, "test", new AtomicLong(), CHUNK_SIZE,
+        TIMEOUT);
+    out.write(new byte[CHUNK_SIZE + 10]);
+    out.abort("backup failed");
+    out.close();
+
+    // THE PARTIAL CHUNK IS NOT SENT AND NO LAST CHUNK FOLLOWS THE ABORT
+    Assert.assertEquals(queue.size(), 2);
+
+    final ODistributedChunkInputStream in = new ODistributedChunkInputStream(queue, TIMEOUT);
+    final byte[] buffer = new byte[CHUNK_SIZE * 2];
+    int read = 0;
+    try {
+      for (int r; (r = in.read(buffer, read, buffer.length - read)) > -1;)
+        read += r;
+      Assert.fail("Aborted transfer read to the end");
+    } catch (IOException e) {
+      Assert.assertTrue(e.getMessage().contains("backup failed"));
+    }
+    Assert.assertEquals(read, CHUNK_SIZE);
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void testTimeoutWhenReceiverIsNotConsuming() throws Exception {
+    final BlockingQueue<ODistributedDatabaseChunk> queue = new ArrayBlockingQueue<ODistributedDatabaseChunk>(1);
+    final ODistributedChunkOutputStream out = new ODistributedChunkOutputStream(queue, "test", new AtomicLong(), CHUNK_SIZE, 100);
+    out.write(new byte[CHUNK_SIZE * 3]);
+  }
+}
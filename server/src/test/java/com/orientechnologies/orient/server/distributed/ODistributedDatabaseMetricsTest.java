@@ -0,0 +1,85 @@
+package com.orientechnologies.orient.server.distributed;
+
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.profiler.OAbstractProfiler;
+import com.orientechnologies.orient.core.Orient;
+
+public class ODistributedDatabaseMetricsTest {
+
+  @Test
+  public void testLatencies() {
+    final ODistributedDatabaseMetrics metrics = new TestMetrics();
+    Assert.assertEquals(metrics.getAverageApplyLatency(), 0);
+    Assert.assertEquals(metrics.getAverageQuorumWait(), 0);
+
+    metrics.onApplied(10);
+    metrics.onApplied(20);
+    // CLOCKS NOT ALIGNED
+    metrics.onApplied(-5);
+    Assert.assertEquals(metrics.getAverageApplyLatency(), 10);
+
+    // ONLY THE LAST SAMPLES ARE CONSIDERED
+    for (int i = 0; i < ODistributedDatabaseMetrics.STATS_MAX_SAMPLES; ++i)
+      metrics.onQuorumWait(1000);
+    for (int i = 0; i < ODistributedDatabaseMetrics.STATS_MAX_SAMPLES; ++i)
+      metrics.onQuorumWait(4);
+    Assert.assertEquals(metrics.getAverageQuorumWait(), 4);
+  }
+
+  @Test
+  public void testBytesPerSecond() {
+    final ODistributedDatabaseMetrics metrics = new TestMetrics();
+    metrics.onSent(100, 10000);
+    metrics.onSent(50, 10999);
+    Assert.assertEquals(metrics.getBytesPerSecond(10999), 0);
+
+    // THE SECOND IS COMPLETE
+    metrics.onSent(30, 11200);
+    Assert.assertEquals(metrics.getBytesPerSecond(11500), 150);
+    Assert.assertEquals(metrics.getBytesPerSecond(12000), 30);
+
+    // NOTHING SENT IN THE LAST SECOND
+    Assert.assertEquals(metrics.getBytesPerSecond(15000), 0);
+    Assert.assertEquals(metrics.getBytesSent(), 180);
+  }
+
+  @Test
+  public void testHooks() {
+    final ODistributedDatabaseMetrics metrics = new TestMetrics();
+    final String metricName = metrics.getMetricName(ODistributedDatabaseMetrics.QUEUE_SIZE);
+    Assert.assertEquals(metricName, "distributed.db.test.queueSize");
+
+    final OAbstractProfiler profiler = (OAbstractProfiler) Orient.instance().getProfiler();
+    metrics.registerHooks();
+    try {
+      Assert.assertEquals(profiler.getHookValue(metricName), 3l);
+    } finally {
+      metrics.unregisterHooks();
+    }
+    Assert.assertNull(profiler.getHookValue(metricName));
+
+    final Map<String, Object> map = metrics.toMap();
+    Assert.assertEquals(map.get(ODistributedDatabaseMetrics.QUEUE_SIZE), 3l);
+    Assert.assertEquals(map.get(ODistributedDatabaseMetrics.PENDING_RESPONSES), 2l);
+  }
+
+  private static class TestMetrics extends ODistributedDatabaseMetrics {
+    public TestMetrics() {
+      super("test");
+    }
+
+    @Override
+    public long getQueueSize() {
+      return 3;
+    }
+
+    @Override
+    public long getPendingResponses() {
+      return 2;
+    }
+  }
+}
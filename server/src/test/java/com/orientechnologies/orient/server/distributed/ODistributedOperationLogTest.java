@@ -0,0 +1,150 @@
+package com.orientechnologies.orient.server.distributed;
+
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.server.distributed.task.OAbstractRemoteTask;
+import com.orientechnologies.orient.server.distributed.task.ODeleteRecordTask;
+import com.orientechnologies.orient.server.distributed.task.ODeployDatabaseTask;
+import com.orientechnologies.orient.server.distributed.task.OReadRecordTask;
+import com.orientechnologies.orient.server.distributed.task.OSyncDatabaseDeltaTask;
+
+public class ODistributedOperationLogTest {
+  private static final long EPOCH = 7;
+
+  @Test
+  public void testOperationsAfter() {
+    final ODistributedOperationLog log = new ODistributedOperationLog("test", EPOCH, 10, 100);
+    for (long id = 10; id < 20; ++id)
+      log.logOperation(request(id, new ODeleteRecordTask()));
+
+    final ODistributedDatabaseDelta delta = log.getOperationsAfter(EPOCH, 14);
+    Assert.assertEquals(delta.getLastOperationId(), 19);
+    Assert.assertEquals(delta.getOperations().size(), 5);
+    Assert.assertEquals(delta.getOperations().get(0).getId(), 15);
+
+    // ALREADY ALIGNED
+    Assert.assertEquals(log.getOperationsAfter(EPOCH, 19).getOperations().size(), 0);
+
+    // THE OPERATIONS BEFORE THE LOG WAS CREATED ARE NOT AVAILABLE
+    Assert.assertNull(log.getOperationsAfter(EPOCH, 5));
+    Assert.assertNotNull(log.getOperationsAfter(EPOCH, 9));
+
+    // ANOTHER CLUSTER EPOCH
+    Assert.assertNull(log.getOperationsAfter(EPOCH + 1, 14));
+
+    // MORE OPERATIONS THAN THE LOCAL NODE
+    Assert.assertNull(log.getOperationsAfter(EPOCH, 25));
+  }
+
+  @Test
+  public void testOnlyChangesAreKept() {
+    final ODistributedOperationLog log = new ODistributedOperationLog("test", EPOCH, 0, 100);
+    log.logOperation(request(0, new ODeleteRecordTask()));
+    log.logOperation(request(1, new OReadRecordTask()));
+    log.logOperation(request(2, new ODeployDatabaseTask()));
+    log.logOperation(request(3, new ODeleteRecordTask()));
+
+    Assert.assertEquals(log.size(), 2);
+    Assert.assertEquals(log.getLastOperationId(), 3);
+    Assert.assertEquals(log.getOperationsAfter(EPOCH, 1).getOperations().get(0).getId(), 3);
+
+    // OPERATIONS RECEIVED TWICE ARE LOGGED ONCE
+    log.logOperation(request(3, new ODeleteRecordTask()));
+    Assert.assertEquals(log.size(), 2);
+  }
+
+  @Test
+  public void testEvictedOperations() {
+    final ODistributedOperationLog log = new ODistributedOperationLog("test", EPOCH, 0, 10);
+    for (long id = 0; id < 30; ++id)
+      log.logOperation(request(id, new ODeleteRecordTask()));
+
+    Assert.assertEquals(log.size(), 10);
+    Assert.assertNull(log.getOperationsAfter(EPOCH, 18));
+    Assert.assertEquals(log.getOperationsAfter(EPOCH, 19).getOperations().size(), 10);
+  }
+
+  @Test
+  public void testOperationsAppliedInParallel() {
+    final ODistributedOperationLog log = new ODistributedOperationLog("test", EPOCH, 0, 100);
+    log.logOperation(request(0, new ODeleteRecordTask()));
+    log.logOperation(request(3, new ODeleteRecordTask()));
+    log.logOperation(request(1, new ODeleteRecordTask()));
+    log.logOperation(request(2, new ODeleteRecordTask()));
+    log.logOperation(request(1, new ODeleteRecordTask()));
+
+    Assert.assertEquals(log.size(), 4);
+    Assert.assertEquals(log.getLastOperationId(), 3);
+
+    final ODistributedDatabaseDelta delta = log.getOperationsAfter(EPOCH, 0);
+    Assert.assertEquals(delta.getOperations().size(), 3);
+    for (int i = 0; i < 3; ++i)
+      Assert.assertEquals(delta.getOperations().get(i).getId(), i + 1);
+  }
+
+  @Test
+  public void testOperationsNotAppliedYetAreNotServed() {
+    final ODistributedAppliedOperations applied = new ODistributedAppliedOperations();
+    final ODistributedOperationLog log = new ODistributedOperationLog("test", EPOCH, 0, 100);
+    log.setAppliedOperations(applied);
+
+    // 2 IS STILL APPLYING IN A PARTITION WHILE 3 AND 4 HAVE BEEN APPLIED
+    for (long id = 0; id < 5; ++id)
+      applied.onReceived(id);
+    for (long id : new long[] { 0, 1, 3, 4 }) {
+      log.logOperation(request(id, new ODeleteRecordTask()));
+      applied.onApplied(id);
+    }
+
+    Assert.assertEquals(log.getLastOperationId(), 4);
+    Assert.assertEquals(log.getLastAppliedOperationId(), 1);
+    Assert.assertEquals(((Number) log.getState().field("lastOperationId")).longValue(), 1);
+
+    ODistributedDatabaseDelta delta = log.getOperationsAfter(EPOCH, 0);
+    Assert.assertEquals(delta.getLastOperationId(), 1);
+    Assert.assertEquals(delta.getOperations().size(), 1);
+
+    log.logOperation(request(2, new ODeleteRecordTask()));
+    applied.onApplied(2);
+
+    Assert.assertEquals(log.getLastAppliedOperationId(), 4);
+    delta = log.getOperationsAfter(EPOCH, 0);
+    Assert.assertEquals(delta.getLastOperationId(), 4);
+    Assert.assertEquals(delta.getOperations().size(), 4);
+  }
+
+  @Test
+  public void testDeltaTask() throws Exception {
+    final ODistributedOperationLog log = new ODistributedOperationLog("test", EPOCH, 0, 100);
+    for (long id = 0; id < 10; ++id)
+      log.logOperation(request(id, new ODeleteRecordTask()));
+
+    final ODistributedServerManager manager = Mockito.mock(ODistributedServerManager.class);
+    Mockito.when(manager.getLocalNodeName()).thenReturn("donor");
+    Mockito.when(manager.getOperationLog("test")).thenReturn(log);
+
+    final ODatabaseDocumentTx database = Mockito.mock(ODatabaseDocumentTx.class);
+    Mockito.when(database.getName()).thenReturn("test");
+
+    OSyncDatabaseDeltaTask task = new OSyncDatabaseDeltaTask(EPOCH, 4);
+    task.setNodeSource("rejoining");
+    final Object delta = task.execute(null, manager, database);
+    Assert.assertTrue(delta instanceof ODistributedDatabaseDelta);
+    Assert.assertEquals(((ODistributedDatabaseDelta) delta).getOperations().size(), 5);
+
+    // NOT AVAILABLE: THE DATABASE MUST BE DEPLOYED
+    task = new OSyncDatabaseDeltaTask(EPOCH + 1, 4);
+    task.setNodeSource("rejoining");
+    Assert.assertEquals(task.execute(null, manager, database), Boolean.FALSE);
+  }
+
+  private static ODistributedRequest request(final long iId, final OAbstractRemoteTask iTask) {
+    final ODistributedRequest req = Mockito.mock(ODistributedRequest.class);
+    Mockito.when(req.getId()).thenReturn(iId);
+    Mockito.when(req.getTask()).thenReturn(iTask);
+    return req;
+  }
+}
@@ -0,0 +1,177 @@
+package com.orientechnologies.orient.server.distributed;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.util.OPair;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.command.OBasicCommandContext;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OCommandExecutorSQLSelect;
+import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.sql.functions.OSQLFunctionRuntime;
+import com.orientechnologies.orient.core.sql.functions.misc.OSQLFunctionCount;
+
+public class ODistributedQueryMergerTest {
+  @Test
+  public void testSortedMerge() throws Exception {
+    final OCommandExecutorSQLSelect select = select(null, 1, 3, new OPair<String, String>("age", "DESC"));
+
+    final Map<String, Object> results = new LinkedHashMap<String, Object>();
+    // EVERY NODE RETURNED SKIP + LIMIT RECORDS
+    results.put("node1", docs("age", 50, 30, 10, 5));
+    results.put("node2", docs("age", 40, 35, 20, 1));
+
+    final List<Object> merged = new ODistributedQueryMerger(select, true).merge(results);
+    Assert.assertEquals(values(merged, "age"), Arrays.<Object> asList(40, 35, 30));
+  }
+
+  @Test
+  public void testSortedMergeWithoutDuplicates() throws Exception {
+    final OCommandExecutorSQLSelect select = select(null, 0, 4, new OPair<String, String>("age", "DESC"));
+
+    final Map<String, Object> results = new LinkedHashMap<String, Object>();
+    // NOT PARTIAL: EVERY NODE BROWSED ALL THE CLUSTERS
+    results.put("node1", Arrays.<Object> asList(record(1, 50), record(2, 40), record(3, 30), record(4, 20)));
+    results.put("node2", Arrays.<Object> asList(record(1, 50), record(2, 40), record(3, 30), record(4, 20)));
+
+    final List<Object> merged = new ODistributedQueryMerger(select, false).merge(results);
+    Assert.assertEquals(values(merged, "age"), Arrays.<Object> asList(50, 40, 30, 20));
+  }
+
+  @Test
+  public void testSortedMergeKeepsProjections() throws Exception {
+    final OCommandExecutorSQLSelect select = select(null, 0, -1, new OPair<String, String>("age", "DESC"));
+
+    final Map<String, Object> results = new LinkedHashMap<String, Object>();
+    // PROJECTIONS HAVE ALL THE SAME TEMPORARY RID
+    results.put("node1", docs("age", 50, 30));
+    results.put("node2", docs("age", 40, 30));
+
+    final List<Object> merged = new ODistributedQueryMerger(select, false).merge(results);
+    Assert.assertEquals(values(merged, "age"), Arrays.<Object> asList(50, 40, 30, 30));
+  }
+
+  @Test
+  public void testConcatenatedWithoutOrder() throws Exception {
+    final OCommandExecutorSQLSelect select = select(null, 0, 3);
+
+    final Map<String, Object> results = new LinkedHashMap<String, Object>();
+    results.put("node1", docs("age", 1, 2));
+    results.put("node2", docs("age", 3, 4));
+
+    Assert.assertEquals(new ODistributedQueryMerger(select, true).merge(results).size(), 3);
+
+    // NOT PARTIAL: THE SKIP HAS BEEN APPLIED BY THE NODES
+    final OCommandExecutorSQLSelect skipped = select(null, 2, -1);
+    Assert.assertEquals(new ODistributedQueryMerger(skipped, false).merge(results).size(), 4);
+  }
+
+  @Test
+  public void testAggregatesMergedPerGroup() throws Exception {
+    final Map<String, Object> projections = new LinkedHashMap<String, Object>();
+    projections.put("city", "city");
+    projections.put("count", new OSQLFunctionRuntime(new OSQLFunctionCount()));
+
+    final OCommandExecutorSQLSelect select = select(projections, 0, -1, new OPair<String, String>("count", "DESC"));
+    Mockito.when(select.isAnyFunctionAggregates()).thenReturn(true);
+    Mockito.when(select.getGroupByFields()).thenReturn(Arrays.asList("city"));
+
+    final Map<String, Object> results = new LinkedHashMap<String, Object>();
+    results.put("node1", Arrays.asList(group("Rome", 3), group("London", 2)));
+    results.put("node2", Arrays.asList(group("London", 4), group("Paris", 1)));
+
+    final List<Object> merged = new ODistributedQueryMerger(select, true).merge(results);
+    Assert.assertEquals(values(merged, "city"), Arrays.<Object> asList("London", "Rome", "Paris"));
+    Assert.assertEquals(values(merged, "count"), Arrays.<Object> asList(6l, 3l, 1l));
+  }
+
+  @Test
+  public void testGroupByFieldNotProjected() throws Exception {
+    // THE ENGINE COULD HAVE BEEN SHUT DOWN BY A SERVER OF ANOTHER TEST
+    Orient.instance().startup();
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx("memory:groupByNotProjected").create();
+    try {
+      for (String city : new String[] { "Rome", "London", "London", "Paris" })
+        new ODocument("Person").field("city", city).save();
+
+      final OCommandSQL sql = new OCommandSQL("select count(*) as count from Person group by city");
+      sql.getContext().setVariable(OCommandExecutorSQLSelect.VAR_PARTIAL_RESULT, Boolean.TRUE);
+      final List<Object> nodeResult = db.command(sql).execute();
+      Assert.assertEquals(nodeResult.size(), 3);
+
+      final Map<String, Object> projections = new LinkedHashMap<String, Object>();
+      projections.put("count", new OSQLFunctionRuntime(new OSQLFunctionCount()));
+
+      final OCommandExecutorSQLSelect select = select(projections, 0, -1, new OPair<String, String>("count", "DESC"));
+      Mockito.when(select.isAnyFunctionAggregates()).thenReturn(true);
+      Mockito.when(select.getGroupByFields()).thenReturn(Arrays.asList("city"));
+
+      // BOTH THE NODES COUNTED THE SAME RECORDS: THE GROUPS ARE MERGED BY CITY EVEN IF IT'S NOT PROJECTED
+      final Map<String, Object> results = new LinkedHashMap<String, Object>();
+      results.put("node1", nodeResult);
+      results.put("node2", nodeResult);
+
+      final List<Object> merged = new ODistributedQueryMerger(select, true).merge(results);
+      Assert.assertEquals(values(merged, "count"), Arrays.<Object> asList(4l, 2l, 2l));
+      Assert.assertNull(((ODocument) merged.get(0)).field(OCommandExecutorSQLSelect.FIELD_GROUP_KEY));
+    } finally {
+      db.drop();
+    }
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void testExceptionReceived() throws Exception {
+    final Map<String, Object> results = new LinkedHashMap<String, Object>();
+    results.put("node1", docs("age", 1));
+    results.put("node2", new IllegalStateException("test"));
+
+    new ODistributedQueryMerger(select(null, 0, -1), true).merge(results);
+  }
+
+  private static OCommandExecutorSQLSelect select(final Map<String, Object> iProjections, final int iSkip, final int iLimit,
+      final OPair<String, String>... iOrderedFields) {
+    final OCommandExecutorSQLSelect select = Mockito.mock(OCommandExecutorSQLSelect.class);
+    Mockito.when(select.getProjections()).thenReturn(iProjections);
+    Mockito.when(select.getSkip()).thenReturn(iSkip);
+    Mockito.when(select.getLimit()).thenReturn(iLimit);
+    Mockito.when(select.getOrderedFields()).thenReturn(Arrays.asList(iOrderedFields));
+    Mockito.when(select.getContext()).thenReturn(new OBasicCommandContext());
+    return select;
+  }
+
+  private static List<Object> docs(final String iField, final Object... iValues) {
+    final List<Object> result = new ArrayList<Object>();
+    for (Object v : iValues)
+      result.add(new ODocument().field(iField, v));
+    return result;
+  }
+
+  private static ODocument record(final int iPosition, final Object iAge) {
+    final ODocument doc = new ODocument().field("age", iAge);
+    ((ORecordId) doc.getIdentity()).clusterId = 9;
+    ((ORecordId) doc.getIdentity()).clusterPosition = OClusterPositionFactory.INSTANCE.valueOf(iPosition);
+    return doc;
+  }
+
+  private static ODocument group(final String iCity, final long iCount) {
+    return new ODocument().field("city", iCity).field("count", iCount);
+  }
+
+  private static List<Object> values(final List<Object> iResult, final String iField) {
+    final List<Object> values = new ArrayList<Object>();
+    for (Object r : iResult)
+      values.add(((ODocument) r).field(iField));
+    return values;
+  }
+}
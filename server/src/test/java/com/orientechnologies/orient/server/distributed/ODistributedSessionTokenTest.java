@@ -0,0 +1,98 @@
+package com.orientechnologies.orient.server.distributed;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+
+public class ODistributedSessionTokenTest {
+
+  @Test
+  public void testToken() {
+    final ODistributedSessionToken token = new ODistributedSessionToken();
+    Assert.assertEquals(token.getOperationId("v"), -1);
+
+    token.update(Collections.singleton("V"), 10);
+    token.update(Arrays.asList("v", "e"), 8);
+    Assert.assertEquals(token.getOperationId("v"), 10);
+    Assert.assertEquals(token.getOperationId("E"), 8);
+    Assert.assertEquals(token.getOperationId("other"), -1);
+
+    // COMMANDS AGAINST ALL THE CLUSTERS
+    token.update(null, 9);
+    Assert.assertEquals(token.getOperationId("v"), 10);
+    Assert.assertEquals(token.getOperationId("e"), 9);
+    Assert.assertEquals(token.getOperationId("other"), 9);
+  }
+
+  @Test
+  public void testTokenInDatabase() {
+    final ODatabaseDocumentTx database = Mockito.mock(ODatabaseDocumentTx.class);
+    Assert.assertNull(ODistributedSessionToken.get(database, false));
+    Assert.assertNull(ODistributedSessionToken.get(null, true));
+
+    final ODistributedSessionToken token = ODistributedSessionToken.get(database, true);
+    Assert.assertNotNull(token);
+    Mockito.verify(database).setProperty(ODistributedSessionToken.PROPERTY, token);
+  }
+
+  @Test
+  public void testAppliedInOrder() {
+    final ODistributedAppliedOperations applied = new ODistributedAppliedOperations();
+    Assert.assertFalse(applied.isApplied(3));
+
+    applied.onReceived(3);
+    Assert.assertFalse(applied.isApplied(3));
+    applied.onApplied(3);
+    Assert.assertTrue(applied.isApplied(3));
+    Assert.assertTrue(applied.isApplied(1));
+    Assert.assertFalse(applied.isApplied(4));
+  }
+
+  @Test
+  public void testAppliedInParallel() {
+    final ODistributedAppliedOperations applied = new ODistributedAppliedOperations();
+    applied.onReceived(5);
+    applied.onReceived(7);
+    applied.onReceived(9);
+
+    applied.onApplied(7);
+    // 5 IS STILL PENDING
+    Assert.assertFalse(applied.isApplied(7));
+
+    applied.onApplied(5);
+    Assert.assertTrue(applied.isApplied(7));
+    Assert.assertTrue(applied.isApplied(8));
+    Assert.assertFalse(applied.isApplied(9));
+    Assert.assertEquals(applied.getPending(), 1);
+  }
+
+  @Test
+  public void testWaitFor() throws Exception {
+    final ODistributedAppliedOperations applied = new ODistributedAppliedOperations();
+    applied.onReceived(1);
+    Assert.assertFalse(applied.waitFor(1, 10));
+
+    final Thread applier = new Thread() {
+      @Override
+      public void run() {
+        try {
+          Thread.sleep(50);
+        } catch (InterruptedException e) {
+          return;
+        }
+        applied.onReceived(2);
+        applied.onApplied(1);
+        applied.onApplied(2);
+      }
+    };
+    applier.start();
+
+    Assert.assertTrue(applied.waitFor(2, 10000));
+    applier.join();
+  }
+}
@@ -0,0 +1,162 @@
+package com.orientechnologies.orient.server.distributed;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.concur.lock.OLockException;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.exception.OConcurrentModificationException;
+import com.orientechnologies.orient.core.exception.ORecordNotFoundException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.storage.ORecordMetadata;
+import com.orientechnologies.orient.core.version.OSimpleVersion;
+import com.orientechnologies.orient.server.distributed.task.ODeleteRecordTask;
+import com.orientechnologies.orient.server.distributed.task.OTxTask;
+import com.orientechnologies.orient.server.distributed.task.OUpdateRecordTask;
+
+public class ODistributedTxPrepareTest {
+  @Test
+  public void testLocksInRidOrder() throws Exception {
+    final ODistributedRecordLocks locks = new ODistributedRecordLocks();
+
+    final List<ORID> locked = locks.lock(Arrays.asList(new ORecordId("#9:5"), new ORecordId("#9:1"), new ORecordId("#9:5")), 1000);
+    Assert.assertEquals(locked, Arrays.<ORID> asList(new ORecordId("#9:1"), new ORecordId("#9:5")));
+
+    locks.unlock(locked);
+    Assert.assertFalse(locks.isLocked(new ORecordId("#9:1")));
+  }
+
+  @Test
+  public void testTimeoutReleasesTheAcquiredLocks() throws Exception {
+    final ODistributedRecordLocks locks = new ODistributedRecordLocks();
+    locks.lock(Arrays.asList(new ORecordId("#9:2")), 1000);
+
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final Future<Object> future = executor.submit(new Callable<Object>() {
+        @Override
+        public Object call() throws Exception {
+          try {
+            return locks.lock(Arrays.asList(new ORecordId("#9:1"), new ORecordId("#9:2")), 100);
+          } catch (OLockException e) {
+            return e;
+          }
+        }
+      });
+
+      Assert.assertTrue(future.get(5, TimeUnit.SECONDS) instanceof OLockException);
+      // THE LOCK ON #9:1 HAS BEEN RELEASED
+      Assert.assertFalse(locks.isLocked(new ORecordId("#9:1")));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testWaitsForTheOtherTransaction() throws Exception {
+    final ODistributedRecordLocks locks = new ODistributedRecordLocks();
+    final List<ORID> locked = locks.lock(Arrays.asList(new ORecordId("#9:2")), 1000);
+
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final Future<List<ORID>> future = executor.submit(new Callable<List<ORID>>() {
+        @Override
+        public List<ORID> call() throws Exception {
+          return locks.lock(Arrays.asList(new ORecordId("#9:2"), new ORecordId("#9:3")), 5000);
+        }
+      });
+
+      Thread.sleep(100);
+      Assert.assertFalse(future.isDone());
+
+      locks.unlock(locked);
+      Assert.assertEquals(future.get(5, TimeUnit.SECONDS).size(), 2);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testConflictIsNotApplied() throws Exception {
+    final ODatabaseDocumentTx database = database();
+    Mockito.when(database.getRecordMetadata(new ORecordId("#9:1"))).thenReturn(
+        new ORecordMetadata(new ORecordId("#9:1"), new OSimpleVersion(3)));
+    Mockito.when(database.getRecordMetadata(new ORecordId("#9:2"))).thenReturn(
+        new ORecordMetadata(new ORecordId("#9:2"), new OSimpleVersion(7)));
+
+    final OTxTask tx = new OTxTask().setPrepare(true);
+    tx.add(new OUpdateRecordTask(new ORecordId("#9:1"), new byte[0], new OSimpleVersion(3), new byte[0], new OSimpleVersion(3)));
+    tx.add(new ODeleteRecordTask(new ORecordId("#9:2"), new OSimpleVersion(6)));
+
+    Assert.assertTrue(tx.execute(null, manager(), database) instanceof OConcurrentModificationException);
+    Mockito.verify(database, Mockito.never()).begin();
+  }
+
+  @Test
+  public void testUpdateOfDeletedRecord() throws Exception {
+    final ODatabaseDocumentTx database = database();
+
+    final OTxTask tx = new OTxTask().setPrepare(true);
+    tx.add(new OUpdateRecordTask(new ORecordId("#9:1"), new byte[0], new OSimpleVersion(3), new byte[0], new OSimpleVersion(3)));
+
+    Assert.assertTrue(tx.execute(null, manager(), database) instanceof ORecordNotFoundException);
+    Mockito.verify(database, Mockito.never()).begin();
+  }
+
+  @Test
+  public void testValidTransactionIsApplied() throws Exception {
+    final ODatabaseDocumentTx database = database();
+    Mockito.when(database.getRecordMetadata(new ORecordId("#9:2"))).thenReturn(
+        new ORecordMetadata(new ORecordId("#9:2"), new OSimpleVersion(6)));
+
+    final OTxTask tx = new OTxTask().setPrepare(true);
+    tx.add(new ODeleteRecordTask(new ORecordId("#9:2"), new OSimpleVersion(6)).setDelayed(false));
+
+    Assert.assertTrue(tx.execute(null, manager(), database) instanceof List);
+    Mockito.verify(database).begin();
+    Mockito.verify(database).commit();
+  }
+
+  @Test
+  public void testSerialization() throws Exception {
+    final OTxTask tx = new OTxTask().setPrepare(true);
+    tx.add(new ODeleteRecordTask(new ORecordId("#9:2"), new OSimpleVersion(6)));
+
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    final ObjectOutputStream out = new ObjectOutputStream(buffer);
+    out.writeObject(tx);
+    out.close();
+
+    final OTxTask copy = (OTxTask) new ObjectInputStream(new ByteArrayInputStream(buffer.toByteArray())).readObject();
+    Assert.assertTrue(copy.isPrepare());
+    Assert.assertEquals(copy.getTasks().size(), 1);
+  }
+
+  private static ODatabaseDocumentTx database() {
+    final ODatabaseDocumentTx database = Mockito.mock(ODatabaseDocumentTx.class);
+    Mockito.when(database.getName()).thenReturn("test");
+    Mockito.when(database.load(Matchers.any(ORID.class))).thenReturn(null);
+    return database;
+  }
+
+  private static ODistributedServerManager manager() {
+    final ODistributedServerManager manager = Mockito.mock(ODistributedServerManager.class);
+    Mockito.when(manager.getLocalNodeName()).thenReturn("node1");
+    return manager;
+  }
+}
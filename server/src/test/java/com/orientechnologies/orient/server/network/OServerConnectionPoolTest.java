@@ -0,0 +1,126 @@
+package com.orientechnologies.orient.server.network;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.client.remote.OEngineRemote;
+import com.orientechnologies.orient.client.remote.ORemoteConnectionManager;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+public class OServerConnectionPoolTest extends OServerNetworkTestAbstract {
+  private static final String DEAD_SERVER = "127.0.0.1:2431";
+
+  public OServerConnectionPoolTest() {
+    super("connectionpool");
+  }
+
+  @BeforeClass
+  public void before() throws Exception {
+    startServer();
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url);
+    db.open("admin", "admin");
+    try {
+      db.getMetadata().getSchema().createClass("Pooled");
+      for (int i = 0; i < 10; ++i)
+        new ODocument("Pooled").field("i", i).save();
+    } finally {
+      db.close();
+    }
+  }
+
+  @AfterClass
+  public void after() {
+    shutdownServer();
+  }
+
+  @Test
+  public void testConcurrentSessions() throws Exception {
+    final Object oldShrinkPool = OGlobalConfiguration.CLIENT_CHANNEL_SHRINK_POOL.getValue();
+    OGlobalConfiguration.CLIENT_CHANNEL_SHRINK_POOL.setValue(true);
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url);
+    db.open("admin", "admin");
+    try {
+      final ExecutorService executor = Executors.newFixedThreadPool(8);
+      try {
+        final List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+        for (int i = 0; i < 32; ++i)
+          results.add(executor.submit(new Callable<Integer>() {
+            public Integer call() throws Exception {
+              final ODatabaseDocumentTx threadDb = new ODatabaseDocumentTx(url);
+              threadDb.open("admin", "admin");
+              try {
+                int total = 0;
+                for (int k = 0; k < 10; ++k)
+                  total += threadDb.query(new OSQLSynchQuery<ODocument>("select from Pooled")).size();
+                return total;
+              } finally {
+                threadDb.close();
+              }
+            }
+          }));
+
+        for (Future<Integer> result : results)
+          assertEquals(result.get().intValue(), 100);
+      } finally {
+        executor.shutdown();
+      }
+
+      // THE SESSION OPENED BEFORE IS STILL VALID: ITS CONNECTION HAS NOT BEEN CLOSED BY THE POOL
+      assertEquals(db.query(new OSQLSynchQuery<ODocument>("select from Pooled")).size(), 10);
+
+      // ALL THE CONNECTIONS HAVE BEEN RETURNED: THE POOL HAS ALL ITS PERMITS BACK
+      final ORemoteConnectionManager manager = getConnectionManager();
+      final String serverURL = "127.0.0.1:2424/connectionpool";
+      assertEquals(manager.getMaxResources(serverURL), OGlobalConfiguration.CLIENT_CHANNEL_MAX_POOL.getValueAsInteger());
+
+      // THE RESPONSE TIMES HAVE BEEN MEASURED
+      assertTrue(manager.getServerLoad(serverURL).getAverageLatency() > 0);
+    } finally {
+      db.close();
+      OGlobalConfiguration.CLIENT_CHANNEL_SHRINK_POOL.setValue(oldShrinkPool);
+    }
+  }
+
+  @Test
+  public void testLoadBalancingSkipsFailedServer() {
+    final Object oldLoadBalancing = OGlobalConfiguration.CLIENT_CHANNEL_LOAD_BALANCING.getValue();
+    OGlobalConfiguration.CLIENT_CHANNEL_LOAD_BALANCING.setValue(true);
+    try {
+      final ODatabaseDocumentTx db = new ODatabaseDocumentTx("remote:" + DEAD_SERVER + ";127.0.0.1/connectionpool");
+      db.open("admin", "admin");
+      try {
+        assertEquals(db.query(new OSQLSynchQuery<ODocument>("select from Pooled")).size(), 10);
+      } finally {
+        db.close();
+      }
+
+      // THE SERVER THAT REFUSED THE CONNECTION IS SKIPPED UNTIL THE BACKOFF EXPIRES
+      assertFalse(getConnectionManager().getServerLoad(DEAD_SERVER + "/connectionpool").isAvailable());
+      assertTrue(getConnectionManager().getServerLoad("127.0.0.1:2424/connectionpool").isAvailable());
+    } finally {
+      OGlobalConfiguration.CLIENT_CHANNEL_LOAD_BALANCING.setValue(oldLoadBalancing);
+    }
+  }
+
+  private static ORemoteConnectionManager getConnectionManager() {
+    return ((OEngineRemote) Orient.instance().getEngine(OEngineRemote.NAME)).getConnectionManager();
+  }
+}
@@ -0,0 +1,142 @@
+package com.orientechnologies.orient.server.network;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.OBase64Utils;
+
+public class OServerHttpStreamingTest extends OServerNetworkTestAbstract {
+  private static final String  HTTP_URL = "http://localhost:2480/";
+  private static final int     RECORDS  = 300;
+  private static final Pattern FIELD    = Pattern.compile("\"i\":(-?[0-9]+)");
+
+  public OServerHttpStreamingTest() {
+    super("httpstreaming");
+  }
+
+  @BeforeClass
+  public void before() throws Exception {
+    startServer();
+
+    final StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 10; ++i)
+      text.append("streamed content ");
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url);
+    db.open("admin", "admin");
+    try {
+      db.getMetadata().getSchema().createClass("Streamed");
+      db.getMetadata().getSchema().createClass("NotStreamed");
+      for (int i = 0; i < RECORDS; ++i)
+        new ODocument("Streamed").field("i", i).field("text", text.toString()).save();
+    } finally {
+      db.close();
+    }
+  }
+
+  @AfterClass
+  public void after() {
+    shutdownServer();
+  }
+
+  @Test
+  public void testStreamedQuery() throws Exception {
+    final HttpURLConnection connection = open("query/httpstreaming/sql/"
+        + URLEncoder.encode("select from Streamed order by i", "UTF-8").replace("+", "%20") + "/1000");
+    assertEquals(connection.getResponseCode(), 200);
+    assertEquals(connection.getHeaderField("Transfer-Encoding"), "chunked");
+
+    checkResult(read(connection), RECORDS);
+  }
+
+  @Test
+  public void testStreamedCommand() throws Exception {
+    final HttpURLConnection connection = open("command/httpstreaming/sql");
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    final OutputStream out = connection.getOutputStream();
+    out.write("select from Streamed where i < 100 order by i".getBytes("UTF-8"));
+    out.close();
+
+    assertEquals(connection.getResponseCode(), 200);
+    assertEquals(connection.getHeaderField("Transfer-Encoding"), "chunked");
+
+    checkResult(read(connection), 100);
+  }
+
+  @Test
+  public void testStreamedCommandWithLimit() throws Exception {
+    final HttpURLConnection connection = open("command/httpstreaming/sql/"
+        + URLEncoder.encode("SELECT from Streamed order by i", "UTF-8").replace("+", "%20") + "/10");
+    connection.setRequestMethod("POST");
+
+    assertEquals(connection.getResponseCode(), 200);
+    assertEquals(connection.getHeaderField("Transfer-Encoding"), "chunked");
+
+    checkResult(read(connection), 10);
+  }
+
+  @Test
+  public void testNotStreamedCommand() throws Exception {
+    final HttpURLConnection connection = open("command/httpstreaming/sql");
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    final OutputStream out = connection.getOutputStream();
+    out.write("insert into NotStreamed set i = -1".getBytes("UTF-8"));
+    out.close();
+
+    assertEquals(connection.getResponseCode(), 200);
+    assertEquals(connection.getHeaderField("Transfer-Encoding"), null);
+
+    final String content = read(connection);
+    assertTrue(content.startsWith("{\"result\":[{"), content);
+    assertTrue(content.contains("\"i\":-1"), content);
+  }
+
+  private static void checkResult(final String iContent, final int iExpected) {
+    assertTrue(iContent.startsWith("{\"result\":[{"), iContent);
+    assertTrue(iContent.endsWith("}]}"), iContent);
+
+    // THE RECORDS ARE RECEIVED IN THE ORDER OF THE QUERY
+    final Matcher matcher = FIELD.matcher(iContent);
+    int records = 0;
+    while (matcher.find())
+      assertEquals(Integer.parseInt(matcher.group(1)), records++);
+    assertEquals(records, iExpected);
+  }
+
+  private static HttpURLConnection open(final String iCommand) throws Exception {
+    final HttpURLConnection connection = (HttpURLConnection) new URL(HTTP_URL + iCommand).openConnection();
+    connection.setRequestProperty("Authorization", "Basic " + OBase64Utils.encodeBytes("admin:admin".getBytes("UTF-8")));
+    return connection;
+  }
+
+  private static String read(final HttpURLConnection iConnection) throws Exception {
+    final InputStream in = iConnection.getInputStream();
+    try {
+      final ByteArrayOutputStream content = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[4096];
+      int read;
+      while ((read = in.read(buffer)) > -1)
+        content.write(buffer, 0, read);
+      return content.toString("UTF-8");
+    } finally {
+      in.close();
+    }
+  }
+}
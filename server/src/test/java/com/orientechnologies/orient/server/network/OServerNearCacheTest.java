@@ -0,0 +1,123 @@
+package com.orientechnologies.orient.server.network;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.client.remote.OStorageRemote;
+import com.orientechnologies.orient.client.remote.OStorageRemoteNearCache;
+import com.orientechnologies.orient.client.remote.OStorageRemoteThread;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.server.OClientConnection;
+import com.orientechnologies.orient.server.OClientConnectionManager;
+
+public class OServerNearCacheTest extends OServerNetworkTestAbstract {
+  private Object oldNearCacheSize;
+
+  public OServerNearCacheTest() {
+    super("nearcache");
+  }
+
+  @BeforeClass
+  public void before() throws Exception {
+    oldNearCacheSize = OGlobalConfiguration.CLIENT_NEAR_CACHE_SIZE.getValue();
+    OGlobalConfiguration.CLIENT_NEAR_CACHE_SIZE.setValue(1024);
+
+    startServer();
+  }
+
+  @AfterClass
+  public void after() {
+    shutdownServer();
+
+    OGlobalConfiguration.CLIENT_NEAR_CACHE_SIZE.setValue(oldNearCacheSize);
+  }
+
+  @Test
+  public void testReadFromTheNearCache() {
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url);
+    db.open("admin", "admin");
+    try {
+      final ORID rid = new ODocument().field("name", "first").save().getIdentity();
+      final OStorageRemoteNearCache nearCache = getNearCache(db);
+      assertNotNull(nearCache);
+
+      load(db, rid);
+      final long hits = nearCache.getHits();
+      assertEquals(load(db, rid).field("name"), "first");
+      assertEquals(nearCache.getHits(), hits + 1);
+
+      // THE RECORDS CHANGED BY THE CLIENT ARE INVALIDATED
+      load(db, rid).field("name", "second").save();
+      assertEquals(load(db, rid).field("name"), "second");
+    } finally {
+      db.close();
+    }
+  }
+
+  @Test
+  public void testServerPushesTheInvalidation() throws Exception {
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url);
+    db.open("admin", "admin");
+    try {
+      final ORID rid = new ODocument().field("name", "first").save().getIdentity();
+      load(db, rid);
+      assertEquals(load(db, rid).field("name"), "first");
+
+      // UPDATE THE RECORD BYPASSING THE CLIENT
+      final ODatabaseDocumentTx serverDb = (ODatabaseDocumentTx) server.openDatabase("document", "nearcache", "admin", "admin");
+      try {
+        ((ODocument) serverDb.load(rid)).field("name", "changed").save();
+      } finally {
+        serverDb.close();
+      }
+      ODatabaseRecordThreadLocal.INSTANCE.set(db);
+
+      String name = null;
+      for (int retry = 0; retry < 100 && !"changed".equals(name); ++retry) {
+        Thread.sleep(50);
+        name = load(db, rid).field("name");
+      }
+      assertEquals(name, "changed");
+    } finally {
+      db.close();
+    }
+  }
+
+  @Test
+  public void testClosedConnectionUnsubscribes() {
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url);
+    db.open("admin", "admin");
+    try {
+      assertTrue(OClientConnectionManager.instance().hasRecordInvalidationSubscribers("nearcache"));
+    } finally {
+      db.close();
+    }
+
+    // CLOSE THE SESSIONS LEFT BY THE OTHER TESTS TOO
+    for (OClientConnection connection : OClientConnectionManager.instance().getConnections())
+      OClientConnectionManager.instance().disconnect(connection);
+
+    assertFalse(OClientConnectionManager.instance().hasRecordInvalidationSubscribers("nearcache"));
+  }
+
+  private static ODocument load(final ODatabaseDocumentTx iDatabase, final ORID iRid) {
+    // SKIP THE LOCAL CACHE OF THE DATABASE
+    iDatabase.getLocalCache().clear();
+    return iDatabase.load(iRid);
+  }
+
+  private static OStorageRemoteNearCache getNearCache(final ODatabaseDocumentTx iDatabase) {
+    return ((OStorageRemote) ((OStorageRemoteThread) iDatabase.getStorage()).getUnderlying()).getNearCache();
+  }
+}
@@ -0,0 +1,90 @@
+package com.orientechnologies.orient.server.network;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ORecordBytes;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryCompressedOutputStream;
+
+public class OServerNetworkCompressionTest extends OServerNetworkTestAbstract {
+  private Object oldCompression;
+
+  public OServerNetworkCompressionTest() {
+    super("compression");
+  }
+
+  @BeforeClass
+  public void before() throws Exception {
+    oldCompression = OGlobalConfiguration.NETWORK_BINARY_COMPRESSION.getValue();
+    OGlobalConfiguration.NETWORK_BINARY_COMPRESSION.setValue("snappy");
+
+    startServer();
+  }
+
+  @AfterClass
+  public void after() {
+    shutdownServer();
+
+    OGlobalConfiguration.NETWORK_BINARY_COMPRESSION.setValue(oldCompression);
+  }
+
+  @Test
+  public void testCompressedResults() {
+    final StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 500; ++i)
+      text.append("compressible ");
+
+    final long savedBefore = OChannelBinaryCompressedOutputStream.getMetricCompressionSavedBytes();
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url);
+    db.open("admin", "admin");
+    try {
+      db.getMetadata().getSchema().createClass("Compressed");
+      for (int i = 0; i < 50; ++i)
+        new ODocument("Compressed").field("i", i).field("text", text.toString()).save();
+
+      final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from Compressed order by i"));
+      assertEquals(result.size(), 50);
+      for (int i = 0; i < 50; ++i) {
+        assertEquals(result.get(i).field("i"), i);
+        assertEquals(result.get(i).field("text"), text.toString());
+      }
+    } finally {
+      db.close();
+    }
+
+    assertTrue(OChannelBinaryCompressedOutputStream.getMetricCompressionSavedBytes() > savedBefore);
+  }
+
+  @Test(timeOut = 60000)
+  public void testIncompressibleRecordLargerThanAFrame() {
+    // RANDOM BYTES DON'T COMPRESS: THEY ARE SENT IN RAW FRAMES
+    final byte[] content = new byte[OGlobalConfiguration.NETWORK_BINARY_MAX_CONTENT_LENGTH.getValueAsInteger() * 3 + 17];
+    new Random(1).nextBytes(content);
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url);
+    db.open("admin", "admin");
+    try {
+      final ORID rid = new ORecordBytes(content).save().getIdentity();
+
+      db.getLocalCache().clear();
+      final ORecordBytes loaded = db.load(rid);
+      assertTrue(Arrays.equals(loaded.toStream(), content));
+    } finally {
+      db.close();
+    }
+  }
+}
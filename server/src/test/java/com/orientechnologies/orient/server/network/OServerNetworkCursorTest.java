@@ -0,0 +1,255 @@
+package com.orientechnologies.orient.server.network;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.util.OCallable;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.command.OCommandResultListener;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLAsynchQuery;
+import com.orientechnologies.orient.server.OClientConnection;
+import com.orientechnologies.orient.server.network.protocol.binary.OCommandCursor;
+
+public class OServerNetworkCursorTest extends OServerNetworkTestAbstract {
+  private Object oldBatchSize;
+
+  public OServerNetworkCursorTest() {
+    super("cursor");
+  }
+
+  @BeforeClass
+  public void before() throws Exception {
+    oldBatchSize = OGlobalConfiguration.CLIENT_QUERY_CURSOR_BATCH_SIZE.getValue();
+    OGlobalConfiguration.CLIENT_QUERY_CURSOR_BATCH_SIZE.setValue(10);
+
+    startServer();
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url);
+    db.open("admin", "admin");
+    db.getMetadata().getSchema().createClass("Cursored");
+    for (int i = 0; i < 95; ++i)
+      new ODocument("Cursored").field("i", i).save();
+
+    db.getMetadata().getSchema().createClass("Linked");
+    for (int i = 0; i < 25; ++i)
+      new ODocument("Cursored").field("i", 100 + i).field("linked", new ODocument("Linked").field("i", i).save()).save();
+    db.close();
+  }
+
+  @AfterClass
+  public void after() {
+    shutdownServer();
+
+    OGlobalConfiguration.CLIENT_QUERY_CURSOR_BATCH_SIZE.setValue(oldBatchSize);
+  }
+
+  @Test
+  public void testBrowseAllBatches() {
+    assertEquals(query("select from Cursored where i < 95", -1), range(95));
+    assertEquals(query("select i from Cursored where i < 30", -1), range(30));
+  }
+
+  @Test
+  public void testListenerStopsTheCursor() {
+    assertEquals(query("select from Cursored", 15), range(15));
+
+    // THE CONNECTION IS STILL USABLE
+    assertEquals(query("select from Cursored where i >= 90 and i < 95", -1).size(), 5);
+  }
+
+  @Test
+  public void testFetchPlanLoadsTheLinkedRecords() {
+    final List<ORID> linked = new ArrayList<ORID>();
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url);
+    db.open("admin", "admin");
+    try {
+      db.command(new OSQLAsynchQuery<ODocument>("select from Cursored where i >= 100", new OCommandResultListener() {
+        public boolean result(final Object iRecord) {
+          linked.add(((ODocument) iRecord).<OIdentifiable> rawField("linked").getIdentity());
+          return true;
+        }
+
+        public void end() {
+        }
+      }).setFetchPlan("*:1")).execute();
+
+      assertEquals(linked.size(), 25);
+      for (ORID rid : linked)
+        assertNotNull(db.getLocalCache().findRecord(rid), "Linked record " + rid + " not sent by the fetch plan");
+    } finally {
+      db.close();
+    }
+  }
+
+  @Test
+  public void testExecutionWaitsForTheNextBatch() throws Exception {
+    final AtomicInteger produced = new AtomicInteger();
+    final OCommandCursor cursor = new OCommandCursor();
+
+    Orient.instance().startup();
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx("memory:cursorProducer");
+    db.create();
+    try {
+      cursor.start(db, new OCallable<Object, ODatabaseDocumentTx>() {
+        public Object call(final ODatabaseDocumentTx iDatabase) {
+          for (int i = 0; i < 1000; ++i) {
+            produced.incrementAndGet();
+            if (!cursor.result(new ODocument().field("i", i)))
+              break;
+          }
+          return null;
+        }
+      });
+
+      assertEquals(cursor.next(10).size(), 10);
+      assertEquals(cursor.next(10).size(), 10);
+      Thread.sleep(100);
+      // THE BATCHES FETCHED PLUS ONE RECORD TO KNOW THE RESULT ISN'T OVER
+      assertEquals(produced.get(), 21);
+      assertTrue(cursor.hasNext());
+
+      cursor.close();
+      Thread.sleep(100);
+      assertEquals(produced.get(), 21);
+    } finally {
+      db.drop();
+    }
+  }
+
+  @Test
+  public void testExecutionUsesADatabaseInstanceOfItsOwn() {
+    final AtomicReference<ODatabaseRecord> used = new AtomicReference<ODatabaseRecord>();
+    final OCommandCursor cursor = new OCommandCursor();
+
+    Orient.instance().startup();
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx("memory:cursorInstance");
+    db.create();
+    try {
+      cursor.start(db, new OCallable<Object, ODatabaseDocumentTx>() {
+        public Object call(final ODatabaseDocumentTx iDatabase) {
+          assertSame(ODatabaseRecordThreadLocal.INSTANCE.get().getDatabaseOwner(), iDatabase);
+          used.set(iDatabase);
+          cursor.result(new ODocument().field("user", iDatabase.getUser().getName()));
+          return null;
+        }
+      });
+
+      final List<OIdentifiable> batch = cursor.next(10);
+      assertEquals(batch.size(), 1);
+      assertEquals(((ODocument) batch.get(0)).field("user"), db.getUser().getName());
+      assertNotSame(used.get(), db);
+      assertTrue(used.get().isClosed());
+      assertSame(ODatabaseRecordThreadLocal.INSTANCE.get().getDatabaseOwner(), db);
+    } finally {
+      db.drop();
+    }
+  }
+
+  @Test
+  public void testCursorsBeyondTheMaximumAreRefused() {
+    final Object oldMax = OGlobalConfiguration.NETWORK_BINARY_MAX_CURSORS.getValue();
+    final List<OCommandCursor> open = new ArrayList<OCommandCursor>();
+
+    Orient.instance().startup();
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx("memory:cursorMax");
+    db.create();
+    try {
+      OGlobalConfiguration.NETWORK_BINARY_MAX_CURSORS.setValue(2);
+      final OCallable<Object, ODatabaseDocumentTx> execution = new OCallable<Object, ODatabaseDocumentTx>() {
+        public Object call(final ODatabaseDocumentTx iDatabase) {
+          return null;
+        }
+      };
+
+      for (int i = 0; i < 2; ++i) {
+        final OCommandCursor cursor = new OCommandCursor();
+        cursor.start(db, execution);
+        open.add(cursor);
+      }
+
+      try {
+        new OCommandCursor().start(db, execution);
+        fail("Cursor beyond the maximum opened");
+      } catch (OCommandExecutionException e) {
+        assertTrue(e.getMessage().contains(OGlobalConfiguration.NETWORK_BINARY_MAX_CURSORS.getKey()));
+      }
+    } finally {
+      for (OCommandCursor cursor : open)
+        cursor.close();
+      OGlobalConfiguration.NETWORK_BINARY_MAX_CURSORS.setValue(oldMax);
+      db.drop();
+    }
+  }
+
+  @Test
+  public void testExpiredCursorsAreClosed() throws Exception {
+    final Object oldTimeout = OGlobalConfiguration.NETWORK_BINARY_CURSOR_TIMEOUT.getValue();
+    try {
+      final OClientConnection connection = new OClientConnection(1, null);
+      final OCommandCursor cursor = new OCommandCursor();
+      final int cursorId = connection.registerCursor(cursor);
+
+      connection.closeExpiredCursors();
+      assertNotNull(connection.getCursor(cursorId));
+
+      OGlobalConfiguration.NETWORK_BINARY_CURSOR_TIMEOUT.setValue(0);
+      Thread.sleep(10);
+      connection.closeExpiredCursors();
+      assertNull(connection.getCursor(cursorId));
+      assertTrue(cursor.isClosed());
+    } finally {
+      OGlobalConfiguration.NETWORK_BINARY_CURSOR_TIMEOUT.setValue(oldTimeout);
+    }
+  }
+
+  private List<Integer> query(final String iText, final int iMax) {
+    final List<Integer> received = new ArrayList<Integer>();
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url);
+    db.open("admin", "admin");
+    try {
+      db.command(new OSQLAsynchQuery<ODocument>(iText, new OCommandResultListener() {
+        public boolean result(final Object iRecord) {
+          received.add((Integer) ((ODocument) iRecord).field("i"));
+          return iMax < 0 || received.size() < iMax;
+        }
+
+        public void end() {
+        }
+      })).execute();
+    } finally {
+      db.close();
+    }
+    return received;
+  }
+
+  private static List<Integer> range(final int iSize) {
+    final List<Integer> list = new ArrayList<Integer>();
+    for (int i = 0; i < iSize; ++i)
+      list.add(i);
+    return list;
+  }
+}
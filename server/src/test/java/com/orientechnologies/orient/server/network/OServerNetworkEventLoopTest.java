@@ -0,0 +1,129 @@
+package com.orientechnologies.orient.server.network;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OContextConfiguration;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryServer;
+import com.orientechnologies.orient.server.network.protocol.binary.ONetworkProtocolBinary;
+
+public class OServerNetworkEventLoopTest extends OServerNetworkTestAbstract {
+  public OServerNetworkEventLoopTest() {
+    super("eventloop");
+  }
+
+  @BeforeClass
+  public void before() throws Exception {
+    startServer("orientdb-server-eventloop-config.xml");
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url);
+    db.open("admin", "admin");
+    db.getMetadata().getSchema().createClass("EventLoop");
+    db.close();
+  }
+
+  @AfterClass
+  public void after() {
+    shutdownServer();
+  }
+
+  @Test
+  public void testConcurrentClients() throws Exception {
+    final OServerNetworkListener listener = server.getListenerByProtocol(ONetworkProtocolBinary.class);
+    assertNotNull(listener.getEventLoop());
+
+    final ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      final List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+      for (int t = 0; t < 8; ++t) {
+        final int thread = t;
+        results.add(executor.submit(new Callable<Integer>() {
+          public Integer call() throws Exception {
+            final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url);
+            db.open("admin", "admin");
+            try {
+              for (int i = 0; i < 50; ++i)
+                new ODocument("EventLoop").field("thread", thread).field("i", i).save();
+
+              return db.query(new OSQLSynchQuery<ODocument>("select from EventLoop where thread = " + thread)).size();
+            } finally {
+              db.close();
+            }
+          }
+        }));
+      }
+
+      for (Future<Integer> result : results)
+        assertEquals(result.get().intValue(), 50);
+    } finally {
+      executor.shutdown();
+    }
+
+    // THE IDLE CONNECTION IS PARKED IN THE SELECTOR
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url);
+    db.open("admin", "admin");
+    try {
+      assertEquals(db.countClass("EventLoop"), 400);
+
+      for (int retry = 0; retry < 50 && listener.getEventLoop().getParkedConnections() == 0; ++retry)
+        Thread.sleep(100);
+      assertTrue(listener.getEventLoop().getParkedConnections() > 0);
+    } finally {
+      db.close();
+    }
+  }
+
+  @Test
+  public void testWriteToSlowClientTimesOut() throws Exception {
+    final ServerSocketChannel serverChannel = ServerSocketChannel.open();
+    serverChannel.socket().bind(new InetSocketAddress("localhost", 0));
+    final Socket client = new Socket("localhost", serverChannel.socket().getLocalPort());
+    final SocketChannel channel = serverChannel.accept();
+    try {
+      final OContextConfiguration configuration = new OContextConfiguration();
+      configuration.setValue(OGlobalConfiguration.NETWORK_SOCKET_TIMEOUT, 500);
+      final OChannelBinaryServer binary = new OChannelBinaryServer(channel.socket(), configuration);
+
+      // PARKED CONNECTION: THE CLIENT NEVER READS
+      channel.configureBlocking(false);
+      final long start = System.currentTimeMillis();
+      try {
+        for (int i = 0; i < 1024; ++i)
+          binary.writeBytes(new byte[64 * 1024]);
+        binary.flush();
+        fail();
+      } catch (SocketTimeoutException e) {
+        assertTrue(System.currentTimeMillis() - start >= 500);
+      }
+
+      // THE CHANNEL IS NOT LEFT REGISTERED
+      channel.configureBlocking(true);
+    } finally {
+      client.close();
+      channel.close();
+      serverChannel.close();
+    }
+  }
+}
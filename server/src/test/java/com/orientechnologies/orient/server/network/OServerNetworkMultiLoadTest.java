@@ -0,0 +1,64 @@
+package com.orientechnologies.orient.server.network;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.server.OClientConnection;
+import com.orientechnologies.orient.server.OClientConnectionManager;
+
+public class OServerNetworkMultiLoadTest extends OServerNetworkTestAbstract {
+  public OServerNetworkMultiLoadTest() {
+    super("multiload");
+  }
+
+  @BeforeClass
+  public void before() throws Exception {
+    startServer();
+  }
+
+  @AfterClass
+  public void after() {
+    shutdownServer();
+  }
+
+  @Test
+  public void testMultiLoad() {
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url);
+    db.open("admin", "admin");
+    try {
+      final List<ORID> rids = new ArrayList<ORID>();
+      for (int i = 0; i < 20; ++i)
+        rids.add(new ODocument().field("multi", i).save().getIdentity());
+      Collections.reverse(rids);
+
+      db.getLocalCache().clear();
+      final int requests = getTotalRequests();
+      final List<ODocument> loaded = db.load(rids);
+
+      // ALL THE RECORDS ARE READ IN ONE ROUND TRIP
+      assertEquals(getTotalRequests() - requests, 1);
+      assertEquals(loaded.size(), 20);
+      for (int i = 0; i < 20; ++i)
+        assertEquals(loaded.get(i).field("multi"), 19 - i);
+    } finally {
+      db.close();
+    }
+  }
+
+  private static int getTotalRequests() {
+    int total = 0;
+    for (OClientConnection connection : OClientConnectionManager.instance().getConnections())
+      total += connection.data.totalRequests;
+    return total;
+  }
+}
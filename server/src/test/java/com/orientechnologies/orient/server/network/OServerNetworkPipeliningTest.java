@@ -0,0 +1,101 @@
+package com.orientechnologies.orient.server.network;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.client.remote.OStorageRemoteThreadLocal;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+public class OServerNetworkPipeliningTest extends OServerNetworkTestAbstract {
+  private Object oldPipelining;
+  private Object oldMaxPool;
+
+  public OServerNetworkPipeliningTest() {
+    super("pipelining");
+  }
+
+  @BeforeClass
+  public void before() throws Exception {
+    oldPipelining = OGlobalConfiguration.CLIENT_CHANNEL_PIPELINING.getValue();
+    oldMaxPool = OGlobalConfiguration.CLIENT_CHANNEL_MAX_POOL.getValue();
+    OGlobalConfiguration.CLIENT_CHANNEL_PIPELINING.setValue(true);
+    OGlobalConfiguration.CLIENT_CHANNEL_MAX_POOL.setValue(2);
+
+    startServer();
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url);
+    db.open("admin", "admin");
+    db.getMetadata().getSchema().createClass("Pipelined");
+    db.close();
+  }
+
+  @AfterClass
+  public void after() {
+    shutdownServer();
+
+    OGlobalConfiguration.CLIENT_CHANNEL_PIPELINING.setValue(oldPipelining);
+    OGlobalConfiguration.CLIENT_CHANNEL_MAX_POOL.setValue(oldMaxPool);
+  }
+
+  @Test
+  public void testConcurrentRequestsOnFewConnections() throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      final List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+      for (int t = 0; t < 8; ++t) {
+        final int thread = t;
+        results.add(executor.submit(new Callable<Integer>() {
+          public Integer call() throws Exception {
+            final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url);
+            db.open("admin", "admin");
+            try {
+              for (int i = 0; i < 50; ++i) {
+                final ORID rid = new ODocument("Pipelined").field("thread", thread).field("i", i).save().getIdentity();
+
+                // EVERY THREAD MUST RECEIVE ITS OWN RESPONSE
+                db.getLocalCache().clear();
+                final ODocument loaded = db.load(rid);
+                assertEquals(loaded.field("thread"), thread);
+                assertEquals(loaded.field("i"), i);
+
+                // THE REQUEST ID DOES NOT SURVIVE ITS RESPONSE
+                assertEquals(OStorageRemoteThreadLocal.INSTANCE.get().requestId, -1);
+              }
+
+              return db.query(new OSQLSynchQuery<ODocument>("select from Pipelined where thread = " + thread)).size();
+            } finally {
+              db.close();
+            }
+          }
+        }));
+      }
+
+      for (Future<Integer> result : results)
+        assertEquals(result.get().intValue(), 50);
+    } finally {
+      executor.shutdown();
+    }
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url);
+    db.open("admin", "admin");
+    try {
+      assertEquals(db.countClass("Pipelined"), 400);
+    } finally {
+      db.close();
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package com.orientechnologies.orient.server.network;
+
+import java.io.File;
+
+import com.orientechnologies.common.io.OFileUtils;
+import com.orientechnologies.orient.client.remote.OServerAdmin;
+import com.orientechnologies.orient.server.OServer;
+
+/**
+ * Runs a server with an empty in-memory database for the network tests. The server directory is deleted on startup and on
+ * shutdown, so nothing is left to the next run.
+ */
+public abstract class OServerNetworkTestAbstract {
+  private static final String ROOT_PASSWORD = "D2AFD02F20640EC8B7A5140F34FCA49D2289DB1F0D0598BB9DE8AAA75A0792F3";
+  protected final String      url;
+  private final String        serverDirectory;
+  protected OServer           server;
+
+  protected OServerNetworkTestAbstract(final String iDatabaseName) {
+    url = "remote:localhost/" + iDatabaseName;
+    serverDirectory = "./target/" + iDatabaseName;
+  }
+
+  protected void startServer() throws Exception {
+    startServer("orientdb-server-config.xml");
+  }
+
+  protected void startServer(final String iConfiguration) throws Exception {
+    OFileUtils.deleteRecursively(new File(serverDirectory));
+
+    server = new OServer();
+    server.setServerRootDirectory(serverDirectory);
+    server.startup(OServerNetworkTestAbstract.class.getResourceAsStream(iConfiguration));
+    server.activate();
+
+    final OServerAdmin admin = new OServerAdmin(url);
+    admin.connect("root", ROOT_PASSWORD);
+    admin.createDatabase("document", "memory");
+    admin.close();
+  }
+
+  protected void shutdownServer() {
+    server.shutdown();
+    OFileUtils.deleteRecursively(new File(serverDirectory));
+  }
+}
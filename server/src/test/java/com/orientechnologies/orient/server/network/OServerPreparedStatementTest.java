@@ -0,0 +1,164 @@
+package com.orientechnologies.orient.server.network;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.command.OCommandResultListener;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLAsynchQuery;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+public class OServerPreparedStatementTest extends OServerNetworkTestAbstract {
+  private Object oldPrepared;
+  private Object oldMaxStatements;
+  private Object oldBatchSize;
+
+  public OServerPreparedStatementTest() {
+    super("prepared");
+  }
+
+  @BeforeClass
+  public void before() throws Exception {
+    oldPrepared = OGlobalConfiguration.CLIENT_PREPARED_STATEMENTS.getValue();
+    oldMaxStatements = OGlobalConfiguration.NETWORK_BINARY_MAX_PREPARED_STATEMENTS.getValue();
+    oldBatchSize = OGlobalConfiguration.CLIENT_QUERY_CURSOR_BATCH_SIZE.getValue();
+    OGlobalConfiguration.CLIENT_PREPARED_STATEMENTS.setValue(true);
+    // ASYNCHRONOUS QUERIES ARE BROWSED THROUGH CURSORS
+    OGlobalConfiguration.CLIENT_QUERY_CURSOR_BATCH_SIZE.setValue(3);
+
+    startServer();
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url);
+    db.open("admin", "admin");
+    try {
+      final OClass lookup = db.getMetadata().getSchema().createClass("Lookup");
+      lookup.createProperty("key", OType.INTEGER).createIndex(OClass.INDEX_TYPE.NOTUNIQUE);
+      for (int i = 0; i < 100; ++i)
+        new ODocument("Lookup").field("key", i).field("value", i % 10).save();
+    } finally {
+      db.close();
+    }
+  }
+
+  @AfterClass
+  public void after() {
+    shutdownServer();
+
+    OGlobalConfiguration.CLIENT_PREPARED_STATEMENTS.setValue(oldPrepared);
+    OGlobalConfiguration.NETWORK_BINARY_MAX_PREPARED_STATEMENTS.setValue(oldMaxStatements);
+    OGlobalConfiguration.CLIENT_QUERY_CURSOR_BATCH_SIZE.setValue(oldBatchSize);
+  }
+
+  @Test
+  public void testIndexedLookup() {
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url);
+    db.open("admin", "admin");
+    try {
+      // THE CONDITION SATISFIED BY THE INDEX IS REMOVED ON EXECUTION: EVERY EXECUTION MUST USE THE NEW PARAMETER
+      final OSQLSynchQuery<ODocument> query = new OSQLSynchQuery<ODocument>("select from Lookup where key = ?");
+      for (int i = 0; i < 100; ++i) {
+        final List<ODocument> result = db.query(query, i);
+        assertEquals(result.size(), 1);
+        assertEquals(result.get(0).field("key"), i);
+      }
+
+      final OSQLSynchQuery<ODocument> partial = new OSQLSynchQuery<ODocument>(
+          "select from Lookup where key < ? and value = ? order by key");
+      for (int i = 0; i < 10; ++i) {
+        final List<ODocument> result = db.query(partial, 50, i);
+        assertEquals(result.size(), 5);
+        for (ODocument doc : result)
+          assertEquals(doc.field("value"), i);
+      }
+    } finally {
+      db.close();
+    }
+  }
+
+  @Test
+  public void testNotReusableQuery() {
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url);
+    db.open("admin", "admin");
+    try {
+      // SUB-QUERIES ARE EXECUTED ONCE PER PARSING: THE QUERY IS PARSED AT EVERY EXECUTION
+      final OSQLSynchQuery<ODocument> query = new OSQLSynchQuery<ODocument>(
+          "select from Lookup let $max = (select max(key) from Lookup) where value = ?");
+      for (int i = 0; i < 10; ++i) {
+        final List<ODocument> result = db.query(query, i);
+        assertEquals(result.size(), 10);
+        for (ODocument doc : result)
+          assertEquals(doc.field("value"), i);
+      }
+    } finally {
+      db.close();
+    }
+  }
+
+  @Test(timeOut = 60000)
+  public void testStatementExecutedWhileItsCursorIsOpen() {
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url);
+    db.open("admin", "admin");
+    try {
+      final List<Object> inner = new ArrayList<Object>();
+      final List<Object> outer = new ArrayList<Object>();
+      db.command(new OSQLAsynchQuery<ODocument>("select from Lookup where value = ?", new OCommandResultListener() {
+        public boolean result(final Object iRecord) {
+          outer.add(((ODocument) iRecord).field("value"));
+          if (outer.size() == 1)
+            // THE SAME STATEMENT EXECUTED WHILE THE CURSOR OF THE FIRST EXECUTION IS OPEN
+            db.command(new OSQLAsynchQuery<ODocument>("select from Lookup where value = ?", new OCommandResultListener() {
+              public boolean result(final Object iInner) {
+                inner.add(((ODocument) iInner).field("value"));
+                return true;
+              }
+
+              public void end() {
+              }
+            })).execute(2);
+          return true;
+        }
+
+        public void end() {
+        }
+      })).execute(1);
+
+      assertEquals(outer, Collections.nCopies(10, (Object) 1));
+      assertEquals(inner, Collections.nCopies(10, (Object) 2));
+    } finally {
+      db.close();
+    }
+  }
+
+  @Test
+  public void testClosedStatements() {
+    OGlobalConfiguration.NETWORK_BINARY_MAX_PREPARED_STATEMENTS.setValue(2);
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url);
+    db.open("admin", "admin");
+    try {
+      // MORE QUERIES THAN THE STATEMENTS KEPT BY THE SERVER: THE CLOSED ONES ARE PREPARED AGAIN
+      final OSQLSynchQuery<ODocument> byKey = new OSQLSynchQuery<ODocument>("select from Lookup where key = ?");
+      final OSQLSynchQuery<ODocument> byValue = new OSQLSynchQuery<ODocument>("select from Lookup where value = ?");
+      final OSQLSynchQuery<ODocument> count = new OSQLSynchQuery<ODocument>("select count(*) from Lookup where value = ?");
+      for (int i = 0; i < 10; ++i) {
+        assertEquals(db.query(byKey, i).size(), 1);
+        assertEquals(db.query(byValue, i).size(), 10);
+        assertEquals(((ODocument) db.query(count, i).get(0)).field("count"), 10l);
+      }
+    } finally {
+      db.close();
+      OGlobalConfiguration.NETWORK_BINARY_MAX_PREPARED_STATEMENTS.setValue(oldMaxStatements);
+    }
+  }
+}